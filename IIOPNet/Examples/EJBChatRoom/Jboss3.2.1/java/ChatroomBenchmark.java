@@ -0,0 +1,207 @@
+/* ChatroomBenchmark.java
+ *
+ * Project: IIOP.NET
+ * Examples
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import ch.elca.iiop.demo.ejbChatroom.ChatroomServer;
+import ch.elca.iiop.demo.ejbChatroom.Message;
+import ch.elca.iiop.demo.ejbChatroom.MessageDelivery;
+import ch.elca.iiop.demo.ejbChatroom.MessageListener;
+
+
+/**
+ * Broadcasts messages to nrOfListeners in-process listeners of the
+ * ChatroomServer, of which nrOfSlow take slowMillis per message (like a
+ * .NET client behind a slow link). It compares the former broadCast, which
+ * called the listeners one after the other on the caller's thread, with the
+ * queued delivery of MessageDelivery: the time a broadCast call takes and
+ * the latency until the fast listeners have the message. With "queued" as
+ * last argument only the queued delivery runs, e.g. for hung listeners
+ * (slowMillis longer than chatroom.delivery.timeout).
+ * The delivery is configured with the system properties of ChatroomServer:
+ *   java -Dchatroom.delivery.queueSize=10 -Dchatroom.delivery.overflow=dropOldest ChatroomBenchmark
+ *        [nrOfListeners] [nrOfSlow] [slowMillis] [nrOfMessages] [intervalMillis] [queued]
+ */
+public class ChatroomBenchmark {
+
+    private ChatroomServer m_server = ChatroomServer.getSingleton();
+    private BenchmarkListener[] m_listeners;
+    private int m_nrOfSlow;
+    private int m_nrOfMessages;
+    private long m_intervalMillis;
+    private boolean m_queuedOnly;
+
+
+    public ChatroomBenchmark(int nrOfListeners, int nrOfSlow, long slowMillis, int nrOfMessages,
+                             long intervalMillis, boolean queuedOnly) throws Exception {
+        m_nrOfSlow = nrOfSlow;
+        m_queuedOnly = queuedOnly;
+        m_nrOfMessages = nrOfMessages;
+        m_intervalMillis = intervalMillis;
+        m_listeners = new BenchmarkListener[nrOfListeners];
+        for (int i = 0; i < nrOfListeners; i++) {
+            // the first nrOfSlow listeners are slow
+            m_listeners[i] = new BenchmarkListener(i < nrOfSlow ? slowMillis : 0);
+            m_server.addClient(m_listeners[i], "user" + i);
+        }
+    }
+
+
+    /** the listeners measure the time from the broadcast to their notification */
+    private static class BenchmarkListener implements MessageListener {
+
+        private long m_slowMillis;
+        private int m_received;
+        private long m_totalLatency;
+        private long m_maxLatency;
+
+        BenchmarkListener(long slowMillis) {
+            m_slowMillis = slowMillis;
+        }
+
+        public void notifyMessage(Message msg) {
+            long latency = System.currentTimeMillis() - Long.parseLong(msg.getMsg());
+            synchronized (this) {
+                m_received++;
+                m_totalLatency += latency;
+                m_maxLatency = Math.max(m_maxLatency, latency);
+            }
+            if (m_slowMillis > 0) {
+                try {
+                    Thread.sleep(m_slowMillis);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }
+
+        synchronized void Reset() {
+            m_received = 0;
+            m_totalLatency = 0;
+            m_maxLatency = 0;
+        }
+
+    }
+
+
+    /** the former broadCast of ChatroomBean */
+    private void BroadCastSequential(Message msg) {
+        MessageListener[] listeners = m_server.getClients();
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].notifyMessage(msg);
+            } catch (Exception e) {
+                m_server.removeListener(listeners[i]);
+            }
+        }
+    }
+
+    private void Run(String name, boolean queued) throws Exception {
+        for (int i = 0; i < m_listeners.length; i++) {
+            m_listeners[i].Reset();
+        }
+        long callTime = 0;
+        long maxCallTime = 0;
+        for (int i = 0; i < m_nrOfMessages; i++) {
+            long start = System.currentTimeMillis();
+            Message msg = new Message(String.valueOf(start), "benchmark");
+            if (queued) {
+                m_server.broadCast(msg);
+            } else {
+                BroadCastSequential(msg);
+            }
+            long time = System.currentTimeMillis() - start;
+            callTime += time;
+            maxCallTime = Math.max(maxCallTime, time);
+            Thread.sleep(m_intervalMillis);
+        }
+        // wait for the fast listeners
+        long deadline = System.currentTimeMillis() + 30000;
+        for (int i = m_nrOfSlow; i < m_listeners.length; i++) {
+            while ((m_listeners[i].m_received < m_nrOfMessages) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+        }
+        long fastReceived = 0;
+        long fastLatency = 0;
+        long fastMaxLatency = 0;
+        for (int i = m_nrOfSlow; i < m_listeners.length; i++) {
+            synchronized (m_listeners[i]) {
+                fastReceived += m_listeners[i].m_received;
+                fastLatency += m_listeners[i].m_totalLatency;
+                fastMaxLatency = Math.max(fastMaxLatency, m_listeners[i].m_maxLatency);
+            }
+        }
+        long slowReceived = 0;
+        for (int i = 0; i < m_nrOfSlow; i++) {
+            slowReceived += m_listeners[i].m_received;
+        }
+        System.out.println(Table.pad(name, 12) +
+                           Table.pad(Table.format(callTime / (double)m_nrOfMessages), 16) +
+                           Table.pad(String.valueOf(maxCallTime), 14) +
+                           Table.pad(Table.format(fastLatency / (double)Math.max(1, fastReceived)), 18) +
+                           Table.pad(String.valueOf(fastMaxLatency), 16) +
+                           Table.pad(fastReceived + "/" + (long)(m_listeners.length - m_nrOfSlow) * m_nrOfMessages, 16) +
+                           slowReceived + "/" + (long)m_nrOfSlow * m_nrOfMessages);
+    }
+
+    public void Run() throws Exception {
+        MessageDelivery delivery = m_server.getDelivery();
+        System.out.println(m_listeners.length + " listeners, " + m_nrOfSlow + " slow, " + m_nrOfMessages +
+                           " messages; delivery: " + delivery.getNrOfThreads() + " threads, queue size " +
+                           delivery.getQueueSize() + ", overflow " +
+                           (delivery.getOverflowPolicy() == MessageDelivery.DISCONNECT ? "disconnect" : "dropOldest") +
+                           ", call timeout " + delivery.getCallTimeoutMillis() + " ms");
+        System.out.println("broadCast   call ms (avg)   call ms (max) fast latency ms   fast max ms     " +
+                           "fast received   slow received");
+        if (!m_queuedOnly) {
+            Run("sequential", false);
+        }
+        Run("queued", true);
+        System.out.println("delivered: " + delivery.getNrOfDelivered() + ", dropped: " + delivery.getNrOfDropped() +
+                           ", disconnected: " + delivery.getNrOfDisconnected() + " (timed out: " +
+                           delivery.getNrOfTimedOut() + "), listeners left: " + m_server.getClients().length +
+                           ", delivery threads: " + delivery.getNrOfThreads());
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfListeners = (args.length > 0 ? Integer.parseInt(args[0]) : 1000);
+            int nrOfSlow = (args.length > 1 ? Integer.parseInt(args[1]) : 5);
+            long slowMillis = (args.length > 2 ? Long.parseLong(args[2]) : 50);
+            int nrOfMessages = (args.length > 3 ? Integer.parseInt(args[3]) : 40);
+            long intervalMillis = (args.length > 4 ? Long.parseLong(args[4]) : 10);
+            boolean queuedOnly = (args.length > 5) && args[5].equals("queued");
+            new ChatroomBenchmark(nrOfListeners, nrOfSlow, slowMillis, nrOfMessages, intervalMillis,
+                                  queuedOnly).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -86,18 +86,9 @@ public class ChatroomBean implements SessionBean {
 
 
     public void broadCast(Message msg) {
+        // delivered asynchronously, a slow listener doesn't delay the others
         ChatroomServer server = ChatroomServer.getSingleton();
-        MessageListener[] listeners = server.getClients();
-        for (int i = 0; i < listeners.length; i++) {
-			try {
-	            listeners[i].notifyMessage(msg);
-			} catch (Exception e) {
-				System.err.println("error sending msg: " + e);
-				System.err.println("--> removing listener");
-				server.removeListener(listeners[i]);
-			}
-        }
-
+        server.broadCast(msg);
     }
     
     public void registerMe(MessageListener listener, String forUser) 
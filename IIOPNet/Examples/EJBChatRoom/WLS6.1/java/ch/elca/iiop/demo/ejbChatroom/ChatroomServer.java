@@ -38,12 +38,31 @@ import java.util.Hashtable;
 public class ChatroomServer {
 
 
+    /**
+     * the system properties configuring the MessageDelivery: the number of
+     * delivery threads, the queue size per listener, the overflow policy
+     * (dropOldest or disconnect) and the maximum time of a notifyMessage
+     * call in milliseconds (0: no limit).
+     */
+    public static final String DELIVERY_THREADS_PROPERTY = "chatroom.delivery.threads";
+    public static final String QUEUE_SIZE_PROPERTY = "chatroom.delivery.queueSize";
+    public static final String OVERFLOW_PROPERTY = "chatroom.delivery.overflow";
+    public static final String CALL_TIMEOUT_PROPERTY = "chatroom.delivery.timeout";
+
     private static ChatroomServer s_chatroomServer = new ChatroomServer();
 
     private Hashtable m_clients = new Hashtable();
+    private MessageDelivery m_delivery;
 
     private ChatroomServer() {
         super();
+        int overflowPolicy = "disconnect".equals(System.getProperty(OVERFLOW_PROPERTY)) ?
+            MessageDelivery.DISCONNECT : MessageDelivery.DROP_OLDEST;
+        m_delivery = new MessageDelivery(this, Integer.getInteger(DELIVERY_THREADS_PROPERTY, 8).intValue(),
+                                         Integer.getInteger(QUEUE_SIZE_PROPERTY, 100).intValue(),
+                                         overflowPolicy,
+                                         Long.getLong(CALL_TIMEOUT_PROPERTY,
+                                                      MessageDelivery.DEFAULT_CALL_TIMEOUT_MILLIS).longValue());
     }
     
     public static ChatroomServer getSingleton() {
@@ -59,6 +78,7 @@ public class ChatroomServer {
                                     throws AlreadyRegisteredException {				
     	if (!m_clients.containsKey(forUser)) {
     	    m_clients.put(forUser, ml);
+    	    m_delivery.addListener(ml);
     	} else {
     		throw new AlreadyRegisteredException("a message listener is already registered for user: " + 
     		                                      forUser);
@@ -67,7 +87,7 @@ public class ChatroomServer {
     
     public synchronized void removeClient(String forUser) throws NotRegisteredException {
     	if (m_clients.containsKey(forUser)) {
-    		m_clients.remove(forUser);
+    		m_delivery.removeListener((MessageListener)m_clients.remove(forUser));
     	} else {
     		throw new NotRegisteredException("no message listener registered for the user: " + 
     		                                  forUser);
@@ -79,6 +99,19 @@ public class ChatroomServer {
      **/
     public synchronized void removeListener(MessageListener listener) {
     	m_clients.values().remove(listener);
+    	m_delivery.removeListener(listener);
+    }
+    
+    /**
+     * sends the message to all registered listeners; returns, when the
+     * message is queued for them (see MessageDelivery).
+     **/
+    public void broadCast(Message msg) {
+        m_delivery.broadCast(msg);
+    }
+    
+    public MessageDelivery getDelivery() {
+        return m_delivery;
     }
     
     /** 
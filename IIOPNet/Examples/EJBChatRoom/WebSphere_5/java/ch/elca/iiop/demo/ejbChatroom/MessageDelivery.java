@@ -0,0 +1,486 @@
+/* MessageDelivery.java
+ *
+ * Project: IIOP.NET
+ * Examples
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+ 
+package ch.elca.iiop.demo.ejbChatroom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.omg.CORBA.Any;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.Policy;
+import org.omg.CORBA.PolicyError;
+import org.omg.CORBA.SetOverrideType;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.portable.ObjectImpl;
+
+
+/**
+ * Delivers the broadcast messages asynchronously: every listener has a
+ * bounded queue, the queues are drained by a pool of delivery threads shared
+ * by all listeners. broadCast returns, when the message is in the queues.
+ * A queue is drained by at most one thread at a time, so that a listener
+ * receives the messages in order and a slow listener blocks only one thread;
+ * after BATCH_SIZE messages, the thread continues with the next queue.
+ * When the queue of a listener is full, the overflow policy either drops the
+ * oldest message of the queue or disconnects the listener. A listener, for
+ * which notifyMessage fails, is disconnected.
+ * A notifyMessage call may take at most the call timeout: the listener stubs
+ * get a relative round trip timeout policy, if the orb supports it, so that
+ * the orb abandons calls to hung clients; in any case a watchdog disconnects
+ * a listener, whose call exceeds the timeout, and replaces the delivery
+ * thread stuck in the call by a new one. The stuck thread ends, when the
+ * call returns; without orb support for the timeout, this may be never, i.e.
+ * every hung client costs one thread (it is disconnected, so it can't cost
+ * more).
+ * The delivery threads are daemon threads started by the ChatroomServer
+ * singleton, like its listener table they live outside the ejb life cycle.
+ */
+public class MessageDelivery {
+
+    /** overflow policy: the oldest message in a full queue is dropped */
+    public static final int DROP_OLDEST = 0;
+    /** overflow policy: the listener of a full queue is removed */
+    public static final int DISCONNECT = 1;
+
+    /** the call timeout used by the constructor without one */
+    public static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10000;
+
+    /** the number of messages delivered to a listener, before the next queue is served */
+    private static final int BATCH_SIZE = 16;
+
+    /** Messaging::RELATIVE_RT_TIMEOUT_POLICY_TYPE, not in the org.omg packages of the jdk */
+    private static final int RELATIVE_RT_TIMEOUT_POLICY_TYPE = 32;
+
+    private ChatroomServer m_server;
+    private int m_queueSize;
+    private int m_overflowPolicy;
+    private long m_callTimeoutMillis;
+
+    /** the queues of the listeners: MessageListener -> ListenerQueue */
+    private HashMap m_queues = new HashMap();
+    private ListenerQueue[] m_queueArray = new ListenerQueue[0];
+    /** the queues with messages, which are not served by a delivery thread */
+    private LinkedList m_ready = new LinkedList();
+    /** the DeliveryThreads of the pool, without the ones stuck in a timed out call; guarded by itself */
+    private ArrayList m_threads = new ArrayList();
+    private int m_nextThreadNr;
+    private boolean m_shutdown;
+
+    private long m_nrOfDelivered;
+    private long m_nrOfDropped;
+    private long m_nrOfDisconnected;
+    private long m_nrOfTimedOut;
+
+
+    /** server: the listeners, which fail or overflow, are removed from it */
+    public MessageDelivery(ChatroomServer server, int nrOfThreads, int queueSize, int overflowPolicy) {
+        this(server, nrOfThreads, queueSize, overflowPolicy, DEFAULT_CALL_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * server: the listeners, which fail, overflow or time out, are removed
+     * from it; callTimeoutMillis: the maximum time of a notifyMessage call,
+     * 0 for no limit.
+     */
+    public MessageDelivery(ChatroomServer server, int nrOfThreads, int queueSize, int overflowPolicy,
+                           long callTimeoutMillis) {
+        if ((nrOfThreads <= 0) || (queueSize <= 0)) {
+            throw new IllegalArgumentException("nrOfThreads and queueSize must be > 0");
+        }
+        if ((overflowPolicy != DROP_OLDEST) && (overflowPolicy != DISCONNECT)) {
+            throw new IllegalArgumentException("unknown overflow policy: " + overflowPolicy);
+        }
+        if (callTimeoutMillis < 0) {
+            throw new IllegalArgumentException("callTimeoutMillis must be >= 0");
+        }
+        m_server = server;
+        m_queueSize = queueSize;
+        m_overflowPolicy = overflowPolicy;
+        m_callTimeoutMillis = callTimeoutMillis;
+        synchronized (m_threads) {
+            for (int i = 0; i < nrOfThreads; i++) {
+                StartThread();
+            }
+        }
+        if (callTimeoutMillis > 0) {
+            Thread watchdog = new Thread("chatroom delivery watchdog") {
+                public void run() {
+                    Watch();
+                }
+            };
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+
+    public void addListener(MessageListener listener) {
+        MessageListener target = WithReplyTimeout(listener);
+        synchronized (this) {
+            if (!m_queues.containsKey(listener)) {
+                m_queues.put(listener, new ListenerQueue(listener, target));
+                m_queueArray = null;
+            }
+        }
+    }
+
+    /** removes the listener; the messages not yet delivered to it are dropped */
+    public void removeListener(MessageListener listener) {
+        ListenerQueue queue;
+        synchronized (this) {
+            queue = (ListenerQueue)m_queues.remove(listener);
+            m_queueArray = null;
+        }
+        if (queue != null) {
+            synchronized (queue) {
+                queue.Closed = true;
+                queue.Messages.clear();
+            }
+        }
+    }
+
+    /** queues the message for all listeners */
+    public void broadCast(Message msg) {
+        ListenerQueue[] queues;
+        synchronized (this) {
+            if (m_queueArray == null) {
+                m_queueArray = (ListenerQueue[])m_queues.values().toArray(new ListenerQueue[m_queues.size()]);
+            }
+            queues = m_queueArray;
+        }
+        for (int i = 0; i < queues.length; i++) {
+            Enqueue(queues[i], msg);
+        }
+    }
+
+    /**
+     * returns a stub of the listener, for which the orb gives up a call after
+     * the call timeout; the listener itself, if it isn't a stub or the orb
+     * doesn't support the relative round trip timeout policy. Doesn't call
+     * the listener: the override is wrapped in a new stub of the listener's
+     * stub class without checking the type (no remote _is_a as in a narrow),
+     * so that it can be called while holding the monitors of the
+     * ChatroomServer.
+     */
+    private MessageListener WithReplyTimeout(MessageListener listener) {
+        if ((m_callTimeoutMillis <= 0) || !(listener instanceof ObjectImpl)) {
+            return listener;
+        }
+        try {
+            ObjectImpl stub = (ObjectImpl)listener;
+            ORB orb = stub._orb();
+            Any timeout = orb.create_any();
+            timeout.insert_ulonglong(m_callTimeoutMillis * 10000); // TimeBase::TimeT, 100 ns units
+            Policy policy = orb.create_policy(RELATIVE_RT_TIMEOUT_POLICY_TYPE, timeout);
+            ObjectImpl target = (ObjectImpl)
+                stub._set_policy_override(new Policy[] { policy }, SetOverrideType.ADD_OVERRIDE);
+            ObjectImpl result = (ObjectImpl)stub.getClass().newInstance();
+            result._set_delegate(target._get_delegate());
+            return (MessageListener)result;
+        } catch (PolicyError e) {
+            return listener; // not supported; the watchdog limits the calls
+        } catch (SystemException e) {
+            return listener;
+        } catch (InstantiationException e) {
+            return listener; // no stub class with a public no-arg constructor
+        } catch (IllegalAccessException e) {
+            return listener;
+        } catch (ClassCastException e) {
+            return listener;
+        }
+    }
+
+    /** stops the delivery threads; the queued messages are not delivered */
+    public void shutdown() {
+        synchronized (m_ready) {
+            m_shutdown = true;
+            m_ready.notifyAll();
+        }
+    }
+
+    private void Enqueue(ListenerQueue queue, Message msg) {
+        boolean schedule = false;
+        boolean overflow = false;
+        synchronized (queue) {
+            if (queue.Closed) {
+                return;
+            }
+            if (queue.Messages.size() >= m_queueSize) {
+                if (m_overflowPolicy == DISCONNECT) {
+                    overflow = true;
+                    queue.Closed = true;
+                    queue.Messages.clear();
+                } else {
+                    queue.Messages.removeFirst();
+                    Dropped();
+                }
+            }
+            if (!overflow) {
+                queue.Messages.addLast(msg);
+                schedule = !queue.Scheduled;
+                queue.Scheduled = true;
+            }
+        }
+        if (overflow) {
+            System.err.println("message queue full for a listener --> removing listener");
+            Disconnect(queue.Listener);
+        } else if (schedule) {
+            synchronized (m_ready) {
+                m_ready.addLast(queue);
+                m_ready.notify();
+            }
+        }
+    }
+
+    /** adds a delivery thread to the pool; the caller holds the lock of m_threads */
+    private void StartThread() {
+        DeliveryThread thread = new DeliveryThread("chatroom delivery " + m_nextThreadNr++);
+        m_threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * the loop of the watchdog: disconnects the listeners of the calls taking
+     * longer than the call timeout and replaces their threads
+     */
+    private void Watch() {
+        long interval = Math.max(10, m_callTimeoutMillis / 4);
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (m_ready) {
+                if (m_shutdown) {
+                    return;
+                }
+            }
+            ArrayList timedOut = new ArrayList();
+            synchronized (m_threads) {
+                long now = System.currentTimeMillis();
+                for (int i = m_threads.size() - 1; i >= 0; i--) {
+                    DeliveryThread thread = (DeliveryThread)m_threads.get(i);
+                    if ((thread.Calling != null) && (now - thread.CallStart > m_callTimeoutMillis)) {
+                        // the thread leaves the pool, when the call returns
+                        thread.Abandoned = true;
+                        timedOut.add(thread.Calling);
+                        m_threads.remove(i);
+                        StartThread();
+                    }
+                }
+            }
+            for (int i = 0; i < timedOut.size(); i++) {
+                ListenerQueue queue = (ListenerQueue)timedOut.get(i);
+                System.err.println("notifyMessage timed out after " + m_callTimeoutMillis +
+                                   " ms --> removing listener");
+                synchronized (queue) {
+                    queue.Closed = true;
+                    queue.Messages.clear();
+                }
+                synchronized (this) {
+                    m_nrOfTimedOut++;
+                }
+                Disconnect(queue.Listener);
+            }
+        }
+    }
+
+    /** the loop of a delivery thread */
+    private void Deliver(DeliveryThread self) {
+        while (!self.Abandoned) {
+            ListenerQueue queue;
+            synchronized (m_ready) {
+                while (m_ready.isEmpty() && !m_shutdown) {
+                    try {
+                        m_ready.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (m_shutdown) {
+                    return;
+                }
+                queue = (ListenerQueue)m_ready.removeFirst();
+            }
+            DeliverBatch(queue, self);
+        }
+    }
+
+    /** delivers up to BATCH_SIZE messages of the queue, then schedules it again if needed */
+    private void DeliverBatch(ListenerQueue queue, DeliveryThread self) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Message msg;
+            synchronized (queue) {
+                if (queue.Messages.isEmpty()) {
+                    queue.Scheduled = false;
+                    return;
+                }
+                msg = (Message)queue.Messages.removeFirst();
+            }
+            synchronized (m_threads) {
+                self.Calling = queue;
+                self.CallStart = System.currentTimeMillis();
+            }
+            try {
+                queue.Target.notifyMessage(msg);
+                if (EndCall(self)) {
+                    return; // timed out, the watchdog has removed the listener
+                }
+                Delivered();
+            } catch (Exception e) {
+                if (EndCall(self)) {
+                    return;
+                }
+                System.err.println("error sending msg: " + e);
+                System.err.println("--> removing listener");
+                synchronized (queue) {
+                    queue.Closed = true;
+                    queue.Messages.clear();
+                    queue.Scheduled = false;
+                }
+                Disconnect(queue.Listener);
+                return;
+            }
+        }
+        synchronized (queue) {
+            if (queue.Messages.isEmpty()) {
+                queue.Scheduled = false;
+                return;
+            }
+        }
+        synchronized (m_ready) {
+            m_ready.addLast(queue);
+            m_ready.notify();
+        }
+    }
+
+    /** marks the end of a notifyMessage call; returns true, if the watchdog has abandoned it */
+    private boolean EndCall(DeliveryThread self) {
+        synchronized (m_threads) {
+            self.Calling = null;
+            return self.Abandoned;
+        }
+    }
+
+    private void Disconnect(MessageListener listener) {
+        synchronized (this) {
+            m_nrOfDisconnected++;
+        }
+        m_server.removeListener(listener);
+    }
+
+    private synchronized void Delivered() {
+        m_nrOfDelivered++;
+    }
+
+    private synchronized void Dropped() {
+        m_nrOfDropped++;
+    }
+
+    public synchronized long getNrOfDelivered() {
+        return m_nrOfDelivered;
+    }
+
+    /** the messages dropped by the DROP_OLDEST policy */
+    public synchronized long getNrOfDropped() {
+        return m_nrOfDropped;
+    }
+
+    /** the listeners removed after a failure, an overflow or a timeout */
+    public synchronized long getNrOfDisconnected() {
+        return m_nrOfDisconnected;
+    }
+
+    /** the listeners removed, because a call took longer than the call timeout */
+    public synchronized long getNrOfTimedOut() {
+        return m_nrOfTimedOut;
+    }
+
+    /** the maximum time of a notifyMessage call; 0 for no limit */
+    public long getCallTimeoutMillis() {
+        return m_callTimeoutMillis;
+    }
+
+    public int getQueueSize() {
+        return m_queueSize;
+    }
+
+    public int getOverflowPolicy() {
+        return m_overflowPolicy;
+    }
+
+    /** the delivery threads of the pool, without the ones stuck in timed out calls */
+    public int getNrOfThreads() {
+        synchronized (m_threads) {
+            return m_threads.size();
+        }
+    }
+
+
+    /** a thread of the pool; the call fields are guarded by the lock of m_threads */
+    private class DeliveryThread extends Thread {
+
+        /** the queue, whose listener is called at the moment; null between calls */
+        ListenerQueue Calling;
+        long CallStart;
+        /** the call timed out, the thread ends after it */
+        boolean Abandoned;
+
+        DeliveryThread(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        public void run() {
+            Deliver(this);
+        }
+
+    }
+
+
+    /** the pending messages of a listener */
+    private static class ListenerQueue {
+
+        final MessageListener Listener;
+        /** the stub called: Listener, with the reply timeout policy if supported */
+        final MessageListener Target;
+        final LinkedList Messages = new LinkedList();
+        /** true, while the queue is in the ready list or served by a delivery thread */
+        boolean Scheduled;
+        boolean Closed;
+
+        ListenerQueue(MessageListener listener, MessageListener target) {
+            Listener = listener;
+            Target = target;
+        }
+
+    }
+
+}
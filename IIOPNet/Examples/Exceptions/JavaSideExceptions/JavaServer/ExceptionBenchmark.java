@@ -0,0 +1,95 @@
+/* ExceptionBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IIOPChannel Tutorial
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import tutorial.*;
+
+import Ch.Elca.Iiop.Benchmark.Loopback;
+import Ch.Elca.Iiop.Benchmark.Table;
+
+
+/**
+ * Measures the number of fail() calls per second, which return a
+ * CustomException. Run it once without and once with stack trace
+ * capture (see FastUserException):
+ *   java -cp . ExceptionBenchmark [nrOfCalls]
+ *   java -Dtutorial.captureStackTrace=true -cp . ExceptionBenchmark [nrOfCalls]
+ * Server and client run in the same process, but use different orbs.
+ */
+public class ExceptionBenchmark {
+
+    private Service m_service;
+
+    public ExceptionBenchmark(Loopback loopback) throws Exception {
+        m_service = (Service)loopback.export(new ServiceImpl(), Service.class);
+    }
+
+    private int CallFail(int nrOfCalls) throws Exception {
+        int traceLength = 0;
+        for (int i = 0; i < nrOfCalls; i++) {
+            try {
+                m_service.fail();
+                throw new IllegalStateException("fail() returned normally");
+            } catch (CustomException e) {
+                traceLength = e.getStackTrace().length;
+            }
+        }
+        return traceLength;
+    }
+
+    private void Measure(String label, int nrOfCalls) throws Exception {
+        CallFail(nrOfCalls / 10); // warm up
+        long start = System.currentTimeMillis();
+        int traceLength = CallFail(nrOfCalls);
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println(Table.pad(label, 20) +
+                           Table.pad(String.valueOf(traceLength), 16) +
+                           Table.pad(String.valueOf(nrOfCalls * 1000L / time), 12) +
+                           ((double)time * 1000 / nrOfCalls));
+    }
+
+    public void Run(int nrOfCalls) throws Exception {
+        System.out.println(Table.pad("mode", 20) + Table.pad("trace elements", 16) +
+                           Table.pad("calls/s", 12) + "us/call");
+        String label = (Boolean.getBoolean("tutorial.captureStackTrace") ?
+                        "with stack trace" : "no stack trace");
+        for (int i = 0; i < 3; i++) {
+            Measure(label, nrOfCalls);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 50000);
+            Loopback loopback = new Loopback();
+            new ExceptionBenchmark(loopback).Run(nrOfCalls);
+            loopback.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
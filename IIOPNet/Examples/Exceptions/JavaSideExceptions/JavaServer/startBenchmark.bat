@@ -0,0 +1,3 @@
+java -cp . ExceptionBenchmark
+
+java -Dtutorial.captureStackTrace=true -cp . ExceptionBenchmark
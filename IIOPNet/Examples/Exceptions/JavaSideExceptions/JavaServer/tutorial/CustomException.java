@@ -26,7 +26,7 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import javax.rmi.PortableRemoteObject;
 
-public class CustomException extends Exception implements Serializable {
+public class CustomException extends FastUserException implements Serializable {
 
     public String reason;
 
@@ -0,0 +1,55 @@
+/* FastUserException.java
+ *
+ * Project: IIOP.NET
+ * IIOPChannel Tutorial
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package tutorial;
+
+/**
+ * Base class for user exceptions, which report a business outcome to the
+ * caller. Creating such an exception does not capture the stack trace;
+ * therefore only an empty stack trace is serialised and sent to the client.
+ * The wire format is the same as for an exception with a stack trace, the
+ * .NET side needs no changes.
+ * For debugging, the stack trace capture can be enabled again with the
+ * system property tutorial.captureStackTrace=true.
+ */
+public class FastUserException extends Exception {
+
+    private static final boolean s_captureStackTrace =
+        Boolean.getBoolean("tutorial.captureStackTrace");
+
+    public FastUserException(String message) {
+        super(message);
+    }
+
+    public synchronized Throwable fillInStackTrace() {
+        if (s_captureStackTrace) {
+            return super.fillInStackTrace();
+        }
+        return this;
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.Properties;
 import java.io.*;
 import Ch.Elca.Iiop.Tutorial.GettingStarted.*;
 import Ch.Elca.Iiop.*;
+import Ch.Elca.Iiop.Naming.BulkResolver;
 
 
 /**
@@ -34,15 +35,17 @@ public class Client {
     }
 
     private static Adder ResolveAdderService(org.omg.CORBA.ORB orb) throws Exception {
-        org.omg.CosNaming.NameComponent[] serviceName = 
-            new org.omg.CosNaming.NameComponent[1];
-        serviceName[0] = new NameComponent("adder", "");
         org.omg.CosNaming.NamingContext nc = 
             org.omg.CosNaming.NamingContextHelper.narrow(
                 orb.resolve_initial_references( "NameService" ));        
 
-        org.omg.CORBA.Object service = nc.resolve(serviceName);
-        return AdderHelper.narrow(service);
+        // all names needed by the client are resolved together
+        String[] serviceNames = new String[] { "adder" };
+        org.omg.CORBA.Object[] services = new BulkResolver(nc).resolveAll(serviceNames);
+        if (services[0] == null) {
+            throw new Exception("adder not found in the name service");
+        }
+        return AdderHelper.narrow(services[0]);
     }
 
 }
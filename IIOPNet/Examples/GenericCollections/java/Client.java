@@ -31,11 +31,9 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.util.Vector;
 
-import javax.naming.InitialContext;
-import javax.rmi.PortableRemoteObject;
-
 import Ch.Elca.Iiop.GenericUserException;
 import Ch.Elca.Iiop.Demo.StorageSystem.*;
+import Ch.Elca.Iiop.Naming.CachingContext;
 
 public class Client {
 	
@@ -203,9 +201,9 @@ public class Client {
 	public static void main(String args[]) {
 		Manager m = null;
 		try {
-			InitialContext ic = new InitialContext();
-			Object obj = ic.lookup("storagemanager");
-			m = (Manager) PortableRemoteObject.narrow(obj, Manager.class);
+			// a stale manager reference, e.g. after a server restart, is resolved again
+			CachingContext ic = new CachingContext();
+			m = (Manager) ic.lookup("storagemanager", Manager.class);
 			Client c = new Client(m);
 			
 			c.topMenu();
@@ -4,6 +4,7 @@ import org.omg.PortableServer.*;
 import org.omg.BiDirPolicy.*;
 import org.omg.CORBA.*;
 import java.util.Properties;
+import Ch.Elca.Iiop.Naming.BulkResolver;
 
 
 /**
@@ -73,15 +74,15 @@ public class TestClient extends TestCase {
     }
 
     private void ResolveTestService() throws Exception {
-        org.omg.CosNaming.NameComponent[] serviceName = 
-            new org.omg.CosNaming.NameComponent[1];
-        serviceName[0] = new NameComponent("test", "");
         org.omg.CosNaming.NamingContext nc = 
             org.omg.CosNaming.NamingContextHelper.narrow(
                 m_orb.resolve_initial_references( "NameService" ));        
 
-        org.omg.CORBA.Object service = nc.resolve(serviceName);
-        m_testService = TestServiceHelper.narrow(service);
+        // all names needed by the test are resolved together
+        String[] serviceNames = new String[] { "test" };
+        org.omg.CORBA.Object[] services = new BulkResolver(nc).resolveAll(serviceNames);
+        assertNotNull("test service not found", services[0]);
+        m_testService = TestServiceHelper.narrow(services[0]);
     }
 
     protected void setUp() throws Exception {
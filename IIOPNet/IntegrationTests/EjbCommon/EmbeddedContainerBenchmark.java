@@ -0,0 +1,286 @@
+/* EmbeddedContainerBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.rmi.Remote;
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.EmbeddedNameService;
+import ch.elca.iiop.integrationTests.embedded.EmbeddedContainer;
+import ch.elca.iiop.integrationTests.embedded.StatelessDeployment;
+
+
+/**
+ * Deploys the TestBean and IntAdderBean of an app server integration test
+ * (compiled with the TestBeans of Jboss3.2.1, Jboss4.0, WAS5, ...) in the
+ * EmbeddedContainer and calls them over iiop from a client orb of the same
+ * process: first the latency of single calls per method, then the
+ * throughput of nrOfThreads concurrent clients with poolSize bean instances.
+ * The homes are bound in an embedded CosNaming service like in the app
+ * servers (IntegrationTest/test, IntegrationTest/intadder).
+ * With baselineClass (e.g. Ch.Elca.Iiop.IntegrationTests.TestServiceImpl of
+ * the JavaRMIIIOP TestServer), the same calls are measured on this plain
+ * rmi/iiop object for comparison.
+ * The methods are called by reflection, so that the Test interfaces of all
+ * servers can be used; methods missing in an interface are skipped.
+ *
+ * Usage: java -Dcom.sun.CORBA.ORBUseDynamicStub=true EmbeddedContainerBenchmark
+ *            [callsPerMethod] [nrOfThreads] [poolSize] [nameServicePort] [baselineClass]
+ */
+public class EmbeddedContainerBenchmark {
+
+    private static final String BEAN_PACKAGE = "ch.elca.iiop.integrationTests.";
+    private static final String TEST_HOME = "IntegrationTest/test";
+    /** the adder home is looked up as iiop/IntegrationTest/intadder by the JBoss TestBeans */
+    private static final String[] ADDER_HOMES = {
+        "IntegrationTest/intadder", "iiop/IntegrationTest/intadder" };
+
+    /** the measured methods and their arguments; the adder argument is set by Run */
+    private static final Object[][] CALLS = {
+        { "TestVoid", new Object[0] },
+        { "TestIncDouble", new Object[] { new Double(1.5) } },
+        { "TestAppendString", new Object[] { "abc", "def" } },
+        { "TestAppendElementToByteArray", new Object[] { new byte[1024], new Byte((byte)1) } },
+        { "CreateTwoElemStringArray", new Object[] { "a", "b" } },
+        { "EchoJaggedIntArray", new Object[] { new int[][] { { 1, 2, 3 }, { 4 } } } },
+        { "RetrieveAdder", new Object[0] },
+        { "AddWithAdder", new Object[] { null, new Integer(1), new Integer(2) } }
+    };
+    /** the calls of the load phase: the ones, which don't call an other bean */
+    private static final int NR_OF_LOAD_CALLS = 6;
+
+    private int m_callsPerMethod;
+    private int m_nrOfThreads;
+    private Hashtable m_clientEnvironment = new Hashtable();
+    private ORB m_clientOrb;
+
+
+    public EmbeddedContainerBenchmark(int callsPerMethod, int nrOfThreads, String providerUrl) {
+        m_callsPerMethod = callsPerMethod;
+        m_nrOfThreads = nrOfThreads;
+        m_clientOrb = ORB.init(new String[0], null);
+        m_clientEnvironment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.cosnaming.CNCtxFactory");
+        m_clientEnvironment.put(Context.PROVIDER_URL, providerUrl);
+        m_clientEnvironment.put("java.naming.corba.orb", m_clientOrb);
+    }
+
+
+    /** a client view of a remote object: its stub and the methods of CALLS */
+    private static class Target {
+
+        final Object Stub;
+        final Method[] Methods = new Method[CALLS.length];
+        final Object[][] Args = new Object[CALLS.length][];
+
+        Target(Object stub, Class remoteInterface) throws Exception {
+            Stub = stub;
+            Method[] methods = remoteInterface.getMethods();
+            for (int i = 0; i < CALLS.length; i++) {
+                Args[i] = (Object[])((Object[])CALLS[i][1]).clone();
+                for (int j = 0; j < methods.length; j++) {
+                    if (methods[j].getName().equals(CALLS[i][0]) &&
+                        (methods[j].getParameterTypes().length == Args[i].length)) {
+                        Methods[i] = methods[j];
+                    }
+                }
+            }
+            // AddWithAdder needs an adder of RetrieveAdder
+            if ((Methods[6] != null) && (Methods[7] != null)) {
+                Args[7][0] = Call(6);
+            } else {
+                Methods[7] = null;
+            }
+        }
+
+        Object Call(int call) throws Exception {
+            try {
+                return Methods[call].invoke(Stub, Args[call]);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getTargetException();
+                throw (cause instanceof Exception ? (Exception)cause : e);
+            }
+        }
+
+    }
+
+
+    private Target ConnectBean(Class homeInterface, Class remoteInterface) throws Exception {
+        InitialContext context = new InitialContext(m_clientEnvironment);
+        Object home = PortableRemoteObject.narrow(context.lookup(TEST_HOME), homeInterface);
+        context.close();
+        Object bean = homeInterface.getMethod("create", new Class[0]).invoke(home, new Object[0]);
+        return new Target(PortableRemoteObject.narrow(bean, remoteInterface), remoteInterface);
+    }
+
+    private Target ConnectBaseline(EmbeddedContainer container, Remote impl) throws Exception {
+        Class remoteInterface = null;
+        Class[] interfaces = impl.getClass().getInterfaces();
+        for (int i = 0; (i < interfaces.length) && (remoteInterface == null); i++) {
+            if (Remote.class.isAssignableFrom(interfaces[i])) {
+                remoteInterface = interfaces[i];
+            }
+        }
+        String ior = container.getOrb().object_to_string(container.export(impl));
+        return new Target(PortableRemoteObject.narrow(m_clientOrb.string_to_object(ior), remoteInterface),
+                          remoteInterface);
+    }
+
+    /** returns the microseconds per call; -1, if the target doesn't have the method */
+    private double MeasureLatency(Target target, int call) throws Exception {
+        if (target.Methods[call] == null) {
+            return -1;
+        }
+        for (int i = 0; i < m_callsPerMethod / 10; i++) {
+            target.Call(call); // warm up
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_callsPerMethod; i++) {
+            target.Call(call);
+        }
+        return (System.currentTimeMillis() - start) * 1000.0 / m_callsPerMethod;
+    }
+
+    /** calls the load calls in turn from nrOfThreads threads; returns the calls per second */
+    private long MeasureLoad(final Target target) throws Exception {
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[m_nrOfThreads];
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < m_callsPerMethod; j++) {
+                            int call = j % NR_OF_LOAD_CALLS;
+                            if (target.Methods[call] != null) {
+                                target.Call(call);
+                            }
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i].join();
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return (long)m_nrOfThreads * m_callsPerMethod * 1000 / time;
+    }
+
+    public void Run(EmbeddedContainer container, Context naming, int poolSize, String baselineClass) throws Exception {
+        Class homeInterface = Class.forName(BEAN_PACKAGE + "TestHome");
+        Class remoteInterface = Class.forName(BEAN_PACKAGE + "Test");
+        StatelessDeployment test = container.deployStateless(TEST_HOME,
+            Class.forName(BEAN_PACKAGE + "TestBean"), homeInterface, remoteInterface, poolSize);
+        StatelessDeployment adder = container.deployStateless(ADDER_HOMES[0],
+            Class.forName(BEAN_PACKAGE + "IntAdderBean"), Class.forName(BEAN_PACKAGE + "IntAdderHome"),
+            Class.forName(BEAN_PACKAGE + "IntAdder"), poolSize);
+        for (int i = 1; i < ADDER_HOMES.length; i++) {
+            container.bind(ADDER_HOMES[i], (org.omg.CORBA.Object)naming.lookup(ADDER_HOMES[0]));
+        }
+
+        Target bean = ConnectBean(homeInterface, remoteInterface);
+        Target baseline = (baselineClass != null ?
+            ConnectBaseline(container, (Remote)Class.forName(baselineClass).newInstance()) : null);
+
+        System.out.println(m_callsPerMethod + " calls per method");
+        System.out.println(Table.pad("method", 32) + Table.pad("ejb us/call", 16) +
+                           (baseline != null ? "rmi/iiop us/call" : ""));
+        for (int i = 0; i < CALLS.length; i++) {
+            double beanLatency = MeasureLatency(bean, i);
+            String line = Table.pad((String)CALLS[i][0], 32) + Table.pad(FormatLatency(beanLatency), 16);
+            if (baseline != null) {
+                line += FormatLatency(MeasureLatency(baseline, i));
+            }
+            System.out.println(line);
+        }
+
+        System.out.println();
+        System.out.println(m_nrOfThreads + " threads, " + m_callsPerMethod + " calls each, pool size " + poolSize);
+        MeasureLoad(bean); // warm up
+        test.getPool().resetStatistics();
+        String line = Table.pad("calls/s", 32) + Table.pad(String.valueOf(MeasureLoad(bean)), 16);
+        if (baseline != null) {
+            MeasureLoad(baseline);
+            line += MeasureLoad(baseline);
+        }
+        System.out.println(line);
+        System.out.println();
+        System.out.println(test);
+        System.out.println(adder);
+    }
+
+    /** a negative latency marks a call the target does not offer */
+    private static String FormatLatency(double latency) {
+        return (latency >= 0 ? Table.format(latency, 1) : "-");
+    }
+
+    public static void main(String[] args) {
+        try {
+            int callsPerMethod = (args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+            int nrOfThreads = (args.length > 1 ? Integer.parseInt(args[1]) : 16);
+            int poolSize = (args.length > 2 ? Integer.parseInt(args[2]) : 4);
+            int port = (args.length > 3 ? Integer.parseInt(args[3]) : 8099);
+            String baselineClass = (args.length > 4 ? args[4] : null);
+
+            EmbeddedNameService nameService = new EmbeddedNameService(port);
+            String providerUrl = nameService.getCorbaloc("localhost");
+            // the beans look other beans up with the default InitialContext
+            System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.cosnaming.CNCtxFactory");
+            System.setProperty(Context.PROVIDER_URL, providerUrl);
+
+            ORB orb = ORB.init(new String[0], null);
+            Hashtable environment = new Hashtable();
+            environment.put("java.naming.corba.orb", orb);
+            environment.put(Context.PROVIDER_URL, providerUrl);
+            Context naming = new InitialContext(environment);
+            EmbeddedContainer container = new EmbeddedContainer(orb, naming);
+            new EmbeddedContainerBenchmark(callsPerMethod, nrOfThreads, providerUrl).Run(
+                container, naming, poolSize, baselineClass);
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
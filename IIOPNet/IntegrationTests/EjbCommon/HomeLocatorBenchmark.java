@@ -0,0 +1,185 @@
+/* HomeLocatorBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.lang.reflect.Method;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.EmbeddedNameService;
+import ch.elca.iiop.integrationTests.HomeLocator;
+
+
+/**
+ * Measures the RetrieveAdder pattern of the test beans (look the home up,
+ * narrow it, create the bean) with and without the HomeLocator. The adder
+ * home is bound in an embedded CosNaming service of the same process and
+ * looked up with the jndi CosNaming provider; the cpu time is the one of the
+ * whole process, i.e. includes the name service.
+ *
+ * Usage: java HomeLocatorBenchmark [nrOfCalls] [nameServicePort]
+ */
+public class HomeLocatorBenchmark {
+
+    private static final String ADDER_HOME = "IntegrationTest/intadder";
+
+    /** stands in for IntAdderHome, which needs the j2ee classes */
+    public interface AdderHome extends Remote {
+        Adder create() throws RemoteException;
+    }
+
+    public interface Adder extends Remote {
+        int add(int sum1, int sum2) throws RemoteException;
+    }
+
+    public static class AdderHomeImpl extends PortableRemoteObject implements AdderHome {
+
+        private Adder m_adder = new AdderImpl();
+
+        public AdderHomeImpl() throws RemoteException {
+        }
+
+        public Adder create() throws RemoteException {
+            return m_adder; // like a pooled stateless bean
+        }
+
+    }
+
+    public static class AdderImpl extends PortableRemoteObject implements Adder {
+
+        public AdderImpl() throws RemoteException {
+        }
+
+        public int add(int sum1, int sum2) {
+            return sum1 + sum2;
+        }
+
+    }
+
+
+    private int m_nrOfCalls;
+    private Hashtable m_environment = new Hashtable();
+
+    public HomeLocatorBenchmark(int nrOfCalls, int port) throws Exception {
+        m_nrOfCalls = nrOfCalls;
+        EmbeddedNameService nameService = new EmbeddedNameService(port);
+        // the orb of the container is shared by all InitialContexts
+        ORB orb = ORB.init(new String[0], null);
+        m_environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.cosnaming.CNCtxFactory");
+        m_environment.put(Context.PROVIDER_URL, nameService.getCorbaloc("localhost"));
+        m_environment.put("java.naming.corba.orb", orb);
+        InitialContext context = new InitialContext(m_environment);
+        context.createSubcontext("IntegrationTest");
+        context.rebind(ADDER_HOME, new AdderHomeImpl());
+        context.close();
+    }
+
+
+    /** the previous RetrieveAdder: new InitialContext, lookup and narrow on every call */
+    private Adder RetrieveAdderWithLookup() throws Exception {
+        InitialContext ic = new InitialContext(m_environment);
+        Object obj = ic.lookup(ADDER_HOME);
+        AdderHome home = (AdderHome) PortableRemoteObject.narrow(obj, AdderHome.class);
+        return home.create();
+    }
+
+    private Adder RetrieveAdderWithLocator(HomeLocator locator) throws Exception {
+        try {
+            return ((AdderHome)locator.getHome(ADDER_HOME, AdderHome.class)).create();
+        } catch (RemoteException e) {
+            return ((AdderHome)locator.refreshHome(ADDER_HOME, AdderHome.class)).create();
+        }
+    }
+
+    /** returns { microseconds, cpu microseconds } per call */
+    private double[] Measure(HomeLocator locator) throws Exception {
+        long cpuStart = GetProcessCpuNanos();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfCalls; i++) {
+            Adder adder = (locator != null ? RetrieveAdderWithLocator(locator) :
+                                             RetrieveAdderWithLookup());
+            if (adder.add(i, 1) != i + 1) {
+                throw new IllegalStateException("wrong sum");
+            }
+        }
+        long cpu = GetProcessCpuNanos() - cpuStart;
+        return new double[] {
+            (System.currentTimeMillis() - start) * 1000.0 / m_nrOfCalls,
+            (cpu >= 0 ? cpu / 1000.0 / m_nrOfCalls : -1) };
+    }
+
+    /** the cpu time of the process, if the jvm tells it; otherwise -1 */
+    private static long GetProcessCpuNanos() {
+        try {
+            Class factory = Class.forName("java.lang.management.ManagementFactory");
+            Object os = factory.getMethod("getOperatingSystemMXBean", new Class[0]).
+                invoke(null, new Object[0]);
+            Method getCpuTime = Class.forName("com.sun.management.OperatingSystemMXBean").
+                getMethod("getProcessCpuTime", new Class[0]);
+            return ((Long)getCpuTime.invoke(os, new Object[0])).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void Print(String label, double[] result) {
+        System.out.println(Table.pad(label, 20) + Table.pad(Table.format(result[0]), 16) +
+                           (result[1] >= 0 ? Table.format(result[1]) : "n/a"));
+    }
+
+    public void Run() throws Exception {
+        HomeLocator locator = new HomeLocator(m_environment);
+        Measure(null); // warm up
+        Measure(locator);
+        System.out.println("RetrieveAdder + add, " + m_nrOfCalls + " calls");
+        System.out.println(Table.pad("", 20) + Table.pad("us/call", 16) + "cpu us/call");
+        Print("lookup per call", Measure(null));
+        Print("HomeLocator", Measure(locator));
+        System.out.println("lookups by the locator: " + locator.getNrOfLookups());
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+            int port = (args.length > 1 ? Integer.parseInt(args[1]) : 8099);
+            new HomeLocatorBenchmark(nrOfCalls, port).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/* PoolStressBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.EmbeddedNameService;
+import ch.elca.iiop.integrationTests.IntAdder;
+import ch.elca.iiop.integrationTests.IntAdderBean;
+import ch.elca.iiop.integrationTests.IntAdderHome;
+import ch.elca.iiop.integrationTests.Test;
+import ch.elca.iiop.integrationTests.TestBean;
+import ch.elca.iiop.integrationTests.TestHome;
+import ch.elca.iiop.integrationTests.embedded.EmbeddedContainer;
+import ch.elca.iiop.integrationTests.embedded.InstancePool;
+import ch.elca.iiop.integrationTests.embedded.StatelessDeployment;
+
+
+/**
+ * Stresses the instance pools of TestBean and IntAdderBean in the
+ * EmbeddedContainer with the call pattern of the clients: every caller
+ * creates a Test bean on the home before each use, retrieves an adder
+ * (TestBean.RetrieveAdder calls IntAdderHome.create() while holding its
+ * instance) and adds with it. The number of concurrent callers is doubled
+ * from 1 up to maxCallers, each step runs secondsPerStep; this is done once
+ * with a fixed pool size and once with the adaptive sizing of InstancePool.
+ * Per step, the pool of TestBean is reported: the average wait per acquire,
+ * the maximum and peak size, the instance creates/removes and the home
+ * creates per second.
+ *
+ * Usage: java -Dcom.sun.CORBA.ORBUseDynamicStub=true PoolStressBenchmark
+ *            [secondsPerStep] [fixedPoolSize] [maxCallers] [nameServicePort]
+ */
+public class PoolStressBenchmark {
+
+    private static final String TEST_HOME = "IntegrationTest/test";
+    /** the adder home is looked up as iiop/IntegrationTest/intadder by the JBoss TestBeans */
+    private static final String[] ADDER_HOMES = {
+        "IntegrationTest/intadder", "iiop/IntegrationTest/intadder" };
+
+    private static final int ADAPTIVE_LOWER_LIMIT = 1;
+    private static final double ADAPTIVE_TARGET_WAIT_MILLIS = 1.0;
+    private static final long ADAPTIVE_INTERVAL_MILLIS = 250;
+
+    private int m_secondsPerStep;
+    private int m_maxCallers;
+    private TestHome m_home;
+    private StatelessDeployment m_test;
+    private StatelessDeployment m_adder;
+
+    private volatile boolean m_stop;
+
+
+    public PoolStressBenchmark(int secondsPerStep, int maxCallers, TestHome home,
+                               StatelessDeployment test, StatelessDeployment adder) {
+        m_secondsPerStep = secondsPerStep;
+        m_maxCallers = maxCallers;
+        m_home = home;
+        m_test = test;
+        m_adder = adder;
+    }
+
+
+    /** runs nrOfCallers callers for secondsPerStep; returns the number of calls */
+    private long RunStep(int nrOfCallers) throws Exception {
+        final long[] calls = new long[nrOfCallers];
+        final Exception[] failure = new Exception[1];
+        Thread[] callers = new Thread[nrOfCallers];
+        m_stop = false;
+        for (int i = 0; i < nrOfCallers; i++) {
+            final int caller = i;
+            callers[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (!m_stop) {
+                            Test test = m_home.create();
+                            IntAdder adder = test.RetrieveAdder();
+                            adder.add(1, 2);
+                            calls[caller]++;
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            callers[i].start();
+        }
+        Thread.sleep(m_secondsPerStep * 1000L);
+        m_stop = true;
+        long result = 0;
+        for (int i = 0; i < nrOfCallers; i++) {
+            callers[i].join();
+            result += calls[i];
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return result;
+    }
+
+    private void RunSteps() throws Exception {
+        System.out.println("callers  calls/s  wait ms/acq  max size  peak  creates/s  removes/s  " +
+                           "test creates/s  adder creates/s  resizes");
+        InstancePool pool = m_test.getPool();
+        for (int callers = 1; callers <= m_maxCallers; callers *= 2) {
+            pool.resetStatistics();
+            m_adder.getPool().resetStatistics();
+            long testCreates = m_test.getNrOfCreates();
+            long adderCreates = m_adder.getNrOfCreates();
+            long start = System.currentTimeMillis();
+            long calls = RunStep(callers);
+            double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+            System.out.println(Table.pad(String.valueOf(callers), 9) +
+                               Table.pad(String.valueOf(Math.round(calls / seconds)), 9) +
+                               Table.pad(Table.format(pool.getAverageWaitMillis()), 13) +
+                               Table.pad(String.valueOf(pool.getMaxSize()), 10) +
+                               Table.pad(String.valueOf(pool.getPeakInUse()), 6) +
+                               Table.pad(Table.format(pool.getCreatesPerSecond()), 11) +
+                               Table.pad(Table.format(pool.getRemovesPerSecond()), 11) +
+                               Table.pad(String.valueOf(Math.round((m_test.getNrOfCreates() - testCreates) / seconds)), 16) +
+                               Table.pad(String.valueOf(Math.round((m_adder.getNrOfCreates() - adderCreates) / seconds)), 17) +
+                               pool.getNrOfResizes());
+        }
+        System.out.println(m_test);
+        System.out.println(m_adder);
+    }
+
+    public void Run(int fixedPoolSize) throws Exception {
+        System.out.println("fixed pool size " + fixedPoolSize);
+        m_test.getPool().setMaxSize(fixedPoolSize);
+        m_adder.getPool().setMaxSize(fixedPoolSize);
+        RunSteps();
+        System.out.println();
+        System.out.println("adaptive pool size " + ADAPTIVE_LOWER_LIMIT + ".." + m_maxCallers + ", target wait " +
+                           ADAPTIVE_TARGET_WAIT_MILLIS + " ms, interval " + ADAPTIVE_INTERVAL_MILLIS + " ms");
+        m_test.getPool().setAdaptiveSizing(ADAPTIVE_LOWER_LIMIT, m_maxCallers, ADAPTIVE_TARGET_WAIT_MILLIS,
+                                           ADAPTIVE_INTERVAL_MILLIS);
+        m_adder.getPool().setAdaptiveSizing(ADAPTIVE_LOWER_LIMIT, m_maxCallers, ADAPTIVE_TARGET_WAIT_MILLIS,
+                                            ADAPTIVE_INTERVAL_MILLIS);
+        RunSteps();
+    }
+
+    public static void main(String[] args) {
+        try {
+            int secondsPerStep = (args.length > 0 ? Integer.parseInt(args[0]) : 3);
+            int fixedPoolSize = (args.length > 1 ? Integer.parseInt(args[1]) : 4);
+            int maxCallers = (args.length > 2 ? Integer.parseInt(args[2]) : 256);
+            int port = (args.length > 3 ? Integer.parseInt(args[3]) : 8099);
+
+            EmbeddedNameService nameService = new EmbeddedNameService(port);
+            String providerUrl = nameService.getCorbaloc("localhost");
+            // the beans look other beans up with the default InitialContext
+            System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.cosnaming.CNCtxFactory");
+            System.setProperty(Context.PROVIDER_URL, providerUrl);
+
+            ORB orb = ORB.init(new String[0], null);
+            Hashtable environment = new Hashtable();
+            environment.put("java.naming.corba.orb", orb);
+            environment.put(Context.PROVIDER_URL, providerUrl);
+            Context naming = new InitialContext(environment);
+            EmbeddedContainer container = new EmbeddedContainer(orb, naming);
+            StatelessDeployment test = container.deployStateless(TEST_HOME, TestBean.class, TestHome.class,
+                                                                 Test.class, fixedPoolSize);
+            StatelessDeployment adder = container.deployStateless(ADDER_HOMES[0], IntAdderBean.class,
+                                                                  IntAdderHome.class, IntAdder.class, fixedPoolSize);
+            for (int i = 1; i < ADDER_HOMES.length; i++) {
+                container.bind(ADDER_HOMES[i], (org.omg.CORBA.Object)naming.lookup(ADDER_HOMES[0]));
+            }
+
+            Hashtable clientEnvironment = new Hashtable();
+            clientEnvironment.put(Context.PROVIDER_URL, providerUrl);
+            clientEnvironment.put("java.naming.corba.orb", ORB.init(new String[0], null));
+            TestHome home = (TestHome)PortableRemoteObject.narrow(
+                new InitialContext(clientEnvironment).lookup(TEST_HOME), TestHome.class);
+            new PoolStressBenchmark(secondsPerStep, maxCallers, home, test, adder).Run(fixedPoolSize);
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/* ResultCacheBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.lang.reflect.Method;
+import java.util.Random;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import ch.elca.iiop.integrationTests.CachingInterceptor;
+import ch.elca.iiop.integrationTests.ResultCache;
+import ch.elca.iiop.integrationTests.TestFunctions;
+import ch.elca.iiop.integrationTests.TestFunctionsImpl;
+
+
+/**
+ * Replays a skewed workload against the side effect free TestBean methods,
+ * once directly and once through the CachingInterceptor, and prints the cpu
+ * time of the process per call and the hit ratios. The arguments are drawn
+ * from a fixed set with a zipf distribution (the first argument set is used
+ * most often); as the test methods themselves are trivial, an optional amount
+ * of work per call stands in for a more expensive method.
+ *
+ * Usage: java ResultCacheBenchmark [nrOfCalls] [nrOfArgumentSets] [workPerCall] [cacheSize]
+ */
+public class ResultCacheBenchmark {
+
+    private static final String DESCRIPTOR =
+        "TestIncDouble=60000,CreateTwoElemStringArray=60000,EchoJaggedIntArray=60000," +
+        "EchoJaggedStringArray=60000,EchoJaggedByteArray=60000,getTestProp=600000";
+
+    private static final String[] METHODS = {
+        "TestIncDouble", "CreateTwoElemStringArray", "EchoJaggedIntArray",
+        "EchoJaggedStringArray", "EchoJaggedByteArray", "getTestProp" };
+
+    /** TestFunctionsImpl with some additional work per call */
+    public static class BusyFunctions extends TestFunctionsImpl {
+
+        private int m_work;
+        private long m_sink;
+
+        public BusyFunctions(int testProp, int work) {
+            super(testProp);
+            m_work = work;
+        }
+
+        private void Work() {
+            long val = m_sink;
+            for (int i = 0; i < m_work; i++) {
+                val = val * 6364136223846793005L + 1442695040888963407L;
+            }
+            m_sink = val;
+        }
+
+        public double TestIncDouble(double arg) {
+            Work();
+            return super.TestIncDouble(arg);
+        }
+
+        public String[] CreateTwoElemStringArray(String arg1, String arg2) {
+            Work();
+            return super.CreateTwoElemStringArray(arg1, arg2);
+        }
+
+        public int[][] EchoJaggedIntArray(int[][] arg) {
+            Work();
+            return super.EchoJaggedIntArray(arg);
+        }
+
+        public String[][] EchoJaggedStringArray(String[][] arg) {
+            Work();
+            return super.EchoJaggedStringArray(arg);
+        }
+
+        public byte[][][] EchoJaggedByteArray(byte[][][] arg) {
+            Work();
+            return super.EchoJaggedByteArray(arg);
+        }
+
+        public int getTestProp() {
+            Work();
+            return super.getTestProp();
+        }
+
+    }
+
+
+    private int m_nrOfCalls;
+    private int m_work;
+    private int m_cacheSize;
+
+    /** the replayed workload: index into m_arguments per call */
+    private int[] m_workload;
+    /** the argument sets; the method is given by the index modulo the nr of methods */
+    private Object[] m_arguments;
+
+    public ResultCacheBenchmark(int nrOfCalls, int nrOfArgumentSets, int work, int cacheSize) {
+        m_nrOfCalls = nrOfCalls;
+        m_work = work;
+        m_cacheSize = cacheSize;
+        Random random = new Random(42);
+        m_arguments = new Object[nrOfArgumentSets];
+        for (int i = 0; i < nrOfArgumentSets; i++) {
+            m_arguments[i] = CreateArgument(i, random);
+        }
+        // zipf distribution with exponent 1
+        double[] cumulative = new double[nrOfArgumentSets];
+        double sum = 0;
+        for (int i = 0; i < nrOfArgumentSets; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        m_workload = new int[nrOfCalls];
+        for (int i = 0; i < nrOfCalls; i++) {
+            double val = random.nextDouble() * sum;
+            int low = 0;
+            int high = nrOfArgumentSets - 1;
+            while (low < high) {
+                int middle = (low + high) / 2;
+                if (cumulative[middle] < val) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            m_workload[i] = low;
+        }
+    }
+
+    private static Object CreateArgument(int index, Random random) {
+        switch (index % METHODS.length) {
+            case 0:
+                return new Double(index);
+            case 1:
+                return new String[] { "arg" + index, "second" };
+            case 2:
+                return new int[][] { new int[] { index, 1, 2 }, new int[] { 3, 4 } };
+            case 3:
+                return new String[][] { new String[] { "arg" + index }, new String[] { "a", "b" } };
+            case 4:
+                byte[] content = new byte[16];
+                random.nextBytes(content);
+                return new byte[][][] { new byte[][] { content, new byte[] { (byte)index } } };
+            default:
+                return null;
+        }
+    }
+
+    private void Call(TestFunctions functions, int argumentSet) {
+        Object arg = m_arguments[argumentSet];
+        switch (argumentSet % METHODS.length) {
+            case 0:
+                functions.TestIncDouble(((Double)arg).doubleValue());
+                break;
+            case 1:
+                String[] args = (String[])arg;
+                functions.CreateTwoElemStringArray(args[0], args[1]);
+                break;
+            case 2:
+                functions.EchoJaggedIntArray((int[][])arg);
+                break;
+            case 3:
+                functions.EchoJaggedStringArray((String[][])arg);
+                break;
+            case 4:
+                functions.EchoJaggedByteArray((byte[][][])arg);
+                break;
+            default:
+                functions.getTestProp();
+        }
+    }
+
+    /** returns { microseconds, cpu microseconds } per call */
+    private double[] Measure(TestFunctions functions) {
+        long cpuStart = GetProcessCpuNanos();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfCalls; i++) {
+            Call(functions, m_workload[i]);
+        }
+        long cpu = GetProcessCpuNanos() - cpuStart;
+        return new double[] {
+            (System.currentTimeMillis() - start) * 1000.0 / m_nrOfCalls,
+            (cpu >= 0 ? cpu / 1000.0 / m_nrOfCalls : -1) };
+    }
+
+    /** the cpu time of the process, if the jvm tells it; otherwise -1 */
+    private static long GetProcessCpuNanos() {
+        try {
+            Class factory = Class.forName("java.lang.management.ManagementFactory");
+            Object os = factory.getMethod("getOperatingSystemMXBean", new Class[0]).
+                invoke(null, new Object[0]);
+            Method getCpuTime = Class.forName("com.sun.management.OperatingSystemMXBean").
+                getMethod("getProcessCpuTime", new Class[0]);
+            return ((Long)getCpuTime.invoke(os, new Object[0])).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private void Print(String label, double[] result) {
+        System.out.println(Table.pad(label, 20) + Table.pad(Table.format(result[0]), 16) +
+                           (result[1] >= 0 ? Table.format(result[1]) : "n/a"));
+    }
+
+    public void Run() {
+        TestFunctions direct = new BusyFunctions(11, m_work);
+        TestFunctions cached = (TestFunctions)CachingInterceptor.wrap(
+            new BusyFunctions(11, m_work), TestFunctions.class, DESCRIPTOR, m_cacheSize);
+        Measure(direct); // warm up
+        Measure(cached);
+        CachingInterceptor.getCache(cached).clear();
+        System.out.println(m_nrOfCalls + " calls on " + m_arguments.length + " argument sets, work " +
+                           m_work + ", cache size " + m_cacheSize);
+        System.out.println(Table.pad("", 20) + Table.pad("us/call", 16) + "cpu us/call");
+        Print("direct", Measure(direct));
+        Print("cached", Measure(cached));
+        ResultCache cache = CachingInterceptor.getCache(cached);
+        for (int i = 0; i < METHODS.length; i++) {
+            System.out.println(Table.pad(METHODS[i], 28) + "hit ratio " + Table.format(cache.getHitRatio(METHODS[i])));
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+            int nrOfArgumentSets = (args.length > 1 ? Integer.parseInt(args[1]) : 10000);
+            int work = (args.length > 2 ? Integer.parseInt(args[2]) : 0);
+            int cacheSize = (args.length > 3 ? Integer.parseInt(args[3]) :
+                                               CachingInterceptor.DEFAULT_CACHE_SIZE);
+            new ResultCacheBenchmark(nrOfCalls, nrOfArgumentSets, work, cacheSize).Run();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
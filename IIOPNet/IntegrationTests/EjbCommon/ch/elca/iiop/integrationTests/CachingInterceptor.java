@@ -0,0 +1,304 @@
+/* CachingInterceptor.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.StringTokenizer;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+
+/**
+ * Memoises the results of side effect free methods. The interceptor is a
+ * dynamic proxy for an interface of the target, so it works in every
+ * container; which methods are cached and for how long is given by a
+ * descriptor "method=timeToLiveMillis,method2=...", e.g. the env-entry
+ * resultCache of the bean (see wrapFromEnvironment).
+ * The results are keyed by method and the values of the arguments (arrays
+ * are compared element by element and copied for the key). Cached results
+ * are shared by all callers: they must not be modified, which holds for
+ * remote callers, as they receive a copy anyway.
+ * The cache is bounded by the number of entries and by the estimated size of
+ * the keys and results in bytes (env-entries resultCacheSize and
+ * resultCacheBytes); results of large array arguments take their share.
+ */
+public class CachingInterceptor implements InvocationHandler {
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private Object m_target;
+    private ResultCache m_cache;
+
+    /** Method -> Long time to live in milliseconds */
+    private HashMap m_timeToLive = new HashMap();
+
+
+    private CachingInterceptor(Object target, Class targetInterface, String descriptor,
+                               ResultCache cache) {
+        m_target = target;
+        m_cache = cache;
+        Method[] methods = targetInterface.getMethods();
+        StringTokenizer entries = new StringTokenizer(descriptor, ", \t\r\n");
+        while (entries.hasMoreTokens()) {
+            String entry = entries.nextToken();
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("method=timeToLiveMillis expected: " + entry);
+            }
+            String name = entry.substring(0, separator);
+            Long timeToLive = Long.valueOf(entry.substring(separator + 1));
+            boolean found = false;
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].getName().equals(name)) {
+                    m_timeToLive.put(methods[i], timeToLive);
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException(targetInterface.getName() + " has no method " + name);
+            }
+        }
+    }
+
+
+    /**
+     * returns a proxy implementing targetInterface, which caches the results
+     * of the methods in the descriptor in a cache of maxSize entries.
+     */
+    public static Object wrap(Object target, Class targetInterface, String descriptor, int maxSize) {
+        return wrap(target, targetInterface, descriptor, maxSize, ResultCache.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * returns a proxy implementing targetInterface, which caches the results
+     * of the methods in the descriptor in a cache of at most maxSize entries
+     * and maxBytes estimated bytes.
+     */
+    public static Object wrap(Object target, Class targetInterface, String descriptor, int maxSize,
+                              long maxBytes) {
+        CachingInterceptor interceptor = new CachingInterceptor(target, targetInterface, descriptor,
+                                                                new ResultCache(maxSize, maxBytes));
+        return Proxy.newProxyInstance(targetInterface.getClassLoader(),
+                                      new Class[] { targetInterface }, interceptor);
+    }
+
+    /**
+     * wraps target as configured by the env-entries resultCache (the descriptor),
+     * resultCacheSize and resultCacheBytes of the calling bean; returns target,
+     * if resultCache is not set.
+     */
+    public static Object wrapFromEnvironment(Object target, Class targetInterface) {
+        String descriptor;
+        int maxSize = DEFAULT_CACHE_SIZE;
+        long maxBytes = ResultCache.DEFAULT_MAX_BYTES;
+        try {
+            InitialContext context = new InitialContext();
+            try {
+                descriptor = (String)context.lookup("java:comp/env/resultCache");
+                try {
+                    maxSize = ((Integer)context.lookup("java:comp/env/resultCacheSize")).intValue();
+                } catch (NamingException e) {
+                    // use the default size
+                }
+                try {
+                    maxBytes = ((Number)context.lookup("java:comp/env/resultCacheBytes")).longValue();
+                } catch (NamingException e) {
+                    // use the default size
+                }
+            } finally {
+                context.close();
+            }
+        } catch (NamingException e) {
+            return target; // not configured
+        }
+        return wrap(target, targetInterface, descriptor, maxSize, maxBytes);
+    }
+
+    /** the cache of a proxy returned by wrap; null for other objects */
+    public static ResultCache getCache(Object proxy) {
+        if ((proxy == null) || !Proxy.isProxyClass(proxy.getClass()) ||
+            !(Proxy.getInvocationHandler(proxy) instanceof CachingInterceptor)) {
+            return null;
+        }
+        return ((CachingInterceptor)Proxy.getInvocationHandler(proxy)).m_cache;
+    }
+
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Long timeToLive = (Long)m_timeToLive.get(method);
+        if (timeToLive == null) {
+            return Invoke(method, args);
+        }
+        Key key = new Key(method, args);
+        ResultCache.Entry cached = m_cache.get(method.getName(), key);
+        if (cached != null) {
+            return cached.Result;
+        }
+        // exceptions are not cached
+        Object result = Invoke(method, args);
+        m_cache.put(key, result, timeToLive.longValue(), key.EstimateSize() + EstimateSize(result));
+        return result;
+    }
+
+    private Object Invoke(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(m_target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+
+    /**
+     * a rough estimate of the heap size of value: arrays, strings and boxed
+     * primitives are counted, other objects as a reference only
+     */
+    private static long EstimateSize(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return 40 + 2 * ((String)value).length();
+        }
+        if (!value.getClass().isArray()) {
+            return 16;
+        }
+        int length = Array.getLength(value);
+        Class componentType = value.getClass().getComponentType();
+        if (!componentType.isPrimitive()) {
+            long result = 16 + 4L * length;
+            Object[] elements = (Object[])value;
+            for (int i = 0; i < length; i++) {
+                result += EstimateSize(elements[i]);
+            }
+            return result;
+        }
+        int elementSize = 4;
+        if ((componentType == Byte.TYPE) || (componentType == Boolean.TYPE)) {
+            elementSize = 1;
+        } else if ((componentType == Short.TYPE) || (componentType == Character.TYPE)) {
+            elementSize = 2;
+        } else if ((componentType == Long.TYPE) || (componentType == Double.TYPE)) {
+            elementSize = 8;
+        }
+        return 16 + (long)elementSize * length;
+    }
+
+
+    /** method and argument values; arrays are copied and compared by content */
+    private static class Key {
+
+        private Method m_method;
+        private Object[] m_args;
+        private int m_hashCode;
+
+        Key(Method method, Object[] args) {
+            m_method = method;
+            m_args = (args != null ? (Object[])CopyArray(args) : new Object[0]);
+            m_hashCode = method.hashCode() * 31 + HashCode(m_args);
+        }
+
+        public int hashCode() {
+            return m_hashCode;
+        }
+
+        long EstimateSize() {
+            return 32 + CachingInterceptor.EstimateSize(m_args);
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)other;
+            return (m_hashCode == key.m_hashCode) && m_method.equals(key.m_method) &&
+                   Equal(m_args, key.m_args);
+        }
+
+        private static Object CopyArray(Object array) {
+            int length = Array.getLength(array);
+            Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+            System.arraycopy(array, 0, copy, 0, length);
+            if (!array.getClass().getComponentType().isPrimitive()) {
+                Object[] elements = (Object[])copy;
+                for (int i = 0; i < length; i++) {
+                    if ((elements[i] != null) && elements[i].getClass().isArray()) {
+                        elements[i] = CopyArray(elements[i]);
+                    }
+                }
+            }
+            return copy;
+        }
+
+        private static int HashCode(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (!value.getClass().isArray()) {
+                return value.hashCode();
+            }
+            int result = 1;
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                result = 31 * result + HashCode(Array.get(value, i));
+            }
+            return result;
+        }
+
+        private static boolean Equal(Object value, Object other) {
+            if (value == other) {
+                return true;
+            }
+            if ((value == null) || (other == null)) {
+                return false;
+            }
+            if (!value.getClass().isArray()) {
+                return value.equals(other);
+            }
+            if ((value.getClass() != other.getClass()) ||
+                (Array.getLength(value) != Array.getLength(other))) {
+                return false;
+            }
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (!Equal(Array.get(value, i), Array.get(other, i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
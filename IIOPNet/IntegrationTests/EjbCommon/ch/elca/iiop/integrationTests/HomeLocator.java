@@ -0,0 +1,117 @@
+/* HomeLocator.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.rmi.PortableRemoteObject;
+
+
+/**
+ * Service locator for the ejb homes used by the test beans of the app server
+ * integration tests: the narrowed home is cached per jndi name, so that only
+ * the first call creates an InitialContext and looks the home up.
+ * A home becomes stale, if its bean is redeployed or the server restarted;
+ * after a RemoteException from a cached home, the caller gets a fresh one with
+ * refreshHome.
+ */
+public class HomeLocator {
+
+    private static HomeLocator s_instance = new HomeLocator(null);
+
+    /** the environment of the InitialContext; null for the default */
+    private Hashtable m_environment;
+
+    /** jndi name -> narrowed home; guarded by itself */
+    private HashMap m_homes = new HashMap();
+
+    private long m_nrOfLookups;
+
+
+    public HomeLocator(Hashtable environment) {
+        m_environment = environment;
+    }
+
+
+    /** the locator using the default InitialContext of the container */
+    public static HomeLocator getInstance() {
+        return s_instance;
+    }
+
+    /** returns the home bound to jndiName narrowed to homeClass */
+    public Object getHome(String jndiName, Class homeClass) throws NamingException {
+        Object home;
+        synchronized(m_homes) {
+            home = m_homes.get(jndiName);
+        }
+        if (homeClass.isInstance(home)) {
+            return home;
+        }
+        return LookupHome(jndiName, homeClass);
+    }
+
+    /** looks the home up again, replacing the cached one */
+    public Object refreshHome(String jndiName, Class homeClass) throws NamingException {
+        invalidate(jndiName);
+        return LookupHome(jndiName, homeClass);
+    }
+
+    /** removes the home bound to jndiName from the cache */
+    public void invalidate(String jndiName) {
+        synchronized(m_homes) {
+            m_homes.remove(jndiName);
+        }
+    }
+
+    /** the number of jndi lookups done (i.e. cache misses) */
+    public synchronized long getNrOfLookups() {
+        return m_nrOfLookups;
+    }
+
+
+    private Object LookupHome(String jndiName, Class homeClass) throws NamingException {
+        InitialContext context = new InitialContext(m_environment);
+        Object home;
+        try {
+            home = PortableRemoteObject.narrow(context.lookup(jndiName), homeClass);
+        } finally {
+            context.close();
+        }
+        synchronized(this) {
+            m_nrOfLookups++;
+        }
+        synchronized(m_homes) {
+            m_homes.put(jndiName, home);
+        }
+        return home;
+    }
+
+}
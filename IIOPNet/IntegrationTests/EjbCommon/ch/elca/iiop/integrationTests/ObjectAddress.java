@@ -0,0 +1,85 @@
+/* ObjectAddress.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+import org.omg.CORBA.MARSHAL;
+import org.omg.CORBA.portable.ObjectImpl;
+
+import Ch.Elca.Iiop.Cdr.ObjectKey;
+
+
+/**
+ * The address of a corba object: host, port and object key of the first
+ * iiop profile of its ior (parsed with ObjectKey of Utils\java). Two
+ * references with the same address denote the same object, e.g. an ejb of
+ * this container passed back by a client; for stateless session beans, all
+ * ejb objects of a home share the address.
+ */
+public class ObjectAddress {
+
+    private ObjectAddress() {
+    }
+
+    /**
+     * returns host:port/object key (hex) of ref; null if ref is not a
+     * corba stub or its ior has no iiop profile.
+     */
+    public static String of(Object ref) {
+        if (!(ref instanceof ObjectImpl)) {
+            return null;
+        }
+        ObjectImpl stub = (ObjectImpl)ref;
+        String ior = stub._orb().object_to_string(stub);
+        if (!ior.startsWith("IOR:")) {
+            return null;
+        }
+        // the hex digits are the ior as cdr encapsulation
+        byte[] data = new byte[(ior.length() - 4) / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)Integer.parseInt(ior.substring(4 + 2 * i, 6 + 2 * i), 16);
+        }
+        ObjectKey key;
+        try {
+            key = ObjectKey.fromIor(data);
+        } catch (MARSHAL e) {
+            return null; // malformed ior
+        }
+        if (key == null) {
+            return null;
+        }
+        StringBuffer result = new StringBuffer();
+        result.append(key.getHost()).append(':').append(key.getPort()).append('/');
+        byte[] objectKey = key.getKey();
+        for (int i = 0; i < objectKey.length; i++) {
+            result.append(Character.forDigit((objectKey[i] >> 4) & 0xf, 16));
+            result.append(Character.forDigit(objectKey[i] & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,262 @@
+/* ResultCache.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+
+/**
+ * Cache of method results with a time to live per entry, bounded by the
+ * number of entries and by their estimated size in bytes. The entries are
+ * spread over segments by the hash code of the key, each with its own lock,
+ * its own least recently used order and an equal share of the bounds, so
+ * the bean instances sharing the cache rarely wait for each other. Results
+ * larger than the share of a segment are not cached. Counts hits and misses
+ * per method.
+ */
+public class ResultCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final int MAX_NR_OF_SEGMENTS = 16;
+
+    private int m_maxSize;
+    private long m_maxBytes;
+    private Segment[] m_segments;
+
+
+    public ResultCache(int maxSize) {
+        this(maxSize, DEFAULT_MAX_BYTES);
+    }
+
+    public ResultCache(int maxSize, long maxBytes) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        m_maxSize = maxSize;
+        m_maxBytes = maxBytes;
+        m_segments = new Segment[Math.min(maxSize, MAX_NR_OF_SEGMENTS)];
+        for (int i = 0; i < m_segments.length; i++) {
+            m_segments[i] = new Segment(Math.max(1, maxSize / m_segments.length),
+                                        Math.max(1, maxBytes / m_segments.length));
+        }
+    }
+
+
+    /**
+     * returns the cached result for key, or null if there is none or it
+     * expired; result is null, if the method returned null.
+     */
+    public Entry get(String methodName, Object key) {
+        Segment segment = GetSegment(key);
+        synchronized (segment) {
+            Entry entry = (Entry)segment.Entries.get(key);
+            if ((entry != null) && (entry.Expiry < System.currentTimeMillis())) {
+                segment.Remove(key);
+                entry = null;
+            }
+            segment.GetStatistics(methodName)[entry != null ? 0 : 1]++;
+            return entry;
+        }
+    }
+
+    /**
+     * caches result; bytes is the estimated size of key and result. Results
+     * too large for a segment are not cached.
+     */
+    public void put(Object key, Object result, long timeToLiveMillis, long bytes) {
+        Segment segment = GetSegment(key);
+        synchronized (segment) {
+            segment.Remove(key);
+            if (bytes > segment.MaxBytes) {
+                return;
+            }
+            segment.Entries.put(key, new Entry(result, System.currentTimeMillis() + timeToLiveMillis, bytes));
+            segment.Bytes += bytes;
+            // evict the least recently used entries
+            Iterator entries = segment.Entries.values().iterator();
+            while ((segment.Entries.size() > segment.MaxSize) || (segment.Bytes > segment.MaxBytes)) {
+                segment.Bytes -= ((Entry)entries.next()).Bytes;
+                entries.remove();
+            }
+        }
+    }
+
+    public int size() {
+        int result = 0;
+        for (int i = 0; i < m_segments.length; i++) {
+            synchronized (m_segments[i]) {
+                result += m_segments[i].Entries.size();
+            }
+        }
+        return result;
+    }
+
+    /** the estimated size of the cached keys and results */
+    public long getBytes() {
+        long result = 0;
+        for (int i = 0; i < m_segments.length; i++) {
+            synchronized (m_segments[i]) {
+                result += m_segments[i].Bytes;
+            }
+        }
+        return result;
+    }
+
+    public int getMaxSize() {
+        return m_maxSize;
+    }
+
+    public long getMaxBytes() {
+        return m_maxBytes;
+    }
+
+    public long getHits(String methodName) {
+        return GetStatistics(methodName)[0];
+    }
+
+    public long getMisses(String methodName) {
+        return GetStatistics(methodName)[1];
+    }
+
+    /** hits / calls of the method; 0 if it wasn't called */
+    public double getHitRatio(String methodName) {
+        long[] statistics = GetStatistics(methodName);
+        long calls = statistics[0] + statistics[1];
+        return (calls > 0 ? (double)statistics[0] / calls : 0);
+    }
+
+    public void clear() {
+        for (int i = 0; i < m_segments.length; i++) {
+            synchronized (m_segments[i]) {
+                m_segments[i].Entries.clear();
+                m_segments[i].Statistics.clear();
+                m_segments[i].Bytes = 0;
+            }
+        }
+    }
+
+    public String toString() {
+        StringBuffer result = new StringBuffer("ResultCache[size=");
+        result.append(size()).append('/').append(m_maxSize);
+        result.append(", bytes=").append(getBytes()).append('/').append(m_maxBytes);
+        HashMap statistics = new HashMap();
+        for (int i = 0; i < m_segments.length; i++) {
+            synchronized (m_segments[i]) {
+                statistics.putAll(m_segments[i].Statistics);
+            }
+        }
+        for (Iterator i = statistics.keySet().iterator(); i.hasNext(); ) {
+            String methodName = (String)i.next();
+            result.append(", ").append(methodName).append(": hits=").append(getHits(methodName));
+            result.append(" misses=").append(getMisses(methodName));
+        }
+        return result.append(']').toString();
+    }
+
+    private Segment GetSegment(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return m_segments[(hash & 0x7fffffff) % m_segments.length];
+    }
+
+    /** the hits and misses of the method summed over the segments */
+    private long[] GetStatistics(String methodName) {
+        long[] result = new long[2];
+        for (int i = 0; i < m_segments.length; i++) {
+            synchronized (m_segments[i]) {
+                long[] statistics = (long[])m_segments[i].Statistics.get(methodName);
+                if (statistics != null) {
+                    result[0] += statistics[0];
+                    result[1] += statistics[1];
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /** a part of the cache with its own lock; the caller synchronizes on it */
+    private static class Segment {
+
+        final int MaxSize;
+        final long MaxBytes;
+
+        /** key -> Entry, in access order */
+        final LinkedHashMap Entries = new LinkedHashMap(16, 0.75f, true);
+
+        /** method name -> long[] { hits, misses } */
+        final HashMap Statistics = new HashMap();
+
+        long Bytes;
+
+        Segment(int maxSize, long maxBytes) {
+            MaxSize = maxSize;
+            MaxBytes = maxBytes;
+        }
+
+        void Remove(Object key) {
+            Entry entry = (Entry)Entries.remove(key);
+            if (entry != null) {
+                Bytes -= entry.Bytes;
+            }
+        }
+
+        long[] GetStatistics(String methodName) {
+            long[] statistics = (long[])Statistics.get(methodName);
+            if (statistics == null) {
+                statistics = new long[2];
+                Statistics.put(methodName, statistics);
+            }
+            return statistics;
+        }
+
+    }
+
+
+    /** a cached result */
+    public static class Entry {
+
+        public final Object Result;
+        final long Expiry;
+        final long Bytes;
+
+        Entry(Object result, long expiry, long bytes) {
+            Result = result;
+            Expiry = expiry;
+            Bytes = bytes;
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+/* TestFunctions.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+
+/**
+ * The methods of the test beans, whose results depend on the arguments only;
+ * the test beans call them through a CachingInterceptor.
+ */
+public interface TestFunctions {
+
+    public double TestIncDouble(double arg);
+
+    public String[] CreateTwoElemStringArray(String arg1, String arg2);
+
+    public int[][] EchoJaggedIntArray(int[][] arg);
+
+    public String[][] EchoJaggedStringArray(String[][] arg);
+
+    public byte[][][] EchoJaggedByteArray(byte[][][] arg);
+
+    public int getTestProp();
+
+}
@@ -0,0 +1,67 @@
+/* TestFunctionsImpl.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests;
+
+
+public class TestFunctionsImpl implements TestFunctions {
+
+    private int m_testProp;
+
+    /** testProp is the value returned by getTestProp, i.e. Test.TEST_PROP_INIT_VAL */
+    public TestFunctionsImpl(int testProp) {
+        m_testProp = testProp;
+    }
+
+    public double TestIncDouble(double arg) {
+        return arg + 1;
+    }
+
+    public String[] CreateTwoElemStringArray(String arg1, String arg2) {
+        String[] result = new String[2];
+        result[0] = arg1;
+        result[1] = arg2;
+        return result;
+    }
+
+    public int[][] EchoJaggedIntArray(int[][] arg) {
+        return arg;
+    }
+
+    public String[][] EchoJaggedStringArray(String[][] arg) {
+        return arg;
+    }
+
+    public byte[][][] EchoJaggedByteArray(byte[][][] arg) {
+        return arg;
+    }
+
+    public int getTestProp() {
+        return m_testProp;
+    }
+
+}
@@ -0,0 +1,133 @@
+/* EmbeddedContainer.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.embedded;
+
+import java.rmi.Remote;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import javax.naming.Context;
+import javax.naming.NameAlreadyBoundException;
+import javax.rmi.CORBA.Tie;
+import javax.rmi.CORBA.Util;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.ORB;
+import org.omg.PortableServer.POAHelper;
+
+
+/**
+ * Runs the stateless session beans of the integration tests without an
+ * application server: the homes are exported over rmi/iiop with the orb of
+ * the container and bound in a CosNaming context, so that the beans are
+ * reached over iiop like in JBoss, WebSphere or WebLogic. There are no
+ * transactions, security or java:comp/env entries; beans calling other
+ * beans find them in the naming context of the default InitialContext.
+ * The homes and ejb objects are dynamic proxies; their ties are created by
+ * the sun orb, when the system property com.sun.CORBA.ORBUseDynamicStub is
+ * true (no rmic is needed).
+ */
+public class EmbeddedContainer {
+
+    public static final String DYNAMIC_STUB_PROPERTY = "com.sun.CORBA.ORBUseDynamicStub";
+
+    private ORB m_orb;
+    private Context m_naming;
+    private List m_deployments = new ArrayList();
+
+
+    /** naming: the CosNaming context, in which the homes are bound */
+    public EmbeddedContainer(ORB orb, Context naming) throws Exception {
+        if (!Boolean.getBoolean(DYNAMIC_STUB_PROPERTY)) {
+            throw new IllegalStateException("the embedded container needs -D" + DYNAMIC_STUB_PROPERTY + "=true");
+        }
+        m_orb = orb;
+        m_naming = naming;
+        POAHelper.narrow(orb.resolve_initial_references("RootPOA")).the_POAManager().activate();
+    }
+
+
+    /**
+     * deploys a stateless session bean, of which at most maxPoolSize instances
+     * are created, and binds its home under name (e.g. IntegrationTest/test).
+     */
+    public StatelessDeployment deployStateless(String name, Class beanClass, Class homeInterface,
+                                               Class remoteInterface, int maxPoolSize) throws Exception {
+        StatelessDeployment deployment =
+            new StatelessDeployment(name, beanClass, homeInterface, remoteInterface, maxPoolSize);
+        export(deployment.getEjbObjectImpl());
+        bind(name, export(deployment.getHomeImpl()));
+        synchronized (m_deployments) {
+            m_deployments.add(deployment);
+        }
+        return deployment;
+    }
+
+    /** exports impl over rmi/iiop with the orb of the container; returns its reference */
+    public org.omg.CORBA.Object export(Remote impl) throws Exception {
+        if (!(impl instanceof PortableRemoteObject)) {
+            // a PortableRemoteObject exports itself
+            PortableRemoteObject.exportObject(impl);
+        }
+        Tie tie = Util.getTie(impl);
+        tie.orb(m_orb);
+        return tie.thisObject();
+    }
+
+    /** binds obj under the name; missing contexts of the name are created */
+    public void bind(String name, org.omg.CORBA.Object obj) throws Exception {
+        StringTokenizer components = new StringTokenizer(name, "/");
+        String context = "";
+        while (components.hasMoreTokens()) {
+            String component = components.nextToken();
+            if (!components.hasMoreTokens()) {
+                break;
+            }
+            context += component;
+            try {
+                m_naming.createSubcontext(context);
+            } catch (NameAlreadyBoundException e) {
+                // created for an other home
+            }
+            context += "/";
+        }
+        m_naming.rebind(name, obj);
+    }
+
+    public ORB getOrb() {
+        return m_orb;
+    }
+
+    public StatelessDeployment[] getDeployments() {
+        synchronized (m_deployments) {
+            return (StatelessDeployment[])m_deployments.toArray(new StatelessDeployment[m_deployments.size()]);
+        }
+    }
+
+}
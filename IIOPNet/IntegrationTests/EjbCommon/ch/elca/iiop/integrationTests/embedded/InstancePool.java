@@ -0,0 +1,366 @@
+/* InstancePool.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.embedded;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.ejb.SessionBean;
+import javax.ejb.SessionContext;
+
+
+/**
+ * The method ready pool of a stateless session bean: an instance serves one
+ * call at a time. Instances are created on demand (newInstance,
+ * setSessionContext, ejbCreate) up to maxSize; when all of them are in use,
+ * acquire waits for a released one. An instance, which threw a system
+ * exception, is discarded instead of released.
+ * With setAdaptiveSizing, maxSize follows the observed wait time: every
+ * interval, the average wait per acquire of the interval is compared with a
+ * target; above it maxSize grows by half, without any wait and with a peak
+ * use below half of maxSize it shrinks to the peak, and the idle instances
+ * above it are removed (ejbRemove).
+ * This class is thread safe.
+ */
+public class InstancePool {
+
+    private Class m_beanClass;
+    private SessionContext m_context;
+    private int m_maxSize;
+
+    private LinkedList m_idle = new LinkedList();
+    private int m_size;
+    private int m_inUse;
+
+    private int m_peakInUse;
+    private long m_nrOfCreated;
+    private long m_nrOfDiscarded;
+    private long m_nrOfAcquires;
+    private long m_nrOfWaits;
+    private long m_waitMillis;
+    private long m_nrOfRemoved;
+    private long m_nrOfResizes;
+    private long m_statisticsStart = System.currentTimeMillis();
+
+    /** the adaptive sizing; m_intervalMillis is 0, if the size is fixed */
+    private int m_lowerLimit;
+    private int m_upperLimit;
+    private double m_targetWaitMillis;
+    private long m_intervalMillis;
+    private long m_intervalStart;
+    private long m_intervalAcquires;
+    private long m_intervalWaitMillis;
+    private int m_intervalPeakInUse;
+
+
+    public InstancePool(Class beanClass, SessionContext context, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        m_beanClass = beanClass;
+        m_context = context;
+        m_maxSize = maxSize;
+    }
+
+
+    /**
+     * makes maxSize adaptive between lowerLimit and upperLimit, such that
+     * the average wait of an acquire stays below targetWaitMillis; the size
+     * is checked every intervalMillis.
+     */
+    public void setAdaptiveSizing(int lowerLimit, int upperLimit, double targetWaitMillis,
+                                  long intervalMillis) {
+        if ((lowerLimit <= 0) || (upperLimit < lowerLimit) || (intervalMillis <= 0)) {
+            throw new IllegalArgumentException("0 < lowerLimit <= upperLimit and intervalMillis > 0 required");
+        }
+        List removed;
+        synchronized (this) {
+            m_lowerLimit = lowerLimit;
+            m_upperLimit = upperLimit;
+            m_targetWaitMillis = targetWaitMillis;
+            m_intervalMillis = intervalMillis;
+            StartInterval(System.currentTimeMillis());
+            removed = Resize(Math.min(Math.max(m_maxSize, lowerLimit), upperLimit));
+        }
+        RemoveInstances(removed);
+    }
+
+    /** sets a fixed maximum size; turns the adaptive sizing off */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        List removed;
+        synchronized (this) {
+            m_intervalMillis = 0;
+            removed = Resize(maxSize);
+        }
+        RemoveInstances(removed);
+    }
+
+    public synchronized boolean isAdaptive() {
+        return m_intervalMillis > 0;
+    }
+
+    /** returns an instance for one call; must be given back with release or discard */
+    public Object acquire() throws Exception {
+        Object instance = null;
+        List removed = new ArrayList();
+        synchronized (this) {
+            m_nrOfAcquires++;
+            m_intervalAcquires++;
+            if (m_idle.isEmpty() && (m_size >= m_maxSize)) {
+                m_nrOfWaits++;
+                long start = System.currentTimeMillis();
+                while (m_idle.isEmpty() && (m_size >= m_maxSize)) {
+                    // the adaptive pool is resized, while callers are waiting
+                    wait(m_intervalMillis);
+                    long now = System.currentTimeMillis();
+                    m_intervalWaitMillis += now - start;
+                    m_waitMillis += now - start;
+                    start = now;
+                    Adapt(now, removed);
+                }
+            }
+            m_inUse++;
+            m_peakInUse = Math.max(m_peakInUse, m_inUse);
+            m_intervalPeakInUse = Math.max(m_intervalPeakInUse, m_inUse);
+            Adapt(System.currentTimeMillis(), removed);
+            if (!m_idle.isEmpty()) {
+                instance = m_idle.removeFirst();
+            } else {
+                m_size++; // reserved for the new instance
+            }
+        }
+        RemoveInstances(removed);
+        if (instance != null) {
+            return instance;
+        }
+        try {
+            instance = CreateInstance();
+            synchronized (this) {
+                m_nrOfCreated++;
+            }
+            return instance;
+        } catch (Exception e) {
+            Removed();
+            throw e;
+        }
+    }
+
+    /** returns an instance after a call; the most recently used instance is used next */
+    public void release(Object instance) {
+        synchronized (this) {
+            m_inUse--;
+            if (m_size <= m_maxSize) {
+                m_idle.addFirst(instance);
+                notify();
+                return;
+            }
+            // the pool has been reduced, while the instance was in use
+            m_size--;
+            m_nrOfRemoved++;
+        }
+        RemoveInstances(Collections.singletonList(instance));
+    }
+
+    /** drops an instance, which threw a system exception */
+    public void discard(Object instance) {
+        synchronized (this) {
+            m_nrOfDiscarded++;
+        }
+        Removed();
+    }
+
+    private synchronized void Removed() {
+        m_inUse--;
+        m_size--;
+        notify();
+    }
+
+    /**
+     * checks the size of an adaptive pool at the end of an interval; the
+     * idle instances above a reduced size are added to removed.
+     */
+    private void Adapt(long now, List removed) {
+        if ((m_intervalMillis == 0) || (now - m_intervalStart < m_intervalMillis)) {
+            return;
+        }
+        int newSize = m_maxSize;
+        double averageWait = (m_intervalAcquires > 0 ? (double)m_intervalWaitMillis / m_intervalAcquires : 0);
+        if (averageWait > m_targetWaitMillis) {
+            newSize = Math.min(m_upperLimit, m_maxSize + Math.max(1, m_maxSize / 2));
+        } else if ((m_intervalWaitMillis == 0) && (m_intervalPeakInUse < m_maxSize / 2)) {
+            newSize = Math.max(m_lowerLimit, m_intervalPeakInUse);
+        }
+        StartInterval(now);
+        if (newSize != m_maxSize) {
+            m_nrOfResizes++;
+            removed.addAll(Resize(newSize));
+        }
+    }
+
+    private void StartInterval(long now) {
+        m_intervalStart = now;
+        m_intervalAcquires = 0;
+        m_intervalWaitMillis = 0;
+        m_intervalPeakInUse = m_inUse;
+    }
+
+    /** sets maxSize; returns the idle instances above it, which must be removed */
+    private List Resize(int maxSize) {
+        m_maxSize = maxSize;
+        List removed = new ArrayList();
+        // the least recently used instances are at the end
+        while ((m_size > m_maxSize) && !m_idle.isEmpty()) {
+            removed.add(m_idle.removeLast());
+            m_size--;
+            m_nrOfRemoved++;
+        }
+        notifyAll();
+        return removed;
+    }
+
+    /** calls ejbRemove on instances taken out of the pool */
+    private static void RemoveInstances(List removed) {
+        for (int i = 0; i < removed.size(); i++) {
+            try {
+                ((SessionBean)removed.get(i)).ejbRemove();
+            } catch (Exception e) {
+                // the instance is dropped anyway
+            }
+        }
+    }
+
+    private Object CreateInstance() throws Exception {
+        SessionBean instance = (SessionBean)m_beanClass.newInstance();
+        instance.setSessionContext(m_context);
+        try {
+            m_beanClass.getMethod("ejbCreate", new Class[0]).invoke(instance, new Object[0]);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            throw (cause instanceof Exception ? (Exception)cause : e);
+        }
+        return instance;
+    }
+
+    public synchronized int getMaxSize() {
+        return m_maxSize;
+    }
+
+    /** the number of instances, idle or in use */
+    public synchronized int getSize() {
+        return m_size;
+    }
+
+    public synchronized int getInUse() {
+        return m_inUse;
+    }
+
+    /** the highest number of instances in use at the same time */
+    public synchronized int getPeakInUse() {
+        return m_peakInUse;
+    }
+
+    public synchronized long getNrOfCreated() {
+        return m_nrOfCreated;
+    }
+
+    public synchronized long getNrOfDiscarded() {
+        return m_nrOfDiscarded;
+    }
+
+    public synchronized long getNrOfAcquires() {
+        return m_nrOfAcquires;
+    }
+
+    /** the number of acquires, which had to wait for an instance */
+    public synchronized long getNrOfWaits() {
+        return m_nrOfWaits;
+    }
+
+    /** the time spent waiting for instances in acquire */
+    public synchronized long getWaitMillis() {
+        return m_waitMillis;
+    }
+
+    /** the instances removed, because the adaptive pool was reduced */
+    public synchronized long getNrOfRemoved() {
+        return m_nrOfRemoved;
+    }
+
+    /** the number of changes of maxSize by the adaptive sizing */
+    public synchronized long getNrOfResizes() {
+        return m_nrOfResizes;
+    }
+
+    /** the average wait per acquire */
+    public synchronized double getAverageWaitMillis() {
+        return (m_nrOfAcquires > 0 ? (double)m_waitMillis / m_nrOfAcquires : 0);
+    }
+
+    /** the instances created per second since the last resetStatistics */
+    public synchronized double getCreatesPerSecond() {
+        return PerSecond(m_nrOfCreated);
+    }
+
+    /** the instances discarded or removed per second since the last resetStatistics */
+    public synchronized double getRemovesPerSecond() {
+        return PerSecond(m_nrOfDiscarded + m_nrOfRemoved);
+    }
+
+    private double PerSecond(long count) {
+        return count * 1000.0 / Math.max(1, System.currentTimeMillis() - m_statisticsStart);
+    }
+
+    /** resets the peak and the counters, e.g. after a warm up */
+    public synchronized void resetStatistics() {
+        m_peakInUse = m_inUse;
+        m_nrOfCreated = 0;
+        m_nrOfDiscarded = 0;
+        m_nrOfAcquires = 0;
+        m_nrOfWaits = 0;
+        m_waitMillis = 0;
+        m_nrOfRemoved = 0;
+        m_nrOfResizes = 0;
+        m_statisticsStart = System.currentTimeMillis();
+    }
+
+    public synchronized String toString() {
+        return "InstancePool[" + m_beanClass.getName() + ", size=" + m_size + "/" + m_maxSize +
+            ", peak in use=" + m_peakInUse + ", created=" + m_nrOfCreated +
+            ", discarded=" + m_nrOfDiscarded + ", acquires=" + m_nrOfAcquires +
+            ", waits=" + m_nrOfWaits + " (" + m_waitMillis + " ms), removed=" + m_nrOfRemoved +
+            (m_intervalMillis > 0 ? ", adaptive " + m_lowerLimit + ".." + m_upperLimit +
+             ", resizes=" + m_nrOfResizes : "") + "]";
+    }
+
+}
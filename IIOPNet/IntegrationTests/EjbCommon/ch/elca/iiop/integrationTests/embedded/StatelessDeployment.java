@@ -0,0 +1,274 @@
+/* StatelessDeployment.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.embedded;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+
+import javax.ejb.EJBHome;
+import javax.ejb.EJBObject;
+import javax.ejb.SessionContext;
+import javax.rmi.PortableRemoteObject;
+
+
+/**
+ * A stateless session bean deployed in an EmbeddedContainer. The home and
+ * the ejb object are dynamic proxies for the home and remote interface:
+ * create returns the one ejb object of the deployment (the instances are
+ * interchangeable), a business method is executed by an instance of the
+ * InstancePool. Application exceptions (checked exceptions declared by the
+ * remote interface) are passed to the client; for other exceptions the
+ * instance is discarded and the client receives a RemoteException.
+ * Handles, meta data and primary keys are not supported.
+ */
+public class StatelessDeployment {
+
+    private String m_name;
+    private Class m_beanClass;
+    private Class m_remoteInterface;
+    private InstancePool m_pool;
+
+    private Remote m_home;
+    private Remote m_ejbObject;
+    /** the method of the bean for a method of the remote interface */
+    private HashMap m_beanMethods = new HashMap();
+    /** the narrowed stub of m_ejbObject, returned by every create */
+    private Object m_ejbObjectStub;
+    private long m_nrOfCalls;
+    private long m_nrOfSystemExceptions;
+    private long m_nrOfCreates;
+    private long m_nrOfRemoves;
+
+
+    StatelessDeployment(String name, Class beanClass, Class homeInterface, Class remoteInterface,
+                        int maxPoolSize) {
+        m_name = name;
+        m_beanClass = beanClass;
+        m_remoteInterface = remoteInterface;
+        ClassLoader loader = beanClass.getClassLoader();
+        SessionContext context = (SessionContext)Proxy.newProxyInstance(
+            loader, new Class[] { SessionContext.class }, new ContextHandler());
+        m_pool = new InstancePool(beanClass, context, maxPoolSize);
+        m_home = (Remote)Proxy.newProxyInstance(
+            loader, new Class[] { homeInterface }, new HomeHandler());
+        m_ejbObject = (Remote)Proxy.newProxyInstance(
+            loader, new Class[] { remoteInterface }, new ObjectHandler());
+    }
+
+
+    public String getName() {
+        return m_name;
+    }
+
+    /** the home implementation, to be exported by the container */
+    Remote getHomeImpl() {
+        return m_home;
+    }
+
+    Remote getEjbObjectImpl() {
+        return m_ejbObject;
+    }
+
+    public InstancePool getPool() {
+        return m_pool;
+    }
+
+    public synchronized long getNrOfCalls() {
+        return m_nrOfCalls;
+    }
+
+    public synchronized long getNrOfSystemExceptions() {
+        return m_nrOfSystemExceptions;
+    }
+
+    /** the number of create calls on the home */
+    public synchronized long getNrOfCreates() {
+        return m_nrOfCreates;
+    }
+
+    /** the number of remove calls on the home or the ejb object */
+    public synchronized long getNrOfRemoves() {
+        return m_nrOfRemoves;
+    }
+
+    public String toString() {
+        return m_name + ": " + getNrOfCalls() + " calls, " + getNrOfSystemExceptions() +
+            " system exceptions, " + getNrOfCreates() + " creates, " + getNrOfRemoves() +
+            " removes, " + m_pool;
+    }
+
+
+    private Method GetBeanMethod(Method method) throws NoSuchMethodException {
+        synchronized (m_beanMethods) {
+            Method result = (Method)m_beanMethods.get(method);
+            if (result == null) {
+                result = m_beanClass.getMethod(method.getName(), method.getParameterTypes());
+                m_beanMethods.put(method, result);
+            }
+            return result;
+        }
+    }
+
+    private Object Invoke(Method method, Object[] args) throws Throwable {
+        Method beanMethod = GetBeanMethod(method);
+        synchronized (this) {
+            m_nrOfCalls++;
+        }
+        Object instance = m_pool.acquire();
+        boolean discard = false;
+        try {
+            return beanMethod.invoke(instance, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (IsApplicationException(method, cause)) {
+                throw cause;
+            }
+            discard = true;
+            synchronized (this) {
+                m_nrOfSystemExceptions++;
+            }
+            throw new RemoteException("system exception in " + m_name + "." + method.getName(), cause);
+        } finally {
+            if (discard) {
+                m_pool.discard(instance);
+            } else {
+                m_pool.release(instance);
+            }
+        }
+    }
+
+    private static boolean IsApplicationException(Method method, Throwable exception) {
+        if ((exception instanceof RuntimeException) || (exception instanceof Error) ||
+            (exception instanceof RemoteException)) {
+            return false;
+        }
+        Class[] declared = method.getExceptionTypes();
+        for (int i = 0; i < declared.length; i++) {
+            if (declared[i].isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * the ejb object narrowed to the remote interface; all clients share the
+     * one ejb object of the stateless bean, so create doesn't make a new stub.
+     */
+    private synchronized Object GetEjbObjectStub() throws NoSuchObjectException {
+        if (m_ejbObjectStub == null) {
+            m_ejbObjectStub = PortableRemoteObject.narrow(PortableRemoteObject.toStub(m_ejbObject),
+                                                          m_remoteInterface);
+        }
+        return m_ejbObjectStub;
+    }
+
+    private synchronized void Created() {
+        m_nrOfCreates++;
+    }
+
+    private synchronized void Removed() {
+        m_nrOfRemoves++;
+    }
+
+    /** handles the methods of java.lang.Object on a proxy */
+    private static Object InvokeObjectMethod(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        } else if (method.getName().equals("hashCode")) {
+            return new Integer(System.identityHashCode(proxy));
+        }
+        return proxy.getClass().getName();
+    }
+
+
+    private class HomeHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return InvokeObjectMethod(proxy, method, args);
+            }
+            if (method.getName().equals("create")) {
+                Created();
+                return GetEjbObjectStub();
+            }
+            if (method.getName().equals("remove")) {
+                Removed();
+                return null; // the stateless instances are removed by the pool
+            }
+            throw new RemoteException(method.getName() + " is not supported by the embedded container");
+        }
+
+    }
+
+    private class ObjectHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return InvokeObjectMethod(proxy, method, args);
+            }
+            if (method.getDeclaringClass() != EJBObject.class) {
+                return Invoke(method, args);
+            }
+            if (method.getName().equals("getEJBHome")) {
+                return PortableRemoteObject.toStub(m_home);
+            } else if (method.getName().equals("remove")) {
+                Removed();
+                return null;
+            } else if (method.getName().equals("isIdentical")) {
+                return Boolean.valueOf(((org.omg.CORBA.Object)GetEjbObjectStub())._is_equivalent(
+                    (org.omg.CORBA.Object)args[0]));
+            }
+            throw new RemoteException(method.getName() + " is not supported by the embedded container");
+        }
+
+    }
+
+    private class ContextHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return InvokeObjectMethod(proxy, method, args);
+            }
+            if (method.getName().equals("getEJBObject")) {
+                return GetEjbObjectStub();
+            } else if (method.getName().equals("getEJBHome")) {
+                return (EJBHome)PortableRemoteObject.toStub(m_home);
+            }
+            throw new IllegalStateException(method.getName() + " is not supported by the embedded container");
+        }
+
+    }
+
+}
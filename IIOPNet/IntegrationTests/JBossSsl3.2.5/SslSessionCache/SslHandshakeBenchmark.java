@@ -0,0 +1,256 @@
+/* SslHandshakeBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import ch.elca.iiop.integrationTests.ssl.SessionCachingSslContext;
+
+
+/**
+ * Compares new ssl connections with a full handshake against connections
+ * resuming a cached session, using the SSLContext of the session caching
+ * socket factories and a self-signed keystore.
+ * Every connection issues one call of a TestIncInt32 like operation
+ * (an int is sent, the server answers with int + 1) and is closed; the
+ * first call latency is the time from connecting to the reply, i.e. the
+ * time per connection of one thread.
+ * Full handshakes are forced by invalidating the session of the client
+ * after each connection.
+ *
+ * Usage: java SslHandshakeBenchmark keystore password [secondsPerRun] [nrOfThreads]
+ */
+public class SslHandshakeBenchmark {
+
+    private SSLServerSocket m_serverSocket;
+    private SSLSocketFactory m_clientFactory;
+    private int m_port;
+    private long m_millisPerRun;
+    private String[] m_protocols;
+
+    public SslHandshakeBenchmark(SSLContext serverContext, SSLContext clientContext,
+                                 int secondsPerRun) throws IOException {
+        m_serverSocket = (SSLServerSocket)serverContext.getServerSocketFactory().createServerSocket(0);
+        m_port = m_serverSocket.getLocalPort();
+        m_clientFactory = clientContext.getSocketFactory();
+        m_millisPerRun = secondsPerRun * 1000L;
+        m_protocols = SessionIdProtocols(clientContext);
+        Thread acceptor = new Thread() {
+            public void run() {
+                Accept();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void Accept() {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = m_serverSocket.accept();
+            } catch (IOException e) {
+                return; // closed
+            }
+            try {
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                // keep the default
+            }
+            Thread handler = new Thread() {
+                public void run() {
+                    Serve(socket);
+                }
+            };
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /**
+     * the enabled protocols without TLSv1.3: it resumes with session tickets,
+     * which can't be recognized by the session id (Java 1.4, as used with
+     * JBoss 3.2.5, only supports SSLv3 and TLSv1 anyway)
+     */
+    private static String[] SessionIdProtocols(SSLContext context) throws IOException {
+        SSLSocket socket = (SSLSocket)context.getSocketFactory().createSocket();
+        String[] enabled = socket.getEnabledProtocols();
+        socket.close();
+        ArrayList result = new ArrayList();
+        for (int i = 0; i < enabled.length; i++) {
+            if (!enabled[i].equals("TLSv1.3")) {
+                result.add(enabled[i]);
+            }
+        }
+        return (String[])result.toArray(new String[result.size()]);
+    }
+
+    /** the server side of TestIncInt32 */
+    private static void Serve(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            while (true) {
+                out.writeInt(in.readInt() + 1);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // client closed the connection
+        } catch (IOException e) {
+            System.out.println("server: " + e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * connects, calls TestIncInt32 once and closes the connection;
+     * returns true, if the session was resumed.
+     */
+    private boolean Session(boolean resume, byte[] lastSessionId) throws IOException {
+        SSLSocket socket = (SSLSocket)m_clientFactory.createSocket("localhost", m_port);
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setEnabledProtocols(m_protocols);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeInt(41);
+            out.flush();
+            if (in.readInt() != 42) {
+                throw new IOException("wrong result");
+            }
+            byte[] sessionId = socket.getSession().getId();
+            boolean resumed = Arrays.equals(sessionId, lastSessionId);
+            System.arraycopy(sessionId, 0, lastSessionId, 0,
+                             Math.min(sessionId.length, lastSessionId.length));
+            if (!resume) {
+                socket.getSession().invalidate();
+            }
+            return resumed;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * runs sessions with nrOfThreads threads for m_millisPerRun; result[0]
+     * is the number of sessions, result[1] the number of resumed sessions
+     */
+    private long[] Measure(final boolean resume, int nrOfThreads) throws Exception {
+        final long[][] results = new long[nrOfThreads][2];
+        final long end = System.currentTimeMillis() + m_millisPerRun;
+        Thread[] threads = new Thread[nrOfThreads];
+        for (int t = 0; t < nrOfThreads; t++) {
+            final long[] result = results[t];
+            threads[t] = new Thread() {
+                public void run() {
+                    byte[] lastSessionId = new byte[32];
+                    try {
+                        while (System.currentTimeMillis() < end) {
+                            if (Session(resume, lastSessionId)) {
+                                result[1]++;
+                            }
+                            result[0]++;
+                        }
+                    } catch (IOException e) {
+                        System.out.println("client: " + e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long[] total = new long[2];
+        for (int t = 0; t < nrOfThreads; t++) {
+            threads[t].join();
+            for (int i = 0; i < total.length; i++) {
+                total[i] += results[t][i];
+            }
+        }
+        return total;
+    }
+
+    private void Print(String label, boolean resume, int nrOfThreads) throws Exception {
+        long[] single = Measure(resume, 1);
+        long[] multi = Measure(resume, nrOfThreads);
+        long sessions = Math.max(single[0], 1);
+        // the sessions of one thread run back to back
+        System.out.println(Table.pad(label, 10) +
+                           Table.pad(String.valueOf(single[0] * 1000 / m_millisPerRun), 16) +
+                           Table.pad(String.valueOf(multi[0] * 1000 / m_millisPerRun), 16) +
+                           Table.pad(String.valueOf(m_millisPerRun * 1000 / sessions), 20) +
+                           (single[1] * 100 / sessions) + "%");
+    }
+
+    public void Run(int nrOfThreads) throws Exception {
+        // warm up
+        Measure(false, 1);
+        Measure(true, 1);
+        System.out.println(Table.pad("handshake", 10) + Table.pad("conn/s 1 thr", 16) +
+                           Table.pad("conn/s " + nrOfThreads + " thr", 16) +
+                           Table.pad("first call (us)", 20) + "resumed");
+        Print("full", false, nrOfThreads);
+        Print("resumed", true, nrOfThreads);
+        m_serverSocket.close();
+    }
+
+    public static void main(String[] args) {
+        try {
+            if (args.length < 2) {
+                System.out.println("usage: java SslHandshakeBenchmark keystore password [secondsPerRun] [nrOfThreads]");
+                return;
+            }
+            int seconds = (args.length > 2 ? Integer.parseInt(args[2]) : 5);
+            int nrOfThreads = (args.length > 3 ? Integer.parseInt(args[3]) : 4);
+            // separate contexts: client and server normally are different processes
+            SSLContext serverContext = SessionCachingSslContext.createContext(
+                args[0], args[1], SessionCachingSslContext.DEFAULT_CACHE_SIZE,
+                SessionCachingSslContext.DEFAULT_TIMEOUT_SECONDS);
+            SSLContext clientContext = SessionCachingSslContext.createContext(
+                args[0], args[1], SessionCachingSslContext.DEFAULT_CACHE_SIZE,
+                SessionCachingSslContext.DEFAULT_TIMEOUT_SECONDS);
+            new SslHandshakeBenchmark(serverContext, clientContext, seconds).Run(nrOfThreads);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
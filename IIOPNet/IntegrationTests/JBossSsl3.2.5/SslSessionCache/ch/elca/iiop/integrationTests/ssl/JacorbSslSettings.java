@@ -0,0 +1,93 @@
+/* JacorbSslSettings.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.ssl;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+
+import org.jacorb.util.Environment;
+
+
+/**
+ * Reads the settings of the session caching socket factories from the
+ * jacorb properties:
+ * <pre>
+ * jacorb.security.keystore                   keystore (JKS) with key and trusted certificates
+ * jacorb.security.keystore_password          password of the keystore and the key
+ * ch.elca.iiop.ssl.session_cache_size        number of cached sessions, 0 = unlimited
+ * ch.elca.iiop.ssl.session_timeout           lifetime of a cached session in seconds
+ * jacorb.security.ssl.server.required_options  0x40 requires client authentication
+ * </pre>
+ */
+class JacorbSslSettings {
+
+    static final String KEYSTORE = "jacorb.security.keystore";
+    static final String KEYSTORE_PASSWORD = "jacorb.security.keystore_password";
+    static final String SESSION_CACHE_SIZE = "ch.elca.iiop.ssl.session_cache_size";
+    static final String SESSION_TIMEOUT = "ch.elca.iiop.ssl.session_timeout";
+    static final String SERVER_REQUIRED_OPTIONS = "jacorb.security.ssl.server.required_options";
+
+    /** EstablishTrustInClient */
+    private static final int ESTABLISH_TRUST_IN_CLIENT = 0x40;
+
+    private JacorbSslSettings() {
+    }
+
+    /** the shared context for the configured keystore and session cache */
+    static SSLContext GetContext() throws IOException {
+        String keystore = Environment.getProperty(KEYSTORE);
+        if (keystore == null) {
+            throw new IOException(KEYSTORE + " is not set");
+        }
+        String password = Environment.getProperty(KEYSTORE_PASSWORD);
+        int cacheSize = SessionCachingSslContext.parseSetting(
+            SESSION_CACHE_SIZE, Environment.getProperty(SESSION_CACHE_SIZE),
+            SessionCachingSslContext.DEFAULT_CACHE_SIZE);
+        int timeout = SessionCachingSslContext.parseSetting(
+            SESSION_TIMEOUT, Environment.getProperty(SESSION_TIMEOUT),
+            SessionCachingSslContext.DEFAULT_TIMEOUT_SECONDS);
+        try {
+            return SessionCachingSslContext.getContext(keystore, (password != null ? password : ""),
+                                                       cacheSize, timeout);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("can't create the ssl context: " + e);
+        }
+    }
+
+    /** true, if the server requires the client to authenticate */
+    static boolean IsClientAuthRequired() {
+        String options = Environment.getProperty(SERVER_REQUIRED_OPTIONS);
+        if (options == null) {
+            return false;
+        }
+        return (Integer.parseInt(options.trim(), 16) & ESTABLISH_TRUST_IN_CLIENT) != 0;
+    }
+
+}
@@ -0,0 +1,86 @@
+/* SessionCachingSSLServerSocketFactory.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.ssl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLServerSocketFactory;
+
+import org.jacorb.orb.ORB;
+
+
+/**
+ * Server side IIOP/SSL socket factory for JacORB, which keeps the sessions
+ * of its clients in the session cache of one SSLContext (see
+ * SessionCachingSslContext): a client reconnecting within the session
+ * timeout resumes its session with an abbreviated handshake.
+ * Configured with jacorb.ssl.server_socket_factory; see JacorbSslSettings
+ * for the settings.
+ */
+public class SessionCachingSSLServerSocketFactory
+    implements org.jacorb.orb.factory.SSLServerSocketFactory {
+
+    private SSLServerSocketFactory m_factory;
+    private boolean m_requireClientAuth;
+
+    public SessionCachingSSLServerSocketFactory(ORB orb) throws IOException {
+        m_factory = JacorbSslSettings.GetContext().getServerSocketFactory();
+        m_requireClientAuth = JacorbSslSettings.IsClientAuthRequired();
+    }
+
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return Configure(m_factory.createServerSocket(port));
+    }
+
+    public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+        return Configure(m_factory.createServerSocket(port, backlog));
+    }
+
+    public ServerSocket createServerSocket(int port, int backlog, InetAddress ifAddress)
+        throws IOException {
+        return Configure(m_factory.createServerSocket(port, backlog, ifAddress));
+    }
+
+    public boolean isSSL(ServerSocket socket) {
+        return (socket instanceof SSLServerSocket);
+    }
+
+    public void switchToClientMode(Socket socket) {
+        // not needed: the connections are not used for callbacks
+    }
+
+    private ServerSocket Configure(ServerSocket socket) {
+        ((SSLServerSocket)socket).setNeedClientAuth(m_requireClientAuth);
+        return socket;
+    }
+
+}
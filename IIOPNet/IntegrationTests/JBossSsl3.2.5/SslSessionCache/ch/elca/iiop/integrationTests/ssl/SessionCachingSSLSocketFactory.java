@@ -0,0 +1,69 @@
+/* SessionCachingSSLSocketFactory.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.ssl;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.jacorb.orb.ORB;
+import org.jacorb.orb.factory.SocketFactory;
+
+
+/**
+ * Client side IIOP/SSL socket factory for JacORB, which resumes cached
+ * sessions: all sockets of the process are created from one SSLContext
+ * (see SessionCachingSslContext), so a new connection to a server, which
+ * was already connected, costs an abbreviated handshake only.
+ * Configured with jacorb.ssl.socket_factory; see JacorbSslSettings
+ * for the settings.
+ */
+public class SessionCachingSSLSocketFactory implements SocketFactory {
+
+    private SSLSocketFactory m_factory;
+
+    public SessionCachingSSLSocketFactory(ORB orb) throws IOException {
+        m_factory = JacorbSslSettings.GetContext().getSocketFactory();
+    }
+
+    public Socket createSocket(String host, int port) throws IOException {
+        // host and port identify the cached session to resume
+        SSLSocket socket = (SSLSocket)m_factory.createSocket(host, port);
+        // giop is request/reply: don't delay the small writes
+        socket.setTcpNoDelay(true);
+        socket.startHandshake();
+        return socket;
+    }
+
+    public boolean isSSL(Socket socket) {
+        return (socket instanceof SSLSocket);
+    }
+
+}
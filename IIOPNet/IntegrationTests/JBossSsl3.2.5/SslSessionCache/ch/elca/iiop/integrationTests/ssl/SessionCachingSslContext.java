@@ -0,0 +1,136 @@
+/* SessionCachingSslContext.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package ch.elca.iiop.integrationTests.ssl;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+
+
+/**
+ * Creates the SSLContext for the IIOP/SSL socket factories.
+ * JSSE caches the negotiated sessions per SSLContext: a connection to a
+ * peer, for which a session is cached, resumes it with an abbreviated
+ * handshake (no certificate exchange and no key agreement). Therefore all
+ * sockets of a process must be created from the same context, which
+ * getContext ensures for the same keystore.
+ * The cache size (0 = unlimited) and the lifetime of a cached session
+ * are set for both the client and the server side.
+ */
+public class SessionCachingSslContext {
+
+    /** the default number of cached sessions per side */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /** the default lifetime of a cached session */
+    public static final int DEFAULT_TIMEOUT_SECONDS = 24 * 60 * 60;
+
+    /** keystore and settings -> SSLContext */
+    private static HashMap s_contexts = new HashMap();
+
+    private SessionCachingSslContext() {
+    }
+
+    /**
+     * returns the context for the keystore, creating it on first use;
+     * the keystore also holds the trusted certificates.
+     */
+    public static synchronized SSLContext getContext(String keystore, String password,
+                                                     int cacheSize, int timeoutSeconds)
+        throws IOException, GeneralSecurityException {
+        String key = keystore + "|" + cacheSize + "|" + timeoutSeconds;
+        SSLContext context = (SSLContext)s_contexts.get(key);
+        if (context == null) {
+            context = createContext(keystore, password, cacheSize, timeoutSeconds);
+            s_contexts.put(key, context);
+        }
+        return context;
+    }
+
+    /** creates a new context with an empty session cache */
+    public static SSLContext createContext(String keystore, String password,
+                                           int cacheSize, int timeoutSeconds)
+        throws IOException, GeneralSecurityException {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cache size must be >= 0");
+        }
+        if (timeoutSeconds < 0) {
+            throw new IllegalArgumentException("timeout must be >= 0");
+        }
+        char[] passwordChars = password.toCharArray();
+        KeyStore store = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream(keystore);
+        try {
+            store.load(in, passwordChars);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory keyManagers =
+            KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, passwordChars);
+        TrustManagerFactory trustManagers =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(store);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        Configure(context.getClientSessionContext(), cacheSize, timeoutSeconds);
+        Configure(context.getServerSessionContext(), cacheSize, timeoutSeconds);
+        return context;
+    }
+
+    /** parses an int setting; returns defaultValue, if value is null */
+    public static int parseSetting(String name, String value, int defaultValue) {
+        if ((value == null) || (value.trim().length() == 0)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for " + name + ": " + value);
+        }
+    }
+
+    private static void Configure(SSLSessionContext sessions, int cacheSize, int timeoutSeconds) {
+        if (sessions == null) {
+            // provider without session cache
+            return;
+        }
+        sessions.setSessionCacheSize(cacheSize);
+        sessions.setSessionTimeout(timeoutSeconds);
+    }
+
+}
@@ -29,6 +29,8 @@ package Ch.Elca.Iiop.IntegrationTests;
 
 import java.rmi.RemoteException;
 import javax.rmi.PortableRemoteObject;
+
+import Ch.Elca.Iiop.Local.CoLocation;
     
 
 public class TestServiceImpl extends PortableRemoteObject implements TestService {
@@ -158,7 +160,8 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
     }
 
     public int AddWithAdder(Adder adder, int sum1, int sum2) throws RemoteException {
-        return adder.Add(sum1, sum2);
+        // an adder of this server is called directly, without marshalling
+        return ((Adder)CoLocation.narrow(adder, Adder.class)).Add(sum1, sum2);
     }
 
     public TestSerializableClassB2 TestChangeSerializableB2(TestSerializableClassB2 arg, String detail) throws RemoteException {
@@ -0,0 +1,188 @@
+/* CoLocationBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.util.Properties;
+
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Stub;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.Adder;
+import Ch.Elca.Iiop.IntegrationTests.TestRecursiveValType;
+import Ch.Elca.Iiop.IntegrationTests.TestSerializableClassB1;
+import Ch.Elca.Iiop.IntegrationTests.TestSerializableClassD;
+import Ch.Elca.Iiop.IntegrationTests.TestSerializableClassE;
+import Ch.Elca.Iiop.IntegrationTests.TestService;
+import Ch.Elca.Iiop.IntegrationTests.TestServiceImpl;
+import Ch.Elca.Iiop.Local.CoLocation;
+import Ch.Elca.Iiop.Local.DeepCopier;
+
+
+/**
+ * Compares calls to a TestServiceImpl in the same jvm: over loopback iiop
+ * (a second orb), with the rmi/iiop stub of the exporting orb (local stub
+ * path of the orb) and with the CoLocation proxy, whose arguments are copied
+ * with serialization, and again after registering the value classes for the
+ * copy field by field.
+ * Checks also, that the copies keep the sharing and cycles of the arguments.
+ *
+ * Usage: java CoLocationBenchmark [callsPerOperation]
+ */
+public class CoLocationBenchmark {
+
+    private int m_nrOfCalls;
+
+    public CoLocationBenchmark(int nrOfCalls) {
+        m_nrOfCalls = nrOfCalls;
+    }
+
+
+    private static TestSerializableClassD CreateD() {
+        TestSerializableClassD arg = new TestSerializableClassD();
+        arg.val1 = new TestSerializableClassB1();
+        arg.val1.Msg = "msg";
+        arg.val2 = arg.val1;
+        return arg;
+    }
+
+    private static TestSerializableClassE CreateE() {
+        TestSerializableClassE arg = new TestSerializableClassE();
+        arg.RecArrEntry = new TestSerializableClassE[] { arg, new TestSerializableClassE() };
+        return arg;
+    }
+
+    /** copy semantics: the argument is not changed, sharing and cycles are kept */
+    private static void Check(TestService service) throws Exception {
+        TestSerializableClassD d = CreateD();
+        TestSerializableClassD resultD = service.TestChangeSerilizableD(d, "changed");
+        TestSerializableClassE e = CreateE();
+        TestSerializableClassE resultE = service.TestEchoSerializableE(e);
+        if (!d.val1.Msg.equals("msg") || (resultD.val1 != resultD.val2) ||
+            !resultD.val2.Msg.equals("changed") ||
+            (resultE == e) || (resultE.RecArrEntry[0] != resultE)) {
+            throw new IllegalStateException("copy semantics broken for " + service);
+        }
+        Adder adder = service.RetrieveAdder();
+        if (service.AddWithAdder(adder, 1, 2) != 3) {
+            throw new IllegalStateException("AddWithAdder failed for " + service);
+        }
+    }
+
+    /** returns the microseconds per call */
+    private double Measure(TestService service, Adder adder, int operation) throws Exception {
+        TestSerializableClassD d = CreateD();
+        TestSerializableClassE e = CreateE();
+        TestRecursiveValType tree = CreateTree(3, 5);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfCalls; i++) {
+            switch (operation) {
+                case 0: service.TestVoid(); break;
+                case 1: service.AddWithAdder(adder, i, 1); break;
+                case 2: service.TestChangeSerilizableD(d, "changed"); break;
+                case 3: service.TestEchoSerializableE(e); break;
+                default: service.EchoAnything(tree); break;
+            }
+        }
+        return (System.currentTimeMillis() - start) * 1000.0 / m_nrOfCalls;
+    }
+
+    private static TestRecursiveValType CreateTree(int depth, int nrOfChildren) {
+        if (depth == 0) {
+            return new TestRecursiveValType();
+        }
+        TestRecursiveValType node = new TestRecursiveValType(nrOfChildren);
+        for (int i = 0; i < nrOfChildren; i++) {
+            node.children[i] = CreateTree(depth - 1, nrOfChildren);
+        }
+        return node;
+    }
+
+    public void Run() throws Exception {
+        ORB serverOrb = ORB.init(new String[0], new Properties());
+        TestServiceImpl impl = new TestServiceImpl();
+        Stub localStub = (Stub)PortableRemoteObject.toStub(impl);
+        localStub.connect(serverOrb);
+        String ior = serverOrb.object_to_string(localStub);
+
+        ORB clientOrb = ORB.init(new String[0], new Properties());
+        TestService[] services = new TestService[] {
+            (TestService)PortableRemoteObject.narrow(clientOrb.string_to_object(ior), TestService.class),
+            (TestService)localStub,
+            (TestService)CoLocation.narrow(localStub, TestService.class) };
+        String[] labels = new String[] { "loopback iiop", "local stub", "co-located",
+                                         "field copy" };
+        String[] operations = new String[] {
+            "TestVoid", "AddWithAdder", "TestChangeSerilizableD", "TestEchoSerializableE",
+            "EchoAnything(tree of 156)" };
+
+        // the last column measures the co-located proxy after the registration
+        double[][] results = new double[operations.length][labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            TestService service = services[Math.min(i, services.length - 1)];
+            if (i == services.length) {
+                DeepCopier.copyFieldByField(TestSerializableClassB1.class);
+                DeepCopier.copyFieldByField(TestSerializableClassD.class);
+                DeepCopier.copyFieldByField(TestSerializableClassE.class);
+                DeepCopier.copyFieldByField(TestRecursiveValType.class);
+            }
+            Check(service);
+            Adder adder = service.RetrieveAdder();
+            for (int op = 0; op < operations.length; op++) {
+                Measure(service, adder, op); // warm up
+                results[op][i] = Measure(service, adder, op);
+            }
+        }
+        System.out.println("microseconds per call, " + m_nrOfCalls + " calls");
+        StringBuffer header = new StringBuffer(Table.pad("operation", 28));
+        for (int i = 0; i < labels.length; i++) {
+            header.append(Table.pad(labels[i], 16));
+        }
+        System.out.println(header);
+        for (int op = 0; op < operations.length; op++) {
+            StringBuffer line = new StringBuffer(Table.pad(operations[op], 28));
+            for (int i = 0; i < labels.length; i++) {
+                line.append(Table.pad(Table.format(results[op][i]), 16));
+            }
+            System.out.println(line);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 20000);
+            new CoLocationBenchmark(nrOfCalls).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
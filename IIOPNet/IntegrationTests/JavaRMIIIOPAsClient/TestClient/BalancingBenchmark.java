@@ -0,0 +1,205 @@
+/* BalancingBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Stub;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.LoadBalancer;
+
+
+/**
+ * Measures the throughput of concurrent clients, whose calls are spread by
+ * a LoadBalancer over 1 to MAX_SERVERS local servers.
+ * Each server handles one request at a time (like a server instance bound
+ * to a single resource), so one server limits the throughput to
+ * 1000 / SERVICE_TIME_MILLIS calls per second. With balancing, the
+ * throughput should grow nearly linearly with the number of servers.
+ * Each server uses its own orb; the clients share one orb and reach the
+ * servers over stringified IORs (corbaloc urls are resolved the same way).
+ * Finally, one server is shut down during a run to show the ejection of a
+ * failed endpoint.
+ *
+ * Usage: java BalancingBenchmark
+ */
+public class BalancingBenchmark {
+
+    private static final int MAX_SERVERS = 8;
+    private static final int SERVICE_TIME_MILLIS = 5;
+    private static final int CLIENT_THREADS_PER_SERVER = 4;
+    private static final int RUN_MILLIS = 3000;
+
+
+    public interface Worker extends Remote {
+        int work(int arg) throws RemoteException;
+    }
+
+    public static class WorkerImpl extends PortableRemoteObject implements Worker {
+
+        public WorkerImpl() throws RemoteException {
+            super();
+        }
+
+        public synchronized int work(int arg) throws RemoteException {
+            try {
+                Thread.sleep(SERVICE_TIME_MILLIS);
+            } catch (InterruptedException e) {
+                throw new RemoteException("interrupted", e);
+            }
+            return arg + 1;
+        }
+
+    }
+
+
+    private ORB m_clientOrb;
+    private ORB[] m_serverOrbs = new ORB[MAX_SERVERS];
+    private String[] m_urls = new String[MAX_SERVERS];
+
+    public BalancingBenchmark() throws Exception {
+        m_clientOrb = ORB.init(new String[0], null);
+        for (int i = 0; i < MAX_SERVERS; i++) {
+            m_serverOrbs[i] = ORB.init(new String[0], null);
+            Stub stub = (Stub)PortableRemoteObject.toStub(new WorkerImpl());
+            stub.connect(m_serverOrbs[i]);
+            m_urls[i] = m_serverOrbs[i].object_to_string(stub);
+        }
+        // connect serially: the sun orb fails, if the first requests of an orb
+        // are issued concurrently
+        Object[] endpoints = LoadBalancer.resolveAll(m_clientOrb, m_urls, Worker.class);
+        for (int i = 0; i < endpoints.length; i++) {
+            ((Worker)endpoints[i]).work(0);
+        }
+    }
+
+    private LoadBalancer CreateBalancer(int nrOfServers, int policy) {
+        String[] urls = new String[nrOfServers];
+        System.arraycopy(m_urls, 0, urls, 0, nrOfServers);
+        return new LoadBalancer(LoadBalancer.resolveAll(m_clientOrb, urls, Worker.class),
+                                Worker.class, policy);
+    }
+
+    /** calls work from nrOfThreads threads during RUN_MILLIS; returns the calls per second */
+    private long Measure(final Worker worker, int nrOfThreads, final Runnable duringRun)
+        throws Exception {
+        final long end = System.currentTimeMillis() + RUN_MILLIS;
+        final long[] calls = new long[nrOfThreads];
+        final int[] failures = new int[1];
+        Thread[] threads = new Thread[nrOfThreads];
+        for (int i = 0; i < nrOfThreads; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    while (System.currentTimeMillis() < end) {
+                        try {
+                            worker.work(index);
+                            calls[index]++;
+                        } catch (RemoteException e) {
+                            synchronized(failures) {
+                                failures[0]++;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        if (duringRun != null) {
+            Thread.sleep(RUN_MILLIS / 3);
+            duringRun.run();
+        }
+        long total = 0;
+        for (int i = 0; i < nrOfThreads; i++) {
+            threads[i].join();
+            total += calls[i];
+        }
+        if (failures[0] > 0) {
+            System.out.println("  " + failures[0] + " calls failed");
+        }
+        return total * 1000 / RUN_MILLIS;
+    }
+
+    public void Run() throws Exception {
+        // warm up
+        Measure((Worker)CreateBalancer(MAX_SERVERS, LoadBalancer.ROUND_ROBIN).getProxy(),
+                MAX_SERVERS, null);
+
+        System.out.println("service time " + SERVICE_TIME_MILLIS + "ms, " +
+                           CLIENT_THREADS_PER_SERVER + " client threads per server");
+        System.out.println(Table.pad("servers", 10) + Table.pad("round robin", 16) +
+                           Table.pad("least outst.", 16) + "speedup (l.o.)");
+        long single = 0;
+        for (int nrOfServers = 1; nrOfServers <= MAX_SERVERS; nrOfServers *= 2) {
+            int nrOfThreads = nrOfServers * CLIENT_THREADS_PER_SERVER;
+            long roundRobin =
+                Measure((Worker)CreateBalancer(nrOfServers, LoadBalancer.ROUND_ROBIN).getProxy(),
+                        nrOfThreads, null);
+            long leastOutstanding =
+                Measure((Worker)CreateBalancer(nrOfServers, LoadBalancer.LEAST_OUTSTANDING).getProxy(),
+                        nrOfThreads, null);
+            if (nrOfServers == 1) {
+                single = leastOutstanding;
+            }
+            System.out.println(Table.pad(String.valueOf(nrOfServers), 10) +
+                               Table.pad(String.valueOf(roundRobin), 16) +
+                               Table.pad(String.valueOf(leastOutstanding), 16) +
+                               Math.round((double)leastOutstanding * 10 / single) / 10.0);
+        }
+
+        System.out.println();
+        System.out.println("shutting down server 0 during a run with " + MAX_SERVERS + " servers:");
+        final LoadBalancer balancer = CreateBalancer(MAX_SERVERS, LoadBalancer.LEAST_OUTSTANDING);
+        long throughput = Measure((Worker)balancer.getProxy(),
+                                  MAX_SERVERS * CLIENT_THREADS_PER_SERVER,
+                                  new Runnable() {
+                                      public void run() {
+                                          m_serverOrbs[0].shutdown(true);
+                                          m_serverOrbs[0].destroy();
+                                      }
+                                  });
+        System.out.println("  " + throughput + " calls/s, available endpoints: " +
+                           balancer.getNrOfAvailableEndpoints() + " of " +
+                           balancer.getNrOfEndpoints() + ", ejections of server 0: " +
+                           balancer.getNrOfEjections(0));
+    }
+
+    public static void main(String[] args) {
+        try {
+            new BalancingBenchmark().Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/* NamingCacheBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.rmi.PortableRemoteObject;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.CachingContext;
+
+
+/**
+ * Compares client sessions, which each resolve the test service and
+ * issue one call, with and without the CachingContext.
+ * Without the cache, every session creates an InitialContext, looks the
+ * name up at the name service and narrows the result, as TestClient.setUp
+ * used to do.
+ * The TestServer must be running; the name service is configured with the
+ * usual java.naming system properties.
+ *
+ * Usage: java NamingCacheBenchmark [name] [nrOfSessions]
+ */
+public class NamingCacheBenchmark {
+
+    private String m_name;
+
+    public NamingCacheBenchmark(String name) {
+        m_name = name;
+    }
+
+    private void UncachedSession() throws Exception {
+        Context ic = new InitialContext();
+        Object objRef = ic.lookup(m_name);
+        org.omg.CORBA.Object service =
+            (org.omg.CORBA.Object)PortableRemoteObject.narrow(objRef, org.omg.CORBA.Object.class);
+        service._non_existent();
+    }
+
+    private void CachedSession(CachingContext cache) throws Exception {
+        org.omg.CORBA.Object service =
+            (org.omg.CORBA.Object)cache.lookup(m_name, org.omg.CORBA.Object.class);
+        service._non_existent();
+    }
+
+    private long MeasureUncached(int nrOfSessions) throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfSessions; i++) {
+            UncachedSession();
+        }
+        return Math.max(System.currentTimeMillis() - start, 1);
+    }
+
+    private long MeasureCached(CachingContext cache, int nrOfSessions) throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfSessions; i++) {
+            CachedSession(cache);
+        }
+        return Math.max(System.currentTimeMillis() - start, 1);
+    }
+
+    private static void Print(String label, int nrOfSessions, long time) {
+        System.out.println(Table.pad(label, 28) + Table.pad(String.valueOf(nrOfSessions * 1000L / time), 14) +
+                           ((double)time * 1000 / nrOfSessions));
+    }
+
+    public void Run(int nrOfSessions) throws Exception {
+        // warm up
+        MeasureUncached(nrOfSessions / 10);
+        CachingContext cache = new CachingContext();
+        MeasureCached(cache, nrOfSessions / 10);
+
+        System.out.println(Table.pad("mode", 28) + Table.pad("sessions/s", 14) + "us/session");
+        Print("uncached lookup + narrow", nrOfSessions, MeasureUncached(nrOfSessions));
+        Print("CachingContext", nrOfSessions, MeasureCached(cache, nrOfSessions));
+
+        // an entry, which is refreshed in the background on every other session
+        CachingContext shortLived = new CachingContext(new InitialContext(), 2);
+        Print("CachingContext, ttl 2ms", nrOfSessions, MeasureCached(shortLived, nrOfSessions));
+        System.out.println();
+        System.out.println(cache);
+        System.out.println(shortLived);
+        shortLived.close();
+        cache.close();
+    }
+
+    public static void main(String[] args) {
+        try {
+            String name = (args.length > 0 ? args[0] : "test");
+            int nrOfSessions = (args.length > 1 ? Integer.parseInt(args[1]) : 2000);
+            new NamingCacheBenchmark(name).Run(nrOfSessions);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
@@ -1,9 +1,7 @@
 import junit.framework.*;
 import javax.naming.NamingException;
-import javax.naming.InitialContext;
-import javax.naming.Context;
-import javax.rmi.PortableRemoteObject;
 import Ch.Elca.Iiop.IntegrationTests.*;
+import Ch.Elca.Iiop.Naming.CachingContext;
 
 
 /**
@@ -12,15 +10,19 @@ import Ch.Elca.Iiop.IntegrationTests.*;
  */
 public class TestClient extends TestCase {
 
+    /** shared by all tests: resolves "test" only once instead of once per test */
+    private static CachingContext s_namingCache;
+
     private TestService m_testService;
 
     public static void main (String[] args) {
         junit.textui.TestRunner.run (suite());
     }
     protected void setUp() throws Exception {
-        Context ic = new InitialContext();
-        Object objRef = ic.lookup("test");
-        m_testService = (TestService) PortableRemoteObject.narrow(objRef, TestService.class);
+        if (s_namingCache == null) {
+            s_namingCache = new CachingContext();
+        }
+        m_testService = (TestService) s_namingCache.lookup("test", TestService.class);
     }
 
     protected void tearDown() {
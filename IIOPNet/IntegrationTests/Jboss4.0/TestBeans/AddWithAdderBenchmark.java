@@ -0,0 +1,115 @@
+/* AddWithAdderBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.rmi.PortableRemoteObject;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import ch.elca.iiop.integrationTests.IntAdder;
+import ch.elca.iiop.integrationTests.Test;
+import ch.elca.iiop.integrationTests.TestHome;
+
+
+/**
+ * Measures the latency of the nested call in TestBean.AddWithAdder for an
+ * adder of the same container: AddWithAdder minus TestVoid (the outer remote
+ * call). Run it once against the server started normally (co-located, local
+ * interface) and once with -Dch.elca.iiop.integrationTests.coLocation=false
+ * in the JAVA_OPTS of the server (nested call through iiop).
+ *
+ * Usage: java AddWithAdderBenchmark [nrOfCalls] [nameService corbaloc]
+ */
+public class AddWithAdderBenchmark {
+
+    private int m_nrOfCalls;
+    private Test m_test;
+    private IntAdder m_adder;
+
+    public AddWithAdderBenchmark(int nrOfCalls, String nameService) throws Exception {
+        m_nrOfCalls = nrOfCalls;
+        Hashtable env = new Hashtable();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.cosnaming.CNCtxFactory");
+        env.put(Context.PROVIDER_URL, nameService);
+        InitialContext context = new InitialContext(env);
+        TestHome home = (TestHome)PortableRemoteObject.narrow(
+            context.lookup("IntegrationTest/test"), TestHome.class);
+        context.close();
+        m_test = home.create();
+        m_adder = m_test.RetrieveAdder();
+    }
+
+
+    /** returns the microseconds per call */
+    private double Measure(int operation) throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfCalls; i++) {
+            switch (operation) {
+                case 0: m_test.TestVoid(); break;
+                case 1: m_adder.add(i, 1); break;
+                default:
+                    if (m_test.AddWithAdder(m_adder, i, 1) != i + 1) {
+                        throw new IllegalStateException("wrong sum");
+                    }
+                    break;
+            }
+        }
+        return (System.currentTimeMillis() - start) * 1000.0 / m_nrOfCalls;
+    }
+
+    public void Run() throws Exception {
+        for (int op = 0; op < 3; op++) {
+            Measure(op); // warm up
+        }
+        double testVoid = Measure(0);
+        double add = Measure(1);
+        double addWithAdder = Measure(2);
+        System.out.println("microseconds per call, " + m_nrOfCalls + " calls");
+        System.out.println(Table.pad("TestVoid", 36) + Table.format(testVoid));
+        System.out.println(Table.pad("IntAdder.add from the client", 36) + Table.format(add));
+        System.out.println(Table.pad("AddWithAdder", 36) + Table.format(addWithAdder));
+        System.out.println(Table.pad("nested add (AddWithAdder-TestVoid)", 36) +
+                           Table.format(addWithAdder - testVoid));
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+            String nameService = (args.length > 1 ? args[1] :
+                                  "corbaloc::localhost:3528/JBoss/Naming/root");
+            new AddWithAdderBenchmark(nrOfCalls, nameService).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
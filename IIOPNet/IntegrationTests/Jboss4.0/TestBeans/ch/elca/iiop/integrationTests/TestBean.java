@@ -32,9 +32,6 @@ import javax.ejb.CreateException;
 import javax.ejb.SessionBean;
 import javax.ejb.SessionContext;
 
-import javax.naming.InitialContext;
-import javax.rmi.PortableRemoteObject;
-
 
 
 /**
@@ -42,7 +39,18 @@ import javax.rmi.PortableRemoteObject;
  */
 public class TestBean implements SessionBean {
 
+    private static final String ADDER_HOME = "iiop/IntegrationTest/intadder";
+    private static final String LOCAL_ADDER_HOME = "java:comp/env/ejb/IntAdderLocal";
+
+    /** -Dch.elca.iiop.integrationTests.coLocation=false calls co-located adders through iiop */
+    private static final boolean CO_LOCATION =
+        !"false".equals(System.getProperty("ch.elca.iiop.integrationTests.coLocation"));
+
+    /** the ObjectAddress of the adders of this container; "" if unknown */
+    private static String s_localAdderAddress;
+
     private SessionContext m_ctx;
+    private IntAdderLocal m_localAdder;
 
  
     /**
@@ -89,7 +97,7 @@ public class TestBean implements SessionBean {
 
 
     public double TestIncDouble(double arg) {
-        return arg + 1;
+        return Functions.Instance.TestIncDouble(arg);
     }
 
     public float TestIncFloat(float arg) {
@@ -159,32 +167,42 @@ public class TestBean implements SessionBean {
     }
 
     public String[] CreateTwoElemStringArray(String arg1, String arg2) {
-        String[] result = new String[2];
-        result[0] = arg1;
-        result[1] = arg2;
-        return result;
+        return Functions.Instance.CreateTwoElemStringArray(arg1, arg2);
     }
         
     public int[][] EchoJaggedIntArray(int[][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedIntArray(arg);
     }
         
     public String[][] EchoJaggedStringArray(String[][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedStringArray(arg);
     }
         
     public byte[][][] EchoJaggedByteArray(byte[][][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedByteArray(arg);
     }
         
+    /**
+     * the side effect free methods; the results are cached as configured
+     * by the env-entry resultCache of the bean. The proxy is created on the
+     * first call by the class initialization, which the jvm does once and
+     * thread safe, so the calls take no lock of their own.
+     */
+    private static class Functions {
+        static final TestFunctions Instance = (TestFunctions)CachingInterceptor.wrapFromEnvironment(
+            new TestFunctionsImpl(Test.TEST_PROP_INIT_VAL), TestFunctions.class);
+    }
+
     public IntAdder RetrieveAdder() {
         IntAdder result = null;
         try {
-            InitialContext ic = new InitialContext();
-            Object obj = ic.lookup("iiop/IntegrationTest/intadder");
-            IntAdderHome home = (IntAdderHome) PortableRemoteObject.narrow(obj, IntAdderHome.class);
-            result = home.create();
-            
+            HomeLocator locator = HomeLocator.getInstance();
+            try {
+                result = ((IntAdderHome)locator.getHome(ADDER_HOME, IntAdderHome.class)).create();
+            } catch (java.rmi.RemoteException e) {
+                // the cached home is stale, e.g. the adder bean was redeployed
+                result = ((IntAdderHome)locator.refreshHome(ADDER_HOME, IntAdderHome.class)).create();
+            }
         } catch (Exception e) {
             System.err.println("error: " + e);
         }
@@ -194,6 +212,10 @@ public class TestBean implements SessionBean {
 
     public int AddWithAdder(IntAdder adder, int sum1, int sum2) {       
         try {
+            IntAdderLocal localAdder = GetCoLocatedAdder(adder);
+            if (localAdder != null) {
+                return localAdder.add(sum1, sum2);
+            }
             int result = adder.add(sum1, sum2);
             return result;
         } catch (java.rmi.RemoteException e) {
@@ -201,6 +223,45 @@ public class TestBean implements SessionBean {
         }
     }
 
+    /**
+     * returns an adder to call through the local interface, if adder is an
+     * IntAdderBean of this container; otherwise null. The adders are stateless,
+     * so any instance will do; add has only primitive arguments, so passing
+     * them by reference keeps the by value semantics.
+     */
+    private IntAdderLocal GetCoLocatedAdder(IntAdder adder) {
+        if (!CO_LOCATION) {
+            return null;
+        }
+        String address = ObjectAddress.of(adder);
+        if ((address == null) || !address.equals(GetLocalAdderAddress())) {
+            return null;
+        }
+        if (m_localAdder == null) {
+            try {
+                m_localAdder = ((IntAdderLocalHome)HomeLocator.getInstance().
+                    getHome(LOCAL_ADDER_HOME, IntAdderLocalHome.class)).create();
+            } catch (Exception e) {
+                return null; // call the remote interface
+            }
+        }
+        return m_localAdder;
+    }
+
+    private static synchronized String GetLocalAdderAddress() {
+        if (s_localAdderAddress == null) {
+            try {
+                String address = ObjectAddress.of(((IntAdderHome)HomeLocator.getInstance().
+                    getHome(ADDER_HOME, IntAdderHome.class)).create());
+                s_localAdderAddress = (address != null ? address : "");
+            } catch (Exception e) {
+                System.err.println("co-location of adders disabled: " + e);
+                s_localAdderAddress = "";
+            }
+        }
+        return s_localAdderAddress;
+    }
+
     public TestSerializableClassB2 TestChangeSerializableB2(TestSerializableClassB2 arg, String detail) {
         arg.DetailedMsg = detail;
         return arg;
@@ -220,7 +281,7 @@ public class TestBean implements SessionBean {
     }
     
     public int getTestProp() {
-        return Test.TEST_PROP_INIT_VAL;
+        return Functions.Instance.getTestProp();
     }
        
     /// <summary>
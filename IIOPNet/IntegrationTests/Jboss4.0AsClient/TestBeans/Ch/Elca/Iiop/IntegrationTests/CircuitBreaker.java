@@ -0,0 +1,107 @@
+/* CircuitBreaker.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+
+/**
+ * Stops calls to a service, which doesn't answer in time: after
+ * failureThreshold consecutive failures (timeouts, lost connections), the
+ * breaker opens and rejects all calls for openMillis, so that the calling
+ * threads fail fast instead of waiting for the service. Then one probe call
+ * is let through (half open): its success closes the breaker, its failure
+ * opens it again.
+ * Each call allowed by allowRequest must be completed with recordSuccess or
+ * recordFailure.
+ */
+public class CircuitBreaker {
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    private int m_failureThreshold;
+    private long m_openMillis;
+
+    private int m_state = CLOSED;
+    private int m_consecutiveFailures;
+    private long m_openedAt;
+    private long m_nrOfRejected;
+
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1: " + failureThreshold);
+        }
+        m_failureThreshold = failureThreshold;
+        m_openMillis = openMillis;
+    }
+
+
+    /** true, if a call may be made; false, if it is to be rejected */
+    public synchronized boolean allowRequest() {
+        if (m_state == CLOSED) {
+            return true;
+        }
+        if ((m_state == OPEN) && (System.currentTimeMillis() - m_openedAt >= m_openMillis)) {
+            m_state = HALF_OPEN; // this call is the probe
+            return true;
+        }
+        m_nrOfRejected++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        m_consecutiveFailures = 0;
+        m_state = CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        m_consecutiveFailures++;
+        if ((m_state == HALF_OPEN) || (m_consecutiveFailures >= m_failureThreshold)) {
+            m_state = OPEN;
+            m_openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** CLOSED, OPEN or HALF_OPEN */
+    public synchronized int getState() {
+        return m_state;
+    }
+
+    /** the number of calls rejected by allowRequest */
+    public synchronized long getNrOfRejected() {
+        return m_nrOfRejected;
+    }
+
+    public synchronized String toString() {
+        String[] states = { "closed", "open", "half open" };
+        return "CircuitBreaker[" + states[m_state] + ", " + m_consecutiveFailures +
+               " consecutive failures, " + m_nrOfRejected + " rejected]";
+    }
+
+}
@@ -0,0 +1,74 @@
+/* Deadline.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+
+/**
+ * The deadline of the calls of the current thread, as System.currentTimeMillis
+ * value. A deadline set here is sent by the DeadlineInterceptor with every
+ * call as service context CONTEXT_ID (the remaining milliseconds); the
+ * receiving DeadlineInterceptor sets it for the thread executing the call,
+ * so that it is passed on by the calls of this thread.
+ */
+public final class Deadline {
+
+    /**
+     * the id of the service context; not registered with the omg, it is only
+     * understood by the test beans and the .NET TestServer
+     */
+    public static final int CONTEXT_ID = 1100;
+
+    private static ThreadLocal s_deadline = new ThreadLocal();
+
+
+    private Deadline() {
+    }
+
+
+    /** sets the deadline of the current thread; 0 for none */
+    public static void set(long deadline) {
+        s_deadline.set(deadline != 0 ? new Long(deadline) : null);
+    }
+
+    /** the deadline of the current thread; 0, if none is set */
+    public static long get() {
+        Long deadline = (Long)s_deadline.get();
+        return (deadline != null ? deadline.longValue() : 0);
+    }
+
+    /** the milliseconds until the deadline; Long.MAX_VALUE, if none is set */
+    public static long getRemaining() {
+        long deadline = get();
+        return (deadline != 0 ? deadline - System.currentTimeMillis() : Long.MAX_VALUE);
+    }
+
+    public static void clear() {
+        s_deadline.set(null);
+    }
+
+}
@@ -0,0 +1,60 @@
+/* DeadlineInitializer.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+import org.omg.CORBA.INITIALIZE;
+import org.omg.CORBA.LocalObject;
+import org.omg.IOP.ENCODING_CDR_ENCAPS;
+import org.omg.IOP.Encoding;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitializer;
+
+
+/**
+ * Registers the DeadlineInterceptor as client and server request interceptor;
+ * is registered with the property
+ * org.omg.PortableInterceptor.ORBInitializerClass.Ch.Elca.Iiop.IntegrationTests.DeadlineInitializer
+ */
+public class DeadlineInitializer extends LocalObject implements ORBInitializer {
+
+    public void pre_init(ORBInitInfo info) {
+    }
+
+    public void post_init(ORBInitInfo info) {
+        try {
+            DeadlineInterceptor interceptor = new DeadlineInterceptor(
+                info.codec_factory().create_codec(
+                    new Encoding(ENCODING_CDR_ENCAPS.value, (byte)1, (byte)2)));
+            info.add_client_request_interceptor(interceptor);
+            info.add_server_request_interceptor(interceptor);
+        } catch (Exception e) {
+            throw new INITIALIZE("can't register the deadline interceptor: " + e);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+/* DeadlineInterceptor.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+import org.omg.CORBA.Any;
+import org.omg.CORBA.BAD_PARAM;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.INTERNAL;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.TCKind;
+import org.omg.CORBA.TIMEOUT;
+import org.omg.IOP.Codec;
+import org.omg.IOP.CodecPackage.FormatMismatch;
+import org.omg.IOP.CodecPackage.InvalidTypeForEncoding;
+import org.omg.IOP.CodecPackage.TypeMismatch;
+import org.omg.IOP.ServiceContext;
+import org.omg.PortableInterceptor.ClientRequestInfo;
+import org.omg.PortableInterceptor.ClientRequestInterceptor;
+import org.omg.PortableInterceptor.ForwardRequest;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+import org.omg.PortableInterceptor.ServerRequestInterceptor;
+
+
+/**
+ * Propagates the Deadline of the calling thread: on the client side, the
+ * remaining milliseconds are sent in the service context Deadline.CONTEXT_ID
+ * (an any containing a long); a call, whose deadline has already passed,
+ * is not sent, but fails with TIMEOUT.
+ * On the server side, the deadline of the context is set for the executing
+ * thread; a request, which arrives after its deadline, is answered with
+ * TIMEOUT without being executed.
+ * The interceptor is registered by the DeadlineInitializer.
+ */
+public class DeadlineInterceptor extends LocalObject
+    implements ClientRequestInterceptor, ServerRequestInterceptor {
+
+    private Codec m_codec;
+
+
+    public DeadlineInterceptor(Codec codec) {
+        m_codec = codec;
+    }
+
+
+    public String name() {
+        return "Deadline";
+    }
+
+    public void destroy() {
+    }
+
+    // client side
+
+    public void send_request(ClientRequestInfo ri) throws ForwardRequest {
+        long remaining = Deadline.getRemaining();
+        if (remaining == Long.MAX_VALUE) {
+            return; // no deadline
+        }
+        if (remaining <= 0) {
+            throw new TIMEOUT("deadline passed before sending " + ri.operation(),
+                              1, CompletionStatus.COMPLETED_NO);
+        }
+        Any any = ORB.init().create_any();
+        any.insert_long((int)Math.min(remaining, Integer.MAX_VALUE));
+        try {
+            // replace a context of an earlier try of this request
+            ri.add_request_service_context(
+                new ServiceContext(Deadline.CONTEXT_ID, m_codec.encode_value(any)), true);
+        } catch (InvalidTypeForEncoding e) {
+            throw new INTERNAL("can't encode the deadline: " + e);
+        }
+    }
+
+    public void send_poll(ClientRequestInfo ri) {
+    }
+
+    public void receive_reply(ClientRequestInfo ri) {
+    }
+
+    public void receive_exception(ClientRequestInfo ri) throws ForwardRequest {
+    }
+
+    public void receive_other(ClientRequestInfo ri) throws ForwardRequest {
+    }
+
+    // server side
+
+    public void receive_request_service_contexts(ServerRequestInfo ri) throws ForwardRequest {
+        Deadline.clear();
+        ServiceContext context;
+        try {
+            context = ri.get_request_service_context(Deadline.CONTEXT_ID);
+        } catch (BAD_PARAM e) {
+            return; // the caller has no deadline
+        }
+        int remaining;
+        try {
+            remaining = m_codec.decode_value(context.context_data,
+                ORB.init().get_primitive_tc(TCKind.tk_long)).extract_long();
+        } catch (FormatMismatch e) {
+            throw new BAD_PARAM("invalid deadline context: " + e);
+        } catch (TypeMismatch e) {
+            throw new BAD_PARAM("invalid deadline context: " + e);
+        }
+        if (remaining <= 0) {
+            throw new TIMEOUT("deadline passed before receiving " + ri.operation(),
+                              1, CompletionStatus.COMPLETED_NO);
+        }
+        Deadline.set(System.currentTimeMillis() + remaining);
+    }
+
+    public void receive_request(ServerRequestInfo ri) throws ForwardRequest {
+        // the arguments of large requests may take a while to unmarshal
+        if (Deadline.getRemaining() <= 0) {
+            Deadline.clear();
+            throw new TIMEOUT("deadline passed before executing " + ri.operation(),
+                              1, CompletionStatus.COMPLETED_NO);
+        }
+    }
+
+    public void send_reply(ServerRequestInfo ri) {
+        Deadline.clear();
+    }
+
+    public void send_exception(ServerRequestInfo ri) throws ForwardRequest {
+        Deadline.clear();
+    }
+
+    public void send_other(ServerRequestInfo ri) throws ForwardRequest {
+        Deadline.clear();
+    }
+
+}
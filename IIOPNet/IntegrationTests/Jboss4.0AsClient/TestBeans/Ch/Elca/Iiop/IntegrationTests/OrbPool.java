@@ -0,0 +1,97 @@
+/* OrbPool.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+import java.util.Properties;
+
+import org.omg.CORBA.ORB;
+
+
+/**
+ * A fixed number of ORB instances; the calling threads are assigned to them
+ * round robin on their first call and keep their ORB. Every ORB has its own
+ * connections, request ids and reply dispatching, so the calls of threads
+ * using different ORBs don't contend in the ORB.
+ * References and stubs belong to the ORB, which created them: objects cached
+ * per ORB are kept per stripe (see getStripe).
+ */
+public class OrbPool {
+
+    private ORB[] m_orbs;
+    private int m_nextStripe;
+
+    private ThreadLocal m_stripe = new ThreadLocal() {
+        protected Object initialValue() {
+            return new Integer(NextStripe());
+        }
+    };
+
+
+    /** creates size ORBs, initialised with props */
+    public OrbPool(int size, Properties props) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        m_orbs = new ORB[size];
+        for (int i = 0; i < size; i++) {
+            m_orbs[i] = ORB.init(new String[0], props);
+        }
+    }
+
+
+    public int getSize() {
+        return m_orbs.length;
+    }
+
+    /** the stripe of the calling thread: 0 .. getSize() - 1 */
+    public int getStripe() {
+        return ((Integer)m_stripe.get()).intValue();
+    }
+
+    /** the ORB of the calling thread */
+    public ORB getOrb() {
+        return m_orbs[getStripe()];
+    }
+
+    public ORB getOrb(int stripe) {
+        return m_orbs[stripe];
+    }
+
+    public void destroy() {
+        for (int i = 0; i < m_orbs.length; i++) {
+            m_orbs[i].destroy();
+        }
+    }
+
+    private synchronized int NextStripe() {
+        int stripe = m_nextStripe;
+        m_nextStripe = (m_nextStripe + 1) % m_orbs.length;
+        return stripe;
+    }
+
+}
@@ -3,11 +3,19 @@ package Ch.Elca.Iiop.IntegrationTests;
 import java.util.Properties;
 import org.omg.CORBA.*;
 
+/**
+ * The ORBs used by the beans to call the .NET server: a pool of
+ * Ch.Elca.Iiop.IntegrationTests.orbPoolSize (system property, default 1)
+ * JacORB instances; getOrb returns the one of the calling thread.
+ * The orbs send the Deadline of the calling thread with the DeadlineInterceptor.
+ */
 public class OrbSingleton { 
 
+    public static final String POOL_SIZE_PROPERTY = "Ch.Elca.Iiop.IntegrationTests.orbPoolSize";
+
     private static OrbSingleton s_instance = null; 
 
-    private ORB m_orb; 
+    private OrbPool m_pool; 
 
 
     private OrbSingleton() { 
@@ -16,8 +24,15 @@ public class OrbSingleton {
             Properties pr = new Properties();
             pr.setProperty("org.omg.CORBA.ORBClass", "org.jacorb.orb.ORB");
             pr.setProperty("org.omg.CORBA.ORBSingletonClass", "org.jacorb.orb.ORBSingleton");
+            pr.setProperty("org.omg.PortableInterceptor.ORBInitializerClass." +
+                           DeadlineInitializer.class.getName(), "");
+            long timeout = Long.getLong(ServiceForwarder.TIMEOUT_PROPERTY, 0).longValue();
+            if (timeout > 0) {
+                // in case the server doesn't honour the deadline
+                pr.setProperty("jacorb.connection.client.pending_reply_timeout", String.valueOf(timeout));
+            }
 
-            m_orb = ORB.init(new String[0], pr); 
+            m_pool = new OrbPool(Integer.getInteger(POOL_SIZE_PROPERTY, 1).intValue(), pr); 
 
         } catch (SystemException ex) { 
             System.out.println("OrbSingleton() constructor: ORB.init() exception: " + 
@@ -32,8 +47,13 @@ public class OrbSingleton {
        return s_instance; 
     }
 
+    /** the ORB of the calling thread */
     public ORB getOrb() { 
-        return m_orb; 
+        return m_pool.getOrb(); 
+    } 
+
+    public OrbPool getPool() { 
+        return m_pool; 
     } 
 
 
@@ -0,0 +1,269 @@
+/* ServiceForwarder.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests;
+
+import org.omg.CORBA.Any;
+import org.omg.CORBA.COMM_FAILURE;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.OBJECT_NOT_EXIST;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.Policy;
+import org.omg.CORBA.PolicyError;
+import org.omg.CORBA.SetOverrideType;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.TIMEOUT;
+import org.omg.CORBA.TRANSIENT;
+
+
+/**
+ * Forwards calls to the TestService of the .NET server. The service is
+ * resolved and narrowed once; the stub and with it the connection to the
+ * server are kept for all later calls. If the connection is lost, the stub
+ * is resolved again and the call retried once (the forwarded calls are
+ * idempotent).
+ * echo waits at most until the Deadline of the calling thread or the timeout
+ * of the forwarder, whichever is earlier; the deadline is sent to the server
+ * by the DeadlineInterceptor. Each call sets the remaining time as
+ * RelativeRoundtripTimeoutPolicy on the stub, so that the orb stops waiting
+ * at the deadline with TIMEOUT, also if the server doesn't honour it; an orb
+ * without this policy (e.g. the one of the jdk) waits for the reply, see
+ * isReplyTimeoutSupported. A CircuitBreaker, if set, counts the timeouts
+ * and lost connections: while it is open, echo fails at once with TRANSIENT.
+ * There is no asynchronous echo: an EJB 2 bean method can't return before
+ * its calls are answered, so its thread would wait for the deferred replies
+ * anyway, and deferred dii requests are sent by threads of the orb, without
+ * the deadline of the caller.
+ */
+public class ServiceForwarder {
+
+    /** the location of the TestService of the .NET TestServer */
+    public static final String SERVICE_LOCATION = "corbaloc:iiop:localhost:8087/test";
+
+    /** system property: the timeout of echo in ms for getInstance; default 0: none */
+    public static final String TIMEOUT_PROPERTY = "Ch.Elca.Iiop.IntegrationTests.forwardTimeout";
+    /** system property: the consecutive failures opening the circuit breaker of getInstance; default 5, 0: no breaker */
+    public static final String BREAKER_THRESHOLD_PROPERTY = "Ch.Elca.Iiop.IntegrationTests.breakerThreshold";
+    /** system property: the ms the circuit breaker of getInstance stays open; default 5000 */
+    public static final String BREAKER_OPEN_PROPERTY = "Ch.Elca.Iiop.IntegrationTests.breakerOpenTime";
+
+    /** the forwarders of the ORBs of the OrbSingleton, by stripe */
+    private static ServiceForwarder[] s_instances;
+    /** the forwarder of the calling thread, saves the lookup in s_instances */
+    private static ThreadLocal s_threadInstance = new ThreadLocal();
+    /** the circuit breaker shared by the forwarders of getInstance; they call the same server */
+    private static CircuitBreaker s_breaker;
+
+    /** Messaging::RELATIVE_RT_TIMEOUT_POLICY_TYPE, not in the org.omg packages of the jdk */
+    private static final int RELATIVE_RT_TIMEOUT_POLICY_TYPE = 32;
+
+    private ORB m_orb;
+    private String m_location;
+    private TestService m_service;
+    private int m_nrOfResolves;
+    private long m_timeout;
+    private CircuitBreaker m_breaker;
+    /** false, once the orb rejected the RelativeRoundtripTimeoutPolicy */
+    private boolean m_replyTimeoutSupported = true;
+
+
+    public ServiceForwarder(ORB orb, String location) {
+        m_orb = orb;
+        m_location = location;
+    }
+
+
+    /**
+     * the forwarder for the .NET TestServer, using the orb of the calling
+     * thread in the OrbSingleton; there is one forwarder per orb. The
+     * timeout and circuit breaker are configured with the system properties
+     * TIMEOUT_PROPERTY, BREAKER_THRESHOLD_PROPERTY and BREAKER_OPEN_PROPERTY.
+     */
+    public static ServiceForwarder getInstance() {
+        ServiceForwarder result = (ServiceForwarder)s_threadInstance.get();
+        if (result == null) {
+            OrbPool pool = OrbSingleton.getInstance().getPool();
+            int stripe = pool.getStripe();
+            synchronized (ServiceForwarder.class) {
+                if (s_instances == null) {
+                    s_instances = new ServiceForwarder[pool.getSize()];
+                    int threshold = Integer.getInteger(BREAKER_THRESHOLD_PROPERTY, 5).intValue();
+                    if (threshold > 0) {
+                        s_breaker = new CircuitBreaker(threshold,
+                            Long.getLong(BREAKER_OPEN_PROPERTY, 5000).longValue());
+                    }
+                }
+                if (s_instances[stripe] == null) {
+                    ServiceForwarder forwarder = new ServiceForwarder(pool.getOrb(stripe), SERVICE_LOCATION);
+                    forwarder.setTimeout(Long.getLong(TIMEOUT_PROPERTY, 0).longValue());
+                    forwarder.setCircuitBreaker(s_breaker);
+                    s_instances[stripe] = forwarder;
+                }
+                result = s_instances[stripe];
+            }
+            s_threadInstance.set(result);
+        }
+        return result;
+    }
+
+    /** the narrowed service; resolved and connected on first use */
+    public synchronized TestService getService() {
+        if (m_service == null) {
+            TestService service = TestServiceHelper.narrow(m_orb.string_to_object(m_location));
+            // opens the connection, the narrow doesn't need a call, if the type id of the ior matches
+            if (service._non_existent()) {
+                throw new OBJECT_NOT_EXIST("no service at " + m_location);
+            }
+            m_service = service;
+            m_nrOfResolves++;
+        }
+        return m_service;
+    }
+
+    /** drops the cached service, if it is still service; the next call resolves it again */
+    public synchronized void invalidate(org.omg.CORBA.Object service) {
+        if (m_service == service) {
+            m_service = null;
+        }
+    }
+
+    /** the number of times, the service was resolved */
+    public synchronized int getNrOfResolves() {
+        return m_nrOfResolves;
+    }
+
+    /** the longest time in ms echo waits for the service; 0 for no limit */
+    public void setTimeout(long timeout) {
+        m_timeout = timeout;
+    }
+
+    public long getTimeout() {
+        return m_timeout;
+    }
+
+    /** the breaker guarding echo; null for none */
+    public void setCircuitBreaker(CircuitBreaker breaker) {
+        m_breaker = breaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return m_breaker;
+    }
+
+    /**
+     * false, if the orb rejected the RelativeRoundtripTimeoutPolicy: echo
+     * then waits for the reply also after the deadline
+     */
+    public boolean isReplyTimeoutSupported() {
+        return m_replyTimeoutSupported;
+    }
+
+    /**
+     * echoes content by the service; throws TIMEOUT, if the service doesn't
+     * answer before the deadline, and TRANSIENT, if the circuit breaker is open.
+     */
+    public byte[] echo(byte[] content) {
+        CircuitBreaker breaker = m_breaker;
+        if ((breaker != null) && !breaker.allowRequest()) {
+            throw new TRANSIENT("circuit to " + m_location + " is open",
+                                1, CompletionStatus.COMPLETED_NO);
+        }
+        long callerDeadline = Deadline.get();
+        if (m_timeout > 0) {
+            long deadline = System.currentTimeMillis() + m_timeout;
+            if ((callerDeadline == 0) || (deadline < callerDeadline)) {
+                Deadline.set(deadline);
+            }
+        }
+        boolean failed = false;
+        try {
+            return EchoWithRetry(content);
+        } catch (SystemException e) {
+            failed = (e instanceof TIMEOUT) || IsConnectionLost(e);
+            throw e;
+        } finally {
+            Deadline.set(callerDeadline);
+            if (breaker != null) {
+                if (failed) {
+                    breaker.recordFailure();
+                } else {
+                    breaker.recordSuccess();
+                }
+            }
+        }
+    }
+
+    private byte[] EchoWithRetry(byte[] content) {
+        TestService service = getService();
+        try {
+            return WithReplyTimeout(service).EchoByteArrayContainer(CreateContainer(content)).Content;
+        } catch (SystemException e) {
+            if (!IsConnectionLost(e)) {
+                throw e;
+            }
+            invalidate(service);
+            return WithReplyTimeout(getService()).EchoByteArrayContainer(CreateContainer(content)).Content;
+        }
+    }
+
+    /**
+     * returns a reference to service, for which the orb gives up the call at
+     * the deadline of the calling thread; service itself, if there is no
+     * deadline or the orb doesn't support the relative round trip timeout
+     * policy. Doesn't call the service: the override is only narrowed locally.
+     */
+    private TestService WithReplyTimeout(TestService service) {
+        long remaining = Deadline.getRemaining();
+        if ((remaining == Long.MAX_VALUE) || !m_replyTimeoutSupported) {
+            return service;
+        }
+        Any timeout = m_orb.create_any();
+        // TimeBase::TimeT, 100 ns units; a passed deadline is rejected by the DeadlineInterceptor
+        timeout.insert_ulonglong(Math.max(remaining, 1) * 10000);
+        Policy policy;
+        try {
+            policy = m_orb.create_policy(RELATIVE_RT_TIMEOUT_POLICY_TYPE, timeout);
+        } catch (PolicyError e) {
+            m_replyTimeoutSupported = false;
+            return service;
+        }
+        return TestServiceHelper.unchecked_narrow(
+            service._set_policy_override(new Policy[] { policy }, SetOverrideType.ADD_OVERRIDE));
+    }
+
+    private static ByteArrayContainer CreateContainer(byte[] content) {
+        ByteArrayContainer container = new ByteArrayContainerImpl();
+        container.Content = content;
+        return container;
+    }
+
+    private static boolean IsConnectionLost(SystemException e) {
+        return (e instanceof COMM_FAILURE) || (e instanceof TRANSIENT) ||
+               (e instanceof OBJECT_NOT_EXIST);
+    }
+
+}
@@ -91,16 +91,8 @@ public class TestBeanFwd implements SessionBean {
     }
         
     public byte[] TestFwdContainer(byte[] arg) {
-        org.omg.CORBA.ORB orb = OrbSingleton.getInstance().getOrb();
-        org.omg.CORBA.Object obj = 
-            orb.string_to_object("corbaloc:iiop:localhost:8087/test");
-        TestService svc = 
-            TestServiceHelper.narrow(obj);
-        ByteArrayContainer container = new ByteArrayContainerImpl();
-        container.Content = arg;
         try {
-            ByteArrayContainer result = svc.EchoByteArrayContainer(container);
-            return result.Content;
+            return ServiceForwarder.getInstance().echo(arg);
         } catch (Exception ex) {
             System.out.println(ex);
             return new byte[0];
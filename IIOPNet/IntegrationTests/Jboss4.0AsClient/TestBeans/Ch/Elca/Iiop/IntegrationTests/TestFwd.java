@@ -38,7 +38,7 @@ public interface TestFwd extends EJBObject {
     public void TestVoid() throws RemoteException;
 
     public byte[] TestFwdContainer(byte[] arg) throws RemoteException;
-        
+
     public Object EchoAnything(Object arg) throws RemoteException;
 
 }
@@ -0,0 +1,284 @@
+/* DeadlineBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+
+import org.omg.CORBA.ARG_IN;
+import org.omg.CORBA.Any;
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.NVList;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.ServerRequest;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.TIMEOUT;
+import org.omg.CORBA.TRANSIENT;
+import org.omg.PortableServer.DynamicImplementation;
+import org.omg.PortableServer.POA;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainerHelper;
+import Ch.Elca.Iiop.IntegrationTests.CircuitBreaker;
+import Ch.Elca.Iiop.IntegrationTests.Deadline;
+import Ch.Elca.Iiop.IntegrationTests.DeadlineInitializer;
+import Ch.Elca.Iiop.IntegrationTests.ServiceForwarder;
+import Ch.Elca.Iiop.IntegrationTests.TestServiceHelper;
+
+
+/**
+ * Shows the threads held by forwarding calls to a slow service: nrOfThreads
+ * threads, standing for ejb threads, echo with a ServiceForwarder for the
+ * given time (with 10 ms between their calls) to a stand in service, which
+ * answers only after delay ms. The threads waiting in echo are sampled every
+ * 5 ms; compared are forwarding without deadline, with a deadline and with a
+ * deadline and a circuit breaker. The stand in honours the deadline sent by
+ * the DeadlineInterceptor like the .NET TestServer: it stops waiting at the
+ * deadline and answers with TIMEOUT. For the row "deadline ignored" it
+ * ignores the deadline like a hung server: then only the reply timeout set
+ * by the forwarder limits the calls, if the orb supports it.
+ *
+ * Usage: java DeadlineBenchmark [seconds] [nrOfThreads] [delay] [deadline]
+ */
+public class DeadlineBenchmark {
+
+    private static final long THINK_TIME = 10;
+    private static final int BREAKER_THRESHOLD = 5;
+    private static final long BREAKER_OPEN_TIME = 1000;
+
+    private long m_duration;
+    private int m_nrOfThreads;
+    private long m_deadline;
+    private ServiceForwarder m_forwarder;
+    private byte[] m_content = new byte[1024];
+
+    private int m_inEcho;
+    private int m_nrOfCalls;
+    private int m_nrOfTimeouts;
+    private int m_nrOfRejected;
+    private long m_maxCallTime;
+
+
+    public DeadlineBenchmark(ORB orb, long duration, int nrOfThreads, long deadline) {
+        m_duration = duration;
+        m_nrOfThreads = nrOfThreads;
+        m_deadline = deadline;
+        m_forwarder = new ServiceForwarder(orb, ServiceForwarder.SERVICE_LOCATION);
+    }
+
+
+    private synchronized void EnterEcho() {
+        m_inEcho++;
+    }
+
+    private synchronized void LeaveEcho(long callTime, SystemException failure) {
+        m_inEcho--;
+        m_nrOfCalls++;
+        m_maxCallTime = Math.max(m_maxCallTime, callTime);
+        if (failure instanceof TIMEOUT) {
+            m_nrOfTimeouts++;
+        } else if (failure instanceof TRANSIENT) {
+            m_nrOfRejected++;
+        }
+    }
+
+    private synchronized int GetInEcho() {
+        return m_inEcho;
+    }
+
+    private void Call() {
+        SystemException failure = null;
+        EnterEcho();
+        long start = System.currentTimeMillis();
+        try {
+            m_forwarder.echo(m_content);
+        } catch (TIMEOUT e) {
+            failure = e;
+        } catch (TRANSIENT e) {
+            failure = e;
+        }
+        LeaveEcho(System.currentTimeMillis() - start, failure);
+    }
+
+    private void Measure(String name, CircuitBreaker breaker) throws Exception {
+        m_forwarder.setTimeout(m_deadline);
+        m_forwarder.setCircuitBreaker(breaker);
+        m_inEcho = m_nrOfCalls = m_nrOfTimeouts = m_nrOfRejected = 0;
+        m_maxCallTime = 0;
+        final long end = System.currentTimeMillis() + m_duration;
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[m_nrOfThreads];
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (System.currentTimeMillis() < end) {
+                            Call();
+                            Thread.sleep(THINK_TIME);
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        int peak = 0;
+        long sum = 0;
+        int nrOfSamples = 0;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+            int inEcho = GetInEcho();
+            peak = Math.max(peak, inEcho);
+            sum += inEcho;
+            nrOfSamples++;
+        }
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i].join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        System.out.println(Table.pad(name, 20) + Table.pad(String.valueOf(peak), 7) +
+                           Table.pad(String.valueOf(Math.round((double)sum / Math.max(1, nrOfSamples))), 7) +
+                           Table.pad(String.valueOf(m_nrOfCalls), 8) + Table.pad(String.valueOf(m_nrOfTimeouts), 10) +
+                           Table.pad(String.valueOf(m_nrOfRejected), 10) + m_maxCallTime);
+    }
+
+    public void Run(DelayingService service) throws Exception {
+        m_forwarder.getService(); // connect
+        System.out.println(m_nrOfThreads + " threads for " + m_duration + " ms, service delay " +
+                           service.getDelay() + " ms, deadline " + m_deadline + " ms");
+        System.out.println(Table.pad("forwarding", 20) + Table.pad("peak", 7) + Table.pad("avg", 7) + Table.pad("calls", 8) +
+                           Table.pad("timeouts", 10) + Table.pad("rejected", 10) + "max ms");
+        long deadline = m_deadline;
+        m_deadline = 0;
+        Measure("no deadline", null);
+        m_deadline = deadline;
+        Measure("deadline", null);
+        service.setHonourDeadline(false);
+        Measure("deadline ignored", null);
+        service.setHonourDeadline(true);
+        CircuitBreaker breaker = new CircuitBreaker(BREAKER_THRESHOLD, BREAKER_OPEN_TIME);
+        Measure("deadline, breaker", breaker);
+
+        // the service recovers: the probe after the open time closes the breaker
+        long delay = service.getDelay();
+        service.setDelay(0);
+        Thread.sleep(BREAKER_OPEN_TIME);
+        m_forwarder.echo(m_content);
+        System.out.println("after recovery: " + breaker);
+        System.out.println("reply timeout " + (m_forwarder.isReplyTimeoutSupported() ? "supported" :
+                                               "not supported, the orb waits for late replies"));
+        service.setDelay(delay);
+    }
+
+    private static Properties GetDeadlineProps() {
+        Properties props = new Properties();
+        props.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                  DeadlineInitializer.class.getName(), "");
+        return props;
+    }
+
+
+    /**
+     * the echo of the TestService, answering after delay ms or at the deadline
+     * of the request, unless it ignores the deadline
+     */
+    public static class DelayingService extends DynamicImplementation {
+
+        private long m_delay;
+        private boolean m_honourDeadline = true;
+
+        public DelayingService(long delay) {
+            m_delay = delay;
+        }
+
+        public synchronized long getDelay() {
+            return m_delay;
+        }
+
+        public synchronized void setDelay(long delay) {
+            m_delay = delay;
+        }
+
+        public synchronized boolean getHonourDeadline() {
+            return m_honourDeadline;
+        }
+
+        public synchronized void setHonourDeadline(boolean honourDeadline) {
+            m_honourDeadline = honourDeadline;
+        }
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { TestServiceHelper.id() };
+        }
+
+        public void invoke(ServerRequest request) {
+            if (!request.operation().equals("EchoByteArrayContainer")) {
+                throw new BAD_OPERATION(request.operation());
+            }
+            NVList args = _orb().create_list(1);
+            Any arg = _orb().create_any();
+            arg.type(ByteArrayContainerHelper.type());
+            args.add_value("arg", arg, ARG_IN.value);
+            request.arguments(args);
+            boolean honourDeadline = getHonourDeadline();
+            long wait = (honourDeadline ? Math.min(getDelay(), Deadline.getRemaining()) : getDelay());
+            try {
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                // answer at once
+            }
+            if (honourDeadline && (Deadline.getRemaining() <= 0)) {
+                throw new TIMEOUT("deadline passed", 1, CompletionStatus.COMPLETED_NO);
+            }
+            request.set_result(arg);
+        }
+
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            long seconds = (args.length > 0 ? Long.parseLong(args[0]) : 3);
+            int nrOfThreads = (args.length > 1 ? Integer.parseInt(args[1]) : 64);
+            long delay = (args.length > 2 ? Long.parseLong(args[2]) : 1000);
+            long deadline = (args.length > 3 ? Long.parseLong(args[3]) : 100);
+            DelayingService service = new DelayingService(delay);
+            ForwardBenchmark.StartService(ForwardBenchmark.SERVICE_PORT, service, GetDeadlineProps());
+            ORB orb = ORB.init(new String[0], GetDeadlineProps());
+            new DeadlineBenchmark(orb, seconds * 1000, nrOfThreads, deadline).Run(service);
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/* ForwardBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+
+import org.omg.CORBA.ARG_IN;
+import org.omg.CORBA.Any;
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.NVList;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.ServerRequest;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitializer;
+import org.omg.PortableServer.DynamicImplementation;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAHelper;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainer;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainerHelper;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainerImpl;
+import Ch.Elca.Iiop.IntegrationTests.ServiceForwarder;
+import Ch.Elca.Iiop.IntegrationTests.TestService;
+import Ch.Elca.Iiop.IntegrationTests.TestServiceHelper;
+
+
+/**
+ * Measures the forwarding of TestBeanFwd to the TestService: resolving and
+ * narrowing the service for every call (as TestFwdContainer did before)
+ * and with the ServiceForwarder.
+ * The service is the .NET TestServer at localhost:8087; with the argument
+ * standIn, an equivalent java service (dsi) is started in this process
+ * instead.
+ *
+ * Usage: java ForwardBenchmark [nrOfCalls] [contentSize] [standIn]
+ */
+public class ForwardBenchmark {
+
+    static final int SERVICE_PORT = 8087;
+
+    /** the servant registered by the ServiceInitializer of the ORB being created */
+    private static DynamicImplementation s_pendingServant;
+
+    private ORB m_orb;
+    private int m_nrOfCalls;
+    private byte[] m_content;
+
+
+    public ForwardBenchmark(int nrOfCalls, int contentSize) {
+        m_orb = ORB.init(new String[0], null);
+        m_nrOfCalls = nrOfCalls;
+        m_content = new byte[contentSize];
+        for (int i = 0; i < contentSize; i++) {
+            m_content[i] = (byte)i;
+        }
+    }
+
+
+    /** the previous TestFwdContainer */
+    private byte[] EchoWithResolve(byte[] arg) {
+        org.omg.CORBA.Object obj = m_orb.string_to_object(ServiceForwarder.SERVICE_LOCATION);
+        TestService svc = TestServiceHelper.narrow(obj);
+        ByteArrayContainer container = new ByteArrayContainerImpl();
+        container.Content = arg;
+        return svc.EchoByteArrayContainer(container).Content;
+    }
+
+    private static void Check(byte[] result, int length) {
+        if (result.length != length) {
+            throw new IllegalStateException("wrong echo");
+        }
+    }
+
+    /** returns the calls per second */
+    private double Measure(ServiceForwarder forwarder) {
+        long start = System.currentTimeMillis();
+        if (forwarder == null) {
+            for (int i = 0; i < m_nrOfCalls; i++) {
+                Check(EchoWithResolve(m_content), m_content.length);
+            }
+        } else {
+            for (int i = 0; i < m_nrOfCalls; i++) {
+                Check(forwarder.echo(m_content), m_content.length);
+            }
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        return m_nrOfCalls * 1000.0 / time;
+    }
+
+    public void Run() {
+        ServiceForwarder forwarder = new ServiceForwarder(m_orb, ServiceForwarder.SERVICE_LOCATION);
+        Measure(null); // warm up
+        Measure(forwarder);
+        System.out.println(m_nrOfCalls + " forwards of " + m_content.length + " bytes");
+        System.out.println(Table.pad("", 24) + "calls/s");
+        System.out.println(Table.pad("resolve per call", 24) + Table.format(Measure(null), 0));
+        System.out.println(Table.pad("ServiceForwarder", 24) + Table.format(Measure(forwarder), 0));
+        System.out.println("resolves by the forwarder: " + forwarder.getNrOfResolves());
+    }
+
+
+    /** starts servant in an orb of its own on port under the key test */
+    static ORB StartService(int port, DynamicImplementation servant) throws Exception {
+        return StartService(port, servant, new Properties());
+    }
+
+    /** starts servant in an orb of its own, initialised with props, on port under the key test */
+    static ORB StartService(int port, DynamicImplementation servant, Properties orbProps) throws Exception {
+        Properties props = new Properties();
+        props.putAll(orbProps);
+        props.put("com.sun.CORBA.ORBServerPort", String.valueOf(port));
+        props.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                  ServiceInitializer.class.getName(), "");
+        ORB orb;
+        synchronized (ForwardBenchmark.class) {
+            s_pendingServant = servant;
+            orb = ORB.init(new String[0], props);
+            s_pendingServant = null;
+        }
+        POAHelper.narrow(orb.resolve_initial_references("RootPOA")).the_POAManager().activate();
+        return orb;
+    }
+
+    /** starts the stand in service on the service port */
+    static ORB StartStandIn() throws Exception {
+        return StartService(SERVICE_PORT, new StandInService());
+    }
+
+    /** a java TestService like the one of the .NET TestServer */
+    public static class StandInService extends DynamicImplementation {
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { TestServiceHelper.id() };
+        }
+
+        public void invoke(ServerRequest request) {
+            NVList args = _orb().create_list(1);
+            if (request.operation().equals("EchoByteArrayContainer")) {
+                Any arg = _orb().create_any();
+                arg.type(ByteArrayContainerHelper.type());
+                args.add_value("arg", arg, ARG_IN.value);
+                request.arguments(args);
+                request.set_result(arg);
+            } else if (request.operation().equals("TestVoid")) {
+                request.arguments(args);
+            } else {
+                throw new BAD_OPERATION(request.operation());
+            }
+        }
+
+    }
+
+    /** registers the servant of StartService as initial reference test, so that it can be resolved with corbaloc */
+    public static class ServiceInitializer extends LocalObject implements ORBInitializer {
+
+        public void pre_init(ORBInitInfo info) {
+        }
+
+        public void post_init(ORBInitInfo info) {
+            try {
+                POA rootPoa = POAHelper.narrow(info.resolve_initial_references("RootPOA"));
+                info.register_initial_reference("test",
+                    rootPoa.servant_to_reference(s_pendingServant));
+            } catch (Exception e) {
+                throw new org.omg.CORBA.INITIALIZE("can't register the service: " + e);
+            }
+        }
+
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+            int contentSize = (args.length > 1 ? Integer.parseInt(args[1]) : 1024);
+            if ((args.length > 2) && args[2].equals("standIn")) {
+                StartStandIn();
+            }
+            new ForwardBenchmark(nrOfCalls, contentSize).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
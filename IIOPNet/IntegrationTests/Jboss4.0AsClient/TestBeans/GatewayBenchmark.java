@@ -0,0 +1,307 @@
+/* GatewayBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Properties;
+
+import org.omg.CORBA.ARG_IN;
+import org.omg.CORBA.Any;
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.NVList;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.OctetSeqHelper;
+import org.omg.CORBA.Request;
+import org.omg.CORBA.ServerRequest;
+import org.omg.CORBA.portable.OutputStream;
+import org.omg.IOP.IOR;
+import org.omg.IOP.IORHelper;
+import org.omg.IOP.TAG_INTERNET_IOP;
+import org.omg.PortableServer.DynamicImplementation;
+import org.omg.PortableServer.POA;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Gateway.GiopGateway;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainer;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainerHelper;
+import Ch.Elca.Iiop.IntegrationTests.ByteArrayContainerImpl;
+import Ch.Elca.Iiop.IntegrationTests.ServiceForwarder;
+import Ch.Elca.Iiop.IntegrationTests.TestService;
+import Ch.Elca.Iiop.IntegrationTests.TestServiceHelper;
+
+
+/**
+ * Compares forwarding echoes of large payloads to the TestService by
+ * unmarshalling and remarshalling them (as TestBeanFwd does) with passing
+ * the GIOP messages through a GiopGateway (Utils\java). Calls the service
+ * directly for reference. The java stand in service (see ForwardBenchmark),
+ * the forwarders and the client run in this process; the gc numbers are the
+ * ones of the whole process, the service and the client cause the same
+ * garbage in all modes.
+ * The jdk orb backs off while waiting for the rest of a large message; for
+ * unfragmented GIOP 1.0 / 1.1 messages, which the gateway passes on at once,
+ * this needs shorter timeouts, e.g.
+ * -Dcom.sun.CORBA.transport.ORBTCPReadTimeouts=1:50:50:5.
+ * The row "GiopGateway, 1.1" passes GIOP 1.1 requests and replies in
+ * fragments, which carry no request id, through a second gateway; after it,
+ * no request may be left waiting for its reply at the gateways. The jdk orb
+ * can't read valuetypes from fragmented GIOP 1.1 messages, this row echoes
+ * the content as sequence<octet> with the dii (OctetEchoService).
+ *
+ * Usage: java GatewayBenchmark [nrOfCalls] [contentSize]
+ */
+public class GatewayBenchmark {
+
+    private static final int FORWARDER_PORT = 8088;
+    private static final int GATEWAY_PORT = 8089;
+    private static final int GIOP11_SERVICE_PORT = 8090;
+    private static final int GIOP11_GATEWAY_PORT = 8091;
+
+    /** forwards like TestBeanFwd: unmarshals the container, remarshals it with the ServiceForwarder */
+    public static class RemarshallingForwarder extends DynamicImplementation {
+
+        private ServiceForwarder m_forwarder;
+
+        public RemarshallingForwarder(ServiceForwarder forwarder) {
+            m_forwarder = forwarder;
+        }
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { TestServiceHelper.id() };
+        }
+
+        public void invoke(ServerRequest request) {
+            if (!request.operation().equals("EchoByteArrayContainer")) {
+                throw new BAD_OPERATION(request.operation());
+            }
+            NVList args = _orb().create_list(1);
+            Any arg = _orb().create_any();
+            arg.type(ByteArrayContainerHelper.type());
+            args.add_value("arg", arg, ARG_IN.value);
+            request.arguments(args);
+            ByteArrayContainer result = new ByteArrayContainerImpl();
+            result.Content = m_forwarder.echo(ByteArrayContainerHelper.extract(arg).Content);
+            Any resultAny = _orb().create_any();
+            ByteArrayContainerHelper.insert(resultAny, result);
+            request.set_result(resultAny);
+        }
+
+    }
+
+
+    /** echoes a sequence<octet>, whatever the operation; the stand in for GIOP 1.1 */
+    public static class OctetEchoService extends DynamicImplementation {
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { TestServiceHelper.id() };
+        }
+
+        public void invoke(ServerRequest request) {
+            NVList args = _orb().create_list(1);
+            Any arg = _orb().create_any();
+            arg.type(OctetSeqHelper.type());
+            args.add_value("arg", arg, ARG_IN.value);
+            request.arguments(args);
+            request.set_result(arg);
+        }
+
+    }
+
+
+    private ORB m_orb;
+    /** the client orb for GIOP 1.1 */
+    private ORB m_giop11Orb;
+    private int m_nrOfCalls;
+    private byte[] m_content;
+
+    public GatewayBenchmark(int nrOfCalls, int contentSize) {
+        m_orb = ORB.init(new String[0], null);
+        m_giop11Orb = ORB.init(new String[0], GetGiop11Props());
+        m_nrOfCalls = nrOfCalls;
+        m_content = new byte[contentSize];
+        for (int i = 0; i < contentSize; i++) {
+            m_content[i] = (byte)i;
+        }
+    }
+
+    /**
+     * the reference of the service for the given port: the java stand in
+     * answers corbaloc requests with a location forward to its own port,
+     * which would bypass the gateway; the ior of the service is used with the
+     * port of the gateway instead.
+     */
+    private TestService GetService(ORB serviceOrb, int port) throws Exception {
+        return TestServiceHelper.narrow(GetObject(serviceOrb, port, m_orb));
+    }
+
+    /** the reference of the service for the given port, used with clientOrb */
+    private org.omg.CORBA.Object GetObject(ORB serviceOrb, int port, ORB clientOrb) throws Exception {
+        String ior = serviceOrb.object_to_string(serviceOrb.resolve_initial_references("test"));
+        return ReplacePort(clientOrb.string_to_object(ior), port);
+    }
+
+    /** jdk orb properties: GIOP 1.1, messages larger than the fragment size are sent in fragments */
+    private static Properties GetGiop11Props() {
+        Properties props = new Properties();
+        props.put("com.sun.CORBA.giop.ORBGIOPVersion", "1.1");
+        props.put("com.sun.CORBA.giop.ORBGIOP11BuffMgr", "CLCT");
+        return props;
+    }
+
+    /** returns a copy of obj with the port of its iiop profile replaced */
+    private org.omg.CORBA.Object ReplacePort(org.omg.CORBA.Object obj, int port) {
+        OutputStream out = m_orb.create_output_stream();
+        out.write_Object(obj);
+        IOR ior = IORHelper.read(out.create_input_stream());
+        for (int i = 0; i < ior.profiles.length; i++) {
+            if (ior.profiles[i].tag != TAG_INTERNET_IOP.value) {
+                continue;
+            }
+            // encapsulated ProfileBody: byte order, version, host, port
+            byte[] data = ior.profiles[i].profile_data;
+            boolean littleEndian = (data[0] != 0);
+            int offset = 4;
+            int hostLength = (littleEndian ?
+                (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8) |
+                ((data[offset + 2] & 0xff) << 16) | ((data[offset + 3] & 0xff) << 24) :
+                ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) |
+                ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff));
+            offset = (offset + 4 + hostLength + 1) & ~1;
+            data[offset + (littleEndian ? 0 : 1)] = (byte)port;
+            data[offset + (littleEndian ? 1 : 0)] = (byte)(port >>> 8);
+        }
+        out = m_orb.create_output_stream();
+        IORHelper.write(out, ior);
+        return out.create_input_stream().read_Object();
+    }
+
+    /**
+     * returns { calls/s, MB/s (both directions), gc collections, gc ms };
+     * octets: echoes with the dii as sequence<octet> (see OctetEchoService)
+     * instead of calling the TestService
+     */
+    private double[] Measure(org.omg.CORBA.Object service, boolean octets) {
+        ByteArrayContainer container = new ByteArrayContainerImpl();
+        container.Content = m_content;
+        long[] gcStart = GetGcStatistics();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfCalls; i++) {
+            byte[] echoed = (octets ? EchoOctets(service) :
+                             ((TestService)service).EchoByteArrayContainer(container).Content);
+            if (echoed.length != m_content.length) {
+                throw new IllegalStateException("wrong echo");
+            }
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        long[] gcEnd = GetGcStatistics();
+        return new double[] {
+            m_nrOfCalls * 1000.0 / time,
+            2.0 * m_nrOfCalls * m_content.length / 1024 / 1024 * 1000 / time,
+            gcEnd[0] - gcStart[0], gcEnd[1] - gcStart[1] };
+    }
+
+    private byte[] EchoOctets(org.omg.CORBA.Object service) {
+        Request request = service._request("EchoOctets");
+        OctetSeqHelper.insert(request.add_in_arg(), m_content);
+        request.set_return_type(OctetSeqHelper.type());
+        request.invoke();
+        if (request.env().exception() != null) {
+            throw new IllegalStateException("echo failed: " + request.env().exception());
+        }
+        return OctetSeqHelper.extract(request.return_value());
+    }
+
+    /** { collections, ms } of all collectors; { -1, -1 }, if the jvm doesn't tell */
+    private static long[] GetGcStatistics() {
+        try {
+            Class factory = Class.forName("java.lang.management.ManagementFactory");
+            List collectors = (List)factory.getMethod("getGarbageCollectorMXBeans", new Class[0]).
+                invoke(null, new Object[0]);
+            Class bean = Class.forName("java.lang.management.GarbageCollectorMXBean");
+            Method getCount = bean.getMethod("getCollectionCount", new Class[0]);
+            Method getTime = bean.getMethod("getCollectionTime", new Class[0]);
+            long[] result = new long[2];
+            for (int i = 0; i < collectors.size(); i++) {
+                result[0] += ((Long)getCount.invoke(collectors.get(i), new Object[0])).longValue();
+                result[1] += ((Long)getTime.invoke(collectors.get(i), new Object[0])).longValue();
+            }
+            return result;
+        } catch (Exception e) {
+            return new long[] { -1, -1 };
+        }
+    }
+
+    private void Print(String label, double[] result) {
+        System.out.println(Table.pad(label, 20) + Table.pad(Table.format(result[0], 1), 12) + Table.pad(Table.format(result[1], 1), 12) +
+                           Table.pad(Table.format(result[2], 1), 16) + Table.format(result[3], 1));
+    }
+
+    public void Run() throws Exception {
+        ORB standInOrb = ForwardBenchmark.StartStandIn();
+        ORB forwarderOrb = ForwardBenchmark.StartService(FORWARDER_PORT, new RemarshallingForwarder(
+            new ServiceForwarder(m_orb, "corbaloc:iiop:localhost:" + ForwardBenchmark.SERVICE_PORT + "/test")));
+        GiopGateway gateway = new GiopGateway(GATEWAY_PORT, "localhost", ForwardBenchmark.SERVICE_PORT);
+        TestService direct = GetService(standInOrb, ForwardBenchmark.SERVICE_PORT);
+        TestService remarshalling = GetService(forwarderOrb, FORWARDER_PORT);
+        TestService passThrough = GetService(standInOrb, GATEWAY_PORT);
+        ORB giop11StandInOrb = ForwardBenchmark.StartService(GIOP11_SERVICE_PORT, new OctetEchoService(),
+                                                             GetGiop11Props());
+        GiopGateway giop11Gateway = new GiopGateway(GIOP11_GATEWAY_PORT, "localhost", GIOP11_SERVICE_PORT);
+        org.omg.CORBA.Object giop11PassThrough = GetObject(giop11StandInOrb, GIOP11_GATEWAY_PORT, m_giop11Orb);
+        // warm up
+        Measure(direct, false);
+        Measure(remarshalling, false);
+        Measure(passThrough, false);
+        Measure(giop11PassThrough, true);
+        System.out.println(m_nrOfCalls + " echoes of " + m_content.length + " bytes");
+        System.out.println(Table.pad("", 20) + Table.pad("calls/s", 12) + Table.pad("MB/s", 12) + Table.pad("gc collections", 16) +
+                           "gc ms");
+        Print("direct", Measure(direct, false));
+        Print("remarshalling", Measure(remarshalling, false));
+        Print("GiopGateway", Measure(passThrough, false));
+        Print("GiopGateway, 1.1", Measure(giop11PassThrough, true));
+        System.out.println("requests passed by the gateway: " + gateway.getNrOfRequests());
+        System.out.println("requests waiting for their reply at the gateways: " +
+                           gateway.getNrOfPendingRequests() + ", GIOP 1.1: " +
+                           giop11Gateway.getNrOfPendingRequests());
+        gateway.shutdown();
+        giop11Gateway.shutdown();
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfCalls = (args.length > 0 ? Integer.parseInt(args[0]) : 200);
+            int contentSize = (args.length > 1 ? Integer.parseInt(args[1]) : 1024 * 1024);
+            new GatewayBenchmark(nrOfCalls, contentSize).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
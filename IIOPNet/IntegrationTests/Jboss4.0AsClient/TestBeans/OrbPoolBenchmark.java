@@ -0,0 +1,131 @@
+/* OrbPoolBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.StringTokenizer;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.OrbPool;
+import Ch.Elca.Iiop.IntegrationTests.ServiceForwarder;
+
+
+/**
+ * Measures the forward throughput of concurrent bean calls with the
+ * ServiceForwarders of OrbPools of different sizes: every thread stands for
+ * an ejb thread and echoes with the forwarder of its ORB. The service is the
+ * .NET TestServer at localhost:8087 or, with the argument standIn, the java
+ * stand in of ForwardBenchmark.
+ *
+ * Usage: java OrbPoolBenchmark [callsPerThread] [nrOfThreads] [contentSize] [poolSizes] [standIn]
+ */
+public class OrbPoolBenchmark {
+
+    private int m_callsPerThread;
+    private int m_nrOfThreads;
+    private byte[] m_content;
+
+
+    public OrbPoolBenchmark(int callsPerThread, int nrOfThreads, int contentSize) {
+        m_callsPerThread = callsPerThread;
+        m_nrOfThreads = nrOfThreads;
+        m_content = new byte[contentSize];
+    }
+
+
+    /** returns the calls per second of all threads */
+    private double Measure(final OrbPool pool, final ServiceForwarder[] forwarders) throws Exception {
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[m_nrOfThreads];
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        ServiceForwarder forwarder = forwarders[pool.getStripe()];
+                        for (int j = 0; j < m_callsPerThread; j++) {
+                            if (forwarder.echo(m_content).length != m_content.length) {
+                                throw new IllegalStateException("wrong echo");
+                            }
+                        }
+                    } catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            };
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < m_nrOfThreads; i++) {
+            threads[i].join();
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return (double)m_nrOfThreads * m_callsPerThread * 1000 / time;
+    }
+
+    public void Run(int[] poolSizes) throws Exception {
+        System.out.println(m_nrOfThreads + " threads, " + m_callsPerThread + " forwards of " +
+                           m_content.length + " bytes each");
+        System.out.println(Table.pad("orbs", 8) + "calls/s");
+        for (int i = 0; i < poolSizes.length; i++) {
+            OrbPool pool = new OrbPool(poolSizes[i], null);
+            ServiceForwarder[] forwarders = new ServiceForwarder[pool.getSize()];
+            for (int j = 0; j < forwarders.length; j++) {
+                forwarders[j] = new ServiceForwarder(pool.getOrb(j), ServiceForwarder.SERVICE_LOCATION);
+                forwarders[j].getService(); // connect
+            }
+            Measure(pool, forwarders); // warm up
+            System.out.println(Table.pad(String.valueOf(poolSizes[i]), 8) +
+                               Math.round(Measure(pool, forwarders)));
+            pool.destroy();
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int callsPerThread = (args.length > 0 ? Integer.parseInt(args[0]) : 200);
+            int nrOfThreads = (args.length > 1 ? Integer.parseInt(args[1]) : 64);
+            int contentSize = (args.length > 2 ? Integer.parseInt(args[2]) : 1024);
+            StringTokenizer sizes = new StringTokenizer(args.length > 3 ? args[3] : "1,2,4,8", ",");
+            int[] poolSizes = new int[sizes.countTokens()];
+            for (int i = 0; i < poolSizes.length; i++) {
+                poolSizes[i] = Integer.parseInt(sizes.nextToken());
+            }
+            if ((args.length > 4) && args[4].equals("standIn")) {
+                ForwardBenchmark.StartStandIn();
+            }
+            new OrbPoolBenchmark(callsPerThread, nrOfThreads, contentSize).Run(poolSizes);
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
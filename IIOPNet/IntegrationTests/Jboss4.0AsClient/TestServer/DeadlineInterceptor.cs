@@ -0,0 +1,134 @@
+/* DeadlineInterceptor.cs
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+using System;
+using omg.org.CORBA;
+using omg.org.IOP;
+using omg.org.PortableInterceptor;
+
+namespace Ch.Elca.Iiop.IntegrationTests {
+
+
+    /// <summary>
+    /// registers the DeadlineInterceptor.
+    /// </summary>
+    public class DeadlineInterceptorInit : ORBInitializer {
+
+        public void pre_init(ORBInitInfo info) {
+            Codec codec = info.codec_factory.create_codec(
+                              new Encoding(ENCODING_CDR_ENCAPS.ConstVal, 1, 2));
+            info.add_server_request_interceptor(new DeadlineInterceptor(codec));
+        }
+
+        public void post_init(ORBInitInfo info) {
+            // nothing to do
+        }
+
+    }
+
+
+    /// <summary>
+    /// Honours the deadline of the java forwarders (TestBeanFwd): the service
+    /// context DEADLINE_CONTEXT_ID contains the milliseconds the caller still
+    /// waits (a long encoded with encode_value). Requests, which are expired when they are
+    /// received or when their arguments are unmarshalled, are answered with
+    /// TIMEOUT instead of being executed.
+    /// </summary>
+    public class DeadlineInterceptor : ServerRequestInterceptor {
+
+        /// <summary>not registered with the omg, only used between the test beans and this server</summary>
+        public const int DEADLINE_CONTEXT_ID = 1100;
+
+        [ThreadStatic]
+        private static DateTime s_deadline;
+
+        private Codec m_codec;
+
+        public DeadlineInterceptor(Codec codec) {
+            m_codec = codec;
+        }
+
+        public string Name {
+            get {
+                return "Deadline";
+            }
+        }
+
+        /// <summary>
+        /// the time left for the request executed by the calling thread;
+        /// TimeSpan.MaxValue, if the caller didn't set a deadline.
+        /// </summary>
+        public static TimeSpan Remaining {
+            get {
+                if (s_deadline == DateTime.MinValue) {
+                    return TimeSpan.MaxValue;
+                }
+                return s_deadline - DateTime.Now;
+            }
+        }
+
+        public void receive_request_service_contexts(ServerRequestInfo ri) {
+            s_deadline = DateTime.MinValue;
+            ServiceContext context;
+            try {
+                context = ri.get_request_service_context(DEADLINE_CONTEXT_ID);
+            } catch (BAD_PARAM) {
+                return; // no deadline
+            }
+            // the java forwarders encode the long without type code (encode_value)
+            int remaining = (int)m_codec.decode_value(context.context_data,
+                                                      OrbServices.GetSingleton().create_long_tc());
+            s_deadline = DateTime.Now.AddMilliseconds(remaining);
+            CheckDeadline();
+        }
+
+        public void receive_request(ServerRequestInfo ri) {
+            CheckDeadline();
+        }
+
+        public void send_reply(ServerRequestInfo ri) {
+            s_deadline = DateTime.MinValue;
+        }
+
+        public void send_exception(ServerRequestInfo ri) {
+            s_deadline = DateTime.MinValue;
+        }
+
+        public void send_other(ServerRequestInfo ri) {
+            s_deadline = DateTime.MinValue;
+        }
+
+        private void CheckDeadline() {
+            if ((s_deadline != DateTime.MinValue) && (s_deadline <= DateTime.Now)) {
+                throw new TIMEOUT(1, CompletionStatus.Completed_No);
+            }
+        }
+
+    }
+
+}
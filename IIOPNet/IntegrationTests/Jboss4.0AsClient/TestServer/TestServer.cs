@@ -31,6 +31,7 @@ using System.Runtime.Remoting;
 using System.Runtime.Remoting.Channels;
 using System.Threading;
 using Ch.Elca.Iiop;
+using omg.org.CORBA;
 
 namespace Ch.Elca.Iiop.IntegrationTests {
 
@@ -38,10 +39,14 @@ namespace Ch.Elca.Iiop.IntegrationTests {
     public class TestServer {
 
         public static void Main(String[] args) {
+            // the deadline interceptor must be registered before the channel
+            IOrbServices orb = OrbServices.GetSingleton();
+            orb.RegisterPortableInterceptorInitalizer(new DeadlineInterceptorInit());
             // register the channel
             int port = 8087;
             IiopChannel chan = new IiopChannel(port);
             ChannelServices.RegisterChannel(chan, false);
+            orb.CompleteInterceptorRegistration();
 
             TestService test = new TestService();
             string objectURI = "test";
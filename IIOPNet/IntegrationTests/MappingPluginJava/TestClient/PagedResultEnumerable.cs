@@ -0,0 +1,112 @@
+/* PagedResultEnumerable.cs
+ * 
+ * Project: IIOP.NET
+ * IntegrationTests
+ * 
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ * 
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+using System;
+using System.Collections;
+
+namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
+
+
+    /// <summary>
+    /// Enumerates the elements of a PagedResult. While the elements of a page are
+    /// consumed, the next page is already fetched asynchronously; at most two pages
+    /// are held in memory. The result can only be enumerated once.
+    /// </summary>
+    public class PagedResultEnumerable : IEnumerable {
+
+        private delegate ArrayList FetchPageDelegate();
+
+        private PagedResult m_result;
+
+        public PagedResultEnumerable(PagedResult result) {
+            m_result = result;
+        }
+
+        public IEnumerator GetEnumerator() {
+            if (m_result == null) {
+                throw new InvalidOperationException("a paged result can only be enumerated once");
+            }
+            PagedResult result = m_result;
+            m_result = null;
+            return EnumerateElements(result);
+        }
+
+        private IEnumerator EnumerateElements(PagedResult result) {
+            ArrayList page = result.FirstPage;
+            ResultCursor cursor = result.Cursor;
+            int remaining = result.TotalSize - page.Count;
+            result = null;
+            FetchPageDelegate fetch = null;
+            IAsyncResult pending = null;
+            if ((cursor != null) && (remaining > 0)) {
+                fetch = new FetchPageDelegate(cursor.nextPage);
+                pending = fetch.BeginInvoke(null, null);
+            }
+            try {
+                while (true) {
+                    for (int i = 0; i < page.Count; i++) {
+                        object elem = page[i];
+                        page[i] = null; // don't keep consumed elements alive
+                        yield return elem;
+                    }
+                    if (pending == null) {
+                        yield break;
+                    }
+                    page = fetch.EndInvoke(pending);
+                    pending = null;
+                    remaining -= page.Count;
+                    if (page.Count == 0) {
+                        // cursor closed by the server
+                        remaining = 0;
+                    }
+                    if (remaining > 0) {
+                        pending = fetch.BeginInvoke(null, null);
+                    }
+                }
+            } finally {
+                // enumeration stopped early: release the server side cursor
+                if (pending != null) {
+                    try {
+                        ArrayList lastPage = fetch.EndInvoke(pending);
+                        remaining = (lastPage.Count > 0 ? remaining - lastPage.Count : 0);
+                    } catch (Exception) {
+                        // closing anyway
+                    }
+                }
+                if (remaining > 0) {
+                    try {
+                        cursor.close();
+                    } catch (omg.org.CORBA.OBJECT_NOT_EXIST) {
+                        // released by the server after its idle timeout
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -31,6 +31,7 @@ using System.Reflection;
 using System.Runtime.Remoting;
 using System.Runtime.Remoting.Channels;
 using System.Collections;
+using System.Collections.Generic;
 using System.IO;
 using NUnit.Framework;
 using Ch.Elca.Iiop;
@@ -215,6 +216,77 @@ namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
             }
         }
 
+        [Test]
+        public void TestByRefArrayListElemInvocation() {
+            // the servant of an element is created on the first call
+            ArrayList result = m_testService.createByRefTypeList(2);
+            TestService elem = (TestService)result[0];
+            ArrayList elemResult = elem.createIntList(3, 2);
+            CheckArrayListElems(elemResult, 3, 2);
+            elemResult = elem.createIntList(4, 1);
+            CheckArrayListElems(elemResult, 4, 1);
+        }
+
+        [Test]
+        public void TestInt32PagedList() {
+            int val = 3;
+            int nrOfElems = 25;
+            PagedResult result = m_testService.createIntListPaged(val, nrOfElems, 10);
+            Assertion.AssertEquals(nrOfElems, result.TotalSize);
+            Assertion.AssertEquals(10, result.FirstPage.Count);
+            int count = 0;
+            foreach (object elem in new PagedResultEnumerable(result)) {
+                Assertion.AssertEquals(val, elem);
+                count++;
+            }
+            Assertion.AssertEquals(nrOfElems, count);
+        }
+
+        [Test]
+        public void TestSinglePagePagedList() {
+            PagedResult result = m_testService.createIntListPaged(3, 5, 10);
+            Assertion.AssertNull(result.Cursor);
+            int count = 0;
+            foreach (object elem in new PagedResultEnumerable(result)) {
+                count++;
+            }
+            Assertion.AssertEquals(5, count);
+        }
+
+        [Test]
+        public void TestValTypePagedList() {
+            string msg = "msg";
+            int nrOfElems = 21;
+            TestSerializableClassB1Impl val = new TestSerializableClassB1Impl();
+            val.Msg = msg;
+            PagedResult result = m_testService.createValTypeListPaged(msg, nrOfElems, 4);
+            int count = 0;
+            foreach (object elem in new PagedResultEnumerable(result)) {
+                Assertion.AssertEquals(val, elem);
+                count++;
+            }
+            Assertion.AssertEquals(nrOfElems, count);
+        }
+
+        [Test]
+        public void TestPagedListStopEarly() {
+            PagedResult result = m_testService.createIntListPaged(3, 100, 10);
+            ResultCursor cursor = result.Cursor;
+            int count = 0;
+            foreach (object elem in new PagedResultEnumerable(result)) {
+                count++;
+                if (count == 15) {
+                    break; // closes the cursor
+                }
+            }
+            try {
+                cursor.nextPage();
+                Assertion.Fail("cursor not released");
+            } catch (omg.org.CORBA.OBJECT_NOT_EXIST) {
+                // expected
+            }
+        }
+
         [Test]
         public void TestValTypeArrayList() {
             string msg = "msg";
@@ -228,6 +300,57 @@ namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
             CheckArrayListElems(result2, val, nrOfElems + 1);
         }
 
+        [Test]
+        public void TestInt32PrimitiveList() {
+            System.Int32 val = 82997;
+            int nrOfElems = 1000;
+            List<int> result = m_testService.createIntArrayList(val, nrOfElems);
+            Assertion.AssertEquals(nrOfElems, result.Count);
+            for (int i = 0; i < nrOfElems; i++) {
+                Assertion.AssertEquals(val, result[i]);
+            }
+            result.Add(val + 1);
+            List<int> result2 = m_testService.echoIntArrayList(result);
+            Assertion.AssertEquals(nrOfElems + 1, result2.Count);
+            Assertion.AssertEquals(val + 1, result2[nrOfElems]);
+        }
+
+        [Test]
+        public void TestInt64PrimitiveList() {
+            System.Int64 val = 7829971234L;
+            int nrOfElems = 1000;
+            List<long> result = m_testService.createLongArrayList(val, nrOfElems);
+            Assertion.AssertEquals(nrOfElems, result.Count);
+            for (int i = 0; i < nrOfElems; i++) {
+                Assertion.AssertEquals(val, result[i]);
+            }
+            result.Add(val + 1);
+            List<long> result2 = m_testService.echoLongArrayList(result);
+            Assertion.AssertEquals(nrOfElems + 1, result2.Count);
+            Assertion.AssertEquals(val + 1, result2[nrOfElems]);
+        }
+
+        [Test]
+        public void TestDoublePrimitiveList() {
+            double val = 2.3;
+            int nrOfElems = 1000;
+            List<double> result = m_testService.createDoubleArrayList(val, nrOfElems);
+            Assertion.AssertEquals(nrOfElems, result.Count);
+            for (int i = 0; i < nrOfElems; i++) {
+                Assertion.AssertEquals(val, result[i]);
+            }
+            result.Add(val + 1);
+            List<double> result2 = m_testService.echoDoubleArrayList(result);
+            Assertion.AssertEquals(nrOfElems + 1, result2.Count);
+            Assertion.AssertEquals(val + 1, result2[nrOfElems]);
+        }
+
+        [Test]
+        public void TestEmptyPrimitiveList() {
+            List<int> result = m_testService.echoIntArrayList(new List<int>());
+            Assertion.AssertEquals(0, result.Count);
+        }
+
         [Test]
         public void TestEmptyHashMap() {
             Hashtable arg = new Hashtable();
@@ -359,6 +482,70 @@ namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
             CheckHashtableElems(result2, val, nrOfElems + 1);
         }
 
+        private void CheckDictionaryElems(Dictionary<object, object> result, object expectedValues, int expectedNrOfElems) {
+            Assertion.AssertEquals(expectedNrOfElems, result.Count);
+            for (int i = 0; i < expectedNrOfElems; i++) {
+                if (!result.ContainsKey(i)) {
+                    Assertion.Fail("key missing in Dictionary:" + i);
+                }
+                Assertion.AssertEquals("wrong value " + result[i] + " for key: " + i, expectedValues, result[i]);
+            }
+        }
+
+        [Test]
+        public void TestCompactHashMapWithInt32Vals() {
+            System.Int32 val = 82997;
+            int nrOfElems = 100;
+            Dictionary<object, object> result = m_testService.createCompactHashMapWithIntVals(val, nrOfElems);
+            CheckDictionaryElems(result, val, nrOfElems);
+            result[nrOfElems] = val;
+            Dictionary<object, object> result2 = m_testService.echoCompactHashMap(result);
+            CheckDictionaryElems(result2, val, nrOfElems + 1);
+        }
+
+        [Test]
+        public void TestCompactHashMapWithDoubleVals() {
+            double val = 2.3;
+            int nrOfElems = 100;
+            Dictionary<object, object> result = m_testService.createCompactHashMapWithDoubleVals(val, nrOfElems);
+            CheckDictionaryElems(result, val, nrOfElems);
+            result[nrOfElems] = val;
+            Dictionary<object, object> result2 = m_testService.echoCompactHashMap(result);
+            CheckDictionaryElems(result2, val, nrOfElems + 1);
+        }
+
+        [Test]
+        public void TestCompactHashMapWithValTypeVals() {
+            string msg = "msg";
+            int nrOfElems = 10;
+            TestSerializableClassB1Impl val = new TestSerializableClassB1Impl();
+            val.Msg = msg;
+            Dictionary<object, object> result = m_testService.createCompactHashMapWithValTypeVals(msg, nrOfElems);
+            CheckDictionaryElems(result, val, nrOfElems);
+            result[nrOfElems] = val;
+            Dictionary<object, object> result2 = m_testService.echoCompactHashMap(result);
+            CheckDictionaryElems(result2, val, nrOfElems + 1);
+        }
+
+        [Test]
+        public void TestCompactHashMapWithMixedVals() {
+            Dictionary<object, object> arg = new Dictionary<object, object>();
+            arg[1] = 2.3;
+            arg[2] = "test";
+            arg[3] = (System.Int64)5;
+            Dictionary<object, object> result = m_testService.echoCompactHashMap(arg);
+            Assertion.AssertEquals(3, result.Count);
+            Assertion.AssertEquals(2.3, result[1]);
+            Assertion.AssertEquals("test", result[2]);
+            Assertion.AssertEquals((System.Int64)5, result[3]);
+        }
+
+        [Test]
+        public void TestEmptyCompactHashMap() {
+            Dictionary<object, object> result = m_testService.echoCompactHashMap(new Dictionary<object, object>());
+            Assertion.AssertEquals(0, result.Count);
+        }
+
         [Test]
         public void TestDateTime() {
             DateTime arg = DateTime.Now;
@@ -389,6 +576,46 @@ namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
             Assertion.AssertEquals(arg.Message, result.Message);
         }        
 
+        private void CheckOctetBufferContent(MemoryStream result, int size) {
+            Assertion.AssertNotNull(result);
+            Assertion.AssertEquals("wrong length", size, result.Length);
+            byte[] content = result.ToArray();
+            for (int i = 0; i < size; i++) {
+                Assertion.AssertEquals("wrong content at " + i, (byte)i, content[i]);
+            }
+        }
+
+        [Test]
+        public void TestCreateOctetBuffer() {
+            int size = 1000;
+            MemoryStream result = m_testService.createOctetBuffer(size, false);
+            CheckOctetBufferContent(result, size);
+        }
+
+        [Test]
+        public void TestCreateOctetBufferFromDirectBuffer() {
+            int size = 1000;
+            MemoryStream result = m_testService.createOctetBuffer(size, true);
+            CheckOctetBufferContent(result, size);
+        }
+
+        [Test]
+        public void TestEchoOctetBuffer() {
+            int size = 100000;
+            MemoryStream arg = new MemoryStream();
+            for (int i = 0; i < size; i++) {
+                arg.WriteByte((byte)i);
+            }
+            MemoryStream result = m_testService.echoOctetBuffer(arg);
+            CheckOctetBufferContent(result, size);
+        }
+
+        [Test]
+        public void TestEchoEmptyOctetBuffer() {
+            MemoryStream result = m_testService.echoOctetBuffer(new MemoryStream());
+            CheckOctetBufferContent(result, 0);
+        }
+
         
     }
 
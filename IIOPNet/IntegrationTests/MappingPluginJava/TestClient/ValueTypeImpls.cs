@@ -49,6 +49,18 @@ namespace Ch.Elca.Iiop.IntegrationTests.MappingPlugin {
     
     }
     
+
+    /// <summary>implementation for the corba value type</summary>
+    [Serializable]
+    public class PagedResultImpl : PagedResult {
+    }
+
+
+    /// <summary>implementation for the corba value type</summary>
+    [Serializable]
+    public class ByteArrayContainerImpl : ByteArrayContainer {
+    }
+
            
     /// <summary>implementation for the corba value type</summary>
     [Serializable]
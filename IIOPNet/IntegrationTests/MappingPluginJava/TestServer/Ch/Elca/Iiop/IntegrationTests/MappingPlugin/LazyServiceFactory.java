@@ -0,0 +1,152 @@
+/* LazyServiceFactory.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests.MappingPlugin;
+
+import java.rmi.RemoteException;
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Tie;
+import javax.rmi.CORBA.Util;
+
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.OBJ_ADAPTER;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.Policy;
+import org.omg.PortableServer.IdAssignmentPolicyValue;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAHelper;
+import org.omg.PortableServer.RequestProcessingPolicyValue;
+import org.omg.PortableServer.Servant;
+import org.omg.PortableServer.ServantActivator;
+import org.omg.PortableServer.ServantRetentionPolicyValue;
+
+
+/**
+ * Mints references to TestService objects without creating a servant.
+ * The servant is created by a servant activator on the first invocation of
+ * the reference; a reference, which is never invoked, costs only its object key.
+ * Requires the poa ties generated by rmic -iiop -poa.
+ */
+public class LazyServiceFactory {
+
+    private static final String POA_NAME = "LazyTestServices";
+
+    private static final String TEST_SERVICE_REP_ID =
+        "RMI:" + TestService.class.getName() + ":0000000000000000";
+
+    private static LazyServiceFactory s_instance = null;
+
+    private POA m_poa;
+    private long m_nextId = 0;
+    private int m_nrOfIncarnated = 0;
+
+    private LazyServiceFactory(ORB orb) throws Exception {
+        POA rootPoa = POAHelper.narrow(orb.resolve_initial_references("RootPOA"));
+        Policy[] policies = new Policy[] {
+            rootPoa.create_request_processing_policy(RequestProcessingPolicyValue.USE_SERVANT_MANAGER),
+            rootPoa.create_servant_retention_policy(ServantRetentionPolicyValue.RETAIN),
+            rootPoa.create_id_assignment_policy(IdAssignmentPolicyValue.USER_ID) };
+        m_poa = rootPoa.create_POA(POA_NAME, rootPoa.the_POAManager(), policies);
+        for (int i = 0; i < policies.length; i++) {
+            policies[i].destroy();
+        }
+        m_poa.set_servant_manager(new Activator());
+        rootPoa.the_POAManager().activate();
+    }
+
+    /**
+     * returns the factory for the orb, the given servant is connected to.
+     */
+    public static synchronized LazyServiceFactory getInstance(java.rmi.Remote connectedServant)
+        throws RemoteException {
+        if (s_instance == null) {
+            Tie tie = Util.getTie(connectedServant);
+            if (tie == null) {
+                throw new RemoteException("servant not exported: " + connectedServant);
+            }
+            try {
+                s_instance = new LazyServiceFactory(tie.orb());
+            } catch (Exception e) {
+                throw new RemoteException("can't create poa for lazy references", e);
+            }
+        }
+        return s_instance;
+    }
+
+    /**
+     * creates a reference to a new TestService object; no servant is created.
+     */
+    public org.omg.CORBA.Object createReference() {
+        return m_poa.create_reference_with_id(NextObjectId(), TEST_SERVICE_REP_ID);
+    }
+
+    /** the number of servants created up to now */
+    public synchronized int getNrOfIncarnated() {
+        return m_nrOfIncarnated;
+    }
+
+    private synchronized byte[] NextObjectId() {
+        long id = m_nextId++;
+        byte[] result = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            result[i] = (byte)id;
+            id = id >>> 8;
+        }
+        return result;
+    }
+
+    private synchronized void Incarnated() {
+        m_nrOfIncarnated++;
+    }
+
+
+    private class Activator extends LocalObject implements ServantActivator {
+
+        public Servant incarnate(byte[] oid, POA adapter) {
+            try {
+                // exportObject in the constructor only registers the tie;
+                // it is activated by returning it to the poa.
+                TestServiceImpl target = new TestServiceImpl();
+                Incarnated();
+                return (Servant)Util.getTie(target);
+            } catch (RemoteException e) {
+                throw new OBJ_ADAPTER("can't create servant: " + e);
+            }
+        }
+
+        public void etherealize(byte[] oid, POA adapter, Servant servant,
+                                boolean cleanupInProgress, boolean remainingActivations) {
+            try {
+                PortableRemoteObject.unexportObject(((Tie)servant).getTarget());
+            } catch (java.rmi.NoSuchObjectException e) {
+                // already unexported
+            }
+        }
+
+    }
+
+}
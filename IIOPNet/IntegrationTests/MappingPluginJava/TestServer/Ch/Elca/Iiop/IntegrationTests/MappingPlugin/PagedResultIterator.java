@@ -0,0 +1,182 @@
+/* PagedResultIterator.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests.MappingPlugin;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.rmi.PortableRemoteObject;
+
+
+/**
+ * Iterates over the elements of a PagedResult. While the elements of a page
+ * are consumed, the next page is already fetched by a background thread;
+ * at most two pages are held in memory.
+ * A RemoteException while fetching a page is thrown as PageFetchException
+ * from next / hasNext.
+ */
+public class PagedResultIterator implements Iterator {
+
+    /** thrown, if a page could not be fetched */
+    public static class PageFetchException extends RuntimeException {
+        public PageFetchException(RemoteException cause) {
+            super("fetching the next page failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private ResultCursor m_cursor;
+    private int m_remaining;
+    private ArrayList m_page;
+    private int m_pageIndex = 0;
+    private PageFetcher m_fetcher = null;
+
+    public PagedResultIterator(PagedResult result) {
+        m_page = result.FirstPage;
+        m_remaining = result.TotalSize - m_page.size();
+        if (result.Cursor != null) {
+            m_cursor = (ResultCursor)PortableRemoteObject.narrow(result.Cursor, ResultCursor.class);
+        }
+        StartPrefetch();
+    }
+
+    private void StartPrefetch() {
+        if ((m_remaining > 0) && (m_cursor != null)) {
+            m_fetcher = new PageFetcher(m_cursor);
+            Thread fetchThread = new Thread(m_fetcher, "PagedResultIterator prefetch");
+            fetchThread.setDaemon(true);
+            fetchThread.start();
+        } else {
+            m_fetcher = null;
+        }
+    }
+
+    public boolean hasNext() {
+        while (m_pageIndex >= m_page.size()) {
+            if (m_fetcher == null) {
+                return false;
+            }
+            m_page = m_fetcher.GetPage();
+            m_pageIndex = 0;
+            m_remaining -= m_page.size();
+            if (m_page.size() == 0) {
+                // cursor closed by the server
+                m_remaining = 0;
+            }
+            StartPrefetch();
+        }
+        return true;
+    }
+
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object result = m_page.get(m_pageIndex);
+        m_page.set(m_pageIndex, null); // don't keep consumed elements alive
+        m_pageIndex++;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("paged results are read only");
+    }
+
+    /**
+     * releases the server side cursor, if not all elements have been fetched;
+     * after the last page, the server has already released it.
+     */
+    public void close() throws RemoteException {
+        if ((m_remaining > 0) && (m_cursor != null)) {
+            if (m_fetcher != null) {
+                // wait for a pending fetch, to not close the cursor while in use
+                try {
+                    ArrayList page = m_fetcher.GetPage();
+                    m_remaining = (page.size() > 0 ? m_remaining - page.size() : 0);
+                } catch (PageFetchException e) {
+                    // closing anyway
+                }
+                m_fetcher = null;
+            }
+            if (m_remaining > 0) {
+                m_remaining = 0;
+                try {
+                    m_cursor.close();
+                } catch (NoSuchObjectException e) {
+                    // released by the server after its idle timeout
+                }
+            }
+        }
+        m_page = new ArrayList(0);
+    }
+
+
+    private static class PageFetcher implements Runnable {
+
+        private ResultCursor m_cursor;
+        private ArrayList m_page = null;
+        private RemoteException m_error = null;
+        private boolean m_done = false;
+
+        public PageFetcher(ResultCursor cursor) {
+            m_cursor = cursor;
+        }
+
+        public void run() {
+            ArrayList page = null;
+            RemoteException error = null;
+            try {
+                page = m_cursor.nextPage();
+            } catch (RemoteException e) {
+                error = e;
+            }
+            synchronized(this) {
+                m_page = page;
+                m_error = error;
+                m_done = true;
+                notifyAll();
+            }
+        }
+
+        public synchronized ArrayList GetPage() {
+            while (!m_done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new PageFetchException(new RemoteException("interrupted", e));
+                }
+            }
+            if (m_error != null) {
+                throw new PageFetchException(m_error);
+            }
+            return m_page;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+/* ResultCursor.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests.MappingPlugin;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+
+
+/**
+ * Remote cursor for fetching the pages following the first page of a PagedResult.
+ * The cursor is released by the server after the last page has been fetched,
+ * when close is called or when no page has been fetched for its idle timeout.
+ */
+public interface ResultCursor extends java.rmi.Remote {
+
+    /** returns the next page; an empty page, if no more elements are available */
+    public ArrayList nextPage() throws RemoteException;
+
+    /** releases the cursor before all pages have been fetched */
+    public void close() throws RemoteException;
+
+}
@@ -0,0 +1,171 @@
+/* ResultCursorImpl.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.IntegrationTests.MappingPlugin;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Timer;
+import java.util.TimerTask;
+import javax.rmi.PortableRemoteObject;
+
+
+/**
+ * Server side of a paged result. The elements are created page by page
+ * from an ElementSource, i.e. the whole collection is never held in memory.
+ * A cursor, which is not used for its idle timeout (e.g. because the client
+ * stopped early without closing it), is released by the server.
+ */
+public class ResultCursorImpl extends PortableRemoteObject implements ResultCursor {
+
+    /** creates the element with the given index of a result */
+    public interface ElementSource {
+        Object getElement(int index);
+    }
+
+    /** the idle timeout of the cursors created by createResult(source, totalSize, pageSize) */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /** releases the idle cursors; a daemon thread shared by all cursors */
+    private static Timer s_idleTimer = new Timer(true);
+
+    private ElementSource m_source;
+    private int m_totalSize;
+    private int m_pageSize;
+    private int m_nextIndex;
+    private boolean m_closed = false;
+    private long m_idleTimeout;
+    private long m_lastAccess;
+    private TimerTask m_idleCheck;
+
+    private ResultCursorImpl(ElementSource source, int totalSize, int pageSize, int nextIndex,
+                             long idleTimeout) throws RemoteException {
+        super();
+        m_source = source;
+        m_totalSize = totalSize;
+        m_pageSize = pageSize;
+        m_nextIndex = nextIndex;
+        m_idleTimeout = idleTimeout;
+        m_lastAccess = System.currentTimeMillis();
+        m_idleCheck = new TimerTask() {
+            public void run() {
+                try {
+                    ReleaseIfIdle();
+                } catch (RuntimeException e) {
+                    // the cursor is closed anyway; keep the timer for the other cursors
+                }
+            }
+        };
+        long period = Math.max(1, idleTimeout / 2);
+        s_idleTimer.schedule(m_idleCheck, period, period);
+    }
+
+    /**
+     * creates the result for totalSize elements of source with the first page inline;
+     * a cursor is only exported, if more than one page is needed.
+     */
+    public static PagedResult createResult(ElementSource source, int totalSize, int pageSize)
+        throws RemoteException {
+        return createResult(source, totalSize, pageSize, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * creates the result like createResult(source, totalSize, pageSize); the cursor is
+     * released, if no page is fetched for idleTimeoutMillis.
+     */
+    public static PagedResult createResult(ElementSource source, int totalSize, int pageSize,
+                                           long idleTimeoutMillis) throws RemoteException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be > 0: " + pageSize);
+        }
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis must be > 0: " + idleTimeoutMillis);
+        }
+        PagedResult result = new PagedResult();
+        result.TotalSize = totalSize;
+        result.FirstPage = CreatePage(source, 0, Math.min(pageSize, totalSize));
+        if (totalSize > pageSize) {
+            result.Cursor = new ResultCursorImpl(source, totalSize, pageSize, pageSize, idleTimeoutMillis);
+        }
+        return result;
+    }
+
+    private static ArrayList CreatePage(ElementSource source, int start, int end) {
+        ArrayList page = new ArrayList(end - start);
+        for (int i = start; i < end; i++) {
+            page.add(source.getElement(i));
+        }
+        return page;
+    }
+
+    public ArrayList nextPage() throws RemoteException {
+        int start;
+        int end;
+        synchronized(this) {
+            if (m_closed) {
+                return new ArrayList(0);
+            }
+            m_lastAccess = System.currentTimeMillis();
+            start = m_nextIndex;
+            end = Math.min(start + m_pageSize, m_totalSize);
+            m_nextIndex = end;
+            if (end == m_totalSize) {
+                Release();
+            }
+        }
+        return CreatePage(m_source, start, end);
+    }
+
+    public synchronized void close() throws RemoteException {
+        if (!m_closed) {
+            Release();
+        }
+    }
+
+    /** true, if the cursor has been released after the last page, close or its idle timeout */
+    public synchronized boolean isClosed() {
+        return m_closed;
+    }
+
+    private synchronized void ReleaseIfIdle() {
+        if (!m_closed && (System.currentTimeMillis() - m_lastAccess >= m_idleTimeout)) {
+            Release();
+        }
+    }
+
+    private void Release() {
+        m_closed = true;
+        m_idleCheck.cancel();
+        try {
+            PortableRemoteObject.unexportObject(this);
+        } catch (NoSuchObjectException e) {
+            // already unexported
+        }
+    }
+
+}
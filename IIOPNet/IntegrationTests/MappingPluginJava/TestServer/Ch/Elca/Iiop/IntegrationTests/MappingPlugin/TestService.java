@@ -31,6 +31,11 @@ import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Date;
+import Ch.Elca.Iiop.JavaCollections.IntArrayList;
+import Ch.Elca.Iiop.JavaCollections.LongArrayList;
+import Ch.Elca.Iiop.JavaCollections.DoubleArrayList;
+import Ch.Elca.Iiop.JavaCollections.CompactHashMap;
+import Ch.Elca.Iiop.JavaCollections.OctetBuffer;
     
 
 public interface TestService extends java.rmi.Remote {
@@ -57,6 +62,25 @@ public interface TestService extends java.rmi.Remote {
 
     public ArrayList echoList(ArrayList arg) throws RemoteException;
 
+    /** like createIntList, but the elements are transferred in pages of pageSize elements */
+    public PagedResult createIntListPaged(int val, int nrOfElems, int pageSize) throws RemoteException;
+
+    /** like createValTypeList, but the elements are transferred in pages of pageSize elements */
+    public PagedResult createValTypeListPaged(String msg, int nrOfElems, int pageSize) throws RemoteException;
+
+
+    public IntArrayList createIntArrayList(int val, int nrOfElems) throws RemoteException;
+
+    public LongArrayList createLongArrayList(long val, int nrOfElems) throws RemoteException;
+
+    public DoubleArrayList createDoubleArrayList(double val, int nrOfElems) throws RemoteException;
+
+    public IntArrayList echoIntArrayList(IntArrayList arg) throws RemoteException;
+
+    public LongArrayList echoLongArrayList(LongArrayList arg) throws RemoteException;
+
+    public DoubleArrayList echoDoubleArrayList(DoubleArrayList arg) throws RemoteException;
+
 
     public HashMap createHashMapWithShortVals(short val, int nrOfElems) throws RemoteException;
 
@@ -79,6 +103,15 @@ public interface TestService extends java.rmi.Remote {
     public HashMap createHashMapWithByRefVals(int nrOfElems) throws RemoteException;
 
     public HashMap echoHashMap(HashMap arg) throws RemoteException;
+
+
+    public CompactHashMap createCompactHashMapWithIntVals(int val, int nrOfElems) throws RemoteException;
+
+    public CompactHashMap createCompactHashMapWithDoubleVals(double val, int nrOfElems) throws RemoteException;
+
+    public CompactHashMap createCompactHashMapWithValTypeVals(String msg, int nrOfElems) throws RemoteException;
+
+    public CompactHashMap echoCompactHashMap(CompactHashMap arg) throws RemoteException;
     
     
     
@@ -89,4 +122,12 @@ public interface TestService extends java.rmi.Remote {
     public CustomMappedSerializable echoCustomMappedSer(CustomMappedSerializable arg) throws RemoteException;
 
 
+    /** creates a buffer with size bytes; byte i has the value (byte)i */
+    public OctetBuffer createOctetBuffer(int size, boolean direct) throws RemoteException;
+
+    public OctetBuffer echoOctetBuffer(OctetBuffer arg) throws RemoteException;
+
+    public ByteArrayContainer echoByteArrayContainer(ByteArrayContainer arg) throws RemoteException;
+
+
 }
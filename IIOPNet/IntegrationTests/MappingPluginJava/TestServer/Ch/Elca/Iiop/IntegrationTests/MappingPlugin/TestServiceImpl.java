@@ -32,6 +32,12 @@ import javax.rmi.PortableRemoteObject;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Date;
+import java.nio.ByteBuffer;
+import Ch.Elca.Iiop.JavaCollections.IntArrayList;
+import Ch.Elca.Iiop.JavaCollections.LongArrayList;
+import Ch.Elca.Iiop.JavaCollections.DoubleArrayList;
+import Ch.Elca.Iiop.JavaCollections.CompactHashMap;
+import Ch.Elca.Iiop.JavaCollections.OctetBuffer;
     
 
 public class TestServiceImpl extends PortableRemoteObject implements TestService {
@@ -115,9 +121,11 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
     }
     
     public ArrayList createByRefTypeList(int nrOfElems) throws RemoteException {
-        ArrayList result = new ArrayList();
+        // the servants are only created, when the references are used
+        LazyServiceFactory factory = LazyServiceFactory.getInstance(this);
+        ArrayList result = new ArrayList(nrOfElems);
         for (int i = 0; i < nrOfElems; i++) {
-            result.add(new TestServiceImpl());
+            result.add(factory.createReference());
         }
         return result;
     }
@@ -126,6 +134,62 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
         return arg;
     }
 
+    public PagedResult createIntListPaged(final int val, int nrOfElems, int pageSize) throws RemoteException {
+        ResultCursorImpl.ElementSource source = new ResultCursorImpl.ElementSource() {
+            public Object getElement(int index) {
+                return new Integer(val);
+            }
+        };
+        return ResultCursorImpl.createResult(source, nrOfElems, pageSize);
+    }
+
+    public PagedResult createValTypeListPaged(final String msg, int nrOfElems, int pageSize) throws RemoteException {
+        ResultCursorImpl.ElementSource source = new ResultCursorImpl.ElementSource() {
+            public Object getElement(int index) {
+                TestSerializableClassB1 entry = new TestSerializableClassB1();
+                entry.Msg = msg;
+                return entry;
+            }
+        };
+        return ResultCursorImpl.createResult(source, nrOfElems, pageSize);
+    }
+
+    public IntArrayList createIntArrayList(int val, int nrOfElems) throws RemoteException {
+        IntArrayList result = new IntArrayList(nrOfElems);
+        for (int i = 0; i < nrOfElems; i++) {
+            result.add(val);
+        }
+        return result;
+    }
+
+    public LongArrayList createLongArrayList(long val, int nrOfElems) throws RemoteException {
+        LongArrayList result = new LongArrayList(nrOfElems);
+        for (int i = 0; i < nrOfElems; i++) {
+            result.add(val);
+        }
+        return result;
+    }
+
+    public DoubleArrayList createDoubleArrayList(double val, int nrOfElems) throws RemoteException {
+        DoubleArrayList result = new DoubleArrayList(nrOfElems);
+        for (int i = 0; i < nrOfElems; i++) {
+            result.add(val);
+        }
+        return result;
+    }
+
+    public IntArrayList echoIntArrayList(IntArrayList arg) throws RemoteException {
+        return arg;
+    }
+
+    public LongArrayList echoLongArrayList(LongArrayList arg) throws RemoteException {
+        return arg;
+    }
+
+    public DoubleArrayList echoDoubleArrayList(DoubleArrayList arg) throws RemoteException {
+        return arg;
+    }
+
     public HashMap createHashMapWithShortVals(short val, int nrOfElems) throws RemoteException {
         HashMap result = new HashMap();
         for (int i = 0; i < nrOfElems; i++) {
@@ -201,9 +265,10 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
     }
 
     public HashMap createHashMapWithByRefVals(int nrOfElems) throws RemoteException {
+        LazyServiceFactory factory = LazyServiceFactory.getInstance(this);
         HashMap result = new HashMap();
         for (int i = 0; i < nrOfElems; i++) {
-            result.put(new Integer(i), new TestServiceImpl());
+            result.put(new Integer(i), factory.createReference());
         }
         return result;
     }
@@ -211,6 +276,36 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
     public HashMap echoHashMap(HashMap arg) throws RemoteException {
         return arg;
     }
+
+    public CompactHashMap createCompactHashMapWithIntVals(int val, int nrOfElems) throws RemoteException {
+        CompactHashMap result = new CompactHashMap();
+        for (int i = 0; i < nrOfElems; i++) {
+            result.put(new Integer(i), new Integer(val));
+        }
+        return result;
+    }
+
+    public CompactHashMap createCompactHashMapWithDoubleVals(double val, int nrOfElems) throws RemoteException {
+        CompactHashMap result = new CompactHashMap();
+        for (int i = 0; i < nrOfElems; i++) {
+            result.put(new Integer(i), new Double(val));
+        }
+        return result;
+    }
+
+    public CompactHashMap createCompactHashMapWithValTypeVals(String msg, int nrOfElems) throws RemoteException {
+        CompactHashMap result = new CompactHashMap();
+        for (int i = 0; i < nrOfElems; i++) {
+            TestSerializableClassB1 entry = new TestSerializableClassB1();
+            entry.Msg = msg;
+            result.put(new Integer(i), entry);
+        }
+        return result;
+    }
+
+    public CompactHashMap echoCompactHashMap(CompactHashMap arg) throws RemoteException {
+        return arg;
+    }
     
         
     public Date echoDate(Date arg) throws RemoteException {
@@ -224,5 +319,22 @@ public class TestServiceImpl extends PortableRemoteObject implements TestService
     public CustomMappedSerializable echoCustomMappedSer(CustomMappedSerializable arg) throws RemoteException {
         return arg;
     }
+
+    public OctetBuffer createOctetBuffer(int size, boolean direct) throws RemoteException {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte)i);
+        }
+        buffer.flip();
+        return new OctetBuffer(buffer);
+    }
+
+    public OctetBuffer echoOctetBuffer(OctetBuffer arg) throws RemoteException {
+        return arg;
+    }
+
+    public ByteArrayContainer echoByteArrayContainer(ByteArrayContainer arg) throws RemoteException {
+        return arg;
+    }
         
 }
@@ -0,0 +1,255 @@
+/* CollectionMarshallingBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.omg.CORBA.Any;
+import org.omg.CORBA.ORB;
+import org.omg.IOP.Codec;
+import org.omg.IOP.CodecFactory;
+import org.omg.IOP.CodecFactoryHelper;
+import org.omg.IOP.ENCODING_CDR_ENCAPS;
+import org.omg.IOP.Encoding;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.JavaCollections.IntArrayList;
+import Ch.Elca.Iiop.JavaCollections.DoubleArrayList;
+import Ch.Elca.Iiop.JavaCollections.CompactHashMap;
+
+
+/**
+ * Compares the CDR encoding of a java.util.ArrayList with boxed elements
+ * against the primitive lists of the mapping plugin for an increasing
+ * number of elements (10 to 10M).
+ * With the argument maps, java.util.HashMap is compared against CompactHashMap
+ * for 1k, 100k and 1M entries instead.
+ * For every size, the encoded bytes per element, the bytes allocated while
+ * building and encoding the collection and the encoding time are printed.
+ *
+ * Usage: java -Xmx2g -cp .;IIOPNetJavaCollections.jar CollectionMarshallingBenchmark [maxNrOfElems | maps]
+ */
+public class CollectionMarshallingBenchmark {
+
+    private static final int DEFAULT_MAX_ELEMS = 10000000;
+
+    private static final int[] MAP_SIZES = new int[] { 1000, 100000, 1000000 };
+
+    private Codec m_codec;
+    private ORB m_orb;
+
+    private Object m_threadMxBean;
+    private Method m_allocatedBytesMethod;
+
+    public CollectionMarshallingBenchmark(ORB orb) throws Exception {
+        m_orb = orb;
+        CodecFactory factory =
+            CodecFactoryHelper.narrow(orb.resolve_initial_references("CodecFactory"));
+        m_codec = factory.create_codec(new Encoding(ENCODING_CDR_ENCAPS.value, (byte)1, (byte)2));
+        InitAllocationCounter();
+    }
+
+    /**
+     * uses com.sun.management.ThreadMXBean if available (java 6 and later);
+     * otherwise, the heap growth is used as approximation.
+     */
+    private void InitAllocationCounter() {
+        try {
+            Class factoryClass = Class.forName("java.lang.management.ManagementFactory");
+            m_threadMxBean = factoryClass.getMethod("getThreadMXBean", new Class[0]).invoke(null, new Object[0]);
+            Class beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            m_allocatedBytesMethod = beanClass.getMethod("getThreadAllocatedBytes", new Class[] { long.class });
+        } catch (Exception e) {
+            m_threadMxBean = null;
+            m_allocatedBytesMethod = null;
+        }
+    }
+
+    private long AllocatedBytes() {
+        if (m_allocatedBytesMethod != null) {
+            try {
+                Long result = (Long)m_allocatedBytesMethod.invoke(m_threadMxBean,
+                    new Object[] { new Long(Thread.currentThread().getId()) });
+                return result.longValue();
+            } catch (Exception e) {
+                // fall through
+            }
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void Gc() {
+        System.gc();
+        System.gc();
+    }
+
+    private void Measure(String label, ValueFactory factory, int nrOfElems) {
+        Gc();
+        long startBytes = AllocatedBytes();
+        long start = System.currentTimeMillis();
+        java.io.Serializable value = factory.Create(nrOfElems);
+        Any any = m_orb.create_any();
+        any.insert_Value(value);
+        int encodedLength;
+        try {
+            encodedLength = m_codec.encode_value(any).length;
+        } catch (Exception e) {
+            System.out.println(label + ": encoding failed: " + e);
+            return;
+        }
+        long time = System.currentTimeMillis() - start;
+        long allocated = AllocatedBytes() - startBytes;
+        System.out.println(Table.pad(label, 16) + Table.pad(String.valueOf(nrOfElems), 10) +
+                           Table.pad(String.valueOf(encodedLength), 12) +
+                           Table.pad(Table.format((double)encodedLength / nrOfElems), 12) +
+                           Table.pad(Table.format((double)allocated / nrOfElems), 14) +
+                           time);
+    }
+
+    private static void PrintHeader() {
+        System.out.println(Table.pad("type", 16) + Table.pad("elems", 10) + Table.pad("bytes", 12) +
+                           Table.pad("bytes/elem", 12) + Table.pad("alloc/elem", 14) + "ms");
+    }
+
+    public void RunMaps() {
+        PrintHeader();
+        for (int i = 0; i < MAP_SIZES.length; i++) {
+            Measure("HashMap<int>", new MapFactory(false, false), MAP_SIZES[i]);
+            Measure("CompactMap<int>", new MapFactory(true, false), MAP_SIZES[i]);
+            Measure("HashMap<dbl>", new MapFactory(false, true), MAP_SIZES[i]);
+            Measure("CompactMap<dbl>", new MapFactory(true, true), MAP_SIZES[i]);
+        }
+    }
+
+    public void Run(int maxNrOfElems) {
+        PrintHeader();
+        for (int nrOfElems = 10; nrOfElems <= maxNrOfElems; nrOfElems *= 10) {
+            Measure("ArrayList<int>", new BoxedIntListFactory(), nrOfElems);
+            Measure("IntArrayList", new IntArrayListFactory(), nrOfElems);
+            Measure("ArrayList<dbl>", new BoxedDoubleListFactory(), nrOfElems);
+            Measure("DoubleArrayList", new DoubleArrayListFactory(), nrOfElems);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            ORB orb = ORB.init(new String[0], null);
+            CollectionMarshallingBenchmark benchmark = new CollectionMarshallingBenchmark(orb);
+            if ((args.length > 0) && args[0].equals("maps")) {
+                benchmark.RunMaps();
+            } else {
+                int maxNrOfElems = DEFAULT_MAX_ELEMS;
+                if (args.length > 0) {
+                    maxNrOfElems = Integer.parseInt(args[0]);
+                }
+                benchmark.Run(maxNrOfElems);
+            }
+            orb.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+
+    private interface ValueFactory {
+        java.io.Serializable Create(int nrOfElems);
+    }
+
+    private static class BoxedIntListFactory implements ValueFactory {
+        public java.io.Serializable Create(int nrOfElems) {
+            ArrayList result = new ArrayList(nrOfElems);
+            for (int i = 0; i < nrOfElems; i++) {
+                result.add(new Integer(i));
+            }
+            return result;
+        }
+    }
+
+    private static class IntArrayListFactory implements ValueFactory {
+        public java.io.Serializable Create(int nrOfElems) {
+            IntArrayList result = new IntArrayList(nrOfElems);
+            for (int i = 0; i < nrOfElems; i++) {
+                result.add(i);
+            }
+            return result;
+        }
+    }
+
+    private static class BoxedDoubleListFactory implements ValueFactory {
+        public java.io.Serializable Create(int nrOfElems) {
+            ArrayList result = new ArrayList(nrOfElems);
+            for (int i = 0; i < nrOfElems; i++) {
+                result.add(new Double(i));
+            }
+            return result;
+        }
+    }
+
+    private static class DoubleArrayListFactory implements ValueFactory {
+        public java.io.Serializable Create(int nrOfElems) {
+            DoubleArrayList result = new DoubleArrayList(nrOfElems);
+            for (int i = 0; i < nrOfElems; i++) {
+                result.add(i);
+            }
+            return result;
+        }
+    }
+
+    /** creates maps with Integer keys and Integer or Double values */
+    private static class MapFactory implements ValueFactory {
+
+        private boolean m_compact;
+        private boolean m_doubleVals;
+
+        public MapFactory(boolean compact, boolean doubleVals) {
+            m_compact = compact;
+            m_doubleVals = doubleVals;
+        }
+
+        public java.io.Serializable Create(int nrOfElems) {
+            Map result;
+            if (m_compact) {
+                result = new CompactHashMap(nrOfElems * 2);
+            } else {
+                result = new HashMap(nrOfElems * 2);
+            }
+            for (int i = 0; i < nrOfElems; i++) {
+                if (m_doubleVals) {
+                    result.put(new Integer(i), new Double(i));
+                } else {
+                    result.put(new Integer(i), new Integer(i));
+                }
+            }
+            return (java.io.Serializable)result;
+        }
+    }
+
+}
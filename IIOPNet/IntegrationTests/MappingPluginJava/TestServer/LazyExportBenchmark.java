@@ -0,0 +1,157 @@
+/* LazyExportBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.rmi.PortableRemoteObject;
+
+import Ch.Elca.Iiop.Benchmark.Loopback;
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.LazyServiceFactory;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestService;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestServiceImpl;
+
+
+/**
+ * Compares createByRefTypeList and createHashMapWithByRefVals returning
+ * lazily activated references with the former implementation, which
+ * exports a TestServiceImpl for every element before replying.
+ * Server and client run in the same process, but use different orbs, i.e.
+ * the calls go over iiop.
+ * For 10k and 100k references, the reply latency seen by the client and the
+ * heap retained by the server after the call are printed.
+ *
+ * Usage: java -Xmx1g -cp .;IIOPNetJavaCollections.jar LazyExportBenchmark
+ */
+public class LazyExportBenchmark {
+
+    private static final int[] SIZES = new int[] { 10000, 100000 };
+
+    private Loopback m_loopback;
+
+    public LazyExportBenchmark(Loopback loopback) {
+        m_loopback = loopback;
+    }
+
+    private TestService Export(TestServiceImpl impl) throws Exception {
+        return (TestService)m_loopback.export(impl, TestService.class);
+    }
+
+    private static long UsedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private void Measure(String label, TestService service, boolean map, int nrOfElems)
+        throws RemoteException {
+        long heapBefore = UsedHeap();
+        long start = System.currentTimeMillis();
+        Object result;
+        if (map) {
+            result = service.createHashMapWithByRefVals(nrOfElems);
+        } else {
+            result = service.createByRefTypeList(nrOfElems);
+        }
+        long latency = System.currentTimeMillis() - start;
+        result = null;
+        // the orb keeps the last reply of a connection until the next request
+        service.createIntList(0, 0);
+        long retained = UsedHeap() - heapBefore;
+        System.out.println(Table.pad(label, 24) + Table.pad(String.valueOf(nrOfElems), 10) +
+                           Table.pad(String.valueOf(latency), 12) +
+                           Table.pad(String.valueOf(retained / 1024), 14) +
+                           (retained / nrOfElems));
+    }
+
+    public void Run() throws Exception {
+        TestService eager = Export(new EagerTestServiceImpl());
+        TestServiceImpl lazyImpl = new TestServiceImpl();
+        TestService lazy = Export(lazyImpl);
+        // warm up
+        eager.createByRefTypeList(100);
+        lazy.createByRefTypeList(100);
+
+        System.out.println(Table.pad("call", 24) + Table.pad("refs", 10) + Table.pad("latency ms", 12) +
+                           Table.pad("retained kB", 14) + "bytes/ref");
+        for (int i = 0; i < SIZES.length; i++) {
+            Measure("eager list", eager, false, SIZES[i]);
+            Measure("lazy list", lazy, false, SIZES[i]);
+            Measure("eager map", eager, true, SIZES[i]);
+            Measure("lazy map", lazy, true, SIZES[i]);
+        }
+
+        // invoking a lazy reference creates its servant
+        ArrayList refs = lazy.createByRefTypeList(2);
+        TestService first = (TestService)PortableRemoteObject.narrow(refs.get(0), TestService.class);
+        first.createIntList(1, 1);
+        first.createIntList(1, 1);
+        System.out.println("servants created for lazy references after two calls on one of them: " +
+                           LazyServiceFactory.getInstance(lazyImpl).getNrOfIncarnated());
+    }
+
+    public static void main(String[] args) {
+        try {
+            Loopback loopback = new Loopback();
+            new LazyExportBenchmark(loopback).Run();
+            loopback.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+
+    /** exports a servant for every reference, as TestServiceImpl did before */
+    public static class EagerTestServiceImpl extends TestServiceImpl {
+
+        public EagerTestServiceImpl() throws RemoteException {
+            super();
+        }
+
+        public ArrayList createByRefTypeList(int nrOfElems) throws RemoteException {
+            ArrayList result = new ArrayList();
+            for (int i = 0; i < nrOfElems; i++) {
+                result.add(new TestServiceImpl());
+            }
+            return result;
+        }
+
+        public HashMap createHashMapWithByRefVals(int nrOfElems) throws RemoteException {
+            HashMap result = new HashMap();
+            for (int i = 0; i < nrOfElems; i++) {
+                result.put(new Integer(i), new TestServiceImpl());
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/* OctetBufferBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.nio.ByteBuffer;
+
+import Ch.Elca.Iiop.Benchmark.Loopback;
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.ByteArrayContainer;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestService;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestServiceImpl;
+import Ch.Elca.Iiop.JavaCollections.OctetBuffer;
+
+
+/**
+ * Compares echoing a ByteBuffer as OctetBuffer (heap and direct buffer)
+ * with converting it to a byte[], echoing it in a value type and wrapping
+ * the result into a ByteBuffer again.
+ * Server and client run in the same process, but use different orbs.
+ *
+ * Usage: java -Xmx1g -cp .;IIOPNetJavaCollections.jar OctetBufferBenchmark
+ */
+public class OctetBufferBenchmark {
+
+    private static final int[] SIZES = new int[] { 1024, 64 * 1024, 1024 * 1024, 16 * 1024 * 1024 };
+
+    /** the number of bytes echoed per size and mode */
+    private static final long BYTES_PER_RUN = 256L * 1024 * 1024;
+
+    private static final int MODE_BYTE_ARRAY = 0;
+    private static final int MODE_HEAP_BUFFER = 1;
+    private static final int MODE_DIRECT_BUFFER = 2;
+
+    private TestService m_service;
+
+    public OctetBufferBenchmark(Loopback loopback) throws Exception {
+        m_service = (TestService)loopback.export(new TestServiceImpl(), TestService.class);
+    }
+
+    private ByteBuffer Echo(int mode, ByteBuffer buffer) throws Exception {
+        if (mode == MODE_BYTE_ARRAY) {
+            ByteArrayContainer container = new ByteArrayContainer();
+            container.Content = new byte[buffer.remaining()];
+            buffer.duplicate().get(container.Content);
+            return ByteBuffer.wrap(m_service.echoByteArrayContainer(container).Content);
+        } else {
+            return m_service.echoOctetBuffer(new OctetBuffer(buffer)).getBuffer();
+        }
+    }
+
+    private static ByteBuffer CreateBuffer(int mode, int size) {
+        ByteBuffer buffer = (mode == MODE_DIRECT_BUFFER ? ByteBuffer.allocateDirect(size) :
+                                                          ByteBuffer.allocate(size));
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte)i);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void Measure(String label, int mode, int size) throws Exception {
+        ByteBuffer buffer = CreateBuffer(mode, size);
+        if (!buffer.equals(Echo(mode, buffer))) {
+            System.out.println(label + ": echoed content differs");
+            return;
+        }
+        int nrOfCalls = (int)Math.max(BYTES_PER_RUN / size, 4);
+        // warm up
+        for (int i = 0; i < nrOfCalls / 4; i++) {
+            Echo(mode, buffer);
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfCalls; i++) {
+            Echo(mode, buffer);
+        }
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println(Table.pad(label, 16) + Table.pad(String.valueOf(size), 12) +
+                           Table.pad(Table.format((double)time / nrOfCalls), 12) +
+                           Table.format((double)nrOfCalls * size * 2 / (1024 * 1024) * 1000 / time));
+    }
+
+    public void Run() throws Exception {
+        System.out.println(Table.pad("mode", 16) + Table.pad("bytes", 12) + Table.pad("ms/echo", 12) + "MB/s");
+        for (int i = 0; i < SIZES.length; i++) {
+            Measure("byte[] value", MODE_BYTE_ARRAY, SIZES[i]);
+            Measure("OctetBuffer", MODE_HEAP_BUFFER, SIZES[i]);
+            Measure("OctetBuf direct", MODE_DIRECT_BUFFER, SIZES[i]);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            Loopback loopback = new Loopback();
+            new OctetBufferBenchmark(loopback).Run();
+            loopback.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
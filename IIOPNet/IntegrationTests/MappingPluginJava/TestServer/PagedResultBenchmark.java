@@ -0,0 +1,190 @@
+/* PagedResultBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.rmi.PortableRemoteObject;
+
+import Ch.Elca.Iiop.Benchmark.Loopback;
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.PagedResult;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.PagedResultIterator;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.ResultCursor;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestService;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestServiceImpl;
+
+
+/**
+ * Compares createIntList, which returns all elements in one reply, with
+ * createIntListPaged consumed page by page without prefetching and through
+ * PagedResultIterator, which prefetches the next page.
+ * Server and client run in the same process with different orbs; the peak
+ * heap is therefore the sum of both sides.
+ *
+ * Usage: java -Xmx2g -cp .;IIOPNetJavaCollections.jar PagedResultBenchmark [nrOfElems [pageSize]]
+ */
+public class PagedResultBenchmark {
+
+    private static final int DEFAULT_NR_OF_ELEMS = 1000000;
+    private static final int DEFAULT_PAGE_SIZE = 10000;
+
+    private TestService m_service;
+
+    public PagedResultBenchmark(Loopback loopback) throws Exception {
+        m_service = (TestService)loopback.export(new TestServiceImpl(), TestService.class);
+    }
+
+    private static long Consume(Iterator it) {
+        long sum = 0;
+        while (it.hasNext()) {
+            sum += ((Integer)it.next()).intValue();
+        }
+        return sum;
+    }
+
+    private long Full(int nrOfElems, int pageSize) throws Exception {
+        return Consume(m_service.createIntList(1, nrOfElems).iterator());
+    }
+
+    private long PagedSequential(int nrOfElems, int pageSize) throws Exception {
+        PagedResult result = m_service.createIntListPaged(1, nrOfElems, pageSize);
+        long sum = Consume(result.FirstPage.iterator());
+        if (result.Cursor != null) {
+            ResultCursor cursor =
+                (ResultCursor)PortableRemoteObject.narrow(result.Cursor, ResultCursor.class);
+            int remaining = nrOfElems - result.FirstPage.size();
+            result = null;
+            while (remaining > 0) {
+                ArrayList page = cursor.nextPage();
+                remaining -= page.size();
+                sum += Consume(page.iterator());
+            }
+        }
+        return sum;
+    }
+
+    private long PagedPrefetch(int nrOfElems, int pageSize) throws Exception {
+        return Consume(new PagedResultIterator(m_service.createIntListPaged(1, nrOfElems, pageSize)));
+    }
+
+    private void Measure(String label, int mode, int nrOfElems, int pageSize) throws Exception {
+        System.gc();
+        System.gc();
+        HeapSampler sampler = new HeapSampler();
+        Thread samplerThread = new Thread(sampler);
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+        long start = System.currentTimeMillis();
+        long sum;
+        switch (mode) {
+            case 0:
+                sum = Full(nrOfElems, pageSize);
+                break;
+            case 1:
+                sum = PagedSequential(nrOfElems, pageSize);
+                break;
+            default:
+                sum = PagedPrefetch(nrOfElems, pageSize);
+                break;
+        }
+        long time = System.currentTimeMillis() - start;
+        long peak = sampler.Stop();
+        if (sum != nrOfElems) {
+            System.out.println(label + ": wrong number of elements: " + sum);
+        }
+        System.out.println(Table.pad(label, 20) + Table.pad(String.valueOf(nrOfElems), 12) +
+                           Table.pad(String.valueOf(time), 10) + (peak / (1024 * 1024)));
+    }
+
+    public void Run(int nrOfElems, int pageSize) throws Exception {
+        // warm up
+        Full(pageSize, pageSize);
+        PagedSequential(pageSize * 3, pageSize);
+        PagedPrefetch(pageSize * 3, pageSize);
+
+        System.out.println("page size: " + pageSize);
+        System.out.println(Table.pad("mode", 20) + Table.pad("elems", 12) + Table.pad("ms", 10) + "peak heap MB");
+        Measure("full list", 0, nrOfElems, pageSize);
+        Measure("paged", 1, nrOfElems, pageSize);
+        Measure("paged, prefetch", 2, nrOfElems, pageSize);
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfElems = DEFAULT_NR_OF_ELEMS;
+            int pageSize = DEFAULT_PAGE_SIZE;
+            if (args.length > 0) {
+                nrOfElems = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                pageSize = Integer.parseInt(args[1]);
+            }
+            Loopback loopback = new Loopback();
+            new PagedResultBenchmark(loopback).Run(nrOfElems, pageSize);
+            loopback.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+
+    /** samples the used heap to approximate its peak */
+    private static class HeapSampler implements Runnable {
+
+        private long m_peak = 0;
+        private boolean m_stopped = false;
+
+        public void run() {
+            Runtime rt = Runtime.getRuntime();
+            while (true) {
+                long used = rt.totalMemory() - rt.freeMemory();
+                synchronized(this) {
+                    if (used > m_peak) {
+                        m_peak = used;
+                    }
+                    if (m_stopped) {
+                        return;
+                    }
+                    try {
+                        wait(2);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        public synchronized long Stop() {
+            m_stopped = true;
+            notifyAll();
+            return m_peak;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/* PagedResultTest.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.rmi.NoSuchObjectException;
+
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Stub;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.omg.CORBA.ORB;
+
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.PagedResult;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.PagedResultIterator;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.ResultCursor;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.ResultCursorImpl;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestService;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestServiceImpl;
+
+
+/**
+ * Tests the paged results for java callers: PagedResultIterator, stopping
+ * early and closing, and the idle timeout of the server side cursor.
+ * Server and client run in the same process with different orbs.
+ */
+public class PagedResultTest extends TestCase {
+
+    private static final int NR_OF_ELEMS = 30;
+    private static final int PAGE_SIZE = 10;
+
+    private static ORB s_serverOrb;
+    private static ORB s_clientOrb;
+    private static TestService s_service;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(suite());
+        System.exit(0);
+    }
+
+    public static Test suite() {
+        return new TestSuite(PagedResultTest.class);
+    }
+
+    protected void setUp() throws Exception {
+        if (s_service == null) {
+            s_serverOrb = ORB.init(new String[0], null);
+            s_clientOrb = ORB.init(new String[0], null);
+            Stub stub = (Stub)PortableRemoteObject.toStub(new TestServiceImpl());
+            stub.connect(s_serverOrb);
+            String ior = s_serverOrb.object_to_string(stub);
+            s_service = (TestService)PortableRemoteObject.narrow(s_clientOrb.string_to_object(ior),
+                                                                 TestService.class);
+        }
+    }
+
+    /** consumes nrOfElems elements of the iterator */
+    private static void Consume(PagedResultIterator it, int nrOfElems) {
+        for (int i = 0; i < nrOfElems; i++) {
+            assertTrue(it.hasNext());
+            assertEquals(new Integer(7), it.next());
+        }
+    }
+
+    private ResultCursor GetCursor(PagedResult result) {
+        return (ResultCursor)PortableRemoteObject.narrow(result.Cursor, ResultCursor.class);
+    }
+
+    public void testConsumeAll() throws Exception {
+        PagedResultIterator it = new PagedResultIterator(s_service.createIntListPaged(7, NR_OF_ELEMS, PAGE_SIZE));
+        Consume(it, NR_OF_ELEMS);
+        assertFalse(it.hasNext());
+        it.close();
+    }
+
+    public void testSinglePage() throws Exception {
+        PagedResult result = s_service.createIntListPaged(7, PAGE_SIZE, PAGE_SIZE);
+        assertNull(result.Cursor);
+        PagedResultIterator it = new PagedResultIterator(result);
+        Consume(it, PAGE_SIZE);
+        assertFalse(it.hasNext());
+        it.close();
+    }
+
+    /** the prefetched page is not the last one: close releases the cursor */
+    public void testStopEarlyAndClose() throws Exception {
+        PagedResult result = s_service.createIntListPaged(7, NR_OF_ELEMS, PAGE_SIZE);
+        ResultCursor cursor = GetCursor(result);
+        PagedResultIterator it = new PagedResultIterator(result);
+        Consume(it, 5);
+        it.close();
+        assertFalse(it.hasNext());
+        try {
+            cursor.nextPage();
+            fail("cursor not released by close");
+        } catch (NoSuchObjectException e) {
+            // expected
+        }
+    }
+
+    /** the prefetched page is the last one: the server released the cursor already */
+    public void testStopEarlyAfterLastPageFetched() throws Exception {
+        PagedResultIterator it = new PagedResultIterator(s_service.createIntListPaged(7, NR_OF_ELEMS, PAGE_SIZE));
+        Consume(it, 15);
+        it.close();
+        assertFalse(it.hasNext());
+        it.close(); // a second close does nothing
+    }
+
+    public void testIdleCursorReleased() throws Exception {
+        ResultCursorImpl.ElementSource source = new ResultCursorImpl.ElementSource() {
+            public Object getElement(int index) {
+                return new Integer(index);
+            }
+        };
+        PagedResult result = ResultCursorImpl.createResult(source, NR_OF_ELEMS, PAGE_SIZE, 200);
+        ResultCursorImpl cursor = (ResultCursorImpl)result.Cursor;
+        assertEquals(PAGE_SIZE, cursor.nextPage().size());
+        assertFalse(cursor.isClosed());
+        Thread.sleep(1000);
+        assertTrue(cursor.isClosed());
+        assertEquals(0, cursor.nextPage().size());
+    }
+
+}
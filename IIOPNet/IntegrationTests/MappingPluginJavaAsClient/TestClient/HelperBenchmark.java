@@ -0,0 +1,292 @@
+/* HelperBenchmark.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.ArrayListHelper;
+import java.util.Date;
+import java.util.DateHelper;
+import java.util.HashMap;
+import java.util.HashMapHelper;
+
+import org.omg.CORBA.ORB;
+import org.omg.CORBA_2_3.portable.InputStream;
+import org.omg.CORBA_2_3.portable.OutputStream;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.*;
+
+
+/**
+ * Compares the throughput of the helpers generated by HelperGenerator with the
+ * reflective path through the orb's value handler (read_value(Class) /
+ * write_value(Object, Class)) and the value factory lookup (read_value(String)).
+ * Every operation marshals the value into an orb output stream and reads it back.
+ * No server is needed.
+ *
+ * Usage: java -Xbootclasspath/a:collectionHelpers.jar -cp . HelperBenchmark [nrOfOps]
+ */
+public class HelperBenchmark {
+
+    private static final int DEFAULT_NR_OF_OPS = 20000;
+
+    private static final int NR_OF_ELEMS = 100;
+
+    private ORB m_orb;
+
+    public HelperBenchmark(ORB orb) {
+        m_orb = orb;
+    }
+
+    private void RegisterFactories() {
+        TestSerializableClassB1Helper.register(m_orb);
+        ByteArrayContainerHelper.register(m_orb);
+    }
+
+    private void UnregisterFactories() {
+        ((org.omg.CORBA_2_3.ORB)m_orb).unregister_value_factory(TestSerializableClassB1Helper.id());
+        ((org.omg.CORBA_2_3.ORB)m_orb).unregister_value_factory(ByteArrayContainerHelper.id());
+    }
+
+    private Serializable RoundTrip(Marshaller marshaller, Serializable value) {
+        OutputStream out = (OutputStream)m_orb.create_output_stream();
+        marshaller.Write(out, value);
+        return marshaller.Read((InputStream)out.create_input_stream());
+    }
+
+    private long Time(Marshaller marshaller, Serializable value, int nrOfOps) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfOps; i++) {
+            RoundTrip(marshaller, value);
+        }
+        return Math.max(System.currentTimeMillis() - start, 1);
+    }
+
+    private void Measure(String label, Serializable value, Marshaller reflective,
+                         Marshaller generated, int nrOfOps) {
+        // check, that both paths produce the same value
+        if (!value.equals(RoundTrip(reflective, value)) ||
+            !value.equals(RoundTrip(generated, value))) {
+            System.out.println(label + ": round trip result differs from original");
+            return;
+        }
+        // warm up
+        Time(reflective, value, nrOfOps / 10);
+        RegisterFactories();
+        Time(generated, value, nrOfOps / 10);
+        UnregisterFactories();
+
+        long reflectiveTime = Time(reflective, value, nrOfOps);
+        RegisterFactories();
+        long generatedTime = Time(generated, value, nrOfOps);
+        UnregisterFactories();
+        System.out.println(Table.pad(label, 26) +
+                           Table.pad(String.valueOf(nrOfOps * 1000L / reflectiveTime), 14) +
+                           Table.pad(String.valueOf(nrOfOps * 1000L / generatedTime), 14) +
+                           Table.format((double)reflectiveTime / generatedTime));
+    }
+
+    public void Run(int nrOfOps) {
+        System.out.println(Table.pad("value", 26) + Table.pad("reflect op/s", 14) + Table.pad("helper op/s", 14) +
+                           "speedup");
+
+        Measure("Date", new Date(), new ClassMarshaller(Date.class),
+                new DateMarshaller(), nrOfOps);
+
+        ArrayList intList = new ArrayList();
+        ArrayList valTypeList = new ArrayList();
+        HashMap valTypeMap = new HashMap();
+        for (int i = 0; i < NR_OF_ELEMS; i++) {
+            intList.add(new Integer(i));
+            TestSerializableClassB1Impl entry = new TestSerializableClassB1Impl();
+            entry.Msg = "msg" + i;
+            valTypeList.add(entry);
+            valTypeMap.put(new Integer(i), entry);
+        }
+        Measure("ArrayList<int>", intList, new ClassMarshaller(ArrayList.class),
+                new ArrayListMarshaller(), nrOfOps / 10);
+        Measure("ArrayList<valtype>", valTypeList, new ClassMarshaller(ArrayList.class),
+                new ArrayListMarshaller(), nrOfOps / 10);
+        Measure("HashMap<int,valtype>", valTypeMap, new ClassMarshaller(HashMap.class),
+                new HashMapMarshaller(), nrOfOps / 10);
+
+        TestSerializableClassB1Impl b1 = new TestSerializableClassB1Impl();
+        b1.Msg = "test";
+        Measure("TestSerializableClassB1", b1,
+                new IdMarshaller(TestSerializableClassB1Helper.id()),
+                new B1Marshaller(), nrOfOps);
+
+        // ByteArrayContainerImpl has no equals: compare the content instead
+        ByteArrayContainerImpl container = new ByteArrayContainerImpl();
+        container.Content = new byte[1024];
+        ByteArrayContainerWrapper wrapper = new ByteArrayContainerWrapper(container);
+        Measure("ByteArrayContainer", wrapper,
+                new WrappingMarshaller(new IdMarshaller(ByteArrayContainerHelper.id())),
+                new WrappingMarshaller(new ByteArrayContainerMarshaller()), nrOfOps);
+    }
+
+    public static void main(String[] args) {
+        try {
+            ORB orb = ORB.init(new String[0], null);
+            int nrOfOps = DEFAULT_NR_OF_OPS;
+            if (args.length > 0) {
+                nrOfOps = Integer.parseInt(args[0]);
+            }
+            new HelperBenchmark(orb).Run(nrOfOps);
+            orb.destroy();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+
+    private interface Marshaller {
+        void Write(OutputStream out, Serializable value);
+        Serializable Read(InputStream in);
+    }
+
+    /** the reflective path for rmi values */
+    private static class ClassMarshaller implements Marshaller {
+        private Class m_class;
+
+        public ClassMarshaller(Class clazz) {
+            m_class = clazz;
+        }
+
+        public void Write(OutputStream out, Serializable value) {
+            out.write_value(value, m_class);
+        }
+
+        public Serializable Read(InputStream in) {
+            return in.read_value(m_class);
+        }
+    }
+
+    /** the reflective path for idl values: the value factory is searched by repository id */
+    private static class IdMarshaller implements Marshaller {
+        private String m_id;
+
+        public IdMarshaller(String id) {
+            m_id = id;
+        }
+
+        public void Write(OutputStream out, Serializable value) {
+            out.write_value(value, m_id);
+        }
+
+        public Serializable Read(InputStream in) {
+            return in.read_value(m_id);
+        }
+    }
+
+    private static class DateMarshaller implements Marshaller {
+        public void Write(OutputStream out, Serializable value) {
+            DateHelper.write(out, (Date)value);
+        }
+
+        public Serializable Read(InputStream in) {
+            return DateHelper.read(in);
+        }
+    }
+
+    private static class ArrayListMarshaller implements Marshaller {
+        public void Write(OutputStream out, Serializable value) {
+            ArrayListHelper.write(out, (ArrayList)value);
+        }
+
+        public Serializable Read(InputStream in) {
+            return ArrayListHelper.read(in);
+        }
+    }
+
+    private static class HashMapMarshaller implements Marshaller {
+        public void Write(OutputStream out, Serializable value) {
+            HashMapHelper.write(out, (HashMap)value);
+        }
+
+        public Serializable Read(InputStream in) {
+            return HashMapHelper.read(in);
+        }
+    }
+
+    private static class B1Marshaller implements Marshaller {
+        public void Write(OutputStream out, Serializable value) {
+            TestSerializableClassB1Helper.write(out, (TestSerializableClassB1)value);
+        }
+
+        public Serializable Read(InputStream in) {
+            return TestSerializableClassB1Helper.read(in);
+        }
+    }
+
+    private static class ByteArrayContainerMarshaller implements Marshaller {
+        public void Write(OutputStream out, Serializable value) {
+            ByteArrayContainerHelper.write(out, (ByteArrayContainer)value);
+        }
+
+        public Serializable Read(InputStream in) {
+            return ByteArrayContainerHelper.read(in);
+        }
+    }
+
+    /** compares ByteArrayContainers by content, which the value type itself doesn't do */
+    private static class ByteArrayContainerWrapper implements Serializable {
+        private ByteArrayContainer m_container;
+
+        public ByteArrayContainerWrapper(ByteArrayContainer container) {
+            m_container = container;
+        }
+
+        public boolean equals(Object other) {
+            return (other instanceof ByteArrayContainerWrapper) &&
+                java.util.Arrays.equals(m_container.Content,
+                                        ((ByteArrayContainerWrapper)other).m_container.Content);
+        }
+
+        public int hashCode() {
+            return m_container.Content.length;
+        }
+    }
+
+    private static class WrappingMarshaller implements Marshaller {
+        private Marshaller m_marshaller;
+
+        public WrappingMarshaller(Marshaller marshaller) {
+            m_marshaller = marshaller;
+        }
+
+        public void Write(OutputStream out, Serializable value) {
+            m_marshaller.Write(out, ((ByteArrayContainerWrapper)value).m_container);
+        }
+
+        public Serializable Read(InputStream in) {
+            return new ByteArrayContainerWrapper((ByteArrayContainer)m_marshaller.Read(in));
+        }
+    }
+
+}
@@ -1,8 +1,6 @@
 import junit.framework.*;
-import javax.naming.InitialContext;
-import javax.naming.Context;
-import javax.rmi.PortableRemoteObject;
 import Ch.Elca.Iiop.IntegrationTests.MappingPlugin.*;
+import Ch.Elca.Iiop.Naming.CachingContext;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Date;
@@ -13,15 +11,25 @@ import java.util.Date;
  */
 public class TestClient extends TestCase {
 
+    /** shared by all tests: resolves "test" only once instead of once per test */
+    private static CachingContext s_namingCache;
+
     private TestService m_testService;
 
     public static void main (String[] args) {
         junit.textui.TestRunner.run (suite());
     }
     protected void setUp() throws Exception {
-        Context ic = new InitialContext();
-        Object objRef = ic.lookup("test");
-        m_testService = (TestService) PortableRemoteObject.narrow(objRef, TestService.class);
+        if (s_namingCache == null) {
+            s_namingCache = new CachingContext();
+        }
+        m_testService = (TestService) s_namingCache.lookup("test", TestService.class);
+        // value types inside collections are created by the generated helpers
+        // instead of the reflectively loaded default factories
+        org.omg.CORBA.ORB orb =
+            ((org.omg.CORBA.portable.ObjectImpl) CachingContext.getDelegate(m_testService))._orb();
+        TestSerializableClassB1Helper.register(orb);
+        ByteArrayContainerHelper.register(orb);
     }
 
     protected void tearDown() {
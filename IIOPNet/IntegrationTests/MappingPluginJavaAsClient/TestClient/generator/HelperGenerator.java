@@ -0,0 +1,433 @@
+/* HelperGenerator.java
+ *
+ * Project: IIOP.NET
+ * IntegrationTests
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+
+import org.omg.CORBA.TCKind;
+import org.omg.CORBA.TypeCode;
+
+
+/**
+ * Generates CORBA helper classes, which marshal a value without going through
+ * the reflective value handler / value factory lookup of the ORB.
+ *
+ * The java.util types mapped by the IIOP.NET java mapping plugin (ArrayList,
+ * HashMap, Date) are written and read in the rmi custom format of their
+ * writeObject / readObject methods. The helpers replace the idlj generated
+ * ones, which delegate to read_value(Class) / write_value(Object, Class).
+ *
+ * For an idl value type, the helper generated by idlj must already be compiled:
+ * its type code is used to regenerate the type() method. The new helper
+ * instantiates the implementation class directly and uses the generated
+ * _read / _write methods of the value type. It can also be registered as the
+ * value factory of the type, which is used for values inside collections.
+ *
+ * Usage: java -cp .;generator HelperGenerator [-d outDir] type[=implClass] ...
+ * e.g. java -cp .;generator HelperGenerator java.util.ArrayList Ch.Elca.Iiop.IntegrationTests.MappingPlugin.TestSerializableClassB1
+ */
+public class HelperGenerator {
+
+    private static final String[] KIND_NAMES = new String[] {
+        "tk_null", "tk_void", "tk_short", "tk_long", "tk_ushort", "tk_ulong",
+        "tk_float", "tk_double", "tk_boolean", "tk_char", "tk_octet", "tk_any",
+        "tk_TypeCode", "tk_Principal", "tk_objref", "tk_struct", "tk_union",
+        "tk_enum", "tk_string", "tk_sequence", "tk_array", "tk_alias",
+        "tk_except", "tk_longlong", "tk_ulonglong", "tk_longdouble", "tk_wchar",
+        "tk_wstring", "tk_fixed", "tk_value", "tk_value_box", "tk_native",
+        "tk_abstract_interface" };
+
+    private File m_outDir;
+
+    public HelperGenerator(File outDir) {
+        m_outDir = outDir;
+    }
+
+    public void Generate(String typeSpec) throws Exception {
+        String typeName = typeSpec;
+        String implName = typeSpec + "Impl";
+        int sep = typeSpec.indexOf('=');
+        if (sep > 0) {
+            typeName = typeSpec.substring(0, sep);
+            implName = typeSpec.substring(sep + 1);
+        }
+
+        String packageName = "";
+        String simpleName = typeName;
+        int lastDot = typeName.lastIndexOf('.');
+        if (lastDot > 0) {
+            packageName = typeName.substring(0, lastDot);
+            simpleName = typeName.substring(lastDot + 1);
+        }
+
+        File dir = m_outDir;
+        if (packageName.length() > 0) {
+            dir = new File(m_outDir, packageName.replace('.', File.separatorChar));
+        }
+        dir.mkdirs();
+        File target = new File(dir, simpleName + "Helper.java");
+        PrintWriter out = new PrintWriter(new FileWriter(target));
+        try {
+            String fileName = (packageName.length() > 0 ? packageName.replace('.', '/') + "/" : "") +
+                              simpleName + "Helper.java";
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println();
+            out.println("/**");
+            out.println("* " + fileName + " .");
+            out.println("* Generated by HelperGenerator from " + typeName);
+            out.println("* Do not edit, regenerate instead.");
+            out.println("*/");
+            out.println();
+            out.println("public final class " + simpleName + "Helper implements org.omg.CORBA.portable.BoxedValueHelper");
+            out.println("{");
+
+            if (typeName.equals("java.util.ArrayList")) {
+                WriteRmiHeader(out, simpleName, typeName, "RMI:java.util.ArrayList:F655154F32815380:7881D21D99C7619D");
+                WriteArrayListBody(out);
+            } else if (typeName.equals("java.util.HashMap")) {
+                WriteRmiHeader(out, simpleName, typeName, "RMI:java.util.HashMap:86573568A211C011:0507DAC1C31660D1");
+                WriteHashMapBody(out);
+            } else if (typeName.equals("java.util.Date")) {
+                WriteRmiHeader(out, simpleName, typeName, "RMI:java.util.Date:AC117E28FE36587A:686A81014B597419");
+                WriteDateBody(out);
+            } else {
+                WriteIdlValueHelper(out, simpleName, typeName, implName);
+            }
+
+            out.println("}");
+        } finally {
+            out.close();
+        }
+        System.out.println("generated " + target.getPath());
+    }
+
+    private void WriteStaticAccessors(PrintWriter out, String simpleName, String typeName) {
+        out.println("  private static final " + simpleName + "Helper s_instance = new " + simpleName + "Helper ();");
+        out.println();
+        out.println("  public static String id ()");
+        out.println("  {");
+        out.println("    return _id;");
+        out.println("  }");
+        out.println();
+        out.println("  public static " + typeName + " read (org.omg.CORBA.portable.InputStream istream)");
+        out.println("  {");
+        out.println("    return (" + typeName + ")((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (s_instance);");
+        out.println("  }");
+        out.println();
+        out.println("  public static void write (org.omg.CORBA.portable.OutputStream ostream, " + typeName + " value)");
+        out.println("  {");
+        out.println("    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, s_instance);");
+        out.println("  }");
+        out.println();
+        out.println("  public String get_id ()");
+        out.println("  {");
+        out.println("    return _id;");
+        out.println("  }");
+        out.println();
+    }
+
+    private void WriteRmiHeader(PrintWriter out, String simpleName, String typeName, String repId) {
+        out.println("  private static String  _id = \"" + repId + "\";");
+        out.println();
+        WriteStaticAccessors(out, simpleName, typeName);
+    }
+
+    private void WriteArrayListBody(PrintWriter out) {
+        out.println("  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)");
+        out.println("  {");
+        out.println("    org.omg.CORBA_2_3.portable.InputStream in = (org.omg.CORBA_2_3.portable.InputStream) istream;");
+        out.println("    in.read_octet (); // stream format version");
+        out.println("    in.read_boolean (); // default fields written");
+        out.println("    int size = in.read_long ();");
+        out.println("    in.read_long (); // capacity");
+        out.println("    java.util.ArrayList result = new java.util.ArrayList (size);");
+        out.println("    for (int i = 0; i < size; i++) {");
+        out.println("      result.add (in.read_abstract_interface ());");
+        out.println("    }");
+        out.println("    return result;");
+        out.println("  }");
+        out.println();
+        out.println("  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)");
+        out.println("  {");
+        out.println("    java.util.ArrayList list = (java.util.ArrayList) value;");
+        out.println("    int size = list.size ();");
+        out.println("    ostream.write_octet ((byte) 1);");
+        out.println("    ostream.write_boolean (true);");
+        out.println("    ostream.write_long (size);");
+        out.println("    ostream.write_long (size);");
+        out.println("    for (int i = 0; i < size; i++) {");
+        out.println("      javax.rmi.CORBA.Util.writeAbstractObject (ostream, list.get (i));");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+    }
+
+    private void WriteHashMapBody(PrintWriter out) {
+        out.println("  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)");
+        out.println("  {");
+        out.println("    org.omg.CORBA_2_3.portable.InputStream in = (org.omg.CORBA_2_3.portable.InputStream) istream;");
+        out.println("    in.read_octet (); // stream format version");
+        out.println("    in.read_boolean (); // default fields written");
+        out.println("    float loadFactor = in.read_float ();");
+        out.println("    in.read_long (); // threshold");
+        out.println("    in.read_long (); // capacity");
+        out.println("    int size = in.read_long ();");
+        out.println("    if (!(loadFactor > 0)) {");
+        out.println("      loadFactor = 0.75f;");
+        out.println("    }");
+        out.println("    java.util.HashMap result = new java.util.HashMap ((int) (size / loadFactor) + 1, loadFactor);");
+        out.println("    for (int i = 0; i < size; i++) {");
+        out.println("      Object key = in.read_abstract_interface ();");
+        out.println("      result.put (key, in.read_abstract_interface ());");
+        out.println("    }");
+        out.println("    return result;");
+        out.println("  }");
+        out.println();
+        out.println("  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)");
+        out.println("  {");
+        out.println("    java.util.HashMap map = (java.util.HashMap) value;");
+        out.println("    int size = map.size ();");
+        out.println("    int capacity = 16;");
+        out.println("    while (capacity * 0.75f < size) {");
+        out.println("      capacity <<= 1;");
+        out.println("    }");
+        out.println("    ostream.write_octet ((byte) 1);");
+        out.println("    ostream.write_boolean (true);");
+        out.println("    ostream.write_float (0.75f);");
+        out.println("    ostream.write_long ((int) (capacity * 0.75f));");
+        out.println("    ostream.write_long (capacity);");
+        out.println("    ostream.write_long (size);");
+        out.println("    java.util.Iterator it = map.entrySet ().iterator ();");
+        out.println("    while (it.hasNext ()) {");
+        out.println("      java.util.Map.Entry entry = (java.util.Map.Entry) it.next ();");
+        out.println("      javax.rmi.CORBA.Util.writeAbstractObject (ostream, entry.getKey ());");
+        out.println("      javax.rmi.CORBA.Util.writeAbstractObject (ostream, entry.getValue ());");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+    }
+
+    private void WriteDateBody(PrintWriter out) {
+        out.println("  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)");
+        out.println("  {");
+        out.println("    istream.read_octet (); // stream format version");
+        out.println("    istream.read_boolean (); // default fields written");
+        out.println("    return new java.util.Date (istream.read_longlong ());");
+        out.println("  }");
+        out.println();
+        out.println("  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)");
+        out.println("  {");
+        out.println("    ostream.write_octet ((byte) 1);");
+        out.println("    ostream.write_boolean (true);");
+        out.println("    ostream.write_longlong (((java.util.Date) value).getTime ());");
+        out.println("  }");
+        out.println();
+    }
+
+    private void WriteIdlValueHelper(PrintWriter out, String simpleName, String typeName,
+                                     String implName) throws Exception {
+        // the type code of the idlj generated helper describes the members
+        Class idljHelper = Class.forName(typeName + "Helper");
+        Method typeMethod = idljHelper.getMethod("type", new Class[0]);
+        TypeCode valueType = (TypeCode)typeMethod.invoke(null, new Object[0]);
+        if (valueType.kind().value() != TCKind._tk_value) {
+            throw new IllegalArgumentException(typeName + " is not a value type");
+        }
+        // the implementation class must exist and have a default constructor
+        Class.forName(implName).getConstructor(new Class[0]);
+
+        out.println("  private static String  _id = \"" + valueType.id() + "\";");
+        out.println();
+        out.println("  public static void insert (org.omg.CORBA.Any a, " + typeName + " that)");
+        out.println("  {");
+        out.println("    org.omg.CORBA.portable.OutputStream out = a.create_output_stream ();");
+        out.println("    a.type (type ());");
+        out.println("    write (out, that);");
+        out.println("    a.read_value (out.create_input_stream (), type ());");
+        out.println("  }");
+        out.println();
+        out.println("  public static " + typeName + " extract (org.omg.CORBA.Any a)");
+        out.println("  {");
+        out.println("    return read (a.create_input_stream ());");
+        out.println("  }");
+        out.println();
+        out.println("  private static org.omg.CORBA.TypeCode __typeCode = null;");
+        out.println("  synchronized public static org.omg.CORBA.TypeCode type ()");
+        out.println("  {");
+        out.println("    if (__typeCode == null)");
+        out.println("    {");
+        out.println("      org.omg.CORBA.ORB orb = org.omg.CORBA.ORB.init ();");
+        StringBuffer code = new StringBuffer();
+        String result = EmitTypeCode(valueType, valueType.id(), code, new int[1]);
+        out.print(code.toString());
+        out.println("      __typeCode = " + result + ";");
+        out.println("    }");
+        out.println("    return __typeCode;");
+        out.println("  }");
+        out.println();
+        WriteStaticAccessors(out, simpleName, typeName);
+        out.println("  /** registers this helper as value factory for " + simpleName + " at the given orb */");
+        out.println("  public static void register (org.omg.CORBA.ORB orb)");
+        out.println("  {");
+        out.println("    ((org.omg.CORBA_2_3.ORB) orb).register_value_factory (_id, new Factory ());");
+        out.println("  }");
+        out.println();
+        out.println("  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)");
+        out.println("  {");
+        out.println("    return ((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (new " + implName + " ());");
+        out.println("  }");
+        out.println();
+        out.println("  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)");
+        out.println("  {");
+        out.println("    ((" + typeName + ") value)._write (ostream);");
+        out.println("  }");
+        out.println();
+        out.println("  private static final class Factory implements org.omg.CORBA.portable.ValueFactory");
+        out.println("  {");
+        out.println("    public java.io.Serializable read_value (org.omg.CORBA_2_3.portable.InputStream istream)");
+        out.println("    {");
+        out.println("      return istream.read_value (new " + implName + " ());");
+        out.println("    }");
+        out.println("  }");
+        out.println();
+    }
+
+    /**
+     * appends the statements creating the given type code to code.
+     * @return the name of the variable holding the type code
+     */
+    private String EmitTypeCode(TypeCode tc, String ownId, StringBuffer code,
+                                int[] varCounter) throws Exception {
+        String expr;
+        int kind = tc.kind().value();
+        switch (kind) {
+            case TCKind._tk_string:
+            case TCKind._tk_wstring:
+                if (tc.length() > 0) {
+                    expr = "orb.create_" + (kind == TCKind._tk_string ? "string" : "wstring") +
+                           "_tc (" + tc.length() + ")";
+                } else {
+                    expr = "orb.get_primitive_tc (org.omg.CORBA.TCKind." + KIND_NAMES[kind] + ")";
+                }
+                break;
+            case TCKind._tk_short: case TCKind._tk_long: case TCKind._tk_ushort:
+            case TCKind._tk_ulong: case TCKind._tk_float: case TCKind._tk_double:
+            case TCKind._tk_boolean: case TCKind._tk_char: case TCKind._tk_octet:
+            case TCKind._tk_any: case TCKind._tk_TypeCode: case TCKind._tk_longlong:
+            case TCKind._tk_ulonglong: case TCKind._tk_wchar:
+                expr = "orb.get_primitive_tc (org.omg.CORBA.TCKind." + KIND_NAMES[kind] + ")";
+                break;
+            case TCKind._tk_sequence:
+                expr = "orb.create_sequence_tc (" + tc.length() + ", " +
+                       EmitTypeCode(tc.content_type(), ownId, code, varCounter) + ")";
+                break;
+            case TCKind._tk_alias:
+                expr = "orb.create_alias_tc (\"" + tc.id() + "\", \"" + tc.name() + "\", " +
+                       EmitTypeCode(tc.content_type(), ownId, code, varCounter) + ")";
+                break;
+            case TCKind._tk_value_box:
+                expr = "orb.create_value_box_tc (\"" + tc.id() + "\", \"" + tc.name() + "\", " +
+                       EmitTypeCode(tc.content_type(), ownId, code, varCounter) + ")";
+                break;
+            case TCKind._tk_objref:
+                expr = "orb.create_interface_tc (\"" + tc.id() + "\", \"" + tc.name() + "\")";
+                break;
+            case TCKind._tk_abstract_interface:
+                expr = "orb.create_abstract_interface_tc (\"" + tc.id() + "\", \"" + tc.name() + "\")";
+                break;
+            case TCKind._tk_value:
+                if (tc.id().equals(ownId) && varCounter[0] > 0) {
+                    expr = "orb.create_recursive_tc (\"" + ownId + "\")";
+                    break;
+                }
+                varCounter[0]++;
+                String base = "null";
+                if (tc.concrete_base_type() != null) {
+                    base = EmitTypeCode(tc.concrete_base_type(), ownId, code, varCounter);
+                }
+                String members = "_members" + varCounter[0];
+                StringBuffer memberCode = new StringBuffer();
+                for (int i = 0; i < tc.member_count(); i++) {
+                    TypeCode memberType = tc.member_type(i);
+                    String memberTc = EmitTypeCode(memberType, ownId, code, varCounter);
+                    memberCode.append("      " + members + "[" + i + "] = new org.omg.CORBA.ValueMember (\"" +
+                                      tc.member_name(i) + "\", \"" + MemberTypeId(memberType) + "\", \"" +
+                                      tc.id() + "\", \"\", " + memberTc + ", null, (short) " +
+                                      tc.member_visibility(i) + ");\n");
+                }
+                code.append("      org.omg.CORBA.ValueMember[] " + members +
+                            " = new org.omg.CORBA.ValueMember[" + tc.member_count() + "];\n");
+                code.append(memberCode.toString());
+                expr = "orb.create_value_tc (\"" + tc.id() + "\", \"" + tc.name() + "\", (short) " +
+                       tc.type_modifier() + ", " + base + ", " + members + ")";
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported type code kind in value type: " +
+                                                   KIND_NAMES[kind]);
+        }
+        String var = "_tc" + (varCounter[0]++);
+        code.append("      org.omg.CORBA.TypeCode " + var + " = " + expr + ";\n");
+        return var;
+    }
+
+    private static String MemberTypeId(TypeCode tc) {
+        try {
+            return tc.id();
+        } catch (org.omg.CORBA.TypeCodePackage.BadKind e) {
+            return "";
+        }
+    }
+
+    public static void main(String[] args) {
+        File outDir = new File(".");
+        int start = 0;
+        if ((args.length > 1) && args[0].equals("-d")) {
+            outDir = new File(args[1]);
+            start = 2;
+        }
+        if (args.length <= start) {
+            System.out.println("usage: HelperGenerator [-d outDir] type[=implClass] ...");
+            System.exit(1);
+        }
+        HelperGenerator generator = new HelperGenerator(outDir);
+        try {
+            for (int i = start; i < args.length; i++) {
+                generator.Generate(args[i]);
+            }
+        } catch (Exception e) {
+            System.out.println("generation failed: " + e); e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+}
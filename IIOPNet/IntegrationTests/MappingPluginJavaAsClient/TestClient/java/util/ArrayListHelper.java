@@ -1,10 +1,18 @@
 package java.util;
 
 
-public class ArrayListHelper {
+/**
+* java/util/ArrayListHelper.java .
+* Generated by HelperGenerator from java.util.ArrayList
+* Do not edit, regenerate instead.
+*/
 
+public final class ArrayListHelper implements org.omg.CORBA.portable.BoxedValueHelper
+{
   private static String  _id = "RMI:java.util.ArrayList:F655154F32815380:7881D21D99C7619D";
 
+  private static final ArrayListHelper s_instance = new ArrayListHelper ();
+
   public static String id ()
   {
     return _id;
@@ -12,12 +20,44 @@ public class ArrayListHelper {
 
   public static java.util.ArrayList read (org.omg.CORBA.portable.InputStream istream)
   {
-    return (java.util.ArrayList)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (java.util.ArrayList.class);
+    return (java.util.ArrayList)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (s_instance);
   }
 
   public static void write (org.omg.CORBA.portable.OutputStream ostream, java.util.ArrayList value)
   {
-    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, java.util.ArrayList.class);
-  }    
+    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, s_instance);
+  }
+
+  public String get_id ()
+  {
+    return _id;
+  }
+
+  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)
+  {
+    org.omg.CORBA_2_3.portable.InputStream in = (org.omg.CORBA_2_3.portable.InputStream) istream;
+    in.read_octet (); // stream format version
+    in.read_boolean (); // default fields written
+    int size = in.read_long ();
+    in.read_long (); // capacity
+    java.util.ArrayList result = new java.util.ArrayList (size);
+    for (int i = 0; i < size; i++) {
+      result.add (in.read_abstract_interface ());
+    }
+    return result;
+  }
+
+  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)
+  {
+    java.util.ArrayList list = (java.util.ArrayList) value;
+    int size = list.size ();
+    ostream.write_octet ((byte) 1);
+    ostream.write_boolean (true);
+    ostream.write_long (size);
+    ostream.write_long (size);
+    for (int i = 0; i < size; i++) {
+      javax.rmi.CORBA.Util.writeAbstractObject (ostream, list.get (i));
+    }
+  }
 
-}
\ No newline at end of file
+}
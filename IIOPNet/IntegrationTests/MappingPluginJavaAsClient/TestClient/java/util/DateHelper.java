@@ -1,10 +1,18 @@
 package java.util;
 
 
-public class DateHelper {
+/**
+* java/util/DateHelper.java .
+* Generated by HelperGenerator from java.util.Date
+* Do not edit, regenerate instead.
+*/
 
+public final class DateHelper implements org.omg.CORBA.portable.BoxedValueHelper
+{
   private static String  _id = "RMI:java.util.Date:AC117E28FE36587A:686A81014B597419";
 
+  private static final DateHelper s_instance = new DateHelper ();
+
   public static String id ()
   {
     return _id;
@@ -12,12 +20,31 @@ public class DateHelper {
 
   public static java.util.Date read (org.omg.CORBA.portable.InputStream istream)
   {
-    return (java.util.Date)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (java.util.Date.class);
+    return (java.util.Date)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (s_instance);
   }
 
   public static void write (org.omg.CORBA.portable.OutputStream ostream, java.util.Date value)
   {
-    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, java.util.Date.class);
-  }    
+    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, s_instance);
+  }
+
+  public String get_id ()
+  {
+    return _id;
+  }
+
+  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)
+  {
+    istream.read_octet (); // stream format version
+    istream.read_boolean (); // default fields written
+    return new java.util.Date (istream.read_longlong ());
+  }
+
+  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)
+  {
+    ostream.write_octet ((byte) 1);
+    ostream.write_boolean (true);
+    ostream.write_longlong (((java.util.Date) value).getTime ());
+  }
 
-}
\ No newline at end of file
+}
@@ -3,15 +3,15 @@ package java.util;
 
 /**
 * java/util/HashMapHelper.java .
-* Generated by the IDL-to-Java compiler (portable), version "3.1"
-* from java/util/HashMap.idl
-* vendredi, 14. novembre 2003 14.08. h CET
+* Generated by HelperGenerator from java.util.HashMap
+* Do not edit, regenerate instead.
 */
 
-abstract public class HashMapHelper
+public final class HashMapHelper implements org.omg.CORBA.portable.BoxedValueHelper
 {
   private static String  _id = "RMI:java.util.HashMap:86573568A211C011:0507DAC1C31660D1";
 
+  private static final HashMapHelper s_instance = new HashMapHelper ();
 
   public static String id ()
   {
@@ -20,13 +20,59 @@ abstract public class HashMapHelper
 
   public static java.util.HashMap read (org.omg.CORBA.portable.InputStream istream)
   {
-    return (java.util.HashMap)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (java.util.HashMap.class);
+    return (java.util.HashMap)((org.omg.CORBA_2_3.portable.InputStream) istream).read_value (s_instance);
   }
 
   public static void write (org.omg.CORBA.portable.OutputStream ostream, java.util.HashMap value)
   {
-    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, java.util.HashMap.class);
+    ((org.omg.CORBA_2_3.portable.OutputStream) ostream).write_value (value, s_instance);
   }
 
+  public String get_id ()
+  {
+    return _id;
+  }
+
+  public java.io.Serializable read_value (org.omg.CORBA.portable.InputStream istream)
+  {
+    org.omg.CORBA_2_3.portable.InputStream in = (org.omg.CORBA_2_3.portable.InputStream) istream;
+    in.read_octet (); // stream format version
+    in.read_boolean (); // default fields written
+    float loadFactor = in.read_float ();
+    in.read_long (); // threshold
+    in.read_long (); // capacity
+    int size = in.read_long ();
+    if (!(loadFactor > 0)) {
+      loadFactor = 0.75f;
+    }
+    java.util.HashMap result = new java.util.HashMap ((int) (size / loadFactor) + 1, loadFactor);
+    for (int i = 0; i < size; i++) {
+      Object key = in.read_abstract_interface ();
+      result.put (key, in.read_abstract_interface ());
+    }
+    return result;
+  }
+
+  public void write_value (org.omg.CORBA.portable.OutputStream ostream, java.io.Serializable value)
+  {
+    java.util.HashMap map = (java.util.HashMap) value;
+    int size = map.size ();
+    int capacity = 16;
+    while (capacity * 0.75f < size) {
+      capacity <<= 1;
+    }
+    ostream.write_octet ((byte) 1);
+    ostream.write_boolean (true);
+    ostream.write_float (0.75f);
+    ostream.write_long ((int) (capacity * 0.75f));
+    ostream.write_long (capacity);
+    ostream.write_long (size);
+    java.util.Iterator it = map.entrySet ().iterator ();
+    while (it.hasNext ()) {
+      java.util.Map.Entry entry = (java.util.Map.Entry) it.next ();
+      javax.rmi.CORBA.Util.writeAbstractObject (ostream, entry.getKey ());
+      javax.rmi.CORBA.Util.writeAbstractObject (ostream, entry.getValue ());
+    }
+  }
 
 }
@@ -32,9 +32,6 @@ import javax.ejb.CreateException;
 import javax.ejb.SessionBean;
 import javax.ejb.SessionContext;
 
-import javax.naming.InitialContext;
-import javax.rmi.PortableRemoteObject;
-
 
 
 /**
@@ -42,6 +39,8 @@ import javax.rmi.PortableRemoteObject;
  */
 public class TestBean implements SessionBean {
 
+    private static final String ADDER_HOME = "IntegrationTest/intadder";
+
     private SessionContext m_ctx;
 
  
@@ -89,7 +88,7 @@ public class TestBean implements SessionBean {
 
 
     public double TestIncDouble(double arg) {
-        return arg + 1;
+        return Functions.Instance.TestIncDouble(arg);
     }
 
     public float TestIncFloat(float arg) {
@@ -159,32 +158,43 @@ public class TestBean implements SessionBean {
     }
 
     public String[] CreateTwoElemStringArray(String arg1, String arg2) {
-        String[] result = new String[2];
-        result[0] = arg1;
-        result[1] = arg2;
-        return result;
+        return Functions.Instance.CreateTwoElemStringArray(arg1, arg2);
     }
         
     public int[][] EchoJaggedIntArray(int[][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedIntArray(arg);
     }
         
     public String[][] EchoJaggedStringArray(String[][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedStringArray(arg);
     }
         
     public byte[][][] EchoJaggedByteArray(byte[][][] arg) {
-        return arg;
+        return Functions.Instance.EchoJaggedByteArray(arg);
     }
         
+    /**
+     * the side effect free methods; the results are cached as configured
+     * by the env-entry resultCache of the bean. The proxy is created on the
+     * first call by the class initialization, which the jvm does once and
+     * thread safe, so the calls take no lock of their own.
+     */
+    private static class Functions {
+        // getTestProp is not part of this Test interface
+        static final TestFunctions Instance = (TestFunctions)CachingInterceptor.wrapFromEnvironment(
+            new TestFunctionsImpl(0), TestFunctions.class);
+    }
+
     public IntAdder RetrieveAdder() {
         IntAdder result = null;
         try {
-            InitialContext ic = new InitialContext();
-            Object obj = ic.lookup("IntegrationTest/intadder");
-            IntAdderHome home = (IntAdderHome) PortableRemoteObject.narrow(obj, IntAdderHome.class);
-            result = home.create();
-            
+            HomeLocator locator = HomeLocator.getInstance();
+            try {
+                result = ((IntAdderHome)locator.getHome(ADDER_HOME, IntAdderHome.class)).create();
+            } catch (java.rmi.RemoteException e) {
+                // the cached home is stale, e.g. the adder bean was redeployed
+                result = ((IntAdderHome)locator.refreshHome(ADDER_HOME, IntAdderHome.class)).create();
+            }
         } catch (Exception e) {
             System.err.println("error: " + e);
         }
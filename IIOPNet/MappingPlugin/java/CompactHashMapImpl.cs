@@ -0,0 +1,303 @@
+/* CompactHashMapImpl.cs
+ * 
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ * 
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ * 
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+using System;
+using Ch.Elca.Iiop.Idl;
+
+namespace Ch.Elca.Iiop.JavaCollections {
+
+    /// <summary>
+    /// implementation of the custom valuetype CompactHashMap: all keys are transmitted
+    /// before all values; homogeneous keys / values of a primitive type are transmitted
+    /// without a value header per element.
+    /// </summary>
+    [Serializable]
+    public class CompactHashMapImpl : CompactHashMap {
+
+        #region Constants
+
+        // the element kinds; must be kept in sync with the java CompactHashMap
+        public const byte KIND_OBJECT = 0;
+        public const byte KIND_INT = 1;
+        public const byte KIND_LONG = 2;
+        public const byte KIND_DOUBLE = 3;
+        public const byte KIND_SHORT = 4;
+        public const byte KIND_FLOAT = 5;
+        public const byte KIND_BYTE = 6;
+        public const byte KIND_BOOLEAN = 7;
+        public const byte KIND_CHAR = 8;
+
+        #endregion Constants
+        #region IFields
+
+        /// <remarks>m_keys must never be null</remarks>
+        private object[] m_keys;
+        /// <remarks>m_values must never be null and has the same length as m_keys</remarks>
+        private object[] m_values;
+
+        private byte m_keyKind;
+        private byte m_valueKind;
+
+        #endregion IFields
+        #region IConstructors
+
+        public CompactHashMapImpl() {
+            m_keys = new object[0];
+            m_values = new object[0];
+            m_keyKind = KIND_OBJECT;
+            m_valueKind = KIND_OBJECT;
+        }
+
+        #endregion IConstructors
+        #region IProperties
+
+        public int Size {
+            get {
+                return m_keys.Length;
+            }
+        }
+
+        public byte KeyKind {
+            get {
+                return m_keyKind;
+            }
+        }
+
+        public byte ValueKind {
+            get {
+                return m_valueKind;
+            }
+        }
+
+        #endregion IProperties
+        #region SMethods
+
+        /// <summary>
+        /// returns the kind of all elements, if they are all of the same primitive type;
+        /// otherwise KIND_OBJECT.
+        /// </summary>
+        public static byte DetermineKind(object[] elements) {
+            if (elements.Length == 0 || elements[0] == null) {
+                return KIND_OBJECT;
+            }
+            Type elemType = elements[0].GetType();
+            for (int i = 1; i < elements.Length; i++) {
+                if ((elements[i] == null) || (elements[i].GetType() != elemType)) {
+                    return KIND_OBJECT;
+                }
+            }
+            if (elemType == typeof(System.Int32)) {
+                return KIND_INT;
+            } else if (elemType == typeof(System.Int64)) {
+                return KIND_LONG;
+            } else if (elemType == typeof(System.Double)) {
+                return KIND_DOUBLE;
+            } else if (elemType == typeof(System.Int16)) {
+                return KIND_SHORT;
+            } else if (elemType == typeof(System.Single)) {
+                return KIND_FLOAT;
+            } else if (elemType == typeof(System.Byte)) {
+                return KIND_BYTE;
+            } else if (elemType == typeof(System.Boolean)) {
+                return KIND_BOOLEAN;
+            } else if (elemType == typeof(System.Char)) {
+                return KIND_CHAR;
+            } else {
+                return KIND_OBJECT;
+            }
+        }
+
+        #endregion SMethods
+        #region IMethods
+
+        public object[] GetKeys() {
+            return m_keys;
+        }
+
+        public object[] GetValues() {
+            return m_values;
+        }
+
+        /// <summary>sets the content of the map; keys and values must have the same length</summary>
+        /// <remarks>elements of non-homogeneous key / value arrays must already be
+        /// mapped to their idl representation (e.g. java boxes)</remarks>
+        public void SetContent(object[] keys, object[] values) {
+            if (keys == null || values == null) {
+                keys = new object[0];
+                values = new object[0];
+            }
+            if (keys.Length != values.Length) {
+                throw new ArgumentException("keys and values must have the same length");
+            }
+            m_keys = keys;
+            m_values = values;
+            m_keyKind = DetermineKind(keys);
+            m_valueKind = DetermineKind(values);
+        }
+
+        private object ReadObject(Corba.DataInputStream source) {
+            object result = null;
+            bool isByRefObj = source.read_boolean();
+            if (!isByRefObj) {
+                result = source.read_Value();
+                if (result is BoxedValueBase) {
+                    result = ((BoxedValueBase) result).Unbox();
+                }
+            } else {
+                result = source.read_Object();
+            }
+            return result;
+        }
+
+        private void WriteObject(object val, Corba.DataOutputStream target) {
+            bool isByRef = false;
+            if (val != null) {
+                isByRef = ClsToIdlMapper.IsMappedToConcreteInterface(val.GetType());
+            }
+            target.write_boolean(isByRef);
+            if (!isByRef) {
+                target.write_ValueOfActualType(val);
+            } else {
+                target.write_Object((MarshalByRefObject)val);
+            }
+        }
+
+        private object[] ReadElements(Corba.DataInputStream source, int size, byte kind) {
+            object[] result = new object[size];
+            switch (kind) {
+                case KIND_INT:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_long();
+                    }
+                    break;
+                case KIND_LONG:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_longlong();
+                    }
+                    break;
+                case KIND_DOUBLE:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_double();
+                    }
+                    break;
+                case KIND_SHORT:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_short();
+                    }
+                    break;
+                case KIND_FLOAT:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_float();
+                    }
+                    break;
+                case KIND_BYTE:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_octet();
+                    }
+                    break;
+                case KIND_BOOLEAN:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_boolean();
+                    }
+                    break;
+                case KIND_CHAR:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = source.read_wchar();
+                    }
+                    break;
+                case KIND_OBJECT:
+                    for (int i = 0; i < size; i++) {
+                        result[i] = ReadObject(source);
+                    }
+                    break;
+                default:
+                    throw new omg.org.CORBA.MARSHAL(2000, omg.org.CORBA.CompletionStatus.Completed_MayBe);
+            }
+            return result;
+        }
+
+        private void WriteElements(Corba.DataOutputStream target, object[] elements, byte kind) {
+            for (int i = 0; i < elements.Length; i++) {
+                switch (kind) {
+                    case KIND_INT:
+                        target.write_long((System.Int32)elements[i]);
+                        break;
+                    case KIND_LONG:
+                        target.write_longlong((System.Int64)elements[i]);
+                        break;
+                    case KIND_DOUBLE:
+                        target.write_double((System.Double)elements[i]);
+                        break;
+                    case KIND_SHORT:
+                        target.write_short((System.Int16)elements[i]);
+                        break;
+                    case KIND_FLOAT:
+                        target.write_float((System.Single)elements[i]);
+                        break;
+                    case KIND_BYTE:
+                        target.write_octet((System.Byte)elements[i]);
+                        break;
+                    case KIND_BOOLEAN:
+                        target.write_boolean((System.Boolean)elements[i]);
+                        break;
+                    case KIND_CHAR:
+                        target.write_wchar((System.Char)elements[i]);
+                        break;
+                    default:
+                        WriteObject(elements[i], target);
+                        break;
+                }
+            }
+        }
+
+        public override void Deserialise(Corba.DataInputStream source) {
+            // skip rmi data
+            source.read_octet();
+            source.read_octet();
+            int size = source.read_long();
+            m_keyKind = source.read_octet();
+            m_valueKind = source.read_octet();
+            m_keys = ReadElements(source, size, m_keyKind);
+            m_values = ReadElements(source, size, m_valueKind);
+        }
+
+        public override void Serialize(Corba.DataOutputStream target) {
+            // rmi data
+            target.write_octet(1);
+            target.write_octet(1);
+            target.write_long(m_keys.Length);
+            target.write_octet(m_keyKind);
+            target.write_octet(m_valueKind);
+            WriteElements(target, m_keys, m_keyKind);
+            WriteElements(target, m_values, m_valueKind);
+        }
+
+        #endregion IMethods
+
+    }
+
+}
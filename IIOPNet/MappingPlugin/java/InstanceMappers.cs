@@ -29,6 +29,8 @@
 
 using System;
 using System.Globalization;
+using System.Collections.Generic;
+using System.IO;
 using Ch.Elca.Iiop.Idl;
 using omg.org.CORBA;
 
@@ -186,6 +188,167 @@ namespace Ch.Elca.Iiop.JavaCollectionMappers {
 
     }
     
+    /// <summary>
+    /// maps instances of Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl to instances 
+    /// of System.Collections.Generic.Dictionary&lt;object, object&gt; and vice versa.
+    /// </summary>
+    public class CompactHashMapMapper : CollectionMapperBase, ICustomMapper {
+
+        private void UnboxAll(object[] elements) {
+            for (int i = 0; i < elements.Length; i++) {
+                elements[i] = UnboxJavaInstanceIfNeeded(elements[i]);
+            }
+        }
+
+        private void BoxAll(object[] elements) {
+            for (int i = 0; i < elements.Length; i++) {
+                elements[i] = BoxClsInstanceIfNeeded(elements[i]);
+            }
+        }
+
+        public object CreateClsForIdlInstance(object idlInstance) {
+            Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl source = 
+                (Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl)idlInstance;
+            object[] keys = source.GetKeys();
+            object[] values = source.GetValues();
+            // only elements of non-homogeneous sequences may contain java boxes
+            if (source.KeyKind == Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.KIND_OBJECT) {
+                UnboxAll(keys);
+            }
+            if (source.ValueKind == Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.KIND_OBJECT) {
+                UnboxAll(values);
+            }
+            Dictionary<object, object> result = new Dictionary<object, object>(keys.Length);
+            for (int i = 0; i < keys.Length; i++) {
+                result.Add(keys[i], values[i]);
+            }
+            return result;
+        }
+
+        public object CreateIdlForClsInstance(object clsInstance) {
+            Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl result = 
+                new Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl();
+            Dictionary<object, object> source = (Dictionary<object, object>)clsInstance;
+            object[] keys = new object[source.Count];
+            object[] values = new object[source.Count];
+            source.Keys.CopyTo(keys, 0);
+            source.Values.CopyTo(values, 0);
+            // homogeneous primitive elements are transmitted unboxed
+            if (Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.DetermineKind(keys) ==
+                Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.KIND_OBJECT) {
+                BoxAll(keys);
+            }
+            if (Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.DetermineKind(values) ==
+                Ch.Elca.Iiop.JavaCollections.CompactHashMapImpl.KIND_OBJECT) {
+                BoxAll(values);
+            }
+            result.SetContent(keys, values);
+            return result;
+        }
+
+    }
+
+    /// <summary>
+    /// maps instances of Ch.Elca.Iiop.JavaCollections.IntArrayListImpl to instances 
+    /// of System.Collections.Generic.List&lt;int&gt; and vice versa.
+    /// </summary>
+    public class IntArrayListMapper : ICustomMapper {
+
+        public object CreateClsForIdlInstance(object idlInstance) {
+            Ch.Elca.Iiop.JavaCollections.IntArrayListImpl source = 
+                (Ch.Elca.Iiop.JavaCollections.IntArrayListImpl)idlInstance;
+            return new List<int>(source.GetElements());
+        }
+
+        public object CreateIdlForClsInstance(object clsInstance) {
+            Ch.Elca.Iiop.JavaCollections.IntArrayListImpl result = 
+                new Ch.Elca.Iiop.JavaCollections.IntArrayListImpl();
+            List<int> source = (List<int>)clsInstance;
+            result.SetElements(source.ToArray());
+            return result;
+        }
+
+    }
+
+    /// <summary>
+    /// maps instances of Ch.Elca.Iiop.JavaCollections.LongArrayListImpl to instances 
+    /// of System.Collections.Generic.List&lt;long&gt; and vice versa.
+    /// </summary>
+    public class LongArrayListMapper : ICustomMapper {
+
+        public object CreateClsForIdlInstance(object idlInstance) {
+            Ch.Elca.Iiop.JavaCollections.LongArrayListImpl source = 
+                (Ch.Elca.Iiop.JavaCollections.LongArrayListImpl)idlInstance;
+            return new List<long>(source.GetElements());
+        }
+
+        public object CreateIdlForClsInstance(object clsInstance) {
+            Ch.Elca.Iiop.JavaCollections.LongArrayListImpl result = 
+                new Ch.Elca.Iiop.JavaCollections.LongArrayListImpl();
+            List<long> source = (List<long>)clsInstance;
+            result.SetElements(source.ToArray());
+            return result;
+        }
+
+    }
+
+    /// <summary>
+    /// maps instances of Ch.Elca.Iiop.JavaCollections.DoubleArrayListImpl to instances 
+    /// of System.Collections.Generic.List&lt;double&gt; and vice versa.
+    /// </summary>
+    public class DoubleArrayListMapper : ICustomMapper {
+
+        public object CreateClsForIdlInstance(object idlInstance) {
+            Ch.Elca.Iiop.JavaCollections.DoubleArrayListImpl source = 
+                (Ch.Elca.Iiop.JavaCollections.DoubleArrayListImpl)idlInstance;
+            return new List<double>(source.GetElements());
+        }
+
+        public object CreateIdlForClsInstance(object clsInstance) {
+            Ch.Elca.Iiop.JavaCollections.DoubleArrayListImpl result = 
+                new Ch.Elca.Iiop.JavaCollections.DoubleArrayListImpl();
+            List<double> source = (List<double>)clsInstance;
+            result.SetElements(source.ToArray());
+            return result;
+        }
+
+    }
+
+    /// <summary>
+    /// maps instances of Ch.Elca.Iiop.JavaCollections.OctetBufferImpl to instances
+    /// of System.IO.MemoryStream and vice versa. The received content is wrapped
+    /// by the MemoryStream without copying it.
+    /// </summary>
+    public class OctetBufferMapper : ICustomMapper {
+
+        public object CreateClsForIdlInstance(object idlInstance) {
+            Ch.Elca.Iiop.JavaCollections.OctetBufferImpl source =
+                (Ch.Elca.Iiop.JavaCollections.OctetBufferImpl)idlInstance;
+            byte[] content = source.GetContent();
+            return new MemoryStream(content, 0, content.Length, true, true);
+        }
+
+        public object CreateIdlForClsInstance(object clsInstance) {
+            Ch.Elca.Iiop.JavaCollections.OctetBufferImpl result =
+                new Ch.Elca.Iiop.JavaCollections.OctetBufferImpl();
+            MemoryStream source = (MemoryStream)clsInstance;
+            byte[] content;
+            try {
+                // use the buffer directly, if it contains exactly the stream content
+                content = source.GetBuffer();
+                if (content.Length != source.Length) {
+                    content = source.ToArray();
+                }
+            } catch (UnauthorizedAccessException) {
+                // buffer not publicly visible
+                content = source.ToArray();
+            }
+            result.SetContent(content);
+            return result;
+        }
+
+    }
+
     public class DateMapper : ICustomMapper {
         
         private static DateTime s_javaOffsetBase;
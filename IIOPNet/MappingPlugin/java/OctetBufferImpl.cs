@@ -0,0 +1,83 @@
+/* OctetBufferImpl.cs
+ * 
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ * 
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ * 
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+using System;
+
+namespace Ch.Elca.Iiop.JavaCollections {
+
+    /// <summary>
+    /// implementation of the custom valuetype OctetBuffer (a java.nio.ByteBuffer wrapper):
+    /// the content is transmitted as a plain sequence of octet after the rmi custom
+    /// marshalling header.
+    /// </summary>
+    [Serializable]
+    public class OctetBufferImpl : OctetBuffer {
+
+        /// <summary>the content of the buffer</summary>
+        /// <remarks>m_content must never be null</remarks>
+        private byte[] m_content;
+
+        public OctetBufferImpl() {
+            m_content = new byte[0];
+        }
+
+        #region methods needed by mapper
+
+        public override void Deserialise(Corba.DataInputStream arg) {
+            // skip rmi data
+            arg.read_octet();
+            arg.read_octet();
+            // the content as sequence (length + octets), read in one block
+            m_content = arg.read_octet_array();
+        }
+
+        public override void Serialize(Corba.DataOutputStream arg) {
+            // rmi data
+            arg.write_octet(1);
+            arg.write_octet(1);
+            // the content as sequence (length + octets)
+            arg.write_octet_array(m_content, 0, m_content.Length);
+        }
+
+        public byte[] GetContent() {
+            return m_content;
+        }
+
+        /// <summary>sets the content; the array is not copied</summary>
+        public void SetContent(byte[] arg) {
+            if (arg != null) {
+                m_content = arg;
+            } else {
+                m_content = new byte[0];
+            }
+        }
+
+        #endregion methods needed by mapper
+
+    }
+
+}
@@ -0,0 +1,212 @@
+/* PrimitiveListsImpl.cs
+ * 
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ * 
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ * 
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+using System;
+
+namespace Ch.Elca.Iiop.JavaCollections {
+
+    /// <summary>
+    /// implementation of the custom valuetype IntArrayList: the elements are transmitted
+    /// as a plain sequence of long after the rmi custom marshalling header.
+    /// </summary>
+    [Serializable]
+    public class IntArrayListImpl : IntArrayList {
+
+        /// <summary>the elements in the list</summary>
+        /// <remarks>m_elements must never be null</remarks>
+        private int[] m_elements;
+
+        public IntArrayListImpl() {
+            m_elements = new int[0];
+        }
+
+        #region methods needed by mapper
+
+        public override void Deserialise(Corba.DataInputStream arg) {
+            // skip rmi data
+            arg.read_octet();
+            arg.read_octet();
+            // the elements as sequence (length + values)
+            int size = arg.read_ulong();
+            m_elements = new int[size];
+            for (int i = 0; i < size; i++) {
+                m_elements[i] = arg.read_long();
+            }
+        }
+
+        public override void Serialize(Corba.DataOutputStream arg) {
+            // rmi data
+            arg.write_octet(1);
+            arg.write_octet(1);
+            // the elements as sequence (length + values)
+            arg.write_long_array(m_elements, 0, m_elements.Length);
+        }
+
+        public int Size {
+            get {
+                return m_elements.Length;
+            }
+        }
+
+        public int[] GetElements() {
+            return m_elements;
+        }
+
+        /// <summary>sets the contents of the list</summary>
+        public void SetElements(int[] arg) {
+            if (arg != null) {
+                m_elements = arg;
+            } else {
+                m_elements = new int[0];
+            }
+        }
+
+        #endregion methods needed by mapper
+
+    }
+
+    /// <summary>
+    /// implementation of the custom valuetype LongArrayList: the elements are transmitted
+    /// as a plain sequence of longlong after the rmi custom marshalling header.
+    /// </summary>
+    [Serializable]
+    public class LongArrayListImpl : LongArrayList {
+
+        /// <summary>the elements in the list</summary>
+        /// <remarks>m_elements must never be null</remarks>
+        private long[] m_elements;
+
+        public LongArrayListImpl() {
+            m_elements = new long[0];
+        }
+
+        #region methods needed by mapper
+
+        public override void Deserialise(Corba.DataInputStream arg) {
+            // skip rmi data
+            arg.read_octet();
+            arg.read_octet();
+            // the elements as sequence (length + values)
+            int size = arg.read_ulong();
+            m_elements = new long[size];
+            for (int i = 0; i < size; i++) {
+                m_elements[i] = arg.read_longlong();
+            }
+        }
+
+        public override void Serialize(Corba.DataOutputStream arg) {
+            // rmi data
+            arg.write_octet(1);
+            arg.write_octet(1);
+            // the elements as sequence (length + values)
+            arg.write_longlong_array(m_elements, 0, m_elements.Length);
+        }
+
+        public int Size {
+            get {
+                return m_elements.Length;
+            }
+        }
+
+        public long[] GetElements() {
+            return m_elements;
+        }
+
+        /// <summary>sets the contents of the list</summary>
+        public void SetElements(long[] arg) {
+            if (arg != null) {
+                m_elements = arg;
+            } else {
+                m_elements = new long[0];
+            }
+        }
+
+        #endregion methods needed by mapper
+
+    }
+
+    /// <summary>
+    /// implementation of the custom valuetype DoubleArrayList: the elements are transmitted
+    /// as a plain sequence of double after the rmi custom marshalling header.
+    /// </summary>
+    [Serializable]
+    public class DoubleArrayListImpl : DoubleArrayList {
+
+        /// <summary>the elements in the list</summary>
+        /// <remarks>m_elements must never be null</remarks>
+        private double[] m_elements;
+
+        public DoubleArrayListImpl() {
+            m_elements = new double[0];
+        }
+
+        #region methods needed by mapper
+
+        public override void Deserialise(Corba.DataInputStream arg) {
+            // skip rmi data
+            arg.read_octet();
+            arg.read_octet();
+            // the elements as sequence (length + values)
+            int size = arg.read_ulong();
+            m_elements = new double[size];
+            for (int i = 0; i < size; i++) {
+                m_elements[i] = arg.read_double();
+            }
+        }
+
+        public override void Serialize(Corba.DataOutputStream arg) {
+            // rmi data
+            arg.write_octet(1);
+            arg.write_octet(1);
+            // the elements as sequence (length + values)
+            arg.write_double_array(m_elements, 0, m_elements.Length);
+        }
+
+        public int Size {
+            get {
+                return m_elements.Length;
+            }
+        }
+
+        public double[] GetElements() {
+            return m_elements;
+        }
+
+        /// <summary>sets the contents of the list</summary>
+        public void SetElements(double[] arg) {
+            if (arg != null) {
+                m_elements = arg;
+            } else {
+                m_elements = new double[0];
+            }
+        }
+
+        #endregion methods needed by mapper
+
+    }
+
+}
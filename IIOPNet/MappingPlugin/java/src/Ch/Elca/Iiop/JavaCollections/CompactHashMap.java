@@ -0,0 +1,256 @@
+/* CompactHashMap.java
+ *
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.JavaCollections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * A hash map with a compact wire representation, which can be used
+ * instead of java.util.HashMap in remote interfaces.
+ * java.util.HashMap writes one (key, value) pair after the other, each of them as
+ * a separate value. This map writes all keys followed by all values. If all keys
+ * (or all values) are boxed primitives of the same type, they are written as plain
+ * primitives without a value header per element.
+ * The mapping plugin maps this type to
+ * System.Collections.Generic.Dictionary&lt;object, object&gt; on the .NET side.
+ */
+public class CompactHashMap extends AbstractMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // the element kinds of the key and the value sequence; must be kept
+    // in sync with CompactHashMapImpl in the .NET mapping plugin
+    static final byte KIND_OBJECT = 0;
+    static final byte KIND_INT = 1;
+    static final byte KIND_LONG = 2;
+    static final byte KIND_DOUBLE = 3;
+    static final byte KIND_SHORT = 4;
+    static final byte KIND_FLOAT = 5;
+    static final byte KIND_BYTE = 6;
+    static final byte KIND_BOOLEAN = 7;
+    static final byte KIND_CHAR = 8;
+
+    private transient HashMap m_map;
+
+    public CompactHashMap() {
+        m_map = new HashMap();
+    }
+
+    public CompactHashMap(int initialCapacity) {
+        m_map = new HashMap(initialCapacity);
+    }
+
+    public CompactHashMap(Map content) {
+        m_map = new HashMap(content);
+    }
+
+    public Set entrySet() {
+        return m_map.entrySet();
+    }
+
+    public int size() {
+        return m_map.size();
+    }
+
+    public boolean containsKey(Object key) {
+        return m_map.containsKey(key);
+    }
+
+    public Object get(Object key) {
+        return m_map.get(key);
+    }
+
+    public Object put(Object key, Object value) {
+        return m_map.put(key, value);
+    }
+
+    public Object remove(Object key) {
+        return m_map.remove(key);
+    }
+
+    public void clear() {
+        m_map.clear();
+    }
+
+    /**
+     * returns the kind of all elements, if they are all boxed primitives
+     * of the same type; otherwise KIND_OBJECT
+     */
+    private static byte DetermineKind(Object[] elements) {
+        if (elements.length == 0 || elements[0] == null) {
+            return KIND_OBJECT;
+        }
+        Class elemType = elements[0].getClass();
+        for (int i = 1; i < elements.length; i++) {
+            if ((elements[i] == null) || (elements[i].getClass() != elemType)) {
+                return KIND_OBJECT;
+            }
+        }
+        if (elemType == Integer.class) {
+            return KIND_INT;
+        } else if (elemType == Long.class) {
+            return KIND_LONG;
+        } else if (elemType == Double.class) {
+            return KIND_DOUBLE;
+        } else if (elemType == Short.class) {
+            return KIND_SHORT;
+        } else if (elemType == Float.class) {
+            return KIND_FLOAT;
+        } else if (elemType == Byte.class) {
+            return KIND_BYTE;
+        } else if (elemType == Boolean.class) {
+            return KIND_BOOLEAN;
+        } else if (elemType == Character.class) {
+            return KIND_CHAR;
+        } else {
+            return KIND_OBJECT;
+        }
+    }
+
+    private static void WriteElements(ObjectOutputStream s, Object[] elements,
+                                      byte kind) throws IOException {
+        for (int i = 0; i < elements.length; i++) {
+            switch (kind) {
+                case KIND_INT:
+                    s.writeInt(((Integer)elements[i]).intValue());
+                    break;
+                case KIND_LONG:
+                    s.writeLong(((Long)elements[i]).longValue());
+                    break;
+                case KIND_DOUBLE:
+                    s.writeDouble(((Double)elements[i]).doubleValue());
+                    break;
+                case KIND_SHORT:
+                    s.writeShort(((Short)elements[i]).shortValue());
+                    break;
+                case KIND_FLOAT:
+                    s.writeFloat(((Float)elements[i]).floatValue());
+                    break;
+                case KIND_BYTE:
+                    s.writeByte(((Byte)elements[i]).byteValue());
+                    break;
+                case KIND_BOOLEAN:
+                    s.writeBoolean(((Boolean)elements[i]).booleanValue());
+                    break;
+                case KIND_CHAR:
+                    s.writeChar(((Character)elements[i]).charValue());
+                    break;
+                default:
+                    s.writeObject(elements[i]);
+                    break;
+            }
+        }
+    }
+
+    private static Object[] ReadElements(ObjectInputStream s, int size,
+                                         byte kind) throws IOException, ClassNotFoundException {
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            switch (kind) {
+                case KIND_INT:
+                    result[i] = new Integer(s.readInt());
+                    break;
+                case KIND_LONG:
+                    result[i] = new Long(s.readLong());
+                    break;
+                case KIND_DOUBLE:
+                    result[i] = new Double(s.readDouble());
+                    break;
+                case KIND_SHORT:
+                    result[i] = new Short(s.readShort());
+                    break;
+                case KIND_FLOAT:
+                    result[i] = new Float(s.readFloat());
+                    break;
+                case KIND_BYTE:
+                    result[i] = new Byte(s.readByte());
+                    break;
+                case KIND_BOOLEAN:
+                    result[i] = Boolean.valueOf(s.readBoolean());
+                    break;
+                case KIND_CHAR:
+                    result[i] = new Character(s.readChar());
+                    break;
+                case KIND_OBJECT:
+                    result[i] = s.readObject();
+                    break;
+                default:
+                    throw new IOException("unknown element kind: " + kind);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * writes the size, the kind of the keys and the values, followed by
+     * the keys and then the values.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        int size = m_map.size();
+        Object[] keys = new Object[size];
+        Object[] values = new Object[size];
+        Iterator it = m_map.entrySet().iterator();
+        for (int i = 0; i < size; i++) {
+            Map.Entry entry = (Map.Entry)it.next();
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+        }
+        byte keyKind = DetermineKind(keys);
+        byte valueKind = DetermineKind(values);
+        s.writeInt(size);
+        s.writeByte(keyKind);
+        s.writeByte(valueKind);
+        WriteElements(s, keys, keyKind);
+        WriteElements(s, values, valueKind);
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        byte keyKind = s.readByte();
+        byte valueKind = s.readByte();
+        Object[] keys = ReadElements(s, size, keyKind);
+        Object[] values = ReadElements(s, size, valueKind);
+        // presize, no rehashing needed while filling
+        m_map = new HashMap((int)(size / 0.75f) + 1);
+        for (int i = 0; i < size; i++) {
+            m_map.put(keys[i], values[i]);
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/* DoubleArrayList.java
+ *
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.JavaCollections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+
+/**
+ * A growable list of double values backed by a double[].
+ * In contrast to java.util.ArrayList, the elements are not boxed into
+ * java.lang.Double instances: on the wire, the content is written as a
+ * plain IDL sequence&lt;double&gt; (length followed by the values).
+ * The mapping plugin maps this type to
+ * System.Collections.Generic.List&lt;double&gt; on the .NET side.
+ */
+public class DoubleArrayList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /** the elements; only the first m_size entries are valid */
+    private transient double[] m_elements;
+
+    private transient int m_size;
+
+    public DoubleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DoubleArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("illegal capacity: " + initialCapacity);
+        }
+        m_elements = new double[initialCapacity];
+        m_size = 0;
+    }
+
+    /** creates a list containing a copy of the given values */
+    public DoubleArrayList(double[] values) {
+        m_elements = (double[])values.clone();
+        m_size = values.length;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public double get(int index) {
+        CheckIndex(index);
+        return m_elements[index];
+    }
+
+    public double set(int index, double val) {
+        CheckIndex(index);
+        double old = m_elements[index];
+        m_elements[index] = val;
+        return old;
+    }
+
+    public void add(double val) {
+        ensureCapacity(m_size + 1);
+        m_elements[m_size++] = val;
+    }
+
+    public void clear() {
+        m_size = 0;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > m_elements.length) {
+            int newCapacity = (m_elements.length * 3) / 2 + 1;
+            if (newCapacity < minCapacity) {
+                newCapacity = minCapacity;
+            }
+            double[] newElements = new double[newCapacity];
+            System.arraycopy(m_elements, 0, newElements, 0, m_size);
+            m_elements = newElements;
+        }
+    }
+
+    public void trimToSize() {
+        if (m_size < m_elements.length) {
+            double[] newElements = new double[m_size];
+            System.arraycopy(m_elements, 0, newElements, 0, m_size);
+            m_elements = newElements;
+        }
+    }
+
+    /** returns a copy of the elements */
+    public double[] toArray() {
+        double[] result = new double[m_size];
+        System.arraycopy(m_elements, 0, result, 0, m_size);
+        return result;
+    }
+
+    private void CheckIndex(int index) {
+        if ((index < 0) || (index >= m_size)) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + m_size);
+        }
+    }
+
+    public boolean equals(Object arg) {
+        if (!(arg instanceof DoubleArrayList)) {
+            return false;
+        }
+        DoubleArrayList other = (DoubleArrayList)arg;
+        if (other.m_size != m_size) {
+            return false;
+        }
+        for (int i = 0; i < m_size; i++) {
+            if (Double.doubleToLongBits(other.m_elements[i]) != Double.doubleToLongBits(m_elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < m_size; i++) {
+            long bits = Double.doubleToLongBits(m_elements[i]);
+            result = 31 * result + (int)(bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+    /**
+     * writes the elements as sequence: the length, followed by the values.
+     * Only the used part of the backing array is transmitted.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(m_size);
+        for (int i = 0; i < m_size; i++) {
+            s.writeDouble(m_elements[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        m_size = s.readInt();
+        // presize exactly, no growing needed while reading
+        m_elements = new double[m_size];
+        for (int i = 0; i < m_size; i++) {
+            m_elements[i] = s.readDouble();
+        }
+    }
+
+}
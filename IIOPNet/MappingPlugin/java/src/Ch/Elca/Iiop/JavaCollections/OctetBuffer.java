@@ -0,0 +1,114 @@
+/* OctetBuffer.java
+ *
+ * Project: IIOP.NET
+ * Mapping-Plugin
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.JavaCollections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Serializable wrapper for a java.nio.ByteBuffer, which may be a heap or
+ * a direct buffer. java.nio.ByteBuffer itself is not serializable and can't
+ * be used in a remote interface.
+ * On the wire, the remaining bytes of the buffer (position to limit) are
+ * written as a plain IDL sequence&lt;octet&gt;: a heap buffer is written
+ * directly from its backing array, a direct buffer is copied once with a bulk
+ * get. The position of the wrapped buffer is not changed by marshalling.
+ * The mapping plugin maps this type to System.IO.MemoryStream on the .NET side.
+ */
+public class OctetBuffer implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient ByteBuffer m_buffer;
+
+    /** wraps an empty buffer */
+    public OctetBuffer() {
+        this(ByteBuffer.allocate(0));
+    }
+
+    /** wraps the given buffer; the buffer is not copied */
+    public OctetBuffer(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("buffer must not be null");
+        }
+        m_buffer = buffer;
+    }
+
+    /**
+     * returns the wrapped buffer; for a deserialised instance a heap buffer
+     * containing the received bytes.
+     */
+    public ByteBuffer getBuffer() {
+        return m_buffer;
+    }
+
+    /** the number of bytes, which are transmitted */
+    public int size() {
+        return m_buffer.remaining();
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof OctetBuffer)) {
+            return false;
+        }
+        return m_buffer.equals(((OctetBuffer)other).m_buffer);
+    }
+
+    public int hashCode() {
+        return m_buffer.hashCode();
+    }
+
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        int length = m_buffer.remaining();
+        s.writeInt(length);
+        if (m_buffer.hasArray()) {
+            s.write(m_buffer.array(), m_buffer.arrayOffset() + m_buffer.position(), length);
+        } else {
+            // the content must be written with one write: the sun orb
+            // computes wrong chunk lengths for several writes in a custom value
+            byte[] content = new byte[length];
+            m_buffer.duplicate().get(content);
+            s.write(content);
+        }
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int length = s.readInt();
+        // read directly into the backing array of the result
+        byte[] content = new byte[length];
+        s.readFully(content);
+        m_buffer = ByteBuffer.wrap(content);
+    }
+
+}
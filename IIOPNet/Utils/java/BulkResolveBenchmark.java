@@ -0,0 +1,152 @@
+/* BulkResolveBenchmark.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+
+import org.omg.CORBA.ORB;
+import org.omg.CosNaming.NameComponent;
+import org.omg.CosNaming.NamingContext;
+import org.omg.CosNaming.NamingContextHelper;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.BulkResolver;
+import Ch.Elca.Iiop.Naming.EmbeddedNameService;
+
+
+/**
+ * Measures the startup of a client resolving many services: a startup
+ * creates an orb, resolves the root context with corbaloc and resolves
+ * all names. The names are resolved
+ * - one resolve request after the other,
+ * - with the BulkResolver fallback for standard name services
+ *   (concurrent resolve requests over the same connection),
+ * - with the bulk operation of the EmbeddedNameService.
+ * The last column only measures resolving the names with a connected orb.
+ *
+ * Usage: java BulkResolveBenchmark [nrOfNames] [port] [nrOfStartups]
+ */
+public class BulkResolveBenchmark {
+
+    private static final int SEQUENTIAL = 0;
+    private static final int PIPELINED = 1;
+    private static final int BULK = 2;
+
+    private String m_corbaloc;
+    private String[] m_names;
+    private NameComponent[][] m_parsed;
+
+    public BulkResolveBenchmark(String corbaloc, String[] names) {
+        m_corbaloc = corbaloc;
+        m_names = names;
+        m_parsed = new NameComponent[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            m_parsed[i] = new NameComponent[] { new NameComponent(names[i], "") };
+        }
+    }
+
+    private void Resolve(NamingContext nc, int mode) throws Exception {
+        if (mode == SEQUENTIAL) {
+            for (int i = 0; i < m_parsed.length; i++) {
+                nc.resolve(m_parsed[i]);
+            }
+            return;
+        }
+        BulkResolver resolver = new BulkResolver(nc, mode == BULK, BulkResolver.DEFAULT_NR_OF_THREADS);
+        org.omg.CORBA.Object[] result = resolver.resolveAll(m_names);
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                throw new Exception("not resolved: " + m_names[i]);
+            }
+        }
+    }
+
+    /** returns the microseconds per startup */
+    private long MeasureStartup(int mode, int nrOfStartups) throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfStartups; i++) {
+            ORB orb = ORB.init(new String[0], new Properties());
+            NamingContext nc = NamingContextHelper.narrow(orb.string_to_object(m_corbaloc));
+            Resolve(nc, mode);
+            orb.destroy();
+        }
+        return (System.currentTimeMillis() - start) * 1000 / nrOfStartups;
+    }
+
+    /** returns the microseconds for resolving the names with a connected orb */
+    private long MeasureResolve(int mode, int nrOfRuns) throws Exception {
+        ORB orb = ORB.init(new String[0], new Properties());
+        NamingContext nc = NamingContextHelper.narrow(orb.string_to_object(m_corbaloc));
+        Resolve(nc, mode);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfRuns; i++) {
+            Resolve(nc, mode);
+        }
+        long result = (System.currentTimeMillis() - start) * 1000 / nrOfRuns;
+        orb.destroy();
+        return result;
+    }
+
+    private void Print(String label, int mode, int nrOfStartups) throws Exception {
+        long startup = MeasureStartup(mode, nrOfStartups);
+        long resolve = MeasureResolve(mode, nrOfStartups);
+        System.out.println(Table.pad(label, 16) + Table.pad(String.valueOf(startup), 16) + resolve);
+    }
+
+    public void Run(int nrOfStartups) throws Exception {
+        // warm up
+        for (int mode = SEQUENTIAL; mode <= BULK; mode++) {
+            MeasureStartup(mode, nrOfStartups / 10 + 1);
+        }
+        System.out.println(m_names.length + " names, " + nrOfStartups + " startups");
+        System.out.println(Table.pad("mode", 16) + Table.pad("us/startup", 16) + "us/resolve all");
+        Print("sequential", SEQUENTIAL, nrOfStartups);
+        Print("pipelined", PIPELINED, nrOfStartups);
+        Print("bulk", BULK, nrOfStartups);
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfNames = (args.length > 0 ? Integer.parseInt(args[0]) : 50);
+            int port = (args.length > 1 ? Integer.parseInt(args[1]) : 8099);
+            int nrOfStartups = (args.length > 2 ? Integer.parseInt(args[2]) : 200);
+
+            EmbeddedNameService service = new EmbeddedNameService(port);
+            String[] names = new String[nrOfNames];
+            org.omg.CORBA.Object[] objs = new org.omg.CORBA.Object[nrOfNames];
+            for (int i = 0; i < nrOfNames; i++) {
+                names[i] = "service" + i;
+                objs[i] = service.getRootContext();
+            }
+            service.bindAll(names, objs, false);
+            new BulkResolveBenchmark(service.getCorbaloc("localhost"), names).Run(nrOfStartups);
+            service.shutdown();
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
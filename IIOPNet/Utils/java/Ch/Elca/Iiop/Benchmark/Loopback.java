@@ -0,0 +1,70 @@
+/* Loopback.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Benchmark;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Stub;
+
+import org.omg.CORBA.ORB;
+
+
+/**
+ * The two ORBs of a benchmark, which calls its server objects over a loopback
+ * iiop connection in the same vm: an object is connected to the server ORB
+ * and called through a stub of the client ORB, so every call is marshalled.
+ */
+public final class Loopback {
+
+    private ORB m_serverOrb;
+    private ORB m_clientOrb;
+
+    public Loopback() {
+        m_serverOrb = ORB.init(new String[0], null);
+        m_clientOrb = ORB.init(new String[0], null);
+    }
+
+    /**
+     * connects impl to the server ORB and returns a stub of the client ORB
+     * for it, narrowed to type
+     */
+    public Object export(Remote impl, Class type) throws RemoteException {
+        Stub stub = (Stub)PortableRemoteObject.toStub(impl);
+        stub.connect(m_serverOrb);
+        String ior = m_serverOrb.object_to_string(stub);
+        return PortableRemoteObject.narrow(m_clientOrb.string_to_object(ior), type);
+    }
+
+    public void destroy() {
+        m_clientOrb.destroy();
+        m_serverOrb.destroy();
+    }
+
+}
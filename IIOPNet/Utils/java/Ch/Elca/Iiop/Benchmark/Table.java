@@ -0,0 +1,63 @@
+/* Table.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Benchmark;
+
+
+/**
+ * Formats the result tables printed by the benchmarks: left aligned columns
+ * of a fixed width and measurements rounded to a few decimals.
+ */
+public final class Table {
+
+    private Table() {
+    }
+
+    /** pads val with blanks on the right to width characters */
+    public static String pad(String val, int width) {
+        StringBuffer result = new StringBuffer(val);
+        while (result.length() < width) {
+            result.append(' ');
+        }
+        return result.toString();
+    }
+
+    /** rounds val to two decimals */
+    public static String format(double val) {
+        return format(val, 2);
+    }
+
+    /** rounds val to the given number of decimals; no decimal point for 0 */
+    public static String format(double val, int decimals) {
+        if (decimals <= 0) {
+            return String.valueOf(Math.round(val));
+        }
+        double factor = Math.pow(10, decimals);
+        return String.valueOf(Math.round(val * factor) / factor);
+    }
+
+}
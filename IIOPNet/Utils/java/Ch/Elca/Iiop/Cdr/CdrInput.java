@@ -0,0 +1,122 @@
+/* CdrInput.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Cdr;
+
+import org.omg.CORBA.MARSHAL;
+
+
+/**
+ * Reads a CDR encapsulation (e.g. an IOR, the data of a tagged profile or a
+ * service context) in either byte order; only the primitive types needed by
+ * the interceptors of Utils are supported, so no IDL stubs are needed.
+ * Malformed data causes a MARSHAL exception.
+ */
+public class CdrInput {
+
+    private byte[] m_data;
+    private int m_pos;
+    private boolean m_littleEndian;
+
+    /** reads the encapsulation data, starting with the byte order flag */
+    public CdrInput(byte[] data) {
+        m_data = data;
+        m_littleEndian = (readOctet() & 1) != 0;
+    }
+
+    public int readOctet() {
+        Check(1);
+        return m_data[m_pos++] & 0xff;
+    }
+
+    public boolean readBoolean() {
+        return readOctet() != 0;
+    }
+
+    public int readShort() {
+        Align(2);
+        return (short)ReadBytes(2);
+    }
+
+    public int readLong() {
+        Align(4);
+        return (int)ReadBytes(4);
+    }
+
+    public long readLongLong() {
+        Align(8);
+        return ReadBytes(8);
+    }
+
+    /** reads a sequence&lt;octet&gt; */
+    public byte[] readOctets() {
+        int length = readLong();
+        if (length < 0) {
+            throw new MARSHAL("negative sequence length");
+        }
+        Check(length);
+        byte[] result = new byte[length];
+        System.arraycopy(m_data, m_pos, result, 0, length);
+        m_pos += length;
+        return result;
+    }
+
+    /** reads an iso-8859-1 string: the length includes the terminating 0 */
+    public String readString() {
+        byte[] chars = readOctets();
+        char[] result = new char[Math.max(chars.length - 1, 0)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (char)(chars[i] & 0xff);
+        }
+        return new String(result);
+    }
+
+    private long ReadBytes(int count) {
+        Check(count);
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (m_littleEndian ? m_pos + count - 1 - i : m_pos + i);
+            result = (result << 8) | (m_data[index] & 0xff);
+        }
+        m_pos += count;
+        return result;
+    }
+
+    private void Align(int boundary) {
+        // alignment is relative to the start of the encapsulation
+        while ((m_pos % boundary) != 0) {
+            m_pos++;
+        }
+    }
+
+    private void Check(int count) {
+        if (m_pos + count > m_data.length) {
+            throw new MARSHAL("encapsulation too short");
+        }
+    }
+
+}
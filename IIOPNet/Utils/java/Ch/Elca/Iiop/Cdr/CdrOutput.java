@@ -0,0 +1,92 @@
+/* CdrOutput.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Cdr;
+
+import java.io.ByteArrayOutputStream;
+
+
+/**
+ * Writes a CDR encapsulation in big endian byte order; the counterpart of
+ * CdrInput for the same primitive types.
+ */
+public class CdrOutput {
+
+    private ByteArrayOutputStream m_out = new ByteArrayOutputStream();
+
+    /** starts an encapsulation with the byte order flag */
+    public CdrOutput() {
+        m_out.write(0); // big endian
+    }
+
+    public void writeOctet(int value) {
+        m_out.write(value);
+    }
+
+    public void writeBoolean(boolean value) {
+        m_out.write(value ? 1 : 0);
+    }
+
+    public void writeShort(int value) {
+        Align(2);
+        m_out.write(value >> 8);
+        m_out.write(value);
+    }
+
+    public void writeLong(int value) {
+        Align(4);
+        m_out.write(value >> 24);
+        m_out.write(value >> 16);
+        m_out.write(value >> 8);
+        m_out.write(value);
+    }
+
+    public void writeLongLong(long value) {
+        Align(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            m_out.write((int)(value >> shift));
+        }
+    }
+
+    /** writes a sequence&lt;octet&gt; */
+    public void writeOctets(byte[] value) {
+        writeLong(value.length);
+        m_out.write(value, 0, value.length);
+    }
+
+    public byte[] toByteArray() {
+        return m_out.toByteArray();
+    }
+
+    private void Align(int boundary) {
+        // alignment is relative to the start of the encapsulation
+        while ((m_out.size() % boundary) != 0) {
+            m_out.write(0);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/* ObjectKey.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Cdr;
+
+import java.util.Arrays;
+
+import org.omg.IOP.TAG_INTERNET_IOP;
+import org.omg.IOP.TaggedProfile;
+
+
+/**
+ * Identifies the object addressed by an IIOP profile: host, port and
+ * object key. The profile data and the IORs are parsed directly with
+ * CdrInput (they are CDR encapsulations), so the IIOP module stubs are not
+ * needed.
+ */
+public final class ObjectKey {
+
+    private String m_host;
+    private int m_port;
+    private byte[] m_key;
+    private int m_hashCode;
+
+
+    public ObjectKey(String host, int port, byte[] key) {
+        m_host = host;
+        m_port = port;
+        m_key = key;
+        int hashCode = host.hashCode() * 31 + port;
+        for (int i = 0; i < key.length; i++) {
+            hashCode = hashCode * 31 + key[i];
+        }
+        m_hashCode = hashCode;
+    }
+
+
+    /** the key of an IIOP profile; null for other profiles */
+    public static ObjectKey fromProfile(TaggedProfile profile) {
+        if (profile.tag != TAG_INTERNET_IOP.value) {
+            return null;
+        }
+        CdrInput body = new CdrInput(profile.profile_data);
+        body.readOctet(); // version major
+        body.readOctet(); // version minor
+        String host = body.readString();
+        int port = body.readShort() & 0xffff;
+        return new ObjectKey(host, port, body.readOctets());
+    }
+
+    /**
+     * the key of the first IIOP profile of an IOR encoded as CDR encapsulation
+     * (e.g. by a Codec); null, if the IOR has no IIOP profile
+     */
+    public static ObjectKey fromIor(byte[] encapsulation) {
+        CdrInput ior = new CdrInput(encapsulation);
+        ior.readString(); // type id
+        int nrOfProfiles = ior.readLong();
+        for (int i = 0; i < nrOfProfiles; i++) {
+            int tag = ior.readLong();
+            byte[] data = ior.readOctets();
+            if (tag == TAG_INTERNET_IOP.value) {
+                return fromProfile(new TaggedProfile(tag, data));
+            }
+        }
+        return null;
+    }
+
+    public String getHost() {
+        return m_host;
+    }
+
+    public int getPort() {
+        return m_port;
+    }
+
+    public byte[] getKey() {
+        return m_key;
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof ObjectKey)) {
+            return false;
+        }
+        ObjectKey otherKey = (ObjectKey)other;
+        return (m_port == otherKey.m_port) && m_host.equals(otherKey.m_host) &&
+               Arrays.equals(m_key, otherKey.m_key);
+    }
+
+    public int hashCode() {
+        return m_hashCode;
+    }
+
+    public String toString() {
+        return m_host + ":" + m_port + "/" + m_key.length + " bytes key";
+    }
+
+}
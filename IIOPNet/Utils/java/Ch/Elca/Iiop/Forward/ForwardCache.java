@@ -0,0 +1,151 @@
+/* ForwardCache.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Forward;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import Ch.Elca.Iiop.Cdr.ObjectKey;
+
+
+/**
+ * The targets of the LOCATION_FORWARD replies received by a client: maps the
+ * ObjectKey of the original reference to the reference the request was
+ * forwarded to. The cache holds at most maxSize entries; when full, the least
+ * recently used one is dropped.
+ * This class is thread safe.
+ */
+public class ForwardCache {
+
+    private int m_maxSize;
+    private LinkedHashMap m_forwards;
+
+    private long m_hits;
+    private long m_stores;
+    private long m_invalidations;
+
+
+    /** a forward target and its key */
+    private static class Forward {
+
+        final org.omg.CORBA.Object Target;
+        final ObjectKey TargetKey;
+
+        Forward(org.omg.CORBA.Object target, ObjectKey targetKey) {
+            Target = target;
+            TargetKey = targetKey;
+        }
+
+    }
+
+
+    public ForwardCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        m_maxSize = maxSize;
+        // access order: get moves an entry to the end
+        m_forwards = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > m_maxSize;
+            }
+        };
+    }
+
+
+    /** returns the reference, requests to original were forwarded to, or null */
+    public synchronized org.omg.CORBA.Object get(ObjectKey original) {
+        Forward forward = (Forward)m_forwards.get(original);
+        if (forward != null) {
+            m_hits++;
+            return forward.Target;
+        }
+        return null;
+    }
+
+    /** records, that requests to original are forwarded to target with the key targetKey */
+    public synchronized void put(ObjectKey original, org.omg.CORBA.Object target, ObjectKey targetKey) {
+        Forward previous = (Forward)m_forwards.put(original, new Forward(target, targetKey));
+        if ((previous == null) || !previous.TargetKey.equals(targetKey)) {
+            m_stores++;
+        }
+    }
+
+    /**
+     * drops the entries forwarding to the object with the key target, e.g.
+     * because it doesn't exist any more; returns the number of dropped entries
+     */
+    public synchronized int invalidateTarget(ObjectKey target) {
+        int result = 0;
+        Iterator entries = m_forwards.values().iterator();
+        while (entries.hasNext()) {
+            if (((Forward)entries.next()).TargetKey.equals(target)) {
+                entries.remove();
+                result++;
+            }
+        }
+        m_invalidations += result;
+        return result;
+    }
+
+    public synchronized void remove(ObjectKey original) {
+        m_forwards.remove(original);
+    }
+
+    public synchronized void clear() {
+        m_forwards.clear();
+    }
+
+    public synchronized int size() {
+        return m_forwards.size();
+    }
+
+    public int getMaxSize() {
+        return m_maxSize;
+    }
+
+    public synchronized long getHits() {
+        return m_hits;
+    }
+
+    /** the number of recorded forwards (new or changed entries) */
+    public synchronized long getStores() {
+        return m_stores;
+    }
+
+    public synchronized long getInvalidations() {
+        return m_invalidations;
+    }
+
+    public synchronized String toString() {
+        return "ForwardCache[size=" + m_forwards.size() + "/" + m_maxSize + ", hits=" + m_hits +
+            ", stores=" + m_stores + ", invalidations=" + m_invalidations + "]";
+    }
+
+}
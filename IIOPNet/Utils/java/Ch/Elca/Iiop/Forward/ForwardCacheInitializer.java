@@ -0,0 +1,94 @@
+/* ForwardCacheInitializer.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Forward;
+
+import java.util.Properties;
+
+import org.omg.CORBA.INITIALIZE;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.IOP.ENCODING_CDR_ENCAPS;
+import org.omg.IOP.Encoding;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitializer;
+
+
+/**
+ * Installs the ForwardCacheInterceptor in an ORB. Register the initializer
+ * with the ORB property (or system property)
+ * org.omg.PortableInterceptor.ORBInitializerClass.Ch.Elca.Iiop.Forward.ForwardCacheInitializer;
+ * the size of the cache of the ORB is set with the system property
+ * forwardcache.size (default 1000).
+ * Alternatively, initOrb creates an ORB using a given cache.
+ */
+public class ForwardCacheInitializer extends LocalObject implements ORBInitializer {
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /** the cache for the ORB created by initOrb */
+    private static ForwardCache s_pendingCache;
+
+
+    /** creates an ORB recording the forwards in cache */
+    public static ORB initOrb(String[] args, Properties props, ForwardCache cache) {
+        Properties orbProps = new Properties();
+        orbProps.putAll(props);
+        orbProps.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                     ForwardCacheInitializer.class.getName(), "");
+        synchronized(ForwardCacheInitializer.class) {
+            s_pendingCache = cache;
+            try {
+                return ORB.init(args, orbProps);
+            } finally {
+                s_pendingCache = null;
+            }
+        }
+    }
+
+
+    public void pre_init(ORBInitInfo info) {
+        ForwardCache cache;
+        synchronized(ForwardCacheInitializer.class) {
+            cache = s_pendingCache;
+        }
+        if (cache == null) {
+            cache = new ForwardCache(Integer.getInteger("forwardcache.size", DEFAULT_CACHE_SIZE).intValue());
+        }
+        try {
+            info.add_client_request_interceptor(new ForwardCacheInterceptor(cache,
+                info.codec_factory().create_codec(
+                    new Encoding(ENCODING_CDR_ENCAPS.value, (byte)1, (byte)2))));
+        } catch (Exception e) {
+            throw new INITIALIZE("can't install the forward cache: " + e);
+        }
+    }
+
+    public void post_init(ORBInitInfo info) {
+    }
+
+}
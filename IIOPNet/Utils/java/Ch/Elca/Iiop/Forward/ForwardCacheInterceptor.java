@@ -0,0 +1,171 @@
+/* ForwardCacheInterceptor.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Forward;
+
+import org.omg.CORBA.Any;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.portable.InputStream;
+import org.omg.IOP.Codec;
+import org.omg.IOP.CodecPackage.InvalidTypeForEncoding;
+import org.omg.PortableInterceptor.ClientRequestInfo;
+import org.omg.PortableInterceptor.ClientRequestInterceptor;
+import org.omg.PortableInterceptor.ForwardRequest;
+import org.omg.PortableInterceptor.LOCATION_FORWARD;
+
+import Ch.Elca.Iiop.Cdr.ObjectKey;
+
+
+/**
+ * Saves the round trip of the LOCATION_FORWARD reply, which application
+ * servers send for the first request on a reference (e.g. a home looked up
+ * in the naming service): the forward targets are recorded in a
+ * ForwardCache, and later requests to the same object key - also through
+ * freshly narrowed stubs - are redirected to the target before they are
+ * sent.
+ * If a target fails with OBJECT_NOT_EXIST, TRANSIENT or COMM_FAILURE, the
+ * entries forwarding to it are dropped; a request, which was not executed
+ * (COMPLETED_NO), is then sent again to the original reference, which
+ * forwards it to the current location.
+ * The interceptor is installed with the ForwardCacheInitializer.
+ */
+public class ForwardCacheInterceptor extends LocalObject implements ClientRequestInterceptor {
+
+    private static final String[] INVALIDATING_EXCEPTIONS = {
+        "IDL:omg.org/CORBA/OBJECT_NOT_EXIST:1.0",
+        "IDL:omg.org/CORBA/TRANSIENT:1.0",
+        "IDL:omg.org/CORBA/COMM_FAILURE:1.0"
+    };
+
+    private ForwardCache m_cache;
+    private Codec m_codec;
+
+
+    /** codec: a CDR encapsulation codec for encoding the forward targets */
+    public ForwardCacheInterceptor(ForwardCache cache, Codec codec) {
+        m_cache = cache;
+        m_codec = codec;
+    }
+
+
+    public ForwardCache getCache() {
+        return m_cache;
+    }
+
+    public String name() {
+        return "ForwardCache";
+    }
+
+    public void destroy() {
+    }
+
+    public void send_request(ClientRequestInfo ri) throws ForwardRequest {
+        ObjectKey key = ObjectKey.fromProfile(ri.effective_profile());
+        if (key == null) {
+            return;
+        }
+        org.omg.CORBA.Object target = m_cache.get(key);
+        if (target != null) {
+            throw new ForwardRequest(target);
+        }
+    }
+
+    public void send_poll(ClientRequestInfo ri) {
+    }
+
+    public void receive_reply(ClientRequestInfo ri) {
+    }
+
+    public void receive_exception(ClientRequestInfo ri) throws ForwardRequest {
+        if (!IsInvalidating(ri.received_exception_id())) {
+            return;
+        }
+        ObjectKey key = ObjectKey.fromProfile(ri.effective_profile());
+        if ((key == null) || (m_cache.invalidateTarget(key) == 0)) {
+            return;
+        }
+        if (IsCompletedNo(ri.received_exception())) {
+            // the original reference forwards to the new location
+            throw new ForwardRequest(ri.target());
+        }
+    }
+
+    public void receive_other(ClientRequestInfo ri) throws ForwardRequest {
+        if (ri.reply_status() != LOCATION_FORWARD.value) {
+            return;
+        }
+        ObjectKey key = ObjectKey.fromProfile(ri.effective_profile());
+        org.omg.CORBA.Object target = ri.forward_reference();
+        ObjectKey targetKey = GetKey(target);
+        if ((key != null) && (targetKey != null) && !targetKey.equals(key)) {
+            m_cache.put(key, target, targetKey);
+        }
+    }
+
+
+    private static boolean IsInvalidating(String exceptionId) {
+        for (int i = 0; i < INVALIDATING_EXCEPTIONS.length; i++) {
+            if (INVALIDATING_EXCEPTIONS[i].equals(exceptionId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** the key of the first IIOP profile of obj; null, if it has none */
+    private ObjectKey GetKey(org.omg.CORBA.Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        Any any = ORB.init().create_any();
+        any.insert_Object(obj);
+        try {
+            return ObjectKey.fromIor(m_codec.encode_value(any));
+        } catch (InvalidTypeForEncoding e) {
+            return null;
+        } catch (SystemException e) {
+            return null; // not a parsable ior
+        }
+    }
+
+    /** true, if the system exception in exception was thrown with COMPLETED_NO */
+    private static boolean IsCompletedNo(Any exception) {
+        try {
+            // the value is the repository id, the minor code and the completion status
+            InputStream value = exception.create_input_stream();
+            value.read_string();
+            value.read_ulong();
+            return value.read_ulong() == CompletionStatus._COMPLETED_NO;
+        } catch (SystemException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,523 @@
+/* GiopGateway.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Gateway;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+
+/**
+ * A GIOP gateway: accepts the connections of clients on a port and forwards
+ * their requests to a server over one shared connection, which is kept open.
+ * The messages are not unmarshalled: only the request id in the header is
+ * rewritten (the requests of all clients share the ids of the server
+ * connection), request and reply bodies are passed on as they were received.
+ * Every connection reads its messages into one reusable buffer; requests are
+ * written to the server from there, replies are copied to a queue of the
+ * client, which a writer thread per client drains, so a slow client does not
+ * hold up the replies of the others. A client with more than
+ * MAX_QUEUED_REPLY_BYTES of replies waiting is disconnected.
+ * GIOP 1.2 fragments carry the request id and are forwarded one by one; the
+ * fragments of a GIOP 1.0 / 1.1 message have to follow each other on the
+ * server connection, they are collected until the last one has arrived and
+ * then written together.
+ * Clients use the object keys of the server at the gateway, e.g.
+ * corbaloc:iiop:gateway:port/test instead of corbaloc:iiop:server:8087/test.
+ * Limitations: the server sees the code set context of the first client
+ * request only, i.e. all clients must use the same code sets; references and
+ * location forwards returned by the server point to the server itself;
+ * requests of the server to the clients (bidirectional GIOP) are dropped.
+ * If the server connection is lost, all client connections are closed.
+ */
+public class GiopGateway {
+
+    /** messages larger than this are refused */
+    public static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * a client, which has more reply bytes waiting than this, is closed; a
+     * single reply is always accepted
+     */
+    public static final int MAX_QUEUED_REPLY_BYTES = 4 * 1024 * 1024;
+
+    private ServerSocket m_listener;
+    private String m_targetHost;
+    private int m_targetPort;
+    private volatile boolean m_stopped;
+
+    private Upstream m_upstream;
+    private HashSet m_clients = new HashSet();
+
+    private long m_nrOfRequests;
+    private long m_nrOfBytes;
+
+
+    /** starts a gateway on port forwarding to targetHost:targetPort */
+    public GiopGateway(int port, String targetHost, int targetPort) throws IOException {
+        m_listener = new ServerSocket(port);
+        m_targetHost = targetHost;
+        m_targetPort = targetPort;
+        StartThread(new Runnable() {
+            public void run() {
+                Accept();
+            }
+        }, "GiopGateway acceptor");
+    }
+
+
+    public int getPort() {
+        return m_listener.getLocalPort();
+    }
+
+    /** the number of requests (including locate requests) forwarded */
+    public synchronized long getNrOfRequests() {
+        return m_nrOfRequests;
+    }
+
+    /** the number of message bytes forwarded in both directions */
+    public synchronized long getNrOfBytes() {
+        return m_nrOfBytes;
+    }
+
+    /** the number of requests waiting for their reply from the server */
+    public int getNrOfPendingRequests() {
+        Upstream upstream;
+        synchronized (this) {
+            upstream = m_upstream;
+        }
+        return (upstream != null ? upstream.GetNrOfPending() : 0);
+    }
+
+    /** closes the listener and all connections */
+    public void shutdown() {
+        m_stopped = true;
+        try {
+            m_listener.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        Upstream upstream;
+        synchronized (this) {
+            upstream = m_upstream;
+        }
+        if (upstream != null) {
+            UpstreamLost(upstream);
+        }
+    }
+
+    private synchronized void Count(boolean request, int bytes) {
+        if (request) {
+            m_nrOfRequests++;
+        }
+        m_nrOfBytes += bytes;
+    }
+
+    private static void StartThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void Accept() {
+        while (!m_stopped) {
+            try {
+                Socket socket = m_listener.accept();
+                socket.setTcpNoDelay(true);
+                final ClientConnection client = new ClientConnection(socket);
+                synchronized (this) {
+                    m_clients.add(client);
+                }
+                StartThread(client, "GiopGateway client " + socket.getRemoteSocketAddress());
+                StartThread(new Runnable() {
+                    public void run() {
+                        client.WriteReplies();
+                    }
+                }, "GiopGateway client writer " + socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!m_stopped) {
+                    System.err.println("GiopGateway: accept failed: " + e);
+                }
+            }
+        }
+    }
+
+    /** the server connection; connected on first use */
+    private synchronized Upstream GetUpstream() throws IOException {
+        if (m_stopped) {
+            throw new IOException("gateway stopped");
+        }
+        if (m_upstream == null) {
+            Socket socket = new Socket(m_targetHost, m_targetPort);
+            socket.setTcpNoDelay(true);
+            m_upstream = new Upstream(socket);
+            StartThread(m_upstream, "GiopGateway server " + m_targetHost + ":" + m_targetPort);
+        }
+        return m_upstream;
+    }
+
+    /** closes the server connection and all client connections */
+    private void UpstreamLost(Upstream upstream) {
+        ClientConnection[] clients;
+        synchronized (this) {
+            if (m_upstream == upstream) {
+                m_upstream = null;
+            }
+            clients = (ClientConnection[])m_clients.toArray(new ClientConnection[m_clients.size()]);
+        }
+        upstream.Close();
+        for (int i = 0; i < clients.length; i++) {
+            clients[i].Close();
+        }
+    }
+
+    private synchronized void Remove(ClientConnection client) {
+        m_clients.remove(client);
+    }
+
+    private static void Close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+
+    /** a request waiting for its reply from the server */
+    private static class Pending {
+
+        final ClientConnection Client;
+        final int RequestId;
+
+        Pending(ClientConnection client, int requestId) {
+            Client = client;
+            RequestId = requestId;
+        }
+
+    }
+
+
+    /** the connection to the server; reads the replies and passes them to the clients */
+    private class Upstream implements Runnable {
+
+        final Object WriteLock = new Object();
+
+        private Socket m_socket;
+        private InputStream m_in;
+        private OutputStream m_out;
+        private int m_nextRequestId;
+
+        /** upstream request id (Integer) -> Pending */
+        private HashMap m_pending = new HashMap();
+
+        Upstream(Socket socket) throws IOException {
+            m_socket = socket;
+            m_in = new BufferedInputStream(socket.getInputStream());
+            m_out = socket.getOutputStream();
+        }
+
+        /** returns the request id for the server */
+        synchronized int Register(ClientConnection client, int requestId, boolean responseExpected) {
+            int upstreamId = m_nextRequestId++;
+            if (responseExpected) {
+                m_pending.put(new Integer(upstreamId), new Pending(client, requestId));
+            }
+            return upstreamId;
+        }
+
+        synchronized int GetNrOfPending() {
+            return m_pending.size();
+        }
+
+        private synchronized Pending GetPending(int upstreamId, boolean remove) {
+            Integer key = new Integer(upstreamId);
+            return (Pending)(remove ? m_pending.remove(key) : m_pending.get(key));
+        }
+
+        void Write(GiopMessage message) throws IOException {
+            synchronized (WriteLock) {
+                message.Write(m_out);
+            }
+        }
+
+        /** writes the collected fragments of a GIOP 1.0 / 1.1 message */
+        void Write(ByteArrayOutputStream fragments) throws IOException {
+            synchronized (WriteLock) {
+                fragments.writeTo(m_out);
+            }
+        }
+
+        void Close() {
+            GiopGateway.Close(m_socket);
+        }
+
+        public void run() {
+            GiopMessage message = new GiopMessage(MAX_MESSAGE_SIZE);
+            // the receiver of GIOP 1.1 fragments, which have no request id, and its upstream id
+            Pending fragmentTarget = null;
+            int fragmentTargetId = -1;
+            try {
+                while (message.Read(m_in)) {
+                    int type = message.GetType();
+                    if (type == GiopMessage.CLOSE_CONNECTION) {
+                        break;
+                    }
+                    if ((type != GiopMessage.REPLY) && (type != GiopMessage.LOCATE_REPLY) &&
+                        (type != GiopMessage.FRAGMENT)) {
+                        continue; // requests from the server are not supported
+                    }
+                    Pending pending;
+                    if (message.GetRequestIdOffset() >= 0) {
+                        fragmentTargetId = message.GetRequestId();
+                        pending = GetPending(fragmentTargetId, !message.HasMoreFragments());
+                        if (pending != null) {
+                            message.SetRequestId(pending.RequestId);
+                        }
+                    } else {
+                        pending = fragmentTarget;
+                        if ((pending != null) && !message.HasMoreFragments()) {
+                            GetPending(fragmentTargetId, true); // the last fragment of a GIOP 1.1 reply
+                        }
+                    }
+                    if ((pending != null) && !message.HasMoreFragments()) {
+                        pending.Client.RequestDone(pending.RequestId);
+                    }
+                    fragmentTarget = (message.HasMoreFragments() ? pending : null);
+                    if (pending != null) {
+                        Count(false, message.GetLength());
+                        pending.Client.Send(message);
+                    }
+                }
+            } catch (Exception e) {
+                // connection lost or invalid message
+            }
+            UpstreamLost(this);
+        }
+
+    }
+
+
+    /** a client connection; reads the requests and passes them to the server */
+    private class ClientConnection implements Runnable {
+
+        private Socket m_socket;
+        private InputStream m_in;
+        private OutputStream m_out;
+
+        /** the replies (byte[]) waiting to be written by WriteReplies */
+        private LinkedList m_replies = new LinkedList();
+        private int m_queuedBytes;
+        private boolean m_closed;
+
+        /** client request id (Integer) -> upstream request id (Integer), for cancels and fragments */
+        private HashMap m_requestIds = new HashMap();
+        /** the client id of a oneway request, whose fragments are being forwarded; -1 if none */
+        private int m_onewayId = -1;
+
+        ClientConnection(Socket socket) throws IOException {
+            m_socket = socket;
+            m_in = new BufferedInputStream(socket.getInputStream());
+            m_out = socket.getOutputStream();
+        }
+
+        /**
+         * queues a reply for the client; a client, which does not take its
+         * replies fast enough, is closed
+         */
+        void Send(GiopMessage message) {
+            synchronized (m_replies) {
+                if (m_closed) {
+                    return;
+                }
+                if ((m_queuedBytes > 0) && (m_queuedBytes + message.GetLength() > MAX_QUEUED_REPLY_BYTES)) {
+                    System.err.println("GiopGateway: client " + m_socket.getRemoteSocketAddress() +
+                                       " does not take its replies, closing it");
+                } else {
+                    m_replies.addLast(message.ToByteArray());
+                    m_queuedBytes += message.GetLength();
+                    m_replies.notify();
+                    return;
+                }
+            }
+            Close();
+        }
+
+        /** writes the queued replies to the client until it is closed */
+        void WriteReplies() {
+            try {
+                while (true) {
+                    byte[] reply;
+                    synchronized (m_replies) {
+                        while (m_replies.isEmpty() && !m_closed) {
+                            m_replies.wait();
+                        }
+                        if (m_closed) {
+                            return;
+                        }
+                        reply = (byte[])m_replies.removeFirst();
+                    }
+                    m_out.write(reply);
+                    synchronized (m_replies) {
+                        m_queuedBytes -= reply.length;
+                    }
+                }
+            } catch (IOException e) {
+                Close();
+            } catch (InterruptedException e) {
+                Close();
+            }
+        }
+
+        synchronized void RequestDone(int requestId) {
+            m_requestIds.remove(new Integer(requestId));
+        }
+
+        private synchronized Integer GetUpstreamId(int requestId) {
+            return (Integer)m_requestIds.get(new Integer(requestId));
+        }
+
+        private synchronized void SetUpstreamId(int requestId, int upstreamId) {
+            m_requestIds.put(new Integer(requestId), new Integer(upstreamId));
+        }
+
+        void Close() {
+            synchronized (m_replies) {
+                m_closed = true;
+                m_replies.clear();
+                m_replies.notify();
+            }
+            GiopGateway.Close(m_socket);
+            Remove(this);
+        }
+
+        public void run() {
+            GiopMessage message = new GiopMessage(MAX_MESSAGE_SIZE);
+            try {
+                while (message.Read(m_in)) {
+                    int type = message.GetType();
+                    if ((type == GiopMessage.CLOSE_CONNECTION) || (type == GiopMessage.MESSAGE_ERROR)) {
+                        break;
+                    }
+                    if ((type != GiopMessage.REQUEST) && (type != GiopMessage.LOCATE_REQUEST) &&
+                        (type != GiopMessage.CANCEL_REQUEST) && (type != GiopMessage.FRAGMENT)) {
+                        continue; // replies of the client are not supported
+                    }
+                    Upstream upstream = GetUpstream();
+                    if (message.HasMoreFragments() && (message.GetMinorVersion() < 2)) {
+                        ForwardFragments(upstream, message);
+                    } else {
+                        Forward(upstream, message, null);
+                    }
+                }
+            } catch (Exception e) {
+                // connection lost or invalid message
+            }
+            Close();
+        }
+
+        /**
+         * forwards a GIOP 1.0 / 1.1 message with all its fragments: the
+         * fragments have no request id and must follow each other directly
+         * on the server connection, they are collected first, so that the
+         * server connection is locked only for writing them
+         */
+        private void ForwardFragments(Upstream upstream, GiopMessage message) throws IOException {
+            ByteArrayOutputStream fragments = new ByteArrayOutputStream(message.GetLength() * 2);
+            Forward(upstream, message, fragments);
+            while (message.HasMoreFragments()) {
+                if (!message.Read(m_in)) {
+                    throw new EOFException("connection closed within a fragmented message");
+                }
+                if (fragments.size() + message.GetLength() > MAX_MESSAGE_SIZE) {
+                    throw new IOException("fragmented GIOP message too large");
+                }
+                Forward(upstream, message, fragments);
+            }
+            upstream.Write(fragments);
+        }
+
+        /** rewrites the request id and writes the message to the server, or to fragments if not null */
+        private void Forward(Upstream upstream, GiopMessage message, ByteArrayOutputStream fragments) throws IOException {
+            int type = message.GetType();
+            if ((type == GiopMessage.REQUEST) || (type == GiopMessage.LOCATE_REQUEST)) {
+                int requestId = message.GetRequestId();
+                boolean responseExpected = message.IsResponseExpected();
+                int upstreamId = upstream.Register(this, requestId, responseExpected);
+                SetUpstreamId(requestId, upstreamId);
+                message.SetRequestId(upstreamId);
+                m_onewayId = (responseExpected ? -1 : requestId);
+                Count(true, message.GetLength());
+            } else if (message.GetRequestIdOffset() >= 0) {
+                // cancel request, GIOP 1.2 fragment
+                Integer upstreamId = GetUpstreamId(message.GetRequestId());
+                if (upstreamId == null) {
+                    return; // already answered
+                }
+                message.SetRequestId(upstreamId.intValue());
+                Count(false, message.GetLength());
+            } else {
+                Count(false, message.GetLength());
+            }
+            if (fragments != null) {
+                message.Write(fragments);
+            } else {
+                upstream.Write(message);
+            }
+            if ((m_onewayId >= 0) && !message.HasMoreFragments()) {
+                RequestDone(m_onewayId);
+                m_onewayId = -1;
+            }
+        }
+
+    }
+
+
+    /** runs a gateway: GiopGateway port targetHost targetPort */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("usage: GiopGateway port targetHost targetPort");
+            return;
+        }
+        GiopGateway gateway = new GiopGateway(Integer.parseInt(args[0]), args[1], Integer.parseInt(args[2]));
+        System.out.println("forwarding port " + gateway.getPort() + " to " + args[1] + ":" + args[2]);
+        Object forever = new Object();
+        synchronized (forever) {
+            forever.wait();
+        }
+    }
+
+}
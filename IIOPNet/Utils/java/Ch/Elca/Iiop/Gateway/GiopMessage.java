@@ -0,0 +1,220 @@
+/* GiopMessage.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Gateway;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+
+/**
+ * A GIOP message read into a reusable buffer; gives access to the header
+ * fields the GiopGateway needs and rewrites the request id in place. The
+ * body is never interpreted beyond the request id.
+ */
+class GiopMessage {
+
+    static final int HEADER_LENGTH = 12;
+
+    static final int REQUEST = 0;
+    static final int REPLY = 1;
+    static final int CANCEL_REQUEST = 2;
+    static final int LOCATE_REQUEST = 3;
+    static final int LOCATE_REPLY = 4;
+    static final int CLOSE_CONNECTION = 5;
+    static final int MESSAGE_ERROR = 6;
+    static final int FRAGMENT = 7;
+
+    private static final int FLAG_LITTLE_ENDIAN = 0x01;
+    private static final int FLAG_MORE_FRAGMENTS = 0x02;
+
+    private byte[] m_data;
+    private int m_length;
+    private int m_maxSize;
+
+
+    GiopMessage(int maxSize) {
+        m_data = new byte[4096];
+        m_maxSize = maxSize;
+    }
+
+
+    /** reads the next message; returns false at the end of the stream */
+    boolean Read(InputStream in) throws IOException {
+        if (!ReadFully(in, 0, HEADER_LENGTH, true)) {
+            return false;
+        }
+        if ((m_data[0] != 'G') || (m_data[1] != 'I') || (m_data[2] != 'O') || (m_data[3] != 'P')) {
+            throw new IOException("not a GIOP message");
+        }
+        m_length = HEADER_LENGTH;
+        int bodyLength = GetInt(8);
+        if ((bodyLength < 0) || (bodyLength > m_maxSize - HEADER_LENGTH)) {
+            throw new IOException("GIOP message too large: " + bodyLength);
+        }
+        m_length = HEADER_LENGTH + bodyLength;
+        if (m_data.length < m_length) {
+            byte[] data = new byte[Math.max(m_length, Math.min(m_maxSize, m_data.length * 2))];
+            System.arraycopy(m_data, 0, data, 0, HEADER_LENGTH);
+            m_data = data;
+        }
+        ReadFully(in, HEADER_LENGTH, bodyLength, false);
+        return true;
+    }
+
+    private boolean ReadFully(InputStream in, int offset, int length, boolean eofAllowed) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(m_data, offset + read, length - read);
+            if (count < 0) {
+                if (eofAllowed && (read == 0)) {
+                    return false;
+                }
+                throw new EOFException("connection closed within a GIOP message");
+            }
+            read += count;
+        }
+        return true;
+    }
+
+    void Write(OutputStream out) throws IOException {
+        out.write(m_data, 0, m_length);
+    }
+
+    /** a copy of the message, for passing it on after the buffer is reused */
+    byte[] ToByteArray() {
+        byte[] copy = new byte[m_length];
+        System.arraycopy(m_data, 0, copy, 0, m_length);
+        return copy;
+    }
+
+    int GetLength() {
+        return m_length;
+    }
+
+    int GetMinorVersion() {
+        return m_data[5];
+    }
+
+    int GetType() {
+        return m_data[7];
+    }
+
+    boolean HasMoreFragments() {
+        return (GetMinorVersion() > 0) && ((m_data[6] & FLAG_MORE_FRAGMENTS) != 0);
+    }
+
+    /**
+     * the offset of the request id; -1 for messages without one, i.e. close
+     * connection, message error and GIOP 1.1 fragments.
+     */
+    int GetRequestIdOffset() {
+        switch (GetType()) {
+            case REQUEST:
+            case REPLY:
+                if (GetMinorVersion() >= 2) {
+                    return HEADER_LENGTH;
+                }
+                // GIOP 1.0 / 1.1: the service contexts come first
+                int offset = HEADER_LENGTH;
+                int nrOfContexts = GetInt(offset);
+                offset += 4;
+                for (int i = 0; i < nrOfContexts; i++) {
+                    offset = Align4(offset) + 4; // context id
+                    offset += 4 + GetInt(offset);
+                }
+                return Align4(offset);
+            case CANCEL_REQUEST:
+            case LOCATE_REQUEST:
+            case LOCATE_REPLY:
+                return HEADER_LENGTH;
+            case FRAGMENT:
+                return (GetMinorVersion() >= 2 ? HEADER_LENGTH : -1);
+            default:
+                return -1;
+        }
+    }
+
+    int GetRequestId() {
+        return GetInt(GetRequestIdOffset());
+    }
+
+    void SetRequestId(int requestId) {
+        SetInt(GetRequestIdOffset(), requestId);
+    }
+
+    /** for requests and locate requests: is a reply expected */
+    boolean IsResponseExpected() {
+        if (GetType() == LOCATE_REQUEST) {
+            return true;
+        }
+        // GIOP 1.2 response_flags: reply unless SYNC_NONE / SYNC_WITH_TRANSPORT;
+        // before: the response_expected boolean
+        int flagsOffset = GetRequestIdOffset() + 4;
+        if (flagsOffset >= m_length) {
+            throw new IllegalStateException("truncated GIOP message");
+        }
+        return (GetMinorVersion() >= 2 ? (m_data[flagsOffset] & 0x01) != 0 : m_data[flagsOffset] != 0);
+    }
+
+    private static int Align4(int offset) {
+        return (offset + 3) & ~3;
+    }
+
+    private boolean IsLittleEndian() {
+        return (m_data[6] & FLAG_LITTLE_ENDIAN) != 0;
+    }
+
+    private int GetInt(int offset) {
+        if ((offset < 0) || (offset + 4 > m_length)) {
+            throw new IllegalStateException("truncated GIOP message");
+        }
+        int b0 = m_data[offset] & 0xff;
+        int b1 = m_data[offset + 1] & 0xff;
+        int b2 = m_data[offset + 2] & 0xff;
+        int b3 = m_data[offset + 3] & 0xff;
+        return (IsLittleEndian() ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0 :
+                                   (b0 << 24) | (b1 << 16) | (b2 << 8) | b3);
+    }
+
+    private void SetInt(int offset, int val) {
+        if (IsLittleEndian()) {
+            m_data[offset] = (byte)val;
+            m_data[offset + 1] = (byte)(val >>> 8);
+            m_data[offset + 2] = (byte)(val >>> 16);
+            m_data[offset + 3] = (byte)(val >>> 24);
+        } else {
+            m_data[offset] = (byte)(val >>> 24);
+            m_data[offset + 1] = (byte)(val >>> 16);
+            m_data[offset + 2] = (byte)(val >>> 8);
+            m_data[offset + 3] = (byte)val;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/* CoLocation.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Local;
+
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
+import java.util.ArrayList;
+
+import javax.rmi.PortableRemoteObject;
+import javax.rmi.CORBA.Tie;
+
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.portable.ObjectImpl;
+import org.omg.CORBA.portable.ServantObject;
+
+
+/**
+ * Fast path for rmi/iiop calls to objects in the same jvm: narrow returns a
+ * proxy calling the implementation directly, instead of a stub marshalling
+ * the call to cdr. Arguments, results and exceptions are copied with the
+ * DeepCopier, so the pass by value semantics of remote calls are kept.
+ * References to other objects are narrowed as usual.
+ * The copies are made with java serialization; value classes, whose no-arg
+ * constructor has no side effects, can be registered with
+ * DeepCopier.copyFieldByField for the faster copy with reflection, which runs
+ * that constructor for every copy.
+ *
+ * Usage (e.g. in a server method getting an Adder):
+ *   Adder local = (Adder)CoLocation.narrow(adder, Adder.class);
+ */
+public class CoLocation {
+
+    private CoLocation() {
+    }
+
+    /**
+     * returns a proxy calling the implementation directly for references to
+     * objects of this jvm; otherwise the result of PortableRemoteObject.narrow.
+     */
+    public static Object narrow(Object ref, Class remoteInterface) {
+        Remote target = getLocalTarget(ref);
+        if ((target == null) || !remoteInterface.isInstance(target)) {
+            return PortableRemoteObject.narrow(ref, remoteInterface);
+        }
+        return CreateProxy(target, new Class[] { remoteInterface });
+    }
+
+    /** returns a proxy for all remote interfaces of the implementation target */
+    public static Remote wrap(Remote target) {
+        if (Proxy.isProxyClass(target.getClass()) &&
+            (Proxy.getInvocationHandler(target) instanceof LocalInvocationHandler)) {
+            return target;
+        }
+        return CreateProxy(target, GetRemoteInterfaces(target.getClass()));
+    }
+
+    /**
+     * returns the implementation behind ref, if it is in this jvm, i.e. ref is
+     * an implementation or a stub of the orb, which exported the implementation;
+     * otherwise null.
+     */
+    public static Remote getLocalTarget(Object ref) {
+        if (ref instanceof ObjectImpl) {
+            ObjectImpl stub = (ObjectImpl)ref;
+            ServantObject servant;
+            try {
+                // null for objects of other orbs
+                servant = stub._servant_preinvoke("_get_target", Object.class);
+            } catch (SystemException e) {
+                return null;
+            }
+            if (servant == null) {
+                return null;
+            }
+            try {
+                if (servant.servant instanceof Tie) {
+                    return ((Tie)servant.servant).getTarget();
+                }
+                // the sun orb returns the implementation of a connected tie
+                return ((servant.servant instanceof Remote) &&
+                        !(servant.servant instanceof org.omg.CORBA.Object) ?
+                        (Remote)servant.servant : null);
+            } finally {
+                stub._servant_postinvoke(servant);
+            }
+        }
+        if ((ref instanceof Remote) && !(ref instanceof org.omg.CORBA.Object)) {
+            return (Remote)ref;
+        }
+        return null;
+    }
+
+
+    private static Remote CreateProxy(Remote target, Class[] interfaces) {
+        ClassLoader loader = interfaces[0].getClassLoader();
+        return (Remote)Proxy.newProxyInstance(loader, interfaces,
+                                              new LocalInvocationHandler(target));
+    }
+
+    private static Class[] GetRemoteInterfaces(Class type) {
+        ArrayList result = new ArrayList();
+        for (Class current = type; current != null; current = current.getSuperclass()) {
+            Class[] interfaces = current.getInterfaces();
+            for (int i = 0; i < interfaces.length; i++) {
+                if (Remote.class.isAssignableFrom(interfaces[i]) &&
+                    (interfaces[i] != Remote.class) && !result.contains(interfaces[i])) {
+                    result.add(interfaces[i]);
+                }
+            }
+        }
+        if (result.size() == 0) {
+            throw new IllegalArgumentException(type.getName() + " has no remote interface");
+        }
+        return (Class[])result.toArray(new Class[result.size()]);
+    }
+
+}
@@ -0,0 +1,438 @@
+/* DeepCopier.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Local;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.rmi.Remote;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Vector;
+
+
+/**
+ * Copies the arguments and results of co-located calls with the semantics of
+ * rmi/iiop pass by value, but without marshalling them to cdr and back.
+ * Graphs are copied as a whole with java serialization, unless all their
+ * serializable classes were registered with copyFieldByField: these are
+ * copied field by field with reflection. Unlike deserialization, which runs
+ * only the no-arg constructor of the first non-serializable superclass, the
+ * field copy creates the copy with the no-arg constructor of the class itself
+ * and then overwrites all its fields. Its side effects (e.g. counting or
+ * registering instances, acquiring resources) would happen for every copy,
+ * so only classes whose constructor merely initialises fields may be
+ * registered. Sharing and cycles in the copied graph are kept (e.g. an object
+ * referenced by two fields is copied once).
+ * Strings, primitive wrappers and stubs are not copied; remote implementations
+ * are passed as co-located proxies (see CoLocation); the common collection
+ * classes are copied element by element.
+ * Registered classes with custom serialization (writeObject, readObject,
+ * writeReplace, readResolve or Externalizable), without no-arg constructor or
+ * with transient fields, which deserialization leaves at their default value,
+ * are copied with serialization nevertheless.
+ */
+public class DeepCopier {
+
+    /** Class -> ClassInfo; guarded by itself */
+    private static HashMap s_classInfos = new HashMap();
+    /** the classes registered with copyFieldByField; guarded by s_classInfos */
+    private static HashSet s_fieldCopyTypes = new HashSet();
+
+    private static final Class[] s_immutableTypes = new Class[] {
+        String.class, Boolean.class, Character.class, Byte.class, Short.class,
+        Integer.class, Long.class, Float.class, Double.class, Class.class };
+
+    private static final Class[] s_collectionTypes = new Class[] {
+        ArrayList.class, LinkedList.class, Vector.class, HashSet.class, LinkedHashSet.class };
+
+    private static final Class[] s_mapTypes = new Class[] {
+        HashMap.class, LinkedHashMap.class, Hashtable.class };
+
+    /** original -> copy for the graph copied at the moment */
+    private IdentityHashMap m_copies = new IdentityHashMap();
+
+
+    private DeepCopier() {
+    }
+
+    /**
+     * registers type for the copy field by field: its no-arg constructor
+     * creates the copies, so it may have no side effects besides the
+     * initialisation of the fields. Unregistered classes are copied with
+     * serialization.
+     */
+    public static void copyFieldByField(Class type) {
+        synchronized(s_classInfos) {
+            s_fieldCopyTypes.add(type);
+            s_classInfos.remove(type);
+        }
+    }
+
+    /**
+     * returns a deep copy of obj; a NotSerializableException is thrown for
+     * objects, which are neither serializable nor remote.
+     */
+    public static Object copy(Object obj) throws NotSerializableException {
+        if (IsImmutable(obj)) {
+            return obj;
+        }
+        try {
+            return new DeepCopier().Copy(obj);
+        } catch (CustomSerializationException e) {
+            return CopyBySerialization(obj);
+        }
+    }
+
+
+    private static boolean IsImmutable(Object obj) {
+        if ((obj == null) || (obj instanceof org.omg.CORBA.Object)) {
+            // stubs are passed by reference
+            return true;
+        }
+        Class type = obj.getClass();
+        for (int i = 0; i < s_immutableTypes.length; i++) {
+            if (type == s_immutableTypes[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object Copy(Object obj) throws NotSerializableException {
+        if (IsImmutable(obj)) {
+            return obj;
+        }
+        Object copy = m_copies.get(obj);
+        if (copy != null) {
+            return copy;
+        }
+        Class type = obj.getClass();
+        if (obj instanceof Remote) {
+            // passed by reference; calls from the receiver are co-located calls again
+            copy = CoLocation.wrap((Remote)obj);
+            m_copies.put(obj, copy);
+            return copy;
+        }
+        if (type.isArray()) {
+            return CopyArray(obj, type);
+        }
+        if (!(obj instanceof Serializable)) {
+            throw new NotSerializableException(type.getName());
+        }
+        if (Contains(s_collectionTypes, type)) {
+            return CopyCollection((Collection)obj, type);
+        }
+        if (Contains(s_mapTypes, type)) {
+            return CopyMap((Map)obj, type);
+        }
+        ClassInfo info = GetClassInfo(type);
+        if (info.CustomSerialization) {
+            throw new CustomSerializationException();
+        }
+        try {
+            copy = info.Constructor.newInstance(new Object[0]);
+            m_copies.put(obj, copy);
+            for (int i = 0; i < info.Fields.length; i++) {
+                Field field = info.Fields[i];
+                if (field.getType().isPrimitive()) {
+                    field.set(copy, field.get(obj));
+                } else {
+                    field.set(copy, Copy(field.get(obj)));
+                }
+            }
+            return copy;
+        } catch (NotSerializableException e) {
+            throw e;
+        } catch (CustomSerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            // not instantiable or not accessible: leave it to serialization
+            throw new CustomSerializationException();
+        }
+    }
+
+    private Object CopyArray(Object array, Class type) throws NotSerializableException {
+        if (type.getComponentType().isPrimitive()) {
+            int length = Array.getLength(array);
+            Object copy = Array.newInstance(type.getComponentType(), length);
+            System.arraycopy(array, 0, copy, 0, length);
+            m_copies.put(array, copy);
+            return copy;
+        }
+        Object[] elements = (Object[])array;
+        Object[] copy = (Object[])Array.newInstance(type.getComponentType(), elements.length);
+        m_copies.put(array, copy);
+        for (int i = 0; i < elements.length; i++) {
+            copy[i] = Copy(elements[i]);
+        }
+        return copy;
+    }
+
+    private Object CopyCollection(Collection collection, Class type)
+        throws NotSerializableException {
+        Collection copy = (Collection)NewInstance(type);
+        m_copies.put(collection, copy);
+        for (Iterator i = collection.iterator(); i.hasNext(); ) {
+            copy.add(Copy(i.next()));
+        }
+        return copy;
+    }
+
+    private Object CopyMap(Map map, Class type) throws NotSerializableException {
+        Map copy = (Map)NewInstance(type);
+        m_copies.put(map, copy);
+        for (Iterator i = map.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry entry = (Map.Entry)i.next();
+            copy.put(Copy(entry.getKey()), Copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static Object NewInstance(Class type) {
+        try {
+            return type.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("can't instantiate " + type.getName());
+        }
+    }
+
+    private static boolean Contains(Class[] types, Class type) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object CopyBySerialization(Object obj) throws NotSerializableException {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CopyOutputStream out = new CopyOutputStream(buffer);
+            out.writeObject(obj);
+            out.close();
+            ObjectInputStream in = new CopyInputStream(
+                new ByteArrayInputStream(buffer.toByteArray()), out.GetRemotes());
+            return in.readObject();
+        } catch (NotSerializableException e) {
+            throw e;
+        } catch (Exception e) {
+            NotSerializableException result = new NotSerializableException(
+                "copy of " + obj.getClass().getName() + " failed: " + e);
+            result.initCause(e);
+            throw result;
+        }
+    }
+
+    private static ClassInfo GetClassInfo(Class type) {
+        synchronized(s_classInfos) {
+            ClassInfo info = (ClassInfo)s_classInfos.get(type);
+            if (info == null) {
+                info = new ClassInfo(type, s_fieldCopyTypes.contains(type));
+                s_classInfos.put(type, info);
+            }
+            return info;
+        }
+    }
+
+
+    /** how instances of a serializable class are copied */
+    private static class ClassInfo {
+
+        /** the class must be copied with serialization */
+        final boolean CustomSerialization;
+        /** the no-arg constructor of the class, which creates the copy */
+        final Constructor Constructor;
+        /** the serialized fields of the class and its serializable superclasses */
+        final Field[] Fields;
+
+        ClassInfo(Class type, boolean fieldCopy) {
+            ArrayList fields = new ArrayList();
+            boolean custom = !fieldCopy || Externalizable.class.isAssignableFrom(type) ||
+                             HasMethod(type, "writeReplace") || HasMethod(type, "readResolve");
+            Class current = type;
+            while (Serializable.class.isAssignableFrom(current)) {
+                custom = custom || HasMethod(current, "writeObject") ||
+                         HasMethod(current, "readObject") || HasSerialPersistentFields(current);
+                Field[] declared = current.getDeclaredFields();
+                for (int i = 0; i < declared.length; i++) {
+                    int modifiers = declared[i].getModifiers();
+                    if (Modifier.isStatic(modifiers)) {
+                        continue;
+                    }
+                    if (Modifier.isTransient(modifiers)) {
+                        // the constructor may initialise it, deserialization doesn't
+                        custom = true;
+                    } else {
+                        declared[i].setAccessible(true);
+                        fields.add(declared[i]);
+                    }
+                }
+                current = current.getSuperclass();
+            }
+            Constructor constructor = null;
+            if (!custom) {
+                try {
+                    // the no-arg constructor of the first non-serializable superclass is
+                    // required for deserialization; the one of the class creates the copy
+                    current.getDeclaredConstructor(new Class[0]);
+                    constructor = type.getDeclaredConstructor(new Class[0]);
+                    constructor.setAccessible(true);
+                } catch (NoSuchMethodException e) {
+                    custom = true; // serialization copies it or reports the error
+                } catch (SecurityException e) {
+                    custom = true;
+                }
+            }
+            CustomSerialization = custom;
+            Constructor = constructor;
+            Fields = (Field[])fields.toArray(new Field[fields.size()]);
+        }
+
+        private static boolean HasMethod(Class type, String name) {
+            // the serialization methods may be declared in a superclass
+            for (Class current = type; current != null; current = current.getSuperclass()) {
+                Method[] methods = current.getDeclaredMethods();
+                for (int i = 0; i < methods.length; i++) {
+                    if (methods[i].getName().equals(name) &&
+                        !Modifier.isStatic(methods[i].getModifiers())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean HasSerialPersistentFields(Class type) {
+            try {
+                type.getDeclaredField("serialPersistentFields");
+                return true;
+            } catch (NoSuchFieldException e) {
+                return false;
+            }
+        }
+
+    }
+
+    /** signals, that the graph must be copied with serialization */
+    private static class CustomSerializationException extends RuntimeException {
+    }
+
+    /** the position of a remote implementation in the serialized graph */
+    private static class RemoteIndex implements Serializable {
+
+        final int Index;
+
+        RemoteIndex(int index) {
+            Index = index;
+        }
+
+    }
+
+    /** replaces the remote implementations, which are not serializable */
+    private static class CopyOutputStream extends ObjectOutputStream {
+
+        private ArrayList m_remotes = new ArrayList();
+
+        CopyOutputStream(ByteArrayOutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        ArrayList GetRemotes() {
+            return m_remotes;
+        }
+
+        protected Object replaceObject(Object obj) {
+            if ((obj instanceof Remote) && !(obj instanceof org.omg.CORBA.Object)) {
+                m_remotes.add(obj);
+                return new RemoteIndex(m_remotes.size() - 1);
+            }
+            return obj;
+        }
+
+    }
+
+    /**
+     * passes the remote implementations as co-located proxies and resolves the
+     * classes with the context class loader of the calling thread
+     */
+    private static class CopyInputStream extends ObjectInputStream {
+
+        private ArrayList m_remotes;
+
+        CopyInputStream(ByteArrayInputStream in, ArrayList remotes) throws IOException {
+            super(in);
+            m_remotes = remotes;
+            enableResolveObject(true);
+        }
+
+        protected Object resolveObject(Object obj) {
+            if (obj instanceof RemoteIndex) {
+                return CoLocation.wrap((Remote)m_remotes.get(((RemoteIndex)obj).Index));
+            }
+            return obj;
+        }
+
+        protected Class resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                return super.resolveClass(desc);
+            }
+            try {
+                return Class.forName(desc.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/* LocalInvocationHandler.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Local;
+
+import java.io.NotSerializableException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.MarshalException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+
+/**
+ * Calls the implementation of a co-located remote object; the arguments are
+ * copied as one graph (sharing between arguments is kept), the result and
+ * exceptions separately, as by the rmi/iiop stubs.
+ */
+class LocalInvocationHandler implements InvocationHandler {
+
+    private Remote m_target;
+
+    LocalInvocationHandler(Remote target) {
+        m_target = target;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return InvokeObjectMethod(proxy, method, args);
+        }
+        Object result;
+        try {
+            Object[] copiedArgs = (args != null ? (Object[])DeepCopier.copy(args) : null);
+            result = method.invoke(m_target, copiedArgs);
+        } catch (NotSerializableException e) {
+            throw new MarshalException("can't copy the arguments of " + method.getName(), e);
+        } catch (InvocationTargetException e) {
+            Throwable thrown = e.getTargetException();
+            if (thrown instanceof RemoteException) {
+                throw thrown;
+            }
+            throw (Throwable)Copy(thrown, method);
+        }
+        return Copy(result, method);
+    }
+
+    private static Object Copy(Object value, Method method) throws MarshalException {
+        try {
+            return DeepCopier.copy(value);
+        } catch (NotSerializableException e) {
+            throw new MarshalException("can't copy the result of " + method.getName(), e);
+        }
+    }
+
+    private Object InvokeObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            Object other = args[0];
+            boolean equal = (other == proxy) ||
+                ((other != null) && Proxy.isProxyClass(other.getClass()) &&
+                 (Proxy.getInvocationHandler(other) instanceof LocalInvocationHandler) &&
+                 (((LocalInvocationHandler)Proxy.getInvocationHandler(other)).m_target == m_target));
+            return Boolean.valueOf(equal);
+        } else if (name.equals("hashCode")) {
+            return new Integer(System.identityHashCode(m_target));
+        } else {
+            return "CoLocated[" + m_target + "]";
+        }
+    }
+
+}
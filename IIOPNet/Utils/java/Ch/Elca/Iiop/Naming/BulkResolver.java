@@ -0,0 +1,254 @@
+/* BulkResolver.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.NO_IMPLEMENT;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.UNKNOWN;
+import org.omg.CORBA.portable.ApplicationException;
+import org.omg.CORBA.portable.InputStream;
+import org.omg.CORBA.portable.ObjectImpl;
+import org.omg.CORBA.portable.OutputStream;
+import org.omg.CORBA.portable.RemarshalException;
+import org.omg.CosNaming.NameComponent;
+import org.omg.CosNaming.NameHelper;
+import org.omg.CosNaming.NamingContext;
+import org.omg.CosNaming.NamingContextPackage.CannotProceed;
+import org.omg.CosNaming.NamingContextPackage.InvalidName;
+import org.omg.CosNaming.NamingContextPackage.NotFound;
+
+
+/**
+ * Resolves many names of a naming context at once, e.g. all services a
+ * client needs at startup.
+ * The contexts of the EmbeddedNameService support the additional operation
+ * BULK_OPERATION, which resolves all names with one request:
+ * <pre>
+ *   typedef sequence&lt;CosNaming::Name&gt; NameList;
+ *   typedef sequence&lt;Object&gt; ObjectList;
+ *   ObjectList resolve_all(in NameList names); // nil for unresolvable names
+ * </pre>
+ * Other name services (tnameserv, orbd, JacORB, the .NET name service)
+ * answer it with BAD_OPERATION; then the names are resolved with standard
+ * resolve requests, issued by several threads at the same time: the orb
+ * multiplexes them over the one connection to the name service, i.e. they
+ * don't wait for each others replies. The fallback is remembered, i.e.
+ * only the first resolveAll of such a name service costs an additional
+ * round trip.
+ * This class is thread safe.
+ */
+public class BulkResolver {
+
+    /** the name of the bulk operation on the wire */
+    public static final String BULK_OPERATION = "resolve_all";
+
+    /** the default number of concurrent resolve requests without the bulk operation */
+    public static final int DEFAULT_NR_OF_THREADS = 8;
+
+    private NamingContext m_context;
+    private boolean m_tryBulk;
+    private int m_nrOfThreads;
+
+
+    /** resolves the names in context, using the bulk operation if supported */
+    public BulkResolver(NamingContext context) {
+        this(context, true, DEFAULT_NR_OF_THREADS);
+    }
+
+    /**
+     * if tryBulkOperation is false, only standard resolve requests are used;
+     * nrOfThreads is the number of these requests in progress at the same time.
+     */
+    public BulkResolver(NamingContext context, boolean tryBulkOperation, int nrOfThreads) {
+        if (context == null) {
+            throw new IllegalArgumentException("context must not be null");
+        }
+        if (nrOfThreads <= 0) {
+            throw new IllegalArgumentException("nrOfThreads must be > 0");
+        }
+        m_context = context;
+        m_tryBulk = tryBulkOperation;
+        m_nrOfThreads = nrOfThreads;
+    }
+
+
+    /**
+     * resolves the stringified names (e.g. "dept/svc.kind");
+     * result[i] is null, if names[i] is not bound or can't be resolved.
+     */
+    public org.omg.CORBA.Object[] resolveAll(String[] names) throws InvalidName {
+        NameComponent[][] parsed = new NameComponent[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            parsed[i] = NameParser.ToName(names[i]);
+        }
+        return resolveAll(parsed);
+    }
+
+    /** resolves the names; result[i] is null, if names[i] can't be resolved */
+    public org.omg.CORBA.Object[] resolveAll(NameComponent[][] names) {
+        if (names.length == 1) {
+            // nothing to batch
+            return new org.omg.CORBA.Object[] { ResolveOne(names[0]) };
+        }
+        if (names.length == 0) {
+            return new org.omg.CORBA.Object[0];
+        }
+        if (isBulkSupported()) {
+            try {
+                return BulkResolve(names);
+            } catch (BAD_OPERATION e) {
+                DisableBulk();
+            } catch (NO_IMPLEMENT e) {
+                DisableBulk();
+            }
+        }
+        return PipelinedResolve(names);
+    }
+
+    /**
+     * false, if the bulk operation is not used (disabled or not supported
+     * by the name service).
+     */
+    public synchronized boolean isBulkSupported() {
+        return m_tryBulk;
+    }
+
+
+    private synchronized void DisableBulk() {
+        m_tryBulk = false;
+    }
+
+    private org.omg.CORBA.Object ResolveOne(NameComponent[] name) {
+        try {
+            return m_context.resolve(name);
+        } catch (NotFound e) {
+            return null;
+        } catch (CannotProceed e) {
+            return null;
+        } catch (InvalidName e) {
+            return null;
+        }
+    }
+
+    private org.omg.CORBA.Object[] BulkResolve(NameComponent[][] names) {
+        ObjectImpl target = (ObjectImpl)m_context;
+        while (true) {
+            InputStream in = null;
+            try {
+                OutputStream out = target._request(BULK_OPERATION, true);
+                WriteNames(out, names);
+                in = target._invoke(out);
+                org.omg.CORBA.Object[] result = ReadObjects(in);
+                if (result.length != names.length) {
+                    throw new UNKNOWN("wrong number of results: " + result.length);
+                }
+                return result;
+            } catch (ApplicationException e) {
+                throw new UNKNOWN("unexpected user exception: " + e.getId());
+            } catch (RemarshalException e) {
+                // e.g. location forward: send again
+            } finally {
+                target._releaseReply(in);
+            }
+        }
+    }
+
+    private org.omg.CORBA.Object[] PipelinedResolve(final NameComponent[][] names) {
+        final org.omg.CORBA.Object[] result = new org.omg.CORBA.Object[names.length];
+        final SystemException[] failure = new SystemException[1];
+        int nrOfThreads = Math.min(m_nrOfThreads, names.length);
+        Thread[] threads = new Thread[nrOfThreads];
+        for (int t = 0; t < nrOfThreads; t++) {
+            final int first = t;
+            final int step = nrOfThreads;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = first; i < names.length; i += step) {
+                            result[i] = ResolveOne(names[i]);
+                        }
+                    } catch (SystemException e) {
+                        synchronized(failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < nrOfThreads; t++) {
+            try {
+                threads[t].join();
+            } catch (InterruptedException e) {
+                throw new UNKNOWN("interrupted while resolving");
+            }
+        }
+        synchronized(failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return result;
+    }
+
+    /** writes a NameList */
+    static void WriteNames(OutputStream out, NameComponent[][] names) {
+        out.write_long(names.length);
+        for (int i = 0; i < names.length; i++) {
+            NameHelper.write(out, names[i]);
+        }
+    }
+
+    /** reads a NameList */
+    static NameComponent[][] ReadNames(InputStream in) {
+        NameComponent[][] names = new NameComponent[in.read_long()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = NameHelper.read(in);
+        }
+        return names;
+    }
+
+    /** writes an ObjectList */
+    static void WriteObjects(OutputStream out, org.omg.CORBA.Object[] objs) {
+        out.write_long(objs.length);
+        for (int i = 0; i < objs.length; i++) {
+            out.write_Object(objs[i]);
+        }
+    }
+
+    /** reads an ObjectList */
+    static org.omg.CORBA.Object[] ReadObjects(InputStream in) {
+        org.omg.CORBA.Object[] objs = new org.omg.CORBA.Object[in.read_long()];
+        for (int i = 0; i < objs.length; i++) {
+            objs[i] = in.read_Object();
+        }
+        return objs;
+    }
+
+}
@@ -0,0 +1,395 @@
+/* CachingContext.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedList;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.COMM_FAILURE;
+import org.omg.CORBA.OBJECT_NOT_EXIST;
+
+
+/**
+ * Caches the narrowed references resolved with a JNDI context, e.g. the
+ * CosNaming context of the JDK (com.sun.jndi.cosnaming.CNCtxFactory).
+ * A lookup for a cached name within the time to live needs neither a
+ * round trip to the name service nor a narrow.
+ * An entry is refreshed in the background, when it is looked up after
+ * REFRESH_AHEAD_PERCENT of its time to live; after the time to live, it
+ * is resolved again synchronously.
+ * lookup returns a proxy implementing the requested remote interface:
+ * if a call through it fails with COMM_FAILURE or OBJECT_NOT_EXIST
+ * (or the RemoteException mapped from them), the entry is evicted and the
+ * next call resolves the name again. The failure is still passed to the
+ * caller. Use getDelegate, where the reference itself is needed, e.g.
+ * as argument of a remote call.
+ * This class is thread safe.
+ */
+public class CachingContext {
+
+    /** the default time to live of an entry */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 5 * 60 * 1000;
+
+    /** an entry is refreshed in the background after this part of its time to live */
+    public static final int REFRESH_AHEAD_PERCENT = 75;
+
+    private Context m_context;
+    private long m_timeToLive;
+
+    /** name -> Entry */
+    private HashMap m_entries = new HashMap();
+
+    /** the names to refresh; guarded by itself */
+    private LinkedList m_refreshQueue = new LinkedList();
+    private Thread m_refresher;
+
+    private long m_hits;
+    private long m_misses;
+    private long m_refreshes;
+    private long m_evictions;
+
+
+    /** creates a cache on top of a new InitialContext */
+    public CachingContext() throws NamingException {
+        this(new InitialContext(), DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /** creates a cache on top of a new InitialContext with the given environment */
+    public CachingContext(Hashtable environment, long timeToLiveMillis) throws NamingException {
+        this(new InitialContext(environment), timeToLiveMillis);
+    }
+
+    public CachingContext(Context context, long timeToLiveMillis) {
+        if (context == null) {
+            throw new IllegalArgumentException("context must not be null");
+        }
+        if (timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("time to live must be > 0");
+        }
+        m_context = context;
+        m_timeToLive = timeToLiveMillis;
+    }
+
+
+    /**
+     * returns a reference for name, narrowed to remoteInterface; the
+     * reference is resolved only, if it is not cached or expired.
+     */
+    public Object lookup(String name, Class remoteInterface) throws NamingException {
+        if (!remoteInterface.isInterface()) {
+            throw new IllegalArgumentException("not an interface: " + remoteInterface);
+        }
+        Entry entry = GetEntry(name, remoteInterface, true);
+        return Proxy.newProxyInstance(remoteInterface.getClassLoader(),
+                                      new Class[] { remoteInterface },
+                                      new EvictingHandler(this, name, remoteInterface,
+                                                          entry.Stub));
+    }
+
+    /** returns the narrowed reference behind a proxy returned by lookup */
+    public static Object getDelegate(Object proxy) {
+        if (Proxy.isProxyClass(proxy.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+            if (handler instanceof EvictingHandler) {
+                return ((EvictingHandler)handler).GetStub();
+            }
+        }
+        return proxy;
+    }
+
+    /** removes the entry for name from the cache */
+    public void evict(String name) {
+        synchronized(m_entries) {
+            if (m_entries.remove(name) != null) {
+                m_evictions++;
+            }
+        }
+    }
+
+    /** removes all entries */
+    public void clear() {
+        synchronized(m_entries) {
+            m_evictions += m_entries.size();
+            m_entries.clear();
+        }
+    }
+
+    /** the number of lookups served from the cache */
+    public long getHits() {
+        synchronized(m_entries) {
+            return m_hits;
+        }
+    }
+
+    /**
+     * the number of round trips to the name service; besides lookups, calls
+     * through a proxy resolve an expired or evicted entry again.
+     */
+    public long getMisses() {
+        synchronized(m_entries) {
+            return m_misses;
+        }
+    }
+
+    /** the number of entries refreshed in the background */
+    public long getRefreshes() {
+        synchronized(m_entries) {
+            return m_refreshes;
+        }
+    }
+
+    /** the number of entries removed by evict, clear or because of a failed call */
+    public long getEvictions() {
+        synchronized(m_entries) {
+            return m_evictions;
+        }
+    }
+
+    /** stops the refresh thread and closes the wrapped context */
+    public void close() throws NamingException {
+        synchronized(m_refreshQueue) {
+            if (m_refresher != null) {
+                m_refresher.interrupt();
+                m_refresher = null;
+            }
+            m_refreshQueue.clear();
+        }
+        clear();
+        synchronized(m_context) {
+            m_context.close();
+        }
+    }
+
+    public String toString() {
+        synchronized(m_entries) {
+            return "CachingContext[entries=" + m_entries.size() + ", hits=" + m_hits +
+                   ", misses=" + m_misses + ", refreshes=" + m_refreshes +
+                   ", evictions=" + m_evictions + "]";
+        }
+    }
+
+
+    private Entry GetEntry(String name, Class remoteInterface, boolean countHit)
+        throws NamingException {
+        long now = System.currentTimeMillis();
+        synchronized(m_entries) {
+            Entry entry = (Entry)m_entries.get(name);
+            if ((entry != null) && (entry.RemoteInterface == remoteInterface) &&
+                (now < entry.ExpiresAt)) {
+                if (countHit) {
+                    m_hits++;
+                }
+                if ((now >= entry.RefreshAt) && (!entry.RefreshScheduled)) {
+                    entry.RefreshScheduled = true;
+                    ScheduleRefresh(name);
+                }
+                return entry;
+            }
+            m_misses++;
+        }
+        // resolve outside the lock: other names can be served meanwhile
+        Entry entry = Resolve(name, remoteInterface);
+        synchronized(m_entries) {
+            m_entries.put(name, entry);
+        }
+        return entry;
+    }
+
+    private Entry Resolve(String name, Class remoteInterface) throws NamingException {
+        Object objRef;
+        // a context is not guaranteed to be thread safe
+        synchronized(m_context) {
+            objRef = m_context.lookup(name);
+        }
+        Object stub = PortableRemoteObject.narrow(objRef, remoteInterface);
+        long now = System.currentTimeMillis();
+        return new Entry(remoteInterface, stub, now + m_timeToLive,
+                         now + m_timeToLive * REFRESH_AHEAD_PERCENT / 100);
+    }
+
+    private void ScheduleRefresh(String name) {
+        synchronized(m_refreshQueue) {
+            m_refreshQueue.addLast(name);
+            if (m_refresher == null) {
+                m_refresher = new Thread(new Refresher(), "CachingContext refresher");
+                m_refresher.setDaemon(true);
+                m_refresher.start();
+            }
+            m_refreshQueue.notify();
+        }
+    }
+
+    private void Refresh(String name) {
+        Entry current;
+        synchronized(m_entries) {
+            current = (Entry)m_entries.get(name);
+        }
+        if (current == null) {
+            return; // evicted meanwhile
+        }
+        try {
+            Entry refreshed = Resolve(name, current.RemoteInterface);
+            synchronized(m_entries) {
+                // don't resurrect an entry evicted during the refresh
+                if (m_entries.get(name) == current) {
+                    m_entries.put(name, refreshed);
+                    m_refreshes++;
+                }
+            }
+        } catch (Exception e) {
+            // keep the current entry until it expires; the next lookup after
+            // the refresh point tries again
+            synchronized(m_entries) {
+                current.RefreshScheduled = false;
+            }
+        }
+    }
+
+    /** evicts name, if it still maps to stub and failure indicates a stale reference */
+    private void EvictOnFailure(String name, Object stub, Throwable failure) {
+        if (!IsStaleReferenceFailure(failure)) {
+            return;
+        }
+        synchronized(m_entries) {
+            Entry entry = (Entry)m_entries.get(name);
+            if ((entry != null) && (entry.Stub == stub)) {
+                m_entries.remove(name);
+                m_evictions++;
+            }
+        }
+    }
+
+    private static boolean IsStaleReferenceFailure(Throwable failure) {
+        if (failure instanceof RemoteException) {
+            // rmi stubs map COMM_FAILURE to MarshalException and
+            // OBJECT_NOT_EXIST to NoSuchObjectException with the system exception as detail
+            failure = ((RemoteException)failure).detail;
+        }
+        return (failure instanceof COMM_FAILURE) || (failure instanceof OBJECT_NOT_EXIST);
+    }
+
+
+    private static class Entry {
+
+        final Class RemoteInterface;
+        final Object Stub;
+        final long ExpiresAt;
+        final long RefreshAt;
+        boolean RefreshScheduled;
+
+        Entry(Class remoteInterface, Object stub, long expiresAt, long refreshAt) {
+            RemoteInterface = remoteInterface;
+            Stub = stub;
+            ExpiresAt = expiresAt;
+            RefreshAt = refreshAt;
+        }
+
+    }
+
+
+    /**
+     * forwards the calls to the currently cached reference and evicts it, if
+     * it turns out to be stale.
+     */
+    private static class EvictingHandler implements InvocationHandler {
+
+        private CachingContext m_cache;
+        private String m_name;
+        private Class m_remoteInterface;
+        private Object m_stub;
+
+        EvictingHandler(CachingContext cache, String name, Class remoteInterface,
+                        Object stub) {
+            m_cache = cache;
+            m_name = name;
+            m_remoteInterface = remoteInterface;
+            m_stub = stub;
+        }
+
+        synchronized Object GetStub() {
+            return m_stub;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object stub;
+            try {
+                // picks up refreshed and re-resolved references without counting as lookup
+                stub = m_cache.GetEntry(m_name, m_remoteInterface, false).Stub;
+            } catch (NamingException e) {
+                stub = GetStub();
+            }
+            synchronized(this) {
+                m_stub = stub;
+            }
+            try {
+                return method.invoke(stub, args);
+            } catch (InvocationTargetException e) {
+                m_cache.EvictOnFailure(m_name, stub, e.getTargetException());
+                throw e.getTargetException();
+            }
+        }
+
+    }
+
+
+    private class Refresher implements Runnable {
+
+        public void run() {
+            while (true) {
+                String name;
+                synchronized(m_refreshQueue) {
+                    while (m_refreshQueue.isEmpty()) {
+                        try {
+                            m_refreshQueue.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (m_refresher != Thread.currentThread()) {
+                        return; // closed
+                    }
+                    name = (String)m_refreshQueue.removeFirst();
+                }
+                Refresh(name);
+            }
+        }
+
+    }
+
+}
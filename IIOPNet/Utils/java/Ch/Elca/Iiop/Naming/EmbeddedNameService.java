@@ -0,0 +1,191 @@
+/* EmbeddedNameService.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import java.util.Properties;
+
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.CosNaming.NameComponent;
+import org.omg.CosNaming.NamingContextExt;
+import org.omg.CosNaming.NamingContextPackage.CannotProceed;
+import org.omg.CosNaming.NamingContextPackage.InvalidName;
+import org.omg.CosNaming.NamingContextPackage.NotFound;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitializer;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAHelper;
+
+
+/**
+ * A transient CosNaming name service, which runs inside the process using it,
+ * e.g. a test driver or a server, instead of as separate tnameserv/orbd process.
+ * The service has its own ORB listening on the given port; clients find the
+ * root context with corbaloc::host:port/NameService (e.g. with the .NET
+ * RmiIiopInit or the JNDI url iiop://host:port).
+ * The bindings are kept in memory only; every context synchronizes on its own
+ * bindings, so lookups in different contexts don't contend.
+ * bindAll and resolveAll give the hosting process direct access to the tree
+ * without marshalling, e.g. to register many objects at startup; remote
+ * clients resolve many names with one request using the BulkResolver.
+ * The port is set with the Sun ORB property com.sun.CORBA.ORBServerPort;
+ * other ORBs need their own port property in the additional properties.
+ */
+public class EmbeddedNameService {
+
+    /** the object key of the root context in corbaloc urls */
+    public static final String OBJECT_KEY = "NameService";
+
+    /** the context registered by the Initializer of the ORB being created */
+    private static NamingContextImpl s_pending;
+
+    private ORB m_orb;
+    private NamingContextImpl m_root;
+    private int m_port;
+
+
+    /** starts a name service listening on port */
+    public EmbeddedNameService(int port) {
+        this(port, new Properties());
+    }
+
+    /**
+     * starts a name service listening on port; additionalProperties are
+     * passed to ORB.init.
+     */
+    public EmbeddedNameService(int port, Properties additionalProperties) {
+        Properties props = new Properties();
+        props.putAll(additionalProperties);
+        props.put("com.sun.CORBA.ORBServerPort", String.valueOf(port));
+        props.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                  Initializer.class.getName(), "");
+        synchronized(EmbeddedNameService.class) {
+            m_orb = ORB.init(new String[0], props);
+            m_root = s_pending;
+            s_pending = null;
+        }
+        if (m_root == null) {
+            throw new IllegalStateException("name service initializer not run");
+        }
+        try {
+            POA rootPoa = POAHelper.narrow(m_orb.resolve_initial_references("RootPOA"));
+            rootPoa.the_POAManager().activate();
+        } catch (Exception e) {
+            m_orb.destroy();
+            throw new IllegalStateException("can't activate the name service: " + e);
+        }
+        m_port = port;
+    }
+
+
+    /** the reference of the root context */
+    public NamingContextExt getRootContext() {
+        return m_root.Reference();
+    }
+
+    /** the orb hosting the name service */
+    public ORB getOrb() {
+        return m_orb;
+    }
+
+    /** the corbaloc url of the root context for the given host */
+    public String getCorbaloc(String host) {
+        return "corbaloc::" + host + ":" + m_port + "/" + OBJECT_KEY;
+    }
+
+    /**
+     * binds objs[i] to the stringified name names[i], e.g. "dept/svc.kind";
+     * missing intermediate contexts are created. Existing bindings are
+     * replaced, if rebind is true; otherwise names[i] is skipped.
+     * Returns the number of new or replaced bindings.
+     */
+    public int bindAll(String[] names, org.omg.CORBA.Object[] objs, boolean rebind)
+        throws NotFound, CannotProceed, InvalidName {
+        if (names.length != objs.length) {
+            throw new IllegalArgumentException("names and objs must have the same length");
+        }
+        int bound = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (m_root.BindCreatingContexts(NameParser.ToName(names[i]), objs[i], rebind)) {
+                bound++;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * resolves the stringified names in the hosting process;
+     * result[i] is null, if names[i] is not bound.
+     */
+    public org.omg.CORBA.Object[] resolveAll(String[] names) throws InvalidName {
+        NameComponent[][] parsed = new NameComponent[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            parsed[i] = NameParser.ToName(names[i]);
+        }
+        return m_root.ResolveAll(parsed);
+    }
+
+    /** stops the name service; all bindings are lost */
+    public void shutdown() {
+        m_orb.shutdown(true);
+        m_orb.destroy();
+    }
+
+
+    /** runs a name service on the port given as argument (default 1050) */
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0 ? Integer.parseInt(args[0]) : 1050);
+        EmbeddedNameService service = new EmbeddedNameService(port);
+        System.out.println("name service running at " + service.getCorbaloc("localhost"));
+        service.getOrb().run();
+    }
+
+
+    /**
+     * registers the root context as initial reference NameService,
+     * so that it can be resolved with corbaloc.
+     */
+    public static class Initializer extends LocalObject implements ORBInitializer {
+
+        public void pre_init(ORBInitInfo info) {
+        }
+
+        public void post_init(ORBInitInfo info) {
+            try {
+                POA rootPoa = POAHelper.narrow(info.resolve_initial_references("RootPOA"));
+                NamingContextImpl root = new NamingContextImpl(rootPoa);
+                info.register_initial_reference(OBJECT_KEY, root.Reference());
+                s_pending = root;
+            } catch (Exception e) {
+                throw new org.omg.CORBA.INITIALIZE("can't register the name service: " + e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,302 @@
+/* LoadBalancer.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.rmi.PortableRemoteObject;
+
+import org.omg.CORBA.COMM_FAILURE;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.OBJECT_NOT_EXIST;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.SystemException;
+import org.omg.CORBA.TRANSIENT;
+
+
+/**
+ * Spreads the calls to a remote interface over several servers providing
+ * the same service. The endpoints are resolved e.g. from the bindings of a
+ * naming context (resolveAll(Context, ...)) or from a list of corbaloc urls
+ * (resolveAll(ORB, ...)); getProxy returns an implementation of the remote
+ * interface, which forwards each call to one of them:
+ * ROUND_ROBIN takes the endpoints in turn, LEAST_OUTSTANDING the endpoint
+ * with the fewest calls in progress.
+ * An endpoint failing with COMM_FAILURE, TRANSIENT or OBJECT_NOT_EXIST
+ * (or the RemoteException mapped from them) is ejected for
+ * getRetryAfterMillis. If the failed call was not executed
+ * (COMPLETED_NO), it is retried on another endpoint; otherwise the
+ * failure is passed to the caller.
+ * This class is thread safe.
+ */
+public class LoadBalancer implements InvocationHandler {
+
+    public static final int ROUND_ROBIN = 0;
+    public static final int LEAST_OUTSTANDING = 1;
+
+    public static final long DEFAULT_RETRY_AFTER_MILLIS = 30 * 1000;
+
+    private Class m_remoteInterface;
+    private Endpoint[] m_endpoints;
+    private int m_policy;
+    private long m_retryAfter = DEFAULT_RETRY_AFTER_MILLIS;
+    /** the next endpoint to use for round robin, resp. to start the search with */
+    private int m_next;
+    private Object m_proxy;
+
+
+    /**
+     * @param endpoints references to the servers, narrowed to remoteInterface
+     * @param policy ROUND_ROBIN or LEAST_OUTSTANDING
+     */
+    public LoadBalancer(Object[] endpoints, Class remoteInterface, int policy) {
+        if ((endpoints == null) || (endpoints.length == 0)) {
+            throw new IllegalArgumentException("at least one endpoint is required");
+        }
+        if (!remoteInterface.isInterface()) {
+            throw new IllegalArgumentException("not an interface: " + remoteInterface);
+        }
+        if ((policy != ROUND_ROBIN) && (policy != LEAST_OUTSTANDING)) {
+            throw new IllegalArgumentException("unknown policy: " + policy);
+        }
+        m_remoteInterface = remoteInterface;
+        m_policy = policy;
+        m_endpoints = new Endpoint[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            m_endpoints[i] = new Endpoint(endpoints[i]);
+        }
+        m_proxy = Proxy.newProxyInstance(remoteInterface.getClassLoader(),
+                                         new Class[] { remoteInterface }, this);
+    }
+
+
+    /**
+     * resolves all objects bound in the naming context contextName, narrowed
+     * to remoteInterface; sub contexts are skipped.
+     */
+    public static Object[] resolveAll(Context context, String contextName,
+                                      Class remoteInterface) throws NamingException {
+        ArrayList result = new ArrayList();
+        NamingEnumeration bindings = context.listBindings(contextName);
+        try {
+            while (bindings.hasMore()) {
+                Object bound = ((Binding)bindings.next()).getObject();
+                if (!(bound instanceof Context)) {
+                    result.add(PortableRemoteObject.narrow(bound, remoteInterface));
+                }
+            }
+        } finally {
+            bindings.close();
+        }
+        return result.toArray();
+    }
+
+    /**
+     * resolves the given corbaloc / corbaname / IOR urls, narrowed to
+     * remoteInterface.
+     */
+    public static Object[] resolveAll(ORB orb, String[] urls, Class remoteInterface) {
+        Object[] result = new Object[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            result[i] = PortableRemoteObject.narrow(orb.string_to_object(urls[i]),
+                                                    remoteInterface);
+        }
+        return result;
+    }
+
+
+    /** returns the implementation of the remote interface, which balances the calls */
+    public Object getProxy() {
+        return m_proxy;
+    }
+
+    /** the time an endpoint is not used after a failure */
+    public synchronized long getRetryAfterMillis() {
+        return m_retryAfter;
+    }
+
+    public synchronized void setRetryAfterMillis(long retryAfter) {
+        m_retryAfter = retryAfter;
+    }
+
+    public int getNrOfEndpoints() {
+        return m_endpoints.length;
+    }
+
+    /** the number of endpoints, which are not ejected */
+    public synchronized int getNrOfAvailableEndpoints() {
+        long now = System.currentTimeMillis();
+        int result = 0;
+        for (int i = 0; i < m_endpoints.length; i++) {
+            if (m_endpoints[i].IsAvailable(now)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /** the number of calls forwarded to the endpoint with the given index */
+    public synchronized long getNrOfCalls(int endpoint) {
+        return m_endpoints[endpoint].Calls;
+    }
+
+    /** the number of times the endpoint with the given index was ejected */
+    public synchronized long getNrOfEjections(int endpoint) {
+        return m_endpoints[endpoint].Ejections;
+    }
+
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return InvokeObjectMethod(proxy, method, args);
+        }
+        Endpoint endpoint = null;
+        for (int attempt = 0; ; attempt++) {
+            endpoint = Acquire(endpoint);
+            try {
+                return method.invoke(endpoint.Stub, args);
+            } catch (InvocationTargetException e) {
+                Throwable failure = e.getTargetException();
+                SystemException endpointFailure = GetEndpointFailure(failure);
+                if (endpointFailure == null) {
+                    throw failure;
+                }
+                Eject(endpoint);
+                if ((endpointFailure.completed != CompletionStatus.COMPLETED_NO) ||
+                    (attempt + 1 >= m_endpoints.length)) {
+                    throw failure;
+                }
+            } finally {
+                Release(endpoint);
+            }
+        }
+    }
+
+    /** handles the methods of java.lang.Object on the proxy */
+    private Object InvokeObjectMethod(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        } else if (method.getName().equals("hashCode")) {
+            return new Integer(System.identityHashCode(proxy));
+        }
+        return toString();
+    }
+
+    /**
+     * selects the endpoint for the next call; an endpoint, which failed for
+     * this call, is only selected again, if no other is available.
+     */
+    private synchronized Endpoint Acquire(Endpoint failed) {
+        long now = System.currentTimeMillis();
+        Endpoint selected = null;
+        for (int i = 0; i < m_endpoints.length; i++) {
+            Endpoint candidate = m_endpoints[(m_next + i) % m_endpoints.length];
+            if ((candidate == failed) || (!candidate.IsAvailable(now))) {
+                continue;
+            }
+            if ((selected == null) || (m_policy == ROUND_ROBIN)) {
+                selected = candidate;
+                if (m_policy == ROUND_ROBIN) {
+                    break;
+                }
+            } else if (candidate.Outstanding < selected.Outstanding) {
+                selected = candidate;
+            }
+        }
+        if (selected == null) {
+            // all ejected: try the one, which is available again the soonest
+            selected = m_endpoints[m_next % m_endpoints.length];
+            for (int i = 0; i < m_endpoints.length; i++) {
+                if ((m_endpoints[i] != failed) &&
+                    ((selected == failed) || (m_endpoints[i].EjectedUntil < selected.EjectedUntil))) {
+                    selected = m_endpoints[i];
+                }
+            }
+        }
+        m_next = (m_next + 1) % m_endpoints.length;
+        selected.Outstanding++;
+        selected.Calls++;
+        return selected;
+    }
+
+    private synchronized void Release(Endpoint endpoint) {
+        endpoint.Outstanding--;
+    }
+
+    private synchronized void Eject(Endpoint endpoint) {
+        endpoint.EjectedUntil = System.currentTimeMillis() + m_retryAfter;
+        endpoint.Ejections++;
+    }
+
+    /** returns the system exception, if failure shows that the endpoint is not usable */
+    private static SystemException GetEndpointFailure(Throwable failure) {
+        if (failure instanceof RemoteException) {
+            // rmi stubs map system exceptions to RemoteExceptions with the system exception as detail
+            failure = ((RemoteException)failure).detail;
+        }
+        if ((failure instanceof COMM_FAILURE) || (failure instanceof TRANSIENT) ||
+            (failure instanceof OBJECT_NOT_EXIST)) {
+            return (SystemException)failure;
+        }
+        return null;
+    }
+
+    public String toString() {
+        return "LoadBalancer[" + m_remoteInterface.getName() + ", " + m_endpoints.length +
+               " endpoints, policy=" + (m_policy == ROUND_ROBIN ? "round robin" : "least outstanding") + "]";
+    }
+
+
+    private static class Endpoint {
+
+        final Object Stub;
+        int Outstanding;
+        long Calls;
+        long Ejections;
+        long EjectedUntil;
+
+        Endpoint(Object stub) {
+            Stub = stub;
+        }
+
+        boolean IsAvailable(long now) {
+            return now >= EjectedUntil;
+        }
+
+    }
+
+}
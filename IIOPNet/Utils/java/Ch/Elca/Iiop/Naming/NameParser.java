@@ -0,0 +1,143 @@
+/* NameParser.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+
+import org.omg.CosNaming.NameComponent;
+import org.omg.CosNaming.NamingContextPackage.InvalidName;
+
+
+/**
+ * Conversion between CosNaming names and their stringified form,
+ * as defined by the interoperable naming service:
+ * components separated by '/', id and kind separated by '.',
+ * '\' escapes these three characters.
+ */
+class NameParser {
+
+    private static final String URL_UNESCAPED = ";/:?@&=+$,-_.!~*'()";
+
+    private NameParser() {
+    }
+
+    static String ToString(NameComponent[] n) {
+        StringBuffer result = new StringBuffer();
+        for (int i = 0; i < n.length; i++) {
+            if (i > 0) {
+                result.append('/');
+            }
+            if ((n[i].id.length() == 0) && (n[i].kind.length() == 0)) {
+                result.append('.');
+                continue;
+            }
+            Escape(n[i].id, result);
+            if (n[i].kind.length() > 0) {
+                result.append('.');
+                Escape(n[i].kind, result);
+            }
+        }
+        return result.toString();
+    }
+
+    static NameComponent[] ToName(String sn) throws InvalidName {
+        if ((sn == null) || (sn.length() == 0)) {
+            throw new InvalidName();
+        }
+        ArrayList components = new ArrayList();
+        StringBuffer id = new StringBuffer();
+        StringBuffer kind = null;
+        for (int i = 0; i < sn.length(); i++) {
+            char c = sn.charAt(i);
+            StringBuffer current = (kind != null ? kind : id);
+            if (c == '\\') {
+                if (++i == sn.length()) {
+                    throw new InvalidName();
+                }
+                current.append(sn.charAt(i));
+            } else if (c == '.') {
+                if (kind != null) {
+                    throw new InvalidName();
+                }
+                kind = new StringBuffer();
+            } else if (c == '/') {
+                components.add(Component(id, kind));
+                id = new StringBuffer();
+                kind = null;
+            } else {
+                current.append(c);
+            }
+        }
+        components.add(Component(id, kind));
+        return (NameComponent[])components.toArray(new NameComponent[components.size()]);
+    }
+
+    /** escapes a stringified name for the use in a corbaname url */
+    static String UrlEscape(String sn) {
+        byte[] utf8;
+        try {
+            utf8 = sn.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not supported");
+        }
+        StringBuffer result = new StringBuffer(utf8.length);
+        for (int i = 0; i < utf8.length; i++) {
+            int b = utf8[i] & 0xff;
+            if (((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z')) ||
+                ((b >= '0') && (b <= '9')) || (URL_UNESCAPED.indexOf(b) >= 0)) {
+                result.append((char)b);
+            } else {
+                result.append('%');
+                result.append(Character.forDigit(b >> 4, 16));
+                result.append(Character.forDigit(b & 0xf, 16));
+            }
+        }
+        return result.toString();
+    }
+
+    private static NameComponent Component(StringBuffer id, StringBuffer kind)
+        throws InvalidName {
+        if ((id.length() == 0) && ((kind == null) || (kind.length() > 0))) {
+            // only "." may have an empty id
+            throw new InvalidName();
+        }
+        return new NameComponent(id.toString(), (kind != null ? kind.toString() : ""));
+    }
+
+    private static void Escape(String s, StringBuffer result) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c == '/') || (c == '.') || (c == '\\')) {
+                result.append('\\');
+            }
+            result.append(c);
+        }
+    }
+
+}
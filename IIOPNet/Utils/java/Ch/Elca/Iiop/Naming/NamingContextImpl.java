@@ -0,0 +1,499 @@
+/* NamingContextImpl.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Naming;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.omg.CORBA.BAD_PARAM;
+import org.omg.CORBA.OBJECT_NOT_EXIST;
+import org.omg.CORBA.portable.InputStream;
+import org.omg.CORBA.portable.ObjectImpl;
+import org.omg.CORBA.portable.OutputStream;
+import org.omg.CORBA.portable.ResponseHandler;
+import org.omg.CosNaming.Binding;
+import org.omg.CosNaming.BindingHolder;
+import org.omg.CosNaming.BindingIterator;
+import org.omg.CosNaming.BindingIteratorPOA;
+import org.omg.CosNaming.BindingListHolder;
+import org.omg.CosNaming.BindingType;
+import org.omg.CosNaming.BindingIteratorHolder;
+import org.omg.CosNaming.NameComponent;
+import org.omg.CosNaming._BindingIteratorStub;
+import org.omg.CosNaming.NamingContext;
+import org.omg.CosNaming.NamingContextHelper;
+import org.omg.CosNaming.NamingContextExt;
+import org.omg.CosNaming.NamingContextExtPOA;
+import org.omg.CosNaming._NamingContextExtStub;
+import org.omg.CosNaming.NamingContextExtPackage.InvalidAddress;
+import org.omg.CosNaming.NamingContextPackage.AlreadyBound;
+import org.omg.CosNaming.NamingContextPackage.CannotProceed;
+import org.omg.CosNaming.NamingContextPackage.InvalidName;
+import org.omg.CosNaming.NamingContextPackage.NotEmpty;
+import org.omg.CosNaming.NamingContextPackage.NotFound;
+import org.omg.CosNaming.NamingContextPackage.NotFoundReason;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.Servant;
+
+
+/**
+ * Transient CosNaming context of the EmbeddedNameService.
+ * Each context guards its own bindings, i.e. operations on different
+ * contexts don't block each other. Compound names are resolved without
+ * remote calls, as long as the intermediate contexts belong to the same
+ * name service; contexts of other name services bound into the tree are
+ * called remotely.
+ */
+class NamingContextImpl extends NamingContextExtPOA {
+
+    private POA m_poa;
+    private NamingContextExt m_reference;
+
+    /** name key -> Entry; guarded by itself */
+    private HashMap m_bindings = new HashMap();
+
+
+    NamingContextImpl(POA poa) {
+        m_poa = poa;
+    }
+
+
+    /** the reference of this context; activates it on first use */
+    synchronized NamingContextExt Reference() {
+        if (m_reference == null) {
+            ObjectImpl ref;
+            try {
+                ref = (ObjectImpl)m_poa.servant_to_reference(this);
+            } catch (Exception e) {
+                throw new OBJECT_NOT_EXIST("context not active: " + e);
+            }
+            // the type is known: narrow would call _is_a, which blocks
+            // until the poa manager is active
+            _NamingContextExtStub stub = new _NamingContextExtStub();
+            stub._set_delegate(ref._get_delegate());
+            m_reference = stub;
+        }
+        return m_reference;
+    }
+
+
+    public void bind(NameComponent[] n, org.omg.CORBA.Object obj)
+        throws NotFound, CannotProceed, InvalidName, AlreadyBound {
+        Bind(n, obj, false, false);
+    }
+
+    public void rebind(NameComponent[] n, org.omg.CORBA.Object obj)
+        throws NotFound, CannotProceed, InvalidName {
+        try {
+            Bind(n, obj, false, true);
+        } catch (AlreadyBound e) {
+            throw new IllegalStateException("rebind must not throw AlreadyBound");
+        }
+    }
+
+    public void bind_context(NameComponent[] n, NamingContext nc)
+        throws NotFound, CannotProceed, InvalidName, AlreadyBound {
+        Bind(n, nc, true, false);
+    }
+
+    public void rebind_context(NameComponent[] n, NamingContext nc)
+        throws NotFound, CannotProceed, InvalidName {
+        try {
+            Bind(n, nc, true, true);
+        } catch (AlreadyBound e) {
+            throw new IllegalStateException("rebind must not throw AlreadyBound");
+        }
+    }
+
+    public org.omg.CORBA.Object resolve(NameComponent[] n)
+        throws NotFound, CannotProceed, InvalidName {
+        CheckName(n);
+        Entry entry = GetEntry(n);
+        if (n.length == 1) {
+            return entry.Ref;
+        }
+        NameComponent[] rest = Rest(n);
+        if (entry.Local != null) {
+            return entry.Local.resolve(rest);
+        }
+        return NamingContextHelper.narrow(entry.Ref).resolve(rest);
+    }
+
+    public void unbind(NameComponent[] n) throws NotFound, CannotProceed, InvalidName {
+        CheckName(n);
+        if (n.length > 1) {
+            Entry entry = GetEntry(n);
+            if (entry.Local != null) {
+                entry.Local.unbind(Rest(n));
+            } else {
+                NamingContextHelper.narrow(entry.Ref).unbind(Rest(n));
+            }
+            return;
+        }
+        synchronized(m_bindings) {
+            if (m_bindings.remove(Key(n[0])) == null) {
+                throw new NotFound(NotFoundReason.missing_node, n);
+            }
+        }
+    }
+
+    public NamingContext new_context() {
+        return new NamingContextImpl(m_poa).Reference();
+    }
+
+    public NamingContext bind_new_context(NameComponent[] n)
+        throws NotFound, AlreadyBound, CannotProceed, InvalidName {
+        CheckName(n);
+        if (n.length > 1) {
+            Entry entry = GetEntry(n);
+            if (entry.Local != null) {
+                return entry.Local.bind_new_context(Rest(n));
+            }
+            return NamingContextHelper.narrow(entry.Ref).bind_new_context(Rest(n));
+        }
+        NamingContextImpl context = new NamingContextImpl(m_poa);
+        NamingContext reference = context.Reference();
+        synchronized(m_bindings) {
+            String key = Key(n[0]);
+            if (m_bindings.containsKey(key)) {
+                context.Deactivate();
+                throw new AlreadyBound();
+            }
+            m_bindings.put(key, new Entry(n[0], reference, BindingType.ncontext, context));
+        }
+        return reference;
+    }
+
+    public void destroy() throws NotEmpty {
+        synchronized(m_bindings) {
+            if (!m_bindings.isEmpty()) {
+                throw new NotEmpty();
+            }
+        }
+        Deactivate();
+    }
+
+    public void list(int how_many, BindingListHolder bl, BindingIteratorHolder bi) {
+        Binding[] all;
+        synchronized(m_bindings) {
+            all = new Binding[m_bindings.size()];
+            Iterator it = m_bindings.values().iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Entry entry = (Entry)it.next();
+                all[i] = new Binding(new NameComponent[] { entry.Name }, entry.Type);
+            }
+        }
+        int first = Math.min(Math.max(how_many, 0), all.length);
+        bl.value = new Binding[first];
+        System.arraycopy(all, 0, bl.value, 0, first);
+        if (first == all.length) {
+            bi.value = null;
+        } else {
+            Binding[] rest = new Binding[all.length - first];
+            System.arraycopy(all, first, rest, 0, rest.length);
+            bi.value = new BindingIteratorImpl(m_poa, rest).Reference();
+        }
+    }
+
+    public String to_string(NameComponent[] n) throws InvalidName {
+        CheckName(n);
+        return NameParser.ToString(n);
+    }
+
+    public NameComponent[] to_name(String sn) throws InvalidName {
+        return NameParser.ToName(sn);
+    }
+
+    public String to_url(String addr, String sn) throws InvalidAddress, InvalidName {
+        if ((addr == null) || (addr.length() == 0)) {
+            throw new InvalidAddress();
+        }
+        // validates sn
+        NameParser.ToName(sn);
+        return "corbaname:" + addr + "#" + NameParser.UrlEscape(sn);
+    }
+
+    public org.omg.CORBA.Object resolve_str(String sn)
+        throws NotFound, CannotProceed, InvalidName {
+        return resolve(NameParser.ToName(sn));
+    }
+
+    /** dispatches the BulkResolver operation in addition to the NamingContextExt ones */
+    public OutputStream _invoke(String method, InputStream in, ResponseHandler handler) {
+        if (!BulkResolver.BULK_OPERATION.equals(method)) {
+            return super._invoke(method, in, handler);
+        }
+        org.omg.CORBA.Object[] result = ResolveAll(BulkResolver.ReadNames(in));
+        OutputStream out = handler.createReply();
+        BulkResolver.WriteObjects(out, result);
+        return out;
+    }
+
+
+    /** resolves the names; result[i] is null, if names[i] can't be resolved */
+    org.omg.CORBA.Object[] ResolveAll(NameComponent[][] names) {
+        org.omg.CORBA.Object[] result = new org.omg.CORBA.Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            try {
+                result[i] = resolve(names[i]);
+            } catch (NotFound e) {
+                result[i] = null;
+            } catch (CannotProceed e) {
+                result[i] = null;
+            } catch (InvalidName e) {
+                result[i] = null;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * binds the object, creating the missing intermediate contexts of n;
+     * returns false, if the name was already bound and rebind is false.
+     * Only used locally, e.g. for bulk binding.
+     */
+    boolean BindCreatingContexts(NameComponent[] n, org.omg.CORBA.Object obj, boolean rebind)
+        throws NotFound, CannotProceed, InvalidName {
+        CheckName(n);
+        NamingContextImpl target = this;
+        for (int i = 0; i < n.length - 1; i++) {
+            NamingContextImpl child;
+            synchronized(target.m_bindings) {
+                String key = Key(n[i]);
+                Entry entry = (Entry)target.m_bindings.get(key);
+                if (entry == null) {
+                    child = new NamingContextImpl(m_poa);
+                    target.m_bindings.put(key, new Entry(n[i], child.Reference(),
+                                                         BindingType.ncontext, child));
+                } else if (entry.Local != null) {
+                    child = entry.Local;
+                } else {
+                    // foreign or object binding: can't continue locally
+                    NameComponent[] rest = new NameComponent[n.length - i];
+                    System.arraycopy(n, i, rest, 0, rest.length);
+                    throw new CannotProceed(target.Reference(), rest);
+                }
+            }
+            target = child;
+        }
+        try {
+            target.Bind(new NameComponent[] { n[n.length - 1] }, obj, false, rebind);
+            return true;
+        } catch (AlreadyBound e) {
+            return false;
+        }
+    }
+
+    /** the number of bindings of this context (not including sub contexts) */
+    int Size() {
+        synchronized(m_bindings) {
+            return m_bindings.size();
+        }
+    }
+
+
+    private void Bind(NameComponent[] n, org.omg.CORBA.Object obj, boolean isContext,
+                      boolean rebind)
+        throws NotFound, CannotProceed, InvalidName, AlreadyBound {
+        CheckName(n);
+        if (obj == null) {
+            throw new BAD_PARAM("can't bind a null reference");
+        }
+        if (n.length > 1) {
+            Entry entry = GetEntry(n);
+            NameComponent[] rest = Rest(n);
+            if (entry.Local != null) {
+                entry.Local.Bind(rest, obj, isContext, rebind);
+            } else {
+                NamingContext nc = NamingContextHelper.narrow(entry.Ref);
+                if (isContext) {
+                    NamingContext ctx = NamingContextHelper.narrow(obj);
+                    if (rebind) {
+                        nc.rebind_context(rest, ctx);
+                    } else {
+                        nc.bind_context(rest, ctx);
+                    }
+                } else if (rebind) {
+                    nc.rebind(rest, obj);
+                } else {
+                    nc.bind(rest, obj);
+                }
+            }
+            return;
+        }
+        BindingType type = (isContext ? BindingType.ncontext : BindingType.nobject);
+        Entry newEntry = new Entry(n[0], obj, type, (isContext ? LocalContext(obj) : null));
+        synchronized(m_bindings) {
+            String key = Key(n[0]);
+            Entry existing = (Entry)m_bindings.get(key);
+            if (existing != null) {
+                if (!rebind) {
+                    throw new AlreadyBound();
+                }
+                if (existing.Type != type) {
+                    throw new NotFound(isContext ? NotFoundReason.not_context :
+                                                   NotFoundReason.not_object, n);
+                }
+            }
+            m_bindings.put(key, newEntry);
+        }
+    }
+
+    /** returns the entry for the first component; must be a context, if n is compound */
+    private Entry GetEntry(NameComponent[] n) throws NotFound {
+        Entry entry;
+        synchronized(m_bindings) {
+            entry = (Entry)m_bindings.get(Key(n[0]));
+        }
+        if (entry == null) {
+            throw new NotFound(NotFoundReason.missing_node, n);
+        }
+        if ((n.length > 1) && (entry.Type != BindingType.ncontext)) {
+            throw new NotFound(NotFoundReason.not_context, n);
+        }
+        return entry;
+    }
+
+    /** returns the servant, if ctx is a context of this name service */
+    private NamingContextImpl LocalContext(org.omg.CORBA.Object ctx) {
+        try {
+            Servant servant = m_poa.reference_to_servant(ctx);
+            if (servant instanceof NamingContextImpl) {
+                return (NamingContextImpl)servant;
+            }
+        } catch (Exception e) {
+            // not one of ours
+        }
+        return null;
+    }
+
+    private void Deactivate() {
+        try {
+            m_poa.deactivate_object(m_poa.servant_to_id(this));
+        } catch (Exception e) {
+            // not active
+        }
+    }
+
+    private static void CheckName(NameComponent[] n) throws InvalidName {
+        if ((n == null) || (n.length == 0)) {
+            throw new InvalidName();
+        }
+        for (int i = 0; i < n.length; i++) {
+            if ((n[i] == null) || (n[i].id == null) || (n[i].kind == null)) {
+                throw new InvalidName();
+            }
+        }
+    }
+
+    private static NameComponent[] Rest(NameComponent[] n) {
+        NameComponent[] rest = new NameComponent[n.length - 1];
+        System.arraycopy(n, 1, rest, 0, rest.length);
+        return rest;
+    }
+
+    private static String Key(NameComponent component) {
+        // id and kind can contain any character except \u0000 (IDL string)
+        return component.id + '\u0000' + component.kind;
+    }
+
+
+    private static class Entry {
+
+        final NameComponent Name;
+        final org.omg.CORBA.Object Ref;
+        final BindingType Type;
+        /** the servant, if Ref is a context of this name service */
+        final NamingContextImpl Local;
+
+        Entry(NameComponent name, org.omg.CORBA.Object ref, BindingType type,
+              NamingContextImpl local) {
+            Name = name;
+            Ref = ref;
+            Type = type;
+            Local = local;
+        }
+
+    }
+
+
+    private static class BindingIteratorImpl extends BindingIteratorPOA {
+
+        private POA m_poa;
+        private Binding[] m_bindings;
+        private int m_next;
+
+        BindingIteratorImpl(POA poa, Binding[] bindings) {
+            m_poa = poa;
+            m_bindings = bindings;
+        }
+
+        BindingIterator Reference() {
+            ObjectImpl ref;
+            try {
+                ref = (ObjectImpl)m_poa.servant_to_reference(this);
+            } catch (Exception e) {
+                throw new OBJECT_NOT_EXIST("iterator not active: " + e);
+            }
+            _BindingIteratorStub stub = new _BindingIteratorStub();
+            stub._set_delegate(ref._get_delegate());
+            return stub;
+        }
+
+        public synchronized boolean next_one(BindingHolder b) {
+            if (m_next >= m_bindings.length) {
+                b.value = new Binding(new NameComponent[0], BindingType.nobject);
+                return false;
+            }
+            b.value = m_bindings[m_next++];
+            return true;
+        }
+
+        public synchronized boolean next_n(int how_many, BindingListHolder bl) {
+            if (how_many <= 0) {
+                throw new BAD_PARAM("how_many must be > 0");
+            }
+            int count = Math.min(how_many, m_bindings.length - m_next);
+            bl.value = new Binding[count];
+            System.arraycopy(m_bindings, m_next, bl.value, 0, count);
+            m_next += count;
+            return count > 0;
+        }
+
+        public void destroy() {
+            try {
+                m_poa.deactivate_object(m_poa.servant_to_id(this));
+            } catch (Exception e) {
+                // already destroyed
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,184 @@
+/* ContextTable.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The stateful CSIv2 contexts established at a server: maps a client
+ * context id to the authenticated user. As in CSIv2, a context is scoped to
+ * the transport connection it was established on: the key is the connection
+ * (compared by identity) and the context id. The connection is only weakly
+ * referenced: once the ORB released a closed connection, its contexts are
+ * dropped. An id, which is bound to a user, is not rebound to an
+ * other user (see put). The table holds at most maxSize
+ * contexts; when full, the least recently used one is dropped. A client
+ * referencing a dropped context receives a ContextError and establishes
+ * the context again.
+ * This class is thread safe.
+ */
+public class ContextTable {
+
+    private int m_maxSize;
+    private LinkedHashMap m_contexts;
+    /** the keys of the connections released by the ORB */
+    private ReferenceQueue m_released = new ReferenceQueue();
+
+    private long m_hits;
+    private long m_misses;
+    private long m_evictions;
+
+
+    public ContextTable(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
+        m_maxSize = maxSize;
+        // access order: get moves an entry to the end
+        m_contexts = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                if (size() > m_maxSize) {
+                    m_evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    /** returns the user of the context, or null if it is not known */
+    public synchronized String get(Object connection, long contextId) {
+        RemoveReleased();
+        String user = (String)m_contexts.get(new Key(connection, contextId, null));
+        if (user != null) {
+            m_hits++;
+        } else {
+            m_misses++;
+        }
+        return user;
+    }
+
+    /**
+     * binds the context to user; returns false without changing the table,
+     * if the context is already bound to an other user.
+     */
+    public synchronized boolean put(Object connection, long contextId, String user) {
+        RemoveReleased();
+        Key key = new Key(connection, contextId, m_released);
+        String current = (String)m_contexts.get(key);
+        if ((current != null) && !current.equals(user)) {
+            return false;
+        }
+        m_contexts.put(key, user);
+        return true;
+    }
+
+    public synchronized void remove(Object connection, long contextId) {
+        m_contexts.remove(new Key(connection, contextId, null));
+    }
+
+    public synchronized int size() {
+        RemoveReleased();
+        return m_contexts.size();
+    }
+
+    public int getMaxSize() {
+        return m_maxSize;
+    }
+
+    public synchronized long getHits() {
+        return m_hits;
+    }
+
+    public synchronized long getMisses() {
+        return m_misses;
+    }
+
+    public synchronized long getEvictions() {
+        return m_evictions;
+    }
+
+    public synchronized String toString() {
+        return "ContextTable[size=" + m_contexts.size() + "/" + m_maxSize + ", hits=" + m_hits +
+            ", misses=" + m_misses + ", evictions=" + m_evictions + "]";
+    }
+
+
+    /** drops the contexts of the connections released by the ORB */
+    private void RemoveReleased() {
+        Reference key;
+        while ((key = m_released.poll()) != null) {
+            m_contexts.remove(key);
+        }
+    }
+
+
+    /**
+     * a context id on a connection; the keys in the table are enqueued, when
+     * the connection is released
+     */
+    private static class Key extends WeakReference {
+
+        private final long m_contextId;
+        private final int m_hashCode;
+
+        Key(Object connection, long contextId, ReferenceQueue queue) {
+            super(connection, queue);
+            if (connection == null) {
+                throw new IllegalArgumentException("connection must be set");
+            }
+            m_contextId = contextId;
+            m_hashCode = System.identityHashCode(connection) ^ (int)(contextId ^ (contextId >>> 32));
+        }
+
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true; // also for a released key
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)other;
+            Object connection = get();
+            return (connection != null) && (connection == key.get()) &&
+                (m_contextId == key.m_contextId);
+        }
+
+        public int hashCode() {
+            return m_hashCode;
+        }
+
+    }
+
+}
@@ -0,0 +1,209 @@
+/* Csiv2ClientInterceptor.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+
+import org.omg.CORBA.BAD_PARAM;
+import org.omg.CORBA.LocalObject;
+import org.omg.IOP.ServiceContext;
+import org.omg.IOP.TaggedProfile;
+import org.omg.PortableInterceptor.ClientRequestInfo;
+import org.omg.PortableInterceptor.ClientRequestInterceptor;
+import org.omg.PortableInterceptor.ForwardRequest;
+
+import Ch.Elca.Iiop.Cdr.ObjectKey;
+
+
+/**
+ * Client side of the CSIv2 GSSUP username/password authentication: adds
+ * the security context with the credentials to each request.
+ * If stateful is true, the client proposes a context per server endpoint
+ * (host and port); once the server confirmed to keep it, the requests only
+ * reference the context instead of carrying the credentials. A request
+ * rejected because the server dropped the context is sent again with the
+ * credentials. Servers not supporting stateful contexts (or not answering
+ * with a SAS reply at all) keep receiving the credentials.
+ * Install with the Csiv2Initializer.
+ */
+public class Csiv2ClientInterceptor extends LocalObject implements ClientRequestInterceptor {
+
+    /** the default target name in the GSSUP token */
+    public static final String DEFAULT_TARGET_NAME = "default";
+
+    private byte[] m_authenticationToken;
+    private boolean m_stateful;
+    private SecureRandom m_random = new SecureRandom();
+
+    /** endpoint -> ClientContext; guarded by itself */
+    private HashMap m_contexts = new HashMap();
+
+
+    public Csiv2ClientInterceptor(String user, String password, String targetName,
+                                  boolean stateful) {
+        if ((user == null) || (password == null) || (targetName == null)) {
+            throw new IllegalArgumentException("user, password and target name must be set");
+        }
+        m_authenticationToken = SasMessage.EncodeGssupToken(user, password, targetName);
+        m_stateful = stateful;
+    }
+
+
+    public String name() {
+        return "Csiv2Client";
+    }
+
+    public void destroy() {
+    }
+
+    public void send_request(ClientRequestInfo ri) {
+        SasMessage message;
+        if (!m_stateful) {
+            message = SasMessage.EstablishContext(0, m_authenticationToken);
+        } else {
+            ClientContext context = GetContext(ri);
+            synchronized(context) {
+                if (context.StatelessOnly) {
+                    message = SasMessage.EstablishContext(0, m_authenticationToken);
+                } else if (context.Established) {
+                    message = SasMessage.MessageInContext(context.Id, false);
+                } else {
+                    message = SasMessage.EstablishContext(context.Id, m_authenticationToken);
+                }
+            }
+        }
+        ri.add_request_service_context(
+            new ServiceContext(SasMessage.SERVICE_CONTEXT_ID, message.Encode()), false);
+    }
+
+    public void send_poll(ClientRequestInfo ri) {
+    }
+
+    public void receive_reply(ClientRequestInfo ri) {
+        SasMessage reply = GetReply(ri);
+        if ((reply == null) || (reply.Type != SasMessage.COMPLETE_ESTABLISH_CONTEXT) ||
+            !m_stateful) {
+            return;
+        }
+        ClientContext context = GetContext(ri);
+        synchronized(context) {
+            if (reply.ContextId != context.Id) {
+                return;
+            }
+            if (reply.Stateful) {
+                context.Established = true;
+            } else {
+                // the server doesn't keep contexts
+                context.StatelessOnly = true;
+            }
+        }
+    }
+
+    public void receive_exception(ClientRequestInfo ri) throws ForwardRequest {
+        SasMessage reply = GetReply(ri);
+        if ((reply == null) || (reply.Type != SasMessage.CONTEXT_ERROR) ||
+            (reply.MajorStatus != SasMessage.NO_CONTEXT) || !m_stateful) {
+            return;
+        }
+        ClientContext context = GetContext(ri);
+        synchronized(context) {
+            if (reply.ContextId == context.Id) {
+                context.Established = false;
+            }
+        }
+        if (WasSentInContext(ri)) {
+            // the server didn't invoke the operation: send again, establishing the context
+            throw new ForwardRequest(ri.effective_target());
+        }
+    }
+
+    public void receive_other(ClientRequestInfo ri) {
+    }
+
+
+    /** the context for the server endpoint of the request */
+    private ClientContext GetContext(ClientRequestInfo ri) {
+        String endpoint = GetEndpoint(ri.effective_profile());
+        synchronized(m_contexts) {
+            ClientContext context = (ClientContext)m_contexts.get(endpoint);
+            if (context == null) {
+                long id;
+                do {
+                    id = m_random.nextLong();
+                } while (id == 0);
+                context = new ClientContext(id);
+                m_contexts.put(endpoint, context);
+            }
+            return context;
+        }
+    }
+
+    /** host:port of an iiop profile */
+    private static String GetEndpoint(TaggedProfile profile) {
+        ObjectKey key = ObjectKey.fromProfile(profile);
+        if (key == null) {
+            return "tag" + profile.tag;
+        }
+        return key.getHost() + ":" + key.getPort();
+    }
+
+    private static SasMessage GetReply(ClientRequestInfo ri) {
+        try {
+            return SasMessage.Decode(
+                ri.get_reply_service_context(SasMessage.SERVICE_CONTEXT_ID).context_data);
+        } catch (BAD_PARAM e) {
+            return null; // no SAS reply
+        }
+    }
+
+    private static boolean WasSentInContext(ClientRequestInfo ri) {
+        try {
+            return SasMessage.Decode(ri.get_request_service_context(
+                SasMessage.SERVICE_CONTEXT_ID).context_data).Type == SasMessage.MESSAGE_IN_CONTEXT;
+        } catch (BAD_PARAM e) {
+            return false;
+        }
+    }
+
+
+    private static class ClientContext {
+
+        final long Id;
+        /** the server confirmed to keep the context */
+        boolean Established;
+        /** the server doesn't support stateful contexts */
+        boolean StatelessOnly;
+
+        ClientContext(long id) {
+            Id = id;
+        }
+
+    }
+
+}
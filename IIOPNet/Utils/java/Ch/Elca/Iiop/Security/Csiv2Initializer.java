@@ -0,0 +1,168 @@
+/* Csiv2Initializer.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.util.Properties;
+import java.util.StringTokenizer;
+
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitInfoPackage.DuplicateName;
+import org.omg.PortableInterceptor.ORBInitializer;
+
+
+/**
+ * Installs the CSIv2 interceptors in an ORB. Register the initializer with
+ * the ORB property (or system property)
+ * org.omg.PortableInterceptor.ORBInitializerClass.Ch.Elca.Iiop.Security.Csiv2Initializer;
+ * the interceptors are then configured with system properties:
+ * <pre>
+ * csiv2.client.user           installs the client interceptor with this user
+ * csiv2.client.password
+ * csiv2.client.target         target name in the GSSUP token (default "default")
+ * csiv2.client.stateful       false: send the credentials with each request (default true)
+ * csiv2.server.users          installs the server interceptor: user:password,user:password...
+ * csiv2.server.stateful       false: don't keep contexts (default true); needs SSL/TLS,
+ *                             see Csiv2ServerInterceptor
+ * csiv2.server.contextTableSize   the maximum number of kept contexts (default 1000)
+ * csiv2.server.required       false: accept requests without security context (default true)
+ * csiv2.server.hashIterations the cost of a password verification (default 1000)
+ * </pre>
+ * Alternatively, initOrb creates an ORB with given interceptors.
+ */
+public class Csiv2Initializer extends LocalObject implements ORBInitializer {
+
+    public static final int DEFAULT_CONTEXT_TABLE_SIZE = 1000;
+
+    /** the interceptors for the ORB created by initOrb */
+    private static Csiv2ClientInterceptor s_pendingClient;
+    private static Csiv2ServerInterceptor s_pendingServer;
+    private static boolean s_pending;
+
+
+    /**
+     * creates an ORB with the given interceptors instead of the ones
+     * configured with system properties; client or server may be null.
+     */
+    public static ORB initOrb(String[] args, Properties props,
+                              Csiv2ClientInterceptor client, Csiv2ServerInterceptor server) {
+        Properties orbProps = new Properties();
+        orbProps.putAll(props);
+        orbProps.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                     Csiv2Initializer.class.getName(), "");
+        synchronized(Csiv2Initializer.class) {
+            s_pendingClient = client;
+            s_pendingServer = server;
+            s_pending = true;
+            try {
+                return ORB.init(args, orbProps);
+            } finally {
+                s_pendingClient = null;
+                s_pendingServer = null;
+                s_pending = false;
+            }
+        }
+    }
+
+
+    public void pre_init(ORBInitInfo info) {
+        Csiv2ClientInterceptor client;
+        Csiv2ServerInterceptor server;
+        synchronized(Csiv2Initializer.class) {
+            if (s_pending) {
+                client = s_pendingClient;
+                server = s_pendingServer;
+            } else {
+                client = CreateClientInterceptor();
+                server = CreateServerInterceptor();
+            }
+        }
+        try {
+            if (client != null) {
+                info.add_client_request_interceptor(client);
+            }
+            if (server != null) {
+                info.add_server_request_interceptor(server);
+            }
+        } catch (DuplicateName e) {
+            throw new org.omg.CORBA.INITIALIZE("CSIv2 interceptors already installed");
+        }
+    }
+
+    public void post_init(ORBInitInfo info) {
+    }
+
+
+    private static Csiv2ClientInterceptor CreateClientInterceptor() {
+        String user = System.getProperty("csiv2.client.user");
+        if (user == null) {
+            return null;
+        }
+        return new Csiv2ClientInterceptor(
+            user, System.getProperty("csiv2.client.password", ""),
+            System.getProperty("csiv2.client.target", Csiv2ClientInterceptor.DEFAULT_TARGET_NAME),
+            GetBoolean("csiv2.client.stateful", true));
+    }
+
+    private static Csiv2ServerInterceptor CreateServerInterceptor() {
+        String users = System.getProperty("csiv2.server.users");
+        if (users == null) {
+            return null;
+        }
+        ContextTable table = null;
+        if (GetBoolean("csiv2.server.stateful", true)) {
+            table = new ContextTable(GetInt("csiv2.server.contextTableSize",
+                                            DEFAULT_CONTEXT_TABLE_SIZE));
+        }
+        Csiv2ServerInterceptor server = new Csiv2ServerInterceptor(
+            table, GetBoolean("csiv2.server.required", true),
+            GetInt("csiv2.server.hashIterations", Csiv2ServerInterceptor.DEFAULT_HASH_ITERATIONS));
+        StringTokenizer entries = new StringTokenizer(users, ",");
+        while (entries.hasMoreTokens()) {
+            String entry = entries.nextToken().trim();
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("invalid entry in csiv2.server.users: " + entry);
+            }
+            server.addUser(entry.substring(0, separator), entry.substring(separator + 1));
+        }
+        return server;
+    }
+
+    private static boolean GetBoolean(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        return (value != null ? Boolean.valueOf(value.trim()).booleanValue() : defaultValue);
+    }
+
+    private static int GetInt(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        return (value != null ? Integer.parseInt(value.trim()) : defaultValue);
+    }
+
+}
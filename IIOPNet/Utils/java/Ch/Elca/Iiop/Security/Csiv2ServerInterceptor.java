@@ -0,0 +1,248 @@
+/* Csiv2ServerInterceptor.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+import org.omg.CORBA.BAD_PARAM;
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.NO_PERMISSION;
+import org.omg.IOP.ServiceContext;
+import org.omg.PortableInterceptor.ForwardRequest;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+import org.omg.PortableInterceptor.ServerRequestInterceptor;
+
+
+/**
+ * Server side of the CSIv2 GSSUP username/password authentication.
+ * An EstablishContext message is verified against the user table; if the
+ * client proposes a context id (not 0) and a ContextTable is configured,
+ * the context is kept and the following requests of the client only carry
+ * a MessageInContext referencing it, which is a table lookup instead of a
+ * password verification (stateful contexts, CSIv2 conformance level 0
+ * optional). Unknown contexts are answered with a ContextError.
+ * The passwords are kept as iterated, salted SHA-1 hashes; each
+ * verification costs the configured number of hash iterations.
+ * A stateful context is bound to the transport connection it was
+ * established on; a context id presented on an other connection is
+ * unknown there. This needs an ORB, which exposes the connection of a
+ * request (the sun ORB and JacORB do): with other ORBs, every context is
+ * established stateless and a MessageInContext is answered with a
+ * ContextError, so that a client authenticates with every request.
+ * The context id travels in clear with every request: stateful contexts
+ * must only be used over SSL/TLS.
+ * Install with the Csiv2Initializer.
+ */
+public class Csiv2ServerInterceptor extends LocalObject implements ServerRequestInterceptor {
+
+    /** the default number of hash iterations per password verification */
+    public static final int DEFAULT_HASH_ITERATIONS = 1000;
+
+    private ContextTable m_table;
+    private boolean m_required;
+    private int m_hashIterations;
+
+    /** user -> password hash; guarded by itself */
+    private HashMap m_users = new HashMap();
+
+    private long m_nrOfAuthentications;
+
+
+    /**
+     * table is null for stateless contexts only; if required is true,
+     * requests without security context are rejected with NO_PERMISSION.
+     */
+    public Csiv2ServerInterceptor(ContextTable table, boolean required, int hashIterations) {
+        if (hashIterations <= 0) {
+            throw new IllegalArgumentException("hashIterations must be > 0");
+        }
+        m_table = table;
+        m_required = required;
+        m_hashIterations = hashIterations;
+    }
+
+
+    public void addUser(String user, String password) {
+        synchronized(m_users) {
+            m_users.put(user, Hash(user, password));
+        }
+    }
+
+    /** the context table, or null for stateless contexts only */
+    public ContextTable getContextTable() {
+        return m_table;
+    }
+
+    /** the number of verified passwords */
+    public synchronized long getNrOfAuthentications() {
+        return m_nrOfAuthentications;
+    }
+
+    public String name() {
+        return "Csiv2Server";
+    }
+
+    public void destroy() {
+    }
+
+    public void receive_request_service_contexts(ServerRequestInfo ri) throws ForwardRequest {
+        ServiceContext context;
+        try {
+            context = ri.get_request_service_context(SasMessage.SERVICE_CONTEXT_ID);
+        } catch (BAD_PARAM e) {
+            if (m_required) {
+                throw new NO_PERMISSION("CSIv2 security context required", 0,
+                                        CompletionStatus.COMPLETED_NO);
+            }
+            return;
+        }
+        SasMessage message = SasMessage.Decode(context.context_data);
+        // stateful contexts need the connection, see GetConnection
+        Object connection = (m_table != null ? GetConnection(ri) : null);
+        switch (message.Type) {
+            case SasMessage.ESTABLISH_CONTEXT:
+                String[] credentials = SasMessage.DecodeGssupToken(message.Token);
+                if (!Authenticate(credentials[0], credentials[1])) {
+                    throw Reject(ri, SasMessage.ContextError(message.ContextId,
+                                                             SasMessage.INVALID_EVIDENCE),
+                                 "authentication failed");
+                }
+                boolean stateful = (connection != null) && (message.ContextId != 0);
+                if (stateful && !m_table.put(connection, message.ContextId, credentials[0])) {
+                    throw Reject(ri, SasMessage.ContextError(message.ContextId,
+                                                             SasMessage.CONFLICTING_EVIDENCE),
+                                 "security context in use for an other user");
+                }
+                SetReply(ri, SasMessage.CompleteEstablishContext(message.ContextId, stateful));
+                break;
+            case SasMessage.MESSAGE_IN_CONTEXT:
+                String user = (connection != null ? m_table.get(connection, message.ContextId) : null);
+                if (user == null) {
+                    throw Reject(ri, SasMessage.ContextError(message.ContextId,
+                                                             SasMessage.NO_CONTEXT),
+                                 "unknown security context");
+                }
+                if (message.Discard) {
+                    m_table.remove(connection, message.ContextId);
+                }
+                break;
+            default:
+                throw new NO_PERMISSION("unexpected SAS message " + message.Type, 0,
+                                        CompletionStatus.COMPLETED_NO);
+        }
+    }
+
+    public void receive_request(ServerRequestInfo ri) {
+    }
+
+    public void send_reply(ServerRequestInfo ri) {
+    }
+
+    public void send_exception(ServerRequestInfo ri) {
+    }
+
+    public void send_other(ServerRequestInfo ri) {
+    }
+
+
+    /**
+     * returns the transport connection of the request, or null if the ORB
+     * doesn't expose it. The ORB specific accessors are called by
+     * reflection, so that this class doesn't depend on an ORB:
+     * RequestInfoExt.connection() of the sun ORB and
+     * ServerRequestInfoImpl.request.getConnection() of JacORB.
+     */
+    private static Object GetConnection(ServerRequestInfo ri) {
+        try {
+            Method connection = FindMethod(ri.getClass(), "connection");
+            if (connection != null) {
+                return connection.invoke(ri, new Object[0]);
+            }
+            Field request = ri.getClass().getField("request");
+            Object serverRequest = request.get(ri);
+            Method getConnection = FindMethod(serverRequest.getClass(), "getConnection");
+            return (getConnection != null ? getConnection.invoke(serverRequest, new Object[0]) : null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Method FindMethod(Class cls, String name) {
+        try {
+            return cls.getMethod(name, new Class[0]);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private boolean Authenticate(String user, String password) {
+        byte[] expected;
+        synchronized(m_users) {
+            expected = (byte[])m_users.get(user);
+        }
+        // hash also for unknown users: the time doesn't tell, which users exist
+        byte[] actual = Hash(user, password);
+        synchronized(this) {
+            m_nrOfAuthentications++;
+        }
+        return (expected != null) && MessageDigest.isEqual(expected, actual);
+    }
+
+    private byte[] Hash(String user, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = (user + '\u0000' + password).getBytes("UTF-8");
+            for (int i = 0; i < m_hashIterations; i++) {
+                hash = digest.digest(hash);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not supported");
+        }
+    }
+
+    /** returns the exception to throw; the error is sent in the reply */
+    private NO_PERMISSION Reject(ServerRequestInfo ri, SasMessage error, String reason) {
+        SetReply(ri, error);
+        return new NO_PERMISSION(reason, 0, CompletionStatus.COMPLETED_NO);
+    }
+
+    private void SetReply(ServerRequestInfo ri, SasMessage reply) {
+        ri.add_reply_service_context(
+            new ServiceContext(SasMessage.SERVICE_CONTEXT_ID, reply.Encode()), true);
+    }
+
+}
@@ -0,0 +1,266 @@
+/* SasMessage.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.omg.CORBA.MARSHAL;
+
+import Ch.Elca.Iiop.Cdr.CdrInput;
+import Ch.Elca.Iiop.Cdr.CdrOutput;
+
+
+/**
+ * A message of the CSIv2 security attribute service (SAS), carried in the
+ * service context SERVICE_CONTEXT_ID; the body is the CDR encapsulation of
+ * the CSI::SASContextBody union.
+ * Only the messages needed for GSSUP username/password authentication are
+ * supported: authorization and identity tokens are not sent and are
+ * skipped when received.
+ */
+class SasMessage {
+
+    /** IOP::SecurityAttributeService */
+    static final int SERVICE_CONTEXT_ID = 15;
+
+    static final int ESTABLISH_CONTEXT = 0;
+    static final int COMPLETE_ESTABLISH_CONTEXT = 1;
+    static final int CONTEXT_ERROR = 4;
+    static final int MESSAGE_IN_CONTEXT = 5;
+
+    /** ContextError major status: invalid evidence */
+    static final int INVALID_EVIDENCE = 1;
+    /** ContextError major status: the context id is in use for other evidence */
+    static final int CONFLICTING_EVIDENCE = 3;
+    /** ContextError major status: the referenced context is not known */
+    static final int NO_CONTEXT = 4;
+
+    /** DER encoding of the GSSUP mechanism oid 2.23.130.1.1.1 */
+    private static final byte[] GSSUP_OID = new byte[] {
+        0x06, 0x06, 0x67, (byte)0x81, 0x02, 0x01, 0x01, 0x01 };
+
+    private static final int ITT_ABSENT = 0;
+    private static final int ITT_ANONYMOUS = 1;
+
+    final int Type;
+    final long ContextId;
+    /** client authentication token resp. final context token resp. error token */
+    final byte[] Token;
+    /** CompleteEstablishContext: the server keeps the context */
+    final boolean Stateful;
+    /** MessageInContext: the server should discard the context after the request */
+    final boolean Discard;
+    /** ContextError */
+    final int MajorStatus;
+
+    private SasMessage(int type, long contextId, byte[] token, boolean stateful,
+                       boolean discard, int majorStatus) {
+        Type = type;
+        ContextId = contextId;
+        Token = token;
+        Stateful = stateful;
+        Discard = discard;
+        MajorStatus = majorStatus;
+    }
+
+
+    static SasMessage EstablishContext(long contextId, byte[] authenticationToken) {
+        return new SasMessage(ESTABLISH_CONTEXT, contextId, authenticationToken, false, false, 0);
+    }
+
+    static SasMessage CompleteEstablishContext(long contextId, boolean stateful) {
+        return new SasMessage(COMPLETE_ESTABLISH_CONTEXT, contextId, new byte[0], stateful, false, 0);
+    }
+
+    static SasMessage ContextError(long contextId, int majorStatus) {
+        return new SasMessage(CONTEXT_ERROR, contextId, new byte[0], false, false, majorStatus);
+    }
+
+    static SasMessage MessageInContext(long contextId, boolean discard) {
+        return new SasMessage(MESSAGE_IN_CONTEXT, contextId, null, false, discard, 0);
+    }
+
+
+    /** the service context data */
+    byte[] Encode() {
+        CdrOutput out = new CdrOutput();
+        out.writeShort(Type);
+        out.writeLongLong(ContextId);
+        switch (Type) {
+            case ESTABLISH_CONTEXT:
+                out.writeLong(0); // no authorization elements
+                out.writeLong(ITT_ABSENT);
+                out.writeBoolean(true);
+                out.writeOctets(Token);
+                break;
+            case COMPLETE_ESTABLISH_CONTEXT:
+                out.writeBoolean(Stateful);
+                out.writeOctets(Token);
+                break;
+            case CONTEXT_ERROR:
+                out.writeLong(MajorStatus);
+                out.writeLong(1); // minor status
+                out.writeOctets(Token);
+                break;
+            case MESSAGE_IN_CONTEXT:
+                out.writeBoolean(Discard);
+                break;
+            default:
+                throw new IllegalStateException("unknown type " + Type);
+        }
+        return out.toByteArray();
+    }
+
+    static SasMessage Decode(byte[] data) {
+        CdrInput in = new CdrInput(data);
+        int type = in.readShort();
+        long contextId = in.readLongLong();
+        switch (type) {
+            case ESTABLISH_CONTEXT:
+                int nrOfElements = in.readLong();
+                for (int i = 0; i < nrOfElements; i++) {
+                    in.readLong(); // the_type
+                    in.readOctets(); // the_element
+                }
+                int identityType = in.readLong();
+                if ((identityType == ITT_ABSENT) || (identityType == ITT_ANONYMOUS)) {
+                    in.readBoolean();
+                } else {
+                    in.readOctets();
+                }
+                return EstablishContext(contextId, in.readOctets());
+            case COMPLETE_ESTABLISH_CONTEXT:
+                boolean stateful = in.readBoolean();
+                in.readOctets(); // final context token
+                return CompleteEstablishContext(contextId, stateful);
+            case CONTEXT_ERROR:
+                int majorStatus = in.readLong();
+                return ContextError(contextId, majorStatus);
+            case MESSAGE_IN_CONTEXT:
+                return MessageInContext(contextId, in.readBoolean());
+            default:
+                throw new MARSHAL("unknown SAS message type " + type);
+        }
+    }
+
+
+    /** the GSSUP InitialContextToken with the gss token framing */
+    static byte[] EncodeGssupToken(String user, String password, String targetName) {
+        CdrOutput inner = new CdrOutput();
+        inner.writeOctets(Utf8(user));
+        inner.writeOctets(Utf8(password));
+        inner.writeOctets(ExportedName(targetName));
+        byte[] innerData = inner.toByteArray();
+
+        ByteArrayOutputStream token = new ByteArrayOutputStream();
+        token.write(0x60);
+        WriteDerLength(token, GSSUP_OID.length + innerData.length);
+        token.write(GSSUP_OID, 0, GSSUP_OID.length);
+        token.write(innerData, 0, innerData.length);
+        return token.toByteArray();
+    }
+
+    /** returns { user, password } of a GSSUP InitialContextToken */
+    static String[] DecodeGssupToken(byte[] token) {
+        if ((token.length < 2) || ((token[0] & 0xff) != 0x60)) {
+            throw new MARSHAL("not a gss initial context token");
+        }
+        // skip the der length
+        int pos = 1;
+        int first = token[pos++] & 0xff;
+        if (first > 0x80) {
+            pos += first - 0x80;
+        }
+        for (int i = 0; i < GSSUP_OID.length; i++) {
+            if ((pos + i >= token.length) || (token[pos + i] != GSSUP_OID[i])) {
+                throw new MARSHAL("not a GSSUP token");
+            }
+        }
+        pos += GSSUP_OID.length;
+        byte[] innerData = new byte[token.length - pos];
+        System.arraycopy(token, pos, innerData, 0, innerData.length);
+        CdrInput inner = new CdrInput(innerData);
+        String user = FromUtf8(inner.readOctets());
+        String password = FromUtf8(inner.readOctets());
+        return new String[] { user, password };
+    }
+
+    /** a GSS exported name of the GSSUP mechanism */
+    private static byte[] ExportedName(String name) {
+        byte[] nameData = Utf8(name);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(0x04);
+        result.write(0x01);
+        result.write(GSSUP_OID.length >> 8);
+        result.write(GSSUP_OID.length);
+        result.write(GSSUP_OID, 0, GSSUP_OID.length);
+        result.write(nameData.length >> 24);
+        result.write(nameData.length >> 16);
+        result.write(nameData.length >> 8);
+        result.write(nameData.length);
+        result.write(nameData, 0, nameData.length);
+        return result.toByteArray();
+    }
+
+    private static void WriteDerLength(ByteArrayOutputStream out, int length) {
+        if (length < 0x80) {
+            out.write(length);
+        } else if (length < 0x100) {
+            out.write(0x81);
+            out.write(length);
+        } else if (length < 0x10000) {
+            out.write(0x82);
+            out.write(length >> 8);
+            out.write(length);
+        } else {
+            out.write(0x84);
+            out.write(length >> 24);
+            out.write(length >> 16);
+            out.write(length >> 8);
+            out.write(length);
+        }
+    }
+
+    private static byte[] Utf8(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not supported");
+        }
+    }
+
+    private static String FromUtf8(byte[] value) {
+        try {
+            return new String(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not supported");
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/* Csiv2Benchmark.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.portable.ApplicationException;
+import org.omg.CORBA.portable.InputStream;
+import org.omg.CORBA.portable.InvokeHandler;
+import org.omg.CORBA.portable.ObjectImpl;
+import org.omg.CORBA.portable.OutputStream;
+import org.omg.CORBA.portable.RemarshalException;
+import org.omg.CORBA.portable.ResponseHandler;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAHelper;
+import org.omg.PortableServer.Servant;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Security.ContextTable;
+import Ch.Elca.Iiop.Security.Csiv2ClientInterceptor;
+import Ch.Elca.Iiop.Security.Csiv2Initializer;
+import Ch.Elca.Iiop.Security.Csiv2ServerInterceptor;
+
+
+/**
+ * Measures the throughput of TestVoid calls authenticated with CSIv2
+ * GSSUP username/password: without security context, with stateless
+ * contexts (the credentials are verified on every call) and with stateful
+ * contexts (verified once per client). The last run uses more clients than
+ * the server's context table holds, so contexts are dropped and
+ * established again.
+ * Client and server orbs run in the same process.
+ *
+ * Usage: java Csiv2Benchmark [secondsPerRun] [hashIterations]
+ */
+public class Csiv2Benchmark {
+
+    private static final String USER = "bench";
+    private static final String PASSWORD = "secret";
+
+    private long m_millisPerRun;
+    private int m_hashIterations;
+
+    public Csiv2Benchmark(int secondsPerRun, int hashIterations) {
+        m_millisPerRun = secondsPerRun * 1000L;
+        m_hashIterations = hashIterations;
+    }
+
+
+    /** the server of the benchmark: TestVoid without arguments and result */
+    private static class VoidServant extends Servant implements InvokeHandler {
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { "IDL:Csiv2Benchmark/VoidService:1.0" };
+        }
+
+        public OutputStream _invoke(String method, InputStream in, ResponseHandler handler) {
+            if (!method.equals("TestVoid")) {
+                throw new BAD_OPERATION(method);
+            }
+            return handler.createReply();
+        }
+
+    }
+
+    private static void TestVoid(ObjectImpl target) throws ApplicationException {
+        while (true) {
+            try {
+                target._releaseReply(target._invoke(target._request("TestVoid", true)));
+                return;
+            } catch (RemarshalException e) {
+                // e.g. sent again after a dropped security context
+            }
+        }
+    }
+
+    /** returns the ior of a VoidServant in a new server orb */
+    private String StartServer(Csiv2ServerInterceptor interceptor) throws Exception {
+        interceptor.addUser(USER, PASSWORD);
+        ORB orb = Csiv2Initializer.initOrb(new String[0], new Properties(), null, interceptor);
+        POA rootPoa = POAHelper.narrow(orb.resolve_initial_references("RootPOA"));
+        rootPoa.the_POAManager().activate();
+        return orb.object_to_string(rootPoa.servant_to_reference(new VoidServant()));
+    }
+
+    private ObjectImpl Connect(String ior, Csiv2ClientInterceptor interceptor) throws Exception {
+        ORB orb = Csiv2Initializer.initOrb(new String[0], new Properties(), interceptor, null);
+        ObjectImpl target = (ObjectImpl)orb.string_to_object(ior);
+        TestVoid(target);
+        return target;
+    }
+
+    /** calls TestVoid on the clients in turn; returns the calls per second */
+    private long Measure(ObjectImpl[] clients) throws Exception {
+        long nrOfCalls = 0;
+        long end = System.currentTimeMillis() + m_millisPerRun;
+        while (System.currentTimeMillis() < end) {
+            TestVoid(clients[(int)(nrOfCalls % clients.length)]);
+            nrOfCalls++;
+        }
+        return nrOfCalls * 1000 / m_millisPerRun;
+    }
+
+    private void Print(String label, ObjectImpl[] clients, Csiv2ServerInterceptor server)
+        throws Exception {
+        Measure(clients); // warm up
+        long authenticationsBefore = server.getNrOfAuthentications();
+        long callsPerSecond = Measure(clients);
+        long authentications = server.getNrOfAuthentications() - authenticationsBefore;
+        System.out.println(Table.pad(label, 32) + Table.pad(String.valueOf(callsPerSecond), 12) +
+                           (authentications * 1000 / m_millisPerRun));
+    }
+
+    public void Run() throws Exception {
+        Csiv2ServerInterceptor server =
+            new Csiv2ServerInterceptor(new ContextTable(Csiv2Initializer.DEFAULT_CONTEXT_TABLE_SIZE),
+                                       false, m_hashIterations);
+        String ior = StartServer(server);
+        Csiv2ServerInterceptor smallServer =
+            new Csiv2ServerInterceptor(new ContextTable(4), false, m_hashIterations);
+        String smallIor = StartServer(smallServer);
+
+        ObjectImpl[] none = new ObjectImpl[] { Connect(ior, null) };
+        ObjectImpl[] stateless = new ObjectImpl[] {
+            Connect(ior, new Csiv2ClientInterceptor(USER, PASSWORD, "default", false)) };
+        ObjectImpl[] stateful = new ObjectImpl[] {
+            Connect(ior, new Csiv2ClientInterceptor(USER, PASSWORD, "default", true)) };
+        ObjectImpl[] churn = new ObjectImpl[8];
+        for (int i = 0; i < churn.length; i++) {
+            churn[i] = Connect(smallIor, new Csiv2ClientInterceptor(USER, PASSWORD, "default", true));
+        }
+
+        System.out.println("TestVoid, " + m_hashIterations + " hash iterations per verification");
+        System.out.println(Table.pad("contexts", 32) + Table.pad("calls/s", 12) + "verifications/s");
+        Print("none", none, server);
+        Print("stateless", stateless, server);
+        Print("stateful", stateful, server);
+        Print("stateful, 8 clients, table 4", churn, smallServer);
+        System.out.println();
+        System.out.println(server.getContextTable());
+        System.out.println(smallServer.getContextTable());
+    }
+
+    public static void main(String[] args) {
+        try {
+            int seconds = (args.length > 0 ? Integer.parseInt(args[0]) : 5);
+            int hashIterations = (args.length > 1 ? Integer.parseInt(args[1]) :
+                                  Csiv2ServerInterceptor.DEFAULT_HASH_ITERATIONS);
+            new Csiv2Benchmark(seconds, hashIterations).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+/* ForwardCacheBenchmark.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+
+import org.omg.CORBA.BAD_OPERATION;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA.Policy;
+import org.omg.CORBA.portable.ApplicationException;
+import org.omg.CORBA.portable.InputStream;
+import org.omg.CORBA.portable.InvokeHandler;
+import org.omg.CORBA.portable.ObjectImpl;
+import org.omg.CORBA.portable.OutputStream;
+import org.omg.CORBA.portable.RemarshalException;
+import org.omg.CORBA.portable.ResponseHandler;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitializer;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+import org.omg.PortableInterceptor.ServerRequestInterceptor;
+import org.omg.PortableServer.ForwardRequest;
+import org.omg.PortableServer.POA;
+import org.omg.PortableServer.POAHelper;
+import org.omg.PortableServer.RequestProcessingPolicyValue;
+import org.omg.PortableServer.Servant;
+import org.omg.PortableServer.ServantLocator;
+import org.omg.PortableServer.ServantRetentionPolicyValue;
+import org.omg.PortableServer.ServantLocatorPackage.CookieHolder;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Forward.ForwardCache;
+import Ch.Elca.Iiop.Forward.ForwardCacheInitializer;
+
+
+/**
+ * Counts the round trips of the first call on freshly created stubs of a
+ * home reference, which is answered with LOCATION_FORWARD like the homes of
+ * JBoss, WebSphere and WebLogic: without and with the ForwardCache. The last
+ * run moves the target: the stale cache entry fails with OBJECT_NOT_EXIST,
+ * is dropped and the call is sent again through the home.
+ * The round trips are counted by a server request interceptor; client and
+ * server orbs run in the same process.
+ *
+ * Usage: java ForwardCacheBenchmark [nrOfStubs]
+ */
+public class ForwardCacheBenchmark {
+
+    private static final String HOME_ID = "IDL:Ch/Elca/Iiop/IntegrationTests/TestHome:1.0";
+
+    /** the number of requests received by the server */
+    private static int s_nrOfRequests;
+
+    private int m_nrOfStubs;
+    private POA m_rootPoa;
+    private org.omg.CORBA.Object m_target;
+
+
+    public ForwardCacheBenchmark(int nrOfStubs) {
+        m_nrOfStubs = nrOfStubs;
+    }
+
+
+    /** the home bean: TestVoid without arguments and result */
+    private static class VoidServant extends Servant implements InvokeHandler {
+
+        public String[] _all_interfaces(POA poa, byte[] objectId) {
+            return new String[] { HOME_ID };
+        }
+
+        public OutputStream _invoke(String method, InputStream in, ResponseHandler handler) {
+            if (!method.equals("TestVoid")) {
+                throw new BAD_OPERATION(method);
+            }
+            return handler.createReply();
+        }
+
+    }
+
+    /** forwards all requests to the current target, like the naming/home poa of an application server */
+    private class Forwarder extends LocalObject implements ServantLocator {
+
+        public Servant preinvoke(byte[] oid, POA adapter, String operation,
+                                 CookieHolder cookie) throws ForwardRequest {
+            throw new ForwardRequest(GetTarget());
+        }
+
+        public void postinvoke(byte[] oid, POA adapter, String operation,
+                               java.lang.Object cookie, Servant servant) {
+        }
+
+    }
+
+    /** counts the received requests */
+    public static class CountingInitializer extends LocalObject implements ORBInitializer {
+
+        public void pre_init(ORBInitInfo info) {
+            try {
+                info.add_server_request_interceptor(new CountingInterceptor());
+            } catch (Exception e) {
+                throw new org.omg.CORBA.INITIALIZE("can't install the counter: " + e);
+            }
+        }
+
+        public void post_init(ORBInitInfo info) {
+        }
+
+    }
+
+    private static class CountingInterceptor extends LocalObject implements ServerRequestInterceptor {
+
+        public String name() {
+            return "Counting";
+        }
+
+        public void destroy() {
+        }
+
+        public void receive_request_service_contexts(ServerRequestInfo ri) {
+            synchronized (ForwardCacheBenchmark.class) {
+                s_nrOfRequests++;
+            }
+        }
+
+        public void receive_request(ServerRequestInfo ri) {
+        }
+
+        public void send_reply(ServerRequestInfo ri) {
+        }
+
+        public void send_exception(ServerRequestInfo ri) {
+        }
+
+        public void send_other(ServerRequestInfo ri) {
+        }
+
+    }
+
+
+    private static synchronized int GetNrOfRequests() {
+        return s_nrOfRequests;
+    }
+
+    private synchronized org.omg.CORBA.Object GetTarget() {
+        return m_target;
+    }
+
+    /** activates a new target object and deactivates the current one */
+    private void MoveTarget() throws Exception {
+        org.omg.CORBA.Object target = m_rootPoa.servant_to_reference(new VoidServant());
+        synchronized (this) {
+            if (m_target != null) {
+                m_rootPoa.deactivate_object(m_rootPoa.reference_to_id(m_target));
+            }
+            m_target = target;
+        }
+    }
+
+    /** returns the ior of the home, which forwards to the target */
+    private String StartServer() throws Exception {
+        Properties props = new Properties();
+        props.put("org.omg.PortableInterceptor.ORBInitializerClass." +
+                  CountingInitializer.class.getName(), "");
+        ORB orb = ORB.init(new String[0], props);
+        m_rootPoa = POAHelper.narrow(orb.resolve_initial_references("RootPOA"));
+        POA homePoa = m_rootPoa.create_POA("home", m_rootPoa.the_POAManager(), new Policy[] {
+            m_rootPoa.create_request_processing_policy(RequestProcessingPolicyValue.USE_SERVANT_MANAGER),
+            m_rootPoa.create_servant_retention_policy(ServantRetentionPolicyValue.NON_RETAIN) });
+        homePoa.set_servant_manager(new Forwarder());
+        m_rootPoa.the_POAManager().activate();
+        MoveTarget();
+        return orb.object_to_string(homePoa.create_reference_with_id("TestHome".getBytes(), HOME_ID));
+    }
+
+    private static void TestVoid(ObjectImpl target) throws ApplicationException {
+        while (true) {
+            try {
+                target._releaseReply(target._invoke(target._request("TestVoid", true)));
+                return;
+            } catch (RemarshalException e) {
+                // sent again to the forward target
+            }
+        }
+    }
+
+    /** issues the first call on nrOfStubs new stubs of the home */
+    private void Measure(String label, ORB orb, String homeIor, int nrOfStubs) throws Exception {
+        int requestsBefore = GetNrOfRequests();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nrOfStubs; i++) {
+            TestVoid((ObjectImpl)orb.string_to_object(homeIor));
+        }
+        long time = System.currentTimeMillis() - start;
+        int requests = GetNrOfRequests() - requestsBefore;
+        System.out.println(Table.pad(label, 28) + Table.pad(String.valueOf(nrOfStubs), 8) +
+                           Table.pad(String.valueOf((double)requests / nrOfStubs), 14) +
+                           ((double)time * 1000 / nrOfStubs));
+    }
+
+    public void Run() throws Exception {
+        String homeIor = StartServer();
+        ORB plainOrb = ORB.init(new String[0], new Properties());
+        ForwardCache cache = new ForwardCache(ForwardCacheInitializer.DEFAULT_CACHE_SIZE);
+        ORB cachingOrb = ForwardCacheInitializer.initOrb(new String[0], new Properties(), cache);
+
+        // warm up
+        Measure("warm up", plainOrb, homeIor, m_nrOfStubs);
+        Measure("warm up", cachingOrb, homeIor, m_nrOfStubs);
+        System.out.println();
+        System.out.println(Table.pad("first call on new stubs", 28) + Table.pad("stubs", 8) +
+                           Table.pad("round trips", 14) + "us/call");
+        Measure("no cache", plainOrb, homeIor, m_nrOfStubs);
+        Measure("forward cache", cachingOrb, homeIor, m_nrOfStubs);
+        MoveTarget();
+        Measure("target moved", cachingOrb, homeIor, 1);
+        Measure("forward cache", cachingOrb, homeIor, m_nrOfStubs);
+        System.out.println();
+        System.out.println(cache);
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfStubs = (args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+            new ForwardCacheBenchmark(nrOfStubs).Run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/* NameServiceBenchmark.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+import java.util.Properties;
+import java.util.Random;
+
+import org.omg.CORBA.ORB;
+import org.omg.CosNaming.NamingContextExt;
+import org.omg.CosNaming.NamingContextExtHelper;
+
+import Ch.Elca.Iiop.Benchmark.Table;
+import Ch.Elca.Iiop.Naming.EmbeddedNameService;
+
+
+/**
+ * Measures the EmbeddedNameService with many bindings: bulk binding and
+ * local resolution in the hosting process, and remote resolve throughput
+ * of clients using corbaloc::localhost:port/NameService.
+ * Both a flat layout (svc<i>) and a hierarchical one (dept<i % 100>/svc<i>)
+ * are bound in the same service; every name is bound to the same reference.
+ *
+ * Usage: java NameServiceBenchmark [nrOfNames] [port] [secondsPerRun]
+ */
+public class NameServiceBenchmark {
+
+    private static final int NR_OF_DEPARTMENTS = 100;
+
+    private int m_nrOfNames;
+    private int m_port;
+    private long m_millisPerRun;
+
+    public NameServiceBenchmark(int nrOfNames, int port, int secondsPerRun) {
+        m_nrOfNames = nrOfNames;
+        m_port = port;
+        m_millisPerRun = secondsPerRun * 1000L;
+    }
+
+    private String[] CreateNames(boolean hierarchical) {
+        String[] names = new String[m_nrOfNames];
+        for (int i = 0; i < m_nrOfNames; i++) {
+            names[i] = (hierarchical ? "dept" + (i % NR_OF_DEPARTMENTS) + "/svc" + i : "svc" + i);
+        }
+        return names;
+    }
+
+    /** resolves random names of names with nrOfThreads clients for m_millisPerRun */
+    private long MeasureRemote(final NamingContextExt[] clients, final String[] names,
+                               int nrOfThreads) throws Exception {
+        final long[] counts = new long[nrOfThreads];
+        final long end = System.currentTimeMillis() + m_millisPerRun;
+        Thread[] threads = new Thread[nrOfThreads];
+        for (int t = 0; t < nrOfThreads; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    NamingContextExt root = clients[index];
+                    Random random = new Random(index);
+                    try {
+                        while (System.currentTimeMillis() < end) {
+                            root.resolve_str(names[random.nextInt(names.length)]);
+                            counts[index]++;
+                        }
+                    } catch (Exception e) {
+                        System.out.println("resolve failed: " + e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long total = 0;
+        for (int t = 0; t < nrOfThreads; t++) {
+            threads[t].join();
+            total += counts[t];
+        }
+        return total * 1000 / m_millisPerRun;
+    }
+
+    private void RunLayout(String label, boolean hierarchical, EmbeddedNameService service,
+                           NamingContextExt[] clients) throws Exception {
+        String[] names = CreateNames(hierarchical);
+        org.omg.CORBA.Object[] objs = new org.omg.CORBA.Object[names.length];
+        java.util.Arrays.fill(objs, service.getRootContext());
+
+        long start = System.currentTimeMillis();
+        service.bindAll(names, objs, false);
+        long bindTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        start = System.currentTimeMillis();
+        service.resolveAll(names);
+        long resolveTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        // warm up
+        MeasureRemote(clients, names, clients.length);
+        long remote1 = MeasureRemote(clients, names, 1);
+        long remoteN = MeasureRemote(clients, names, clients.length);
+
+        System.out.println(Table.pad(label, 14) + Table.pad(String.valueOf(m_nrOfNames * 1000L / bindTime), 12) +
+                           Table.pad(String.valueOf(m_nrOfNames * 1000L / resolveTime), 14) +
+                           Table.pad(String.valueOf(remote1), 14) + remoteN);
+    }
+
+    public void Run(int nrOfClientThreads) throws Exception {
+        EmbeddedNameService service = new EmbeddedNameService(m_port);
+        // one client orb per thread: the clients shouldn't share a connection
+        NamingContextExt[] clients = new NamingContextExt[nrOfClientThreads];
+        for (int i = 0; i < nrOfClientThreads; i++) {
+            ORB clientOrb = ORB.init(new String[0], new Properties());
+            // narrow connects; the first requests of an orb must not be concurrent
+            clients[i] = NamingContextExtHelper.narrow(
+                clientOrb.string_to_object(service.getCorbaloc("localhost")));
+        }
+        System.out.println(m_nrOfNames + " names, remote resolves for " + (m_millisPerRun / 1000) + "s");
+        System.out.println(Table.pad("layout", 14) + Table.pad("binds/s", 12) + Table.pad("local res/s", 14) +
+                           Table.pad("remote 1 thr", 14) + "remote " + nrOfClientThreads + " thr");
+        // both layouts are bound in the same service
+        RunLayout("flat", false, service, clients);
+        RunLayout("hierarchical", true, service, clients);
+        service.shutdown();
+    }
+
+    public static void main(String[] args) {
+        try {
+            int nrOfNames = (args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+            int port = (args.length > 1 ? Integer.parseInt(args[1]) : 8099);
+            int seconds = (args.length > 2 ? Integer.parseInt(args[2]) : 5);
+            new NameServiceBenchmark(nrOfNames, port, seconds).Run(8);
+        } catch (Exception e) {
+            System.out.println("Trouble: " + e); e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/* DeepCopierTest.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Local;
+
+import java.io.Serializable;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+/**
+ * Tests, that the DeepCopier runs the no-arg constructor of registered
+ * classes only: other classes are copied with serialization, like the
+ * arguments of remote calls. Both copies keep sharing and cycles.
+ */
+public class DeepCopierTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(suite());
+        System.exit(0);
+    }
+
+    public static Test suite() {
+        return new TestSuite(DeepCopierTest.class);
+    }
+
+    public void testUnregisteredClassNotConstructed() throws Exception {
+        Node node = new Node("a");
+        node.Next = new Node("b");
+        node.Next.Next = node;
+        int constructed = Node.s_constructed;
+        Node copy = (Node)DeepCopier.copy(node);
+        assertEquals(constructed, Node.s_constructed);
+        assertNotSame(node, copy);
+        assertEquals("a", copy.Name);
+        assertEquals("b", copy.Next.Name);
+        assertSame(copy, copy.Next.Next);
+    }
+
+    public void testRegisteredClassCopiedByConstructor() throws Exception {
+        DeepCopier.copyFieldByField(RegisteredNode.class);
+        RegisteredNode node = new RegisteredNode("a");
+        node.Next = new RegisteredNode("b");
+        node.Next.Next = node;
+        int constructed = RegisteredNode.s_constructed;
+        RegisteredNode copy = (RegisteredNode)DeepCopier.copy(node);
+        assertEquals(constructed + 2, RegisteredNode.s_constructed);
+        assertNotSame(node, copy);
+        assertEquals("a", copy.Name);
+        assertEquals("b", copy.Next.Name);
+        assertSame(copy, copy.Next.Next);
+    }
+
+    public void testRegisteredClassWithTransientField() throws Exception {
+        DeepCopier.copyFieldByField(TransientNode.class);
+        TransientNode node = new TransientNode();
+        node.Name = "a";
+        TransientNode copy = (TransientNode)DeepCopier.copy(node);
+        assertEquals("a", copy.Name);
+        // left at its default value, as by deserialization
+        assertNull(copy.Cache);
+    }
+
+    public void testSharedWithinArray() throws Exception {
+        Node node = new Node("a");
+        Object[] copy = (Object[])DeepCopier.copy(new Object[] { node, node });
+        assertNotSame(node, copy[0]);
+        assertSame(copy[0], copy[1]);
+    }
+
+
+    /** counts its instances */
+    public static class Node implements Serializable {
+
+        static int s_constructed;
+
+        public String Name;
+        public Node Next;
+
+        public Node() {
+            s_constructed++;
+        }
+
+        public Node(String name) {
+            this();
+            Name = name;
+        }
+
+    }
+
+    /** counts its instances; registered for the copy field by field */
+    public static class RegisteredNode implements Serializable {
+
+        static int s_constructed;
+
+        public String Name;
+        public RegisteredNode Next;
+
+        public RegisteredNode() {
+            s_constructed++;
+        }
+
+        public RegisteredNode(String name) {
+            this();
+            Name = name;
+        }
+
+    }
+
+    public static class TransientNode implements Serializable {
+
+        public String Name;
+        public transient Object Cache = new Object();
+
+    }
+
+}
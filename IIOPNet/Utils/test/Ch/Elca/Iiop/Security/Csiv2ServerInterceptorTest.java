@@ -0,0 +1,183 @@
+/* Csiv2ServerInterceptorTest.java
+ *
+ * Project: IIOP.NET
+ * Utils
+ *
+ * WHEN      RESPONSIBLE
+ * 19.10.26  IIOP.NET team
+ *
+ * Copyright 2003 ELCA Informatique SA
+ * Av. de la Harpe 22-24, 1000 Lausanne 13, Switzerland
+ * www.elca.ch
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package Ch.Elca.Iiop.Security;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.omg.CORBA.BAD_PARAM;
+import org.omg.CORBA.NO_PERMISSION;
+import org.omg.IOP.ServiceContext;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+
+
+/**
+ * Tests the stateful contexts of the Csiv2ServerInterceptor: contexts are
+ * bound to the connection, ORBs without connection get stateless contexts
+ * only, and the contexts of a released connection are dropped.
+ * The requests are simulated with ServerRequestInfo proxies.
+ */
+public class Csiv2ServerInterceptorTest extends TestCase {
+
+    private static final String USER = "user";
+    private static final String PASSWORD = "password";
+
+    private ContextTable m_table;
+    private Csiv2ServerInterceptor m_interceptor;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(suite());
+        System.exit(0);
+    }
+
+    public static Test suite() {
+        return new TestSuite(Csiv2ServerInterceptorTest.class);
+    }
+
+    protected void setUp() {
+        m_table = new ContextTable(100);
+        m_interceptor = new Csiv2ServerInterceptor(m_table, true, 1);
+        m_interceptor.addUser(USER, PASSWORD);
+    }
+
+    public void testStatefulContext() throws Exception {
+        Object connection = new Object();
+        SasMessage reply = Receive(Establish(7), connection);
+        assertEquals(SasMessage.COMPLETE_ESTABLISH_CONTEXT, reply.Type);
+        assertTrue(reply.Stateful);
+        assertEquals(1, m_table.size());
+        assertNull(Receive(SasMessage.MessageInContext(7, false), connection));
+        assertNull(Receive(SasMessage.MessageInContext(7, true), connection));
+        assertEquals(0, m_table.size());
+    }
+
+    /** an ORB, which doesn't expose the connection, must not share the contexts */
+    public void testUnknownConnection() throws Exception {
+        SasMessage reply = Receive(Establish(7), null);
+        assertEquals(SasMessage.COMPLETE_ESTABLISH_CONTEXT, reply.Type);
+        assertEquals(7, reply.ContextId);
+        assertFalse(reply.Stateful);
+        assertEquals(0, m_table.size());
+        AssertNoContext(SasMessage.MessageInContext(7, false), null);
+    }
+
+    public void testContextBoundToConnection() throws Exception {
+        Object connection = new Object();
+        assertTrue(Receive(Establish(7), connection).Stateful);
+        AssertNoContext(SasMessage.MessageInContext(7, false), new Object());
+        AssertNoContext(SasMessage.MessageInContext(7, false), null);
+        assertNull(Receive(SasMessage.MessageInContext(7, false), connection));
+    }
+
+    public void testReleasedConnection() throws Exception {
+        Object connection = new Object();
+        assertTrue(Receive(Establish(7), connection).Stateful);
+        assertTrue(Receive(Establish(8), connection).Stateful);
+        assertEquals(2, m_table.size());
+        connection = null;
+        for (int i = 0; (i < 50) && (m_table.size() > 0); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, m_table.size());
+    }
+
+
+    private SasMessage Establish(long contextId) {
+        return SasMessage.EstablishContext(contextId,
+                                           SasMessage.EncodeGssupToken(USER, PASSWORD, ""));
+    }
+
+    private void AssertNoContext(SasMessage request, Object connection) throws Exception {
+        RequestInfo ri = new RequestInfo(request, connection);
+        try {
+            m_interceptor.receive_request_service_contexts(ri.Proxy());
+            fail("NO_PERMISSION expected");
+        } catch (NO_PERMISSION e) {
+            assertEquals(SasMessage.CONTEXT_ERROR, ri.m_reply.Type);
+            assertEquals(SasMessage.NO_CONTEXT, ri.m_reply.MajorStatus);
+        }
+    }
+
+    /** returns the SAS message of the reply, or null if there is none */
+    private SasMessage Receive(SasMessage request, Object connection) throws Exception {
+        RequestInfo ri = new RequestInfo(request, connection);
+        m_interceptor.receive_request_service_contexts(ri.Proxy());
+        return ri.m_reply;
+    }
+
+
+    /** the accessor of the connection, as offered by the sun ORB */
+    public interface ConnectionAccess {
+        Object connection();
+    }
+
+    /** a request carrying a SAS message, on connection (null: not exposed) */
+    private static class RequestInfo implements InvocationHandler {
+
+        private final SasMessage m_request;
+        private final Object m_connection;
+        SasMessage m_reply;
+
+        RequestInfo(SasMessage request, Object connection) {
+            m_request = request;
+            m_connection = connection;
+        }
+
+        ServerRequestInfo Proxy() {
+            Class[] types = (m_connection != null ?
+                             new Class[] { ServerRequestInfo.class, ConnectionAccess.class } :
+                             new Class[] { ServerRequestInfo.class });
+            return (ServerRequestInfo)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                             types, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("connection")) {
+                return m_connection;
+            } else if (name.equals("get_request_service_context")) {
+                if (((Integer)args[0]).intValue() != SasMessage.SERVICE_CONTEXT_ID) {
+                    throw new BAD_PARAM();
+                }
+                return new ServiceContext(SasMessage.SERVICE_CONTEXT_ID, m_request.Encode());
+            } else if (name.equals("add_reply_service_context")) {
+                m_reply = SasMessage.Decode(((ServiceContext)args[0]).context_data);
+                return null;
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+    }
+
+}